@@ -0,0 +1,114 @@
+package com.orderapp.benchmark;
+
+import com.orderapp.security.BearerTokenAuthenticationFilter;
+import com.orderapp.security.CachingAuthenticationProvider;
+import com.orderapp.security.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating an API call: HTTP Basic against a BCrypt password
+ * with and without the credentials cache, and a bearer token from POST /auth/token.
+ * Each call runs the authentication filter once with a no-op chain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    private BasicAuthenticationFilter basicFilter;
+    private BasicAuthenticationFilter cachedBasicFilter;
+    private BearerTokenAuthenticationFilter bearerFilter;
+
+    private MockHttpServletRequest basicRequest;
+    private MockHttpServletRequest bearerRequest;
+
+    @Setup
+    public void setUp() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+        InMemoryUserDetailsManager users = new InMemoryUserDetailsManager(
+            User.withUsername("bench").password(encoder.encode("secret")).roles("USER").build());
+        DaoAuthenticationProvider daoProvider = new DaoAuthenticationProvider();
+        daoProvider.setUserDetailsService(users);
+        daoProvider.setPasswordEncoder(encoder);
+
+        AuthenticationProvider cachingProvider = new CachingAuthenticationProvider(daoProvider, 10_000, 300);
+        basicFilter = new BasicAuthenticationFilter(new ProviderManager(daoProvider));
+        cachedBasicFilter = new BasicAuthenticationFilter(new ProviderManager(cachingProvider));
+
+        TokenService tokenService = new TokenService("benchmark-secret-of-at-least-32-bytes", 900);
+        bearerFilter = new BearerTokenAuthenticationFilter(tokenService);
+
+        basicRequest = request("Basic " + Base64.getEncoder()
+            .encodeToString("bench:secret".getBytes(StandardCharsets.UTF_8)));
+        Authentication authenticated = UsernamePasswordAuthenticationToken.authenticated(
+            "bench", null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+        bearerRequest = request("Bearer " + tokenService.issue(authenticated));
+    }
+
+    @Benchmark
+    public Authentication basicBcrypt() throws ServletException, IOException {
+        return run(basicFilter, basicRequest);
+    }
+
+    @Benchmark
+    public Authentication basicCached() throws ServletException, IOException {
+        return run(cachedBasicFilter, basicRequest);
+    }
+
+    @Benchmark
+    public Authentication bearerToken() throws ServletException, IOException {
+        return run(bearerFilter, bearerRequest);
+    }
+
+    private static Authentication run(Filter filter, MockHttpServletRequest request)
+            throws ServletException, IOException {
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), NO_OP_CHAIN);
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private static MockHttpServletRequest request(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/orders");
+        request.addHeader(HttpHeaders.AUTHORIZATION, authorization);
+        return request;
+    }
+}
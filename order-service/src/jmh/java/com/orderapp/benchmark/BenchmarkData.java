@@ -0,0 +1,68 @@
+package com.orderapp.benchmark;
+
+import com.orderapp.entity.Address;
+import com.orderapp.entity.Money;
+import com.orderapp.entity.Order;
+import com.orderapp.entity.OrderItem;
+import com.orderapp.entity.Product;
+import com.orderapp.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Detached entity fixtures shaped like what OrderService loads, without a database
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    static User user() {
+        User user = new User("Ada", "Lovelace", "ada.lovelace@example.com");
+        user.setId(UUID.randomUUID());
+        return user;
+    }
+
+    static List<Product> products(int count) {
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Product product = new Product("Product " + i, "SKU-" + i, price(i));
+            product.setId(UUID.randomUUID());
+            products.add(product);
+        }
+        return products;
+    }
+
+    static List<OrderItem> items(List<Product> products) {
+        List<OrderItem> items = new ArrayList<>(products.size());
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            OrderItem item = new OrderItem(product, 1 + i % 5, Money.of(product.getPrice()));
+            item.setId(UUID.randomUUID());
+            items.add(item);
+        }
+        return items;
+    }
+
+    static Order order(User user, List<OrderItem> items) {
+        Order order = new Order(user, "ORD-" + System.nanoTime());
+        order.setId(UUID.randomUUID());
+        order.setShippingAddress(new Address("221B Baker Street", "London", "Greater London", "NW1 6XE", "UK"));
+        order.setNotes("Leave with the concierge");
+        order.setShippingAmount(Money.ofMinor(499));
+        for (OrderItem item : items) {
+            order.addOrderItem(item);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+        return order;
+    }
+
+    private static BigDecimal price(int i) {
+        return BigDecimal.valueOf(199 + (i * 37L) % 10_000, 2);
+    }
+}
@@ -0,0 +1,110 @@
+package com.orderapp.benchmark;
+
+import com.orderapp.cache.CompactRedisSerializer;
+import com.orderapp.config.CacheConfig;
+import com.orderapp.dto.OrderResponse;
+import com.orderapp.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis value serialization of cached orders and order pages in each value format:
+ * the typed JSON of older releases, the compact binary format, and compact with LZ4.
+ * The stored size of each value is printed once per trial, before the timings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheSerializationBenchmark {
+
+    @Param({"json", "compact", "compact-lz4"})
+    private String format;
+
+    @Param({"20"})
+    private int pageSize;
+
+    @Param({"3"})
+    private int linesPerOrder;
+
+    private RedisSerializer<Object> serializer;
+    private OrderResponse order;
+    private List<OrderResponse> orders;
+    private Page<OrderResponse> page;
+    private byte[] orderBytes;
+    private byte[] ordersBytes;
+    private byte[] pageBytes;
+
+    @Setup
+    public void setUp() {
+        switch (format) {
+            case "json":
+                serializer = CacheConfig.jsonValueSerializer();
+                break;
+            case "compact":
+                serializer = new CompactRedisSerializer(CacheConfig.jsonValueSerializer(), true, -1);
+                break;
+            default:
+                serializer = new CompactRedisSerializer(CacheConfig.jsonValueSerializer(), true, 1024);
+        }
+        User user = BenchmarkData.user();
+        orders = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            orders.add(new OrderResponse(BenchmarkData.order(user,
+                BenchmarkData.items(BenchmarkData.products(linesPerOrder)))));
+        }
+        order = orders.get(0);
+        page = new PageImpl<>(orders, PageRequest.of(0, pageSize, Sort.by("createdAt").descending()), pageSize * 5L);
+        orderBytes = serializer.serialize(order);
+        ordersBytes = serializer.serialize(orders);
+        pageBytes = serializer.serialize(page);
+        System.out.printf("%n%s: order %d bytes, %d orders %d bytes, page %d bytes%n",
+            format, orderBytes.length, pageSize, ordersBytes.length, pageBytes.length);
+    }
+
+    @Benchmark
+    public byte[] serializeOrder() {
+        return serializer.serialize(order);
+    }
+
+    @Benchmark
+    public Object deserializeOrder() {
+        return serializer.deserialize(orderBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeOrders() {
+        return serializer.serialize(orders);
+    }
+
+    // A page's content as a list: PageImpl has no creator Jackson can use, so json cannot read pages back
+    @Benchmark
+    public Object deserializeOrders() {
+        return serializer.deserialize(ordersBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeUserOrdersPage() {
+        return serializer.serialize(page);
+    }
+}
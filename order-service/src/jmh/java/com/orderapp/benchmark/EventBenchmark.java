@@ -0,0 +1,69 @@
+package com.orderapp.benchmark;
+
+import com.orderapp.entity.Order;
+import com.orderapp.event.OrderCreatedEvent;
+import com.orderapp.event.OrderEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderCreatedEvent construction and its Kafka value serialization,
+ * using the JsonSerializer that KafkaConfig configures on the producer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventBenchmark {
+
+    private static final String TOPIC = "order-events";
+
+    @Param({"1", "10", "100"})
+    private int lines;
+
+    private Order order;
+    private OrderCreatedEvent event;
+    private JsonSerializer<OrderEvent> serializer;
+
+    @Setup
+    public void setUp() {
+        order = BenchmarkData.order(BenchmarkData.user(), BenchmarkData.items(BenchmarkData.products(lines)));
+        event = new OrderCreatedEvent(order);
+        serializer = new JsonSerializer<>();
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializer.close();
+    }
+
+    @Benchmark
+    public OrderCreatedEvent createEvent() {
+        return new OrderCreatedEvent(order);
+    }
+
+    @Benchmark
+    public byte[] serializeEvent() {
+        return serializer.serialize(TOPIC, event);
+    }
+
+    @Benchmark
+    public byte[] createAndSerializeEvent() {
+        return serializer.serialize(TOPIC, new OrderCreatedEvent(order));
+    }
+}
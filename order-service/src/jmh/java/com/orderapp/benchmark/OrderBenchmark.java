@@ -0,0 +1,68 @@
+package com.orderapp.benchmark;
+
+import com.orderapp.dto.OrderResponse;
+import com.orderapp.entity.Order;
+import com.orderapp.entity.OrderItem;
+import com.orderapp.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart building and response mapping on the order aggregate.
+ * addOrderItem adjusts the running total by the added line, so building a cart should grow
+ * linearly in its lines; calculateTotalAmount is the full recount over every line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    private int lines;
+
+    private User user;
+    private List<OrderItem> items;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        user = BenchmarkData.user();
+        items = BenchmarkData.items(BenchmarkData.products(lines));
+        order = BenchmarkData.order(user, items);
+    }
+
+    @Benchmark
+    public Order buildCart() {
+        Order cart = new Order(user, "ORD-BENCH");
+        for (OrderItem item : items) {
+            cart.addOrderItem(item);
+        }
+        return cart;
+    }
+
+    @Benchmark
+    public Order calculateTotalAmount() {
+        order.calculateTotalAmount();
+        return order;
+    }
+
+    @Benchmark
+    public OrderResponse mapToResponse() {
+        return new OrderResponse(order);
+    }
+}
@@ -0,0 +1,202 @@
+package com.orderapp.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.orderapp.event.OrderCreatedEvent;
+import com.orderapp.metrics.OrderMetrics;
+import com.orderapp.publish.EventPublishPipeline;
+import com.orderapp.publish.OverflowPolicy;
+import com.orderapp.publish.PublishProfile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishing one order's events (order-events and order-analytics) from four request
+ * threads while the broker is slow: sending through KafkaTemplate on the request thread,
+ * as OrderEventPublisher used to, against handing the events to EventPublishPipeline
+ * with the BLOCK and SHED overflow policies. The broker is a MockProducer that takes one
+ * record per brokerDelayMicros, the way a real send stalls once the producer's buffer is
+ * full. Each request also waits 100us on the "database" first, so request threads leave
+ * the CPU to the sender threads as real ones do. Throughput is requests per millisecond
+ * and sample time the request latency, that wait included; the queued and dropped
+ * counters are events per millisecond accepted and shed. The queues are
+ * bounded, so over a run the queued rate is the rate the broker absorbs. SPILL also runs
+ * with -p publisher=SPILL, but writes every overflowing event to a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class PublishBenchmark {
+
+    private static final String EVENTS_TOPIC = "order-events";
+    private static final String ANALYTICS_TOPIC = "order-analytics";
+    private static final long REQUEST_WORK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @Param({"DIRECT", "BLOCK", "SHED"})
+    private String publisher;
+
+    @Param({"0", "200"})
+    private long brokerDelayMicros;
+
+    private KafkaTemplate<String, Object> eventsTemplate;
+    private KafkaTemplate<String, Object> analyticsTemplate;
+    private EventPublishPipeline pipeline;
+    private Path spillDirectory;
+
+    private OrderCreatedEvent event;
+    private String key;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        event = new OrderCreatedEvent(BenchmarkData.order(BenchmarkData.user(),
+            BenchmarkData.items(BenchmarkData.products(3))));
+        key = event.getOrderNumber();
+
+        long delayNanos = TimeUnit.MICROSECONDS.toNanos(brokerDelayMicros);
+        eventsTemplate = template(new SlowBroker(delayNanos));
+        analyticsTemplate = template(new SlowBroker(delayNanos));
+        if ("DIRECT".equals(publisher)) {
+            return;
+        }
+
+        OverflowPolicy policy = OverflowPolicy.valueOf(publisher);
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        spillDirectory = Files.createTempDirectory("publish-benchmark");
+        pipeline = new EventPublishPipeline(
+            List.of(new PublishProfile(PublishProfile.EVENTS, eventsTemplate, 10_000, policy, 50),
+                    new PublishProfile(PublishProfile.ANALYTICS, analyticsTemplate, 10_000, policy, 50)),
+            new OrderMetrics(new SimpleMeterRegistry(), 100), objectMapper, spillDirectory.toString(), 5);
+        pipeline.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException, IOException {
+        if (pipeline != null) {
+            pipeline.stop();
+            FileSystemUtils.deleteRecursively(spillDirectory);
+        }
+    }
+
+    @Benchmark
+    public void publishOrderEvents(Outcome outcome) {
+        await(REQUEST_WORK_NANOS);
+        if (pipeline == null) {
+            eventsTemplate.send(EVENTS_TOPIC, key, event);
+            analyticsTemplate.send(ANALYTICS_TOPIC, key, event);
+            outcome.queued += 2;
+            return;
+        }
+        outcome.count(pipeline.publish(PublishProfile.EVENTS, EVENTS_TOPIC, key, event));
+        outcome.count(pipeline.publish(PublishProfile.ANALYTICS, ANALYTICS_TOPIC, key, event));
+    }
+
+    private static void await(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        for (long left = nanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(left);
+        }
+    }
+
+    private static KafkaTemplate<String, Object> template(SlowBroker broker) {
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(() -> broker);
+        template.setMicrometerEnabled(false);
+        return template;
+    }
+
+    /**
+     * Events accepted and shed, reported per millisecond
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcome {
+        public long queued;
+        public long dropped;
+
+        void count(boolean accepted) {
+            if (accepted) {
+                queued++;
+            } else {
+                dropped++;
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            queued = 0;
+            dropped = 0;
+        }
+    }
+
+    /**
+     * A broker that takes one record at a time, each after a fixed delay. Records are
+     * serialized and acknowledged but not kept.
+     */
+    private static final class SlowBroker extends MockProducer<String, Object> {
+
+        private final long delayNanos;
+        private final JsonSerializer<Object> valueSerializer = new JsonSerializer<>();
+
+        private SlowBroker(long delayNanos) {
+            super(true, new StringSerializer(), new JsonSerializer<>());
+            this.delayNanos = delayNanos;
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<String, Object> record, Callback callback) {
+            await(delayNanos);
+            byte[] value = valueSerializer.serialize(record.topic(), record.value());
+            RecordMetadata metadata = new RecordMetadata(new TopicPartition(record.topic(), 0), 0, 0,
+                System.currentTimeMillis(), -1, value.length);
+            if (callback != null) {
+                callback.onCompletion(metadata, null);
+            }
+            return CompletableFuture.completedFuture(metadata);
+        }
+
+        @Override
+        public void close(Duration timeout) {
+            // KafkaTemplate closes the producer after every send
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.orderapp.benchmark;
+
+import com.orderapp.entity.Money;
+import com.orderapp.entity.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order totals with Money (long cents) against the BigDecimal stream reduction the entities
+ * used before. Each variant prices every line (unit price x quantity) and sums subtotal, tax
+ * and shipping. Run with -prof gc to compare allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TotalsBenchmark {
+
+    @Param({"1", "10", "500"})
+    private int lines;
+
+    private int[] quantities;
+    private BigDecimal[] decimalPrices;
+    private Money[] moneyPrices;
+    private BigDecimal decimalTax;
+    private BigDecimal decimalShipping;
+    private Money moneyTax;
+    private Money moneyShipping;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        quantities = new int[lines];
+        decimalPrices = new BigDecimal[lines];
+        moneyPrices = new Money[lines];
+        for (int i = 0; i < lines; i++) {
+            quantities[i] = 1 + i % 5;
+            decimalPrices[i] = BigDecimal.valueOf(199 + (i * 37L) % 10_000, 2);
+            moneyPrices[i] = Money.of(decimalPrices[i]);
+        }
+        decimalTax = new BigDecimal("3.25");
+        decimalShipping = new BigDecimal("4.99");
+        moneyTax = Money.of(decimalTax);
+        moneyShipping = Money.of(decimalShipping);
+
+        order = BenchmarkData.order(BenchmarkData.user(), BenchmarkData.items(BenchmarkData.products(lines)));
+        order.setTaxAmount(moneyTax);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        List<BigDecimal> lineTotals = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            lineTotals.add(decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        BigDecimal itemsTotal = lineTotals.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        return itemsTotal.add(decimalTax).add(decimalShipping);
+    }
+
+    @Benchmark
+    public Money money() {
+        List<Money> lineTotals = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            lineTotals.add(moneyPrices[i].times(quantities[i]));
+        }
+        long cents = 0L;
+        for (int i = 0; i < lineTotals.size(); i++) {
+            cents += lineTotals.get(i).getMinorUnits();
+        }
+        return Money.ofMinor(cents).plus(moneyTax).plus(moneyShipping);
+    }
+
+    @Benchmark
+    public Money orderCalculateTotalAmount() {
+        order.calculateTotalAmount();
+        return order.getTotalAmount();
+    }
+}
@@ -0,0 +1,141 @@
+package com.orderapp.admission;
+
+import com.orderapp.metrics.OrderMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link GradientLimiter} per class of endpoint, so that under overload requests are
+ * turned away at the door instead of queueing on the connection pool until they time out.
+ * Classes are in priority order: a request is also shed while any class above its own is
+ * busy, so checkout keeps its capacity when reads or analytics would otherwise take it.
+ */
+@Component
+@ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionControl {
+
+    /**
+     * Endpoint classes, highest priority first
+     */
+    public enum EndpointClass {
+        WRITE("write"),
+        READ("read"),
+        ANALYTICS("analytics");
+
+        private final String tag;
+
+        EndpointClass(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final OrderMetrics orderMetrics;
+    private final Map<EndpointClass, GradientLimiter> limiters = new EnumMap<>(EndpointClass.class);
+
+    @Value("${app.admission.window-ms:250}")
+    private long windowMs;
+
+    @Value("${app.admission.long-window:600}")
+    private int longWindow;
+
+    @Value("${app.admission.tolerance:1.5}")
+    private double tolerance;
+
+    @Value("${app.admission.smoothing:0.2}")
+    private double smoothing;
+
+    @Value("${app.admission.min-window-samples:10}")
+    private int minWindowSamples;
+
+    @Value("${app.admission.yield-above:0.8}")
+    private double yieldAbove;
+
+    @Value("${app.admission.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Value("${app.admission.write.initial-limit:20}")
+    private int writeInitialLimit;
+
+    @Value("${app.admission.write.min-limit:5}")
+    private int writeMinLimit;
+
+    @Value("${app.admission.write.max-limit:100}")
+    private int writeMaxLimit;
+
+    @Value("${app.admission.read.initial-limit:20}")
+    private int readInitialLimit;
+
+    @Value("${app.admission.read.min-limit:5}")
+    private int readMinLimit;
+
+    @Value("${app.admission.read.max-limit:200}")
+    private int readMaxLimit;
+
+    @Value("${app.admission.analytics.initial-limit:4}")
+    private int analyticsInitialLimit;
+
+    @Value("${app.admission.analytics.min-limit:1}")
+    private int analyticsMinLimit;
+
+    @Value("${app.admission.analytics.max-limit:20}")
+    private int analyticsMaxLimit;
+
+    @Autowired
+    public AdmissionControl(OrderMetrics orderMetrics) {
+        this.orderMetrics = orderMetrics;
+    }
+
+    @PostConstruct
+    public void start() {
+        limiters.put(EndpointClass.WRITE, limiter(writeInitialLimit, writeMinLimit, writeMaxLimit));
+        limiters.put(EndpointClass.READ, limiter(readInitialLimit, readMinLimit, readMaxLimit));
+        limiters.put(EndpointClass.ANALYTICS, limiter(analyticsInitialLimit, analyticsMinLimit, analyticsMaxLimit));
+        limiters.forEach((endpointClass, limiter) ->
+            orderMetrics.gaugeAdmission(endpointClass.getTag(), limiter::getLimit, limiter::getInFlight));
+    }
+
+    private GradientLimiter limiter(int initialLimit, int minLimit, int maxLimit) {
+        return new GradientLimiter(initialLimit, minLimit, maxLimit, tolerance, smoothing, longWindow,
+            TimeUnit.MILLISECONDS.toNanos(windowMs), minWindowSamples);
+    }
+
+    /**
+     * Admit a request unless a higher-priority class is busy or its own class is at its
+     * limit; every true must be paired with one {@link #release}
+     */
+    public boolean tryAcquire(EndpointClass endpointClass, long nowNanos) {
+        for (EndpointClass above : EndpointClass.values()) {
+            if (above == endpointClass) {
+                break;
+            }
+            if (limiters.get(above).isBusy(yieldAbove, nowNanos)) {
+                orderMetrics.recordAdmissionRejected(endpointClass.getTag(), true);
+                return false;
+            }
+        }
+        if (!limiters.get(endpointClass).tryAcquire(nowNanos)) {
+            orderMetrics.recordAdmissionRejected(endpointClass.getTag(), false);
+            return false;
+        }
+        return true;
+    }
+
+    public void release(EndpointClass endpointClass, long rttNanos, long nowNanos) {
+        limiters.get(endpointClass).release(rttNanos, nowNanos);
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
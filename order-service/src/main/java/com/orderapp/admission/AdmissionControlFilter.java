@@ -0,0 +1,87 @@
+package com.orderapp.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orderapp.admission.AdmissionControl.EndpointClass;
+import com.orderapp.exception.GlobalExceptionHandler.ErrorResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Admits each request to the order, product and user APIs through {@link AdmissionControl}
+ * by its route: analytics under /orders/analytics, writes for placing, async placing,
+ * status changes and cancellation of orders, reads for the rest. A request that is not
+ * admitted gets 503 with Retry-After at once. Authentication, actuator and admin endpoints
+ * are never shed. Runs after Spring Security, so requests it turns away never take a slot.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final List<String> ADMITTED_PREFIXES = List.of("/orders", "/products", "/users");
+
+    // POST /orders and /orders/async, PUT /orders/{orderId}/status and /orders/{orderId}/cancel
+    private static final Pattern ORDER_WRITES = Pattern.compile("/orders(/async|/[^/]+/(status|cancel))?/?");
+
+    private final AdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionControlFilter(AdmissionControl admissionControl, ObjectMapper objectMapper) {
+        this.admissionControl = admissionControl;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return ADMITTED_PREFIXES.stream().noneMatch(prefix -> path.equals(prefix) || path.startsWith(prefix + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request.getMethod(), path(request));
+        long startNanos = System.nanoTime();
+        if (!admissionControl.tryAcquire(endpointClass, startNanos)) {
+            writeShed(response, endpointClass);
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long endNanos = System.nanoTime();
+            admissionControl.release(endpointClass, endNanos - startNanos, endNanos);
+        }
+    }
+
+    static EndpointClass classify(String method, String path) {
+        if (path.startsWith("/orders/analytics/")) {
+            return EndpointClass.ANALYTICS;
+        }
+        boolean writeMethod = HttpMethod.POST.matches(method) || HttpMethod.PUT.matches(method);
+        return writeMethod && ORDER_WRITES.matcher(path).matches() ? EndpointClass.WRITE : EndpointClass.READ;
+    }
+
+    private void writeShed(HttpServletResponse response, EndpointClass endpointClass) throws IOException {
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        ErrorResponse error = new ErrorResponse(status.value(), status.getReasonPhrase(),
+            "Too many " + endpointClass.getTag() + " requests in progress, retry shortly", LocalDateTime.now());
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(admissionControl.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
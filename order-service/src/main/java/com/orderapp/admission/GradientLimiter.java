@@ -0,0 +1,134 @@
+package com.orderapp.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to latency, after the gradient algorithm of Netflix's
+ * concurrency-limits. Completions are averaged over short windows; after each window the
+ * limit is scaled by the gradient between the long-run average latency and the window's
+ * (at most 1, at least 0.5) and given sqrt(limit) of queueing room, then smoothed. While
+ * latency stays within {@code tolerance} of the long-run average the limit grows; once
+ * requests start queueing behind a saturated resource it shrinks. It does not grow while
+ * less than half of it is in use, and the average only follows slower windows once the
+ * slowdown has outlasted halving the limit. Acquire and release are lock-free; window bookkeeping
+ * takes a short lock.
+ */
+public final class GradientLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final int longWindow;
+    private final long windowNanos;
+    private final int minWindowSamples;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private volatile long lastRejectedNanos;
+    private volatile boolean rejectedOnce;
+
+    // Guarded by this
+    private double longRttNanos;
+    private double healthyLimit;
+    private long windowStartNanos;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    public GradientLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance, double smoothing,
+                           int longWindow, long windowNanos, int minWindowSamples) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.longWindow = longWindow;
+        this.windowNanos = windowNanos;
+        this.minWindowSamples = minWindowSamples;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Take a slot if fewer than the limit are in flight; every true must be paired with
+     * one {@link #release}
+     */
+    public boolean tryAcquire(long nowNanos) {
+        int current = inFlight.get();
+        while (current < getLimit()) {
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = inFlight.get();
+        }
+        lastRejectedNanos = nowNanos;
+        rejectedOnce = true;
+        return false;
+    }
+
+    /**
+     * Give back a slot, with how long the request held it
+     */
+    public void release(long rttNanos, long nowNanos) {
+        int held = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (windowSamples == 0) {
+                windowStartNanos = nowNanos;
+            }
+            windowRttSum += rttNanos;
+            windowSamples++;
+            windowMaxInFlight = Math.max(windowMaxInFlight, held);
+            if (nowNanos - windowStartNanos >= windowNanos && windowSamples >= minWindowSamples) {
+                update((double) windowRttSum / windowSamples, windowMaxInFlight);
+                windowRttSum = 0;
+                windowSamples = 0;
+                windowMaxInFlight = 0;
+            }
+        }
+    }
+
+    private void update(double shortRtt, int maxInFlight) {
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+            healthyLimit = limit;
+        } else if (shortRtt <= tolerance * longRttNanos) {
+            longRttNanos += (shortRtt - longRttNanos) / longWindow;
+            healthyLimit = limit;
+        } else if (limit <= healthyLimit / 2) {
+            // Slow windows are not learned from while they may be queueing behind the limit,
+            // or the average would creep up under sustained load; latency that outlasts
+            // halving the limit means the service itself has become slower
+            longRttNanos += (shortRtt - longRttNanos) / longWindow;
+        }
+        // After a long overload the average has drifted up; let it recover quickly
+        if (longRttNanos / shortRtt > 2) {
+            longRttNanos *= 0.95;
+        }
+        double current = limit;
+        if (maxInFlight < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / shortRtt));
+        double next = current * gradient + Math.sqrt(current);
+        next = current * (1 - smoothing) + next * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Whether more than {@code share} of the limit is in use, or a request was turned away
+     * within the last window
+     */
+    public boolean isBusy(double share, long nowNanos) {
+        return inFlight.get() > share * limit || (rejectedOnce && nowNanos - lastRejectedNanos < windowNanos);
+    }
+}
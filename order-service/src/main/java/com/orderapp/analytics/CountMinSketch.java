@@ -0,0 +1,101 @@
+package com.orderapp.analytics;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Count-Min sketch (Cormode and Muthukrishnan) of {@code depth} rows of {@code width}
+ * counters. An estimate never undercounts and, with probability at least 1 - e^-depth,
+ * overcounts by at most e / width of the total weight. Hashes depend only on the item, so
+ * sketches of the same shape built anywhere can be merged by adding them. Not thread-safe.
+ */
+public final class CountMinSketch {
+
+    private final int depth;
+    private final int width;
+    private final long[] table;
+    private long total;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Count-Min sketch needs a positive depth and width");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.table = new long[depth * width];
+    }
+
+    public void add(String item, long weight) {
+        long hash = hash(item);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            table[row * width + bucket(h1, h2, row)] += weight;
+        }
+        total += weight;
+    }
+
+    public long estimate(String item) {
+        long hash = hash(item);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, table[row * width + bucket(h1, h2, row)]);
+        }
+        return estimate;
+    }
+
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("Cannot merge Count-Min sketches of different shapes");
+        }
+        for (int i = 0; i < table.length; i++) {
+            table[i] += other.table[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * Overcount bound as a share of the total weight
+     */
+    public double epsilon() {
+        return Math.E / width;
+    }
+
+    /**
+     * Probability that an estimate exceeds the epsilon bound
+     */
+    public double delta() {
+        return Math.exp(-depth);
+    }
+
+    public int getDepth() { return depth; }
+    public int getWidth() { return width; }
+    public long getTotal() { return total; }
+
+    long[] table() {
+        return table;
+    }
+
+    void restoreTotal(long total) {
+        this.total = total;
+    }
+
+    // Row hashes derived from one 64-bit hash (Kirsch and Mitzenmacher)
+    private int bucket(int h1, int h2, int row) {
+        int combined = h1 + row * h2;
+        return (combined & Integer.MAX_VALUE) % width;
+    }
+
+    // FNV-1a over the UTF-8 bytes, finished with the SplitMix64 mixer
+    private static long hash(String item) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : item.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
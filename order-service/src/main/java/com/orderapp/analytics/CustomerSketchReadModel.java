@@ -0,0 +1,93 @@
+package com.orderapp.analytics;
+
+import com.orderapp.event.OrderEvent;
+import com.orderapp.replay.ReadModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rebuilds the day sketches of {@link UniqueCustomerTracker} from the ORDER_CREATED events
+ * of a replay. Sketches merge idempotently, so publishing them into customer_sketches
+ * repairs days the live consumer missed without counting anyone twice.
+ */
+@Component
+public class CustomerSketchReadModel implements ReadModel {
+
+    private static final String ORDER_CREATED = "ORDER_CREATED";
+
+    private final UniqueCustomerTracker tracker;
+
+    @Autowired
+    public CustomerSketchReadModel(UniqueCustomerTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public String getName() {
+        return "customer-sketches";
+    }
+
+    @Override
+    public PartitionState open(int partition, byte[] snapshot) {
+        Map<LocalDate, HyperLogLog> days = new HashMap<>();
+        if (snapshot != null) {
+            // Days as epoch day, sketch length and sketch
+            ByteBuffer in = ByteBuffer.wrap(snapshot);
+            while (in.hasRemaining()) {
+                LocalDate day = LocalDate.ofEpochDay(in.getLong());
+                byte[] sketch = new byte[in.getInt()];
+                in.get(sketch);
+                days.put(day, HyperLogLog.fromBytes(sketch));
+            }
+        }
+        return new Days(days);
+    }
+
+    private final class Days implements PartitionState {
+        private final Map<LocalDate, HyperLogLog> days;
+
+        private Days(Map<LocalDate, HyperLogLog> days) {
+            this.days = days;
+        }
+
+        @Override
+        public void apply(OrderEvent event, long recordTimestamp) {
+            if (ORDER_CREATED.equals(event.getEventType()) && event.getUserId() != null) {
+                days.computeIfAbsent(UniqueCustomerTracker.eventDay(event, recordTimestamp), day -> tracker.newSketch())
+                    .add(event.getUserId());
+            }
+        }
+
+        @Override
+        public byte[] snapshot() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                for (Map.Entry<LocalDate, HyperLogLog> entry : days.entrySet()) {
+                    byte[] sketch = entry.getValue().toBytes();
+                    out.writeLong(entry.getKey().toEpochDay());
+                    out.writeInt(sketch.length);
+                    out.write(sketch);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        @Override
+        public void complete() {
+            if (!days.isEmpty()) {
+                tracker.store(days);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.orderapp.analytics;
+
+import com.orderapp.event.OrderEvent;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * The time base of the analytics windows. Events carry the publisher's LocalDateTime;
+ * read as UTC on both sides, event times and the wall clock line up.
+ */
+final class EventTime {
+
+    private EventTime() {
+    }
+
+    /**
+     * Event time in millis, falling back to the Kafka record timestamp for events without one
+     */
+    static long of(OrderEvent event, long recordTimestamp) {
+        return event.getTimestamp() != null
+            ? event.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli()
+            : recordTimestamp;
+    }
+
+    static long now() {
+        return LocalDateTime.now().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,154 @@
+package com.orderapp.analytics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Open windows of one order-analytics partition, with its watermark and the next offset
+ * to read. Only the consumer thread of the partition adds to it; the checkpoint thread
+ * takes closed windows out. Both synchronize on the instance.
+ */
+final class PartitionWindows {
+
+    private final int partition;
+
+    private final Map<WindowKey, WindowTotals> byStatus = new HashMap<>();
+    private final Map<WindowKey, WindowTotals> byProduct = new HashMap<>();
+
+    private long nextOffset = -1;
+    private long maxEventTime = Long.MIN_VALUE;
+    private long watermark = Long.MIN_VALUE;
+    private long lastEventAt;
+    private boolean dirty;
+
+    PartitionWindows(int partition) {
+        this.partition = partition;
+    }
+
+    int getPartition() { return partition; }
+    long getNextOffset() { return nextOffset; }
+    long getWatermark() { return watermark; }
+    boolean isDirty() { return dirty; }
+    int openWindows() { return byStatus.size() + byProduct.size(); }
+
+    /**
+     * Note an event's time and offset; returns the watermark to judge it by
+     */
+    long advance(long eventTime, long offset, long allowedLatenessMillis, long now) {
+        nextOffset = Math.max(nextOffset, offset + 1);
+        lastEventAt = now;
+        return advance(eventTime, allowedLatenessMillis);
+    }
+
+    /**
+     * Note an event's time alone, as a replay does; returns the watermark to judge it by
+     */
+    long advance(long eventTime, long allowedLatenessMillis) {
+        maxEventTime = Math.max(maxEventTime, eventTime);
+        watermark = Math.max(watermark, maxEventTime - allowedLatenessMillis);
+        dirty = true;
+        return watermark;
+    }
+
+    /**
+     * With no events for the idle timeout, event time can only have moved on by the wall
+     * clock; without this an idle partition would keep its last windows open for good
+     */
+    void advanceIdle(long now, long allowedLatenessMillis, long idleTimeoutMillis) {
+        if (lastEventAt == 0) {
+            // Restored from a checkpoint: idle from now on
+            lastEventAt = now;
+        } else if (now - lastEventAt >= idleTimeoutMillis) {
+            watermark = Math.max(watermark, now - allowedLatenessMillis);
+        }
+    }
+
+    void addByStatus(WindowKey key, long orders, long revenueMinor) {
+        byStatus.computeIfAbsent(key, k -> new WindowTotals()).add(orders, 0, revenueMinor);
+    }
+
+    void addByProduct(WindowKey key, long quantity, long revenueMinor) {
+        byProduct.computeIfAbsent(key, k -> new WindowTotals()).add(1, quantity, revenueMinor);
+    }
+
+    /**
+     * Move windows ending at or before the watermark into the given maps; returns whether
+     * there were any
+     */
+    boolean takeClosed(Map<WindowKey, WindowTotals> closedByStatus, Map<WindowKey, WindowTotals> closedByProduct) {
+        moveClosed(byStatus, closedByStatus);
+        moveClosed(byProduct, closedByProduct);
+        return !closedByStatus.isEmpty() || !closedByProduct.isEmpty();
+    }
+
+    private void moveClosed(Map<WindowKey, WindowTotals> open, Map<WindowKey, WindowTotals> closed) {
+        Iterator<Map.Entry<WindowKey, WindowTotals>> entries = open.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<WindowKey, WindowTotals> entry = entries.next();
+            if (entry.getKey().getEnd() <= watermark) {
+                closed.put(entry.getKey(), entry.getValue());
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Put back windows taken out for a flush that failed. They are closed, so nothing
+     * was added to them in the meantime.
+     */
+    void restoreClosed(Map<WindowKey, WindowTotals> closedByStatus, Map<WindowKey, WindowTotals> closedByProduct) {
+        byStatus.putAll(closedByStatus);
+        byProduct.putAll(closedByProduct);
+        dirty = true;
+    }
+
+    void markClean() {
+        dirty = false;
+    }
+
+    String toJson(ObjectMapper objectMapper) throws JsonProcessingException {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("nextOffset", nextOffset);
+        root.put("maxEventTime", maxEventTime);
+        root.put("watermark", watermark);
+        writeCells(root.putArray("byStatus"), byStatus);
+        writeCells(root.putArray("byProduct"), byProduct);
+        return objectMapper.writeValueAsString(root);
+    }
+
+    static PartitionWindows fromJson(int partition, String json, ObjectMapper objectMapper) throws JsonProcessingException {
+        JsonNode root = objectMapper.readTree(json);
+        PartitionWindows windows = new PartitionWindows(partition);
+        windows.nextOffset = root.path("nextOffset").asLong(-1);
+        windows.maxEventTime = root.path("maxEventTime").asLong(Long.MIN_VALUE);
+        windows.watermark = root.path("watermark").asLong(Long.MIN_VALUE);
+        readCells(root.path("byStatus"), windows.byStatus);
+        readCells(root.path("byProduct"), windows.byProduct);
+        return windows;
+    }
+
+    // Each cell is [window, start, end, dimension, orders, quantity, revenueMinor]
+    private static void writeCells(ArrayNode cells, Map<WindowKey, WindowTotals> windows) {
+        for (Map.Entry<WindowKey, WindowTotals> entry : windows.entrySet()) {
+            WindowKey key = entry.getKey();
+            WindowTotals totals = entry.getValue();
+            cells.addArray()
+                .add(key.getWindow()).add(key.getStart()).add(key.getEnd()).add(key.getDimension())
+                .add(totals.getOrders()).add(totals.getQuantity()).add(totals.getRevenueMinor());
+        }
+    }
+
+    private static void readCells(JsonNode cells, Map<WindowKey, WindowTotals> windows) {
+        for (JsonNode cell : cells) {
+            windows.put(new WindowKey(cell.get(0).asText(), cell.get(1).asLong(), cell.get(2).asLong(), cell.get(3).asText()),
+                new WindowTotals(cell.get(4).asLong(), cell.get(5).asLong(), cell.get(6).asLong()));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.orderapp.analytics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orderapp.event.OrderEvent;
+import com.orderapp.replay.ReadModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rebuilds the rollups of {@link StreamingAggregationEngine} from a replay of order-events,
+ * which carries the same events as order-analytics. Each partition aggregates over the
+ * engine's windows with its watermark and allowed lateness, and publishes windows in
+ * batches as they close. Replayed totals replace rollup rows ({@link RollupStore#replace}),
+ * so a resumed replay publishing a window again changes nothing.
+ * <p>
+ * Only windows the replay saw whole are published: those starting at least the allowed
+ * lateness after the first event a partition replayed, which events before the starting
+ * point cannot belong to, and those the live engine has flushed already, ending at least
+ * the lateness and two checkpoint intervals ago. Other windows keep their rows.
+ */
+@Component
+@ConditionalOnProperty(name = "app.analytics-stream.enabled", havingValue = "true", matchIfMissing = true)
+public class RollupReadModel implements ReadModel {
+
+    // Closed windows are looked for every this many events
+    private static final int PUBLISH_CHECK_EVERY = 10_000;
+
+    private static final ObjectMapper STATE_MAPPER = new ObjectMapper();
+
+    private final StreamingAggregationEngine engine;
+    private final RollupStore rollupStore;
+    private final long flushedAfterMillis;
+
+    @Autowired
+    public RollupReadModel(StreamingAggregationEngine engine, RollupStore rollupStore,
+                           @Value("${app.analytics-stream.checkpoint-interval-ms:10000}") long checkpointIntervalMs) {
+        this.engine = engine;
+        this.rollupStore = rollupStore;
+        this.flushedAfterMillis = engine.getAllowedLatenessMillis() + 2 * checkpointIntervalMs;
+    }
+
+    @Override
+    public String getName() {
+        return "rollups";
+    }
+
+    @Override
+    public PartitionState open(int partition, byte[] snapshot) {
+        if (snapshot == null) {
+            return new Windows(partition, new PartitionWindows(partition), Long.MIN_VALUE);
+        }
+        // First event time, then the open windows as the engine checkpoints them
+        long firstEventTime = ByteBuffer.wrap(snapshot).getLong();
+        String json = new String(snapshot, Long.BYTES, snapshot.length - Long.BYTES, StandardCharsets.UTF_8);
+        try {
+            return new Windows(partition, PartitionWindows.fromJson(partition, json, STATE_MAPPER), firstEventTime);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private final class Windows implements PartitionState {
+        private final int partition;
+        private final PartitionWindows windows;
+        private long firstEventTime;
+        private int sinceCheck;
+
+        private Windows(int partition, PartitionWindows windows, long firstEventTime) {
+            this.partition = partition;
+            this.windows = windows;
+            this.firstEventTime = firstEventTime;
+        }
+
+        @Override
+        public void apply(OrderEvent event, long recordTimestamp) {
+            StreamingAggregationEngine.WindowUpdate update = StreamingAggregationEngine.updateFor(event);
+            if (update == null) {
+                return;
+            }
+            long eventTime = EventTime.of(event, recordTimestamp);
+            if (firstEventTime == Long.MIN_VALUE) {
+                firstEventTime = eventTime;
+            }
+            long watermark = windows.advance(eventTime, engine.getAllowedLatenessMillis());
+            // Late events are dropped as the engine drops them, without counting them again
+            StreamingAggregationEngine.addToWindows(windows, engine.getWindows(), eventTime, watermark, update,
+                window -> { });
+            if (++sinceCheck >= PUBLISH_CHECK_EVERY) {
+                sinceCheck = 0;
+                publishClosed();
+            }
+        }
+
+        @Override
+        public byte[] snapshot() {
+            try {
+                byte[] json = windows.toJson(STATE_MAPPER).getBytes(StandardCharsets.UTF_8);
+                return ByteBuffer.allocate(Long.BYTES + json.length).putLong(firstEventTime).put(json).array();
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void complete() {
+            publishClosed();
+        }
+
+        // Windows still open stay in the state, and in its snapshot, for a later replay to finish
+        private void publishClosed() {
+            Map<WindowKey, WindowTotals> byStatus = new HashMap<>();
+            Map<WindowKey, WindowTotals> byProduct = new HashMap<>();
+            if (!windows.takeClosed(byStatus, byProduct)) {
+                return;
+            }
+            long from = firstEventTime + engine.getAllowedLatenessMillis();
+            long until = EventTime.now() - flushedAfterMillis;
+            byStatus.keySet().removeIf(key -> key.getStart() < from || key.getEnd() > until);
+            byProduct.keySet().removeIf(key -> key.getStart() < from || key.getEnd() > until);
+            if (!byStatus.isEmpty() || !byProduct.isEmpty()) {
+                rollupStore.replace(partition, byStatus, byProduct);
+            }
+        }
+    }
+}
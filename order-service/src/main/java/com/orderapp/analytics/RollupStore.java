@@ -0,0 +1,247 @@
+package com.orderapp.analytics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rollup and checkpoint tables of the streaming aggregation engine (see V4 migration).
+ * Closed windows are added onto existing rows, since every partition flushes its own
+ * share of a window, and they are written in the same transaction as the checkpoints
+ * that follow them. Windows rebuilt by a replay replace rows instead (see V12 migration).
+ */
+@Component
+@ConditionalOnProperty(name = "app.analytics-stream.enabled", havingValue = "true", matchIfMissing = true)
+public class RollupStore {
+
+    private static final String UPSERT_ORDER_METRICS =
+        "INSERT INTO order_metrics_rollup (window_name, window_start, window_end, status, order_count, " +
+        "total_revenue, avg_order_value, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (window_name, window_start, status) DO UPDATE SET " +
+        "order_count = order_metrics_rollup.order_count + EXCLUDED.order_count, " +
+        "total_revenue = order_metrics_rollup.total_revenue + EXCLUDED.total_revenue, " +
+        "avg_order_value = (order_metrics_rollup.total_revenue + EXCLUDED.total_revenue) " +
+        "/ NULLIF(order_metrics_rollup.order_count + EXCLUDED.order_count, 0), " +
+        "updated_at = CURRENT_TIMESTAMP";
+
+    private static final String UPSERT_PRODUCT_SALES =
+        "INSERT INTO product_sales_rollup (window_name, window_start, window_end, product_id, order_count, " +
+        "quantity_sold, revenue, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (window_name, window_start, product_id) DO UPDATE SET " +
+        "order_count = product_sales_rollup.order_count + EXCLUDED.order_count, " +
+        "quantity_sold = product_sales_rollup.quantity_sold + EXCLUDED.quantity_sold, " +
+        "revenue = product_sales_rollup.revenue + EXCLUDED.revenue, " +
+        "updated_at = CURRENT_TIMESTAMP";
+
+    private static final String UPSERT_CHECKPOINT =
+        "INSERT INTO analytics_checkpoints (consumer_group, topic, partition_id, next_offset, watermark, state, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (consumer_group, topic, partition_id) DO UPDATE SET " +
+        "next_offset = EXCLUDED.next_offset, watermark = EXCLUDED.watermark, state = EXCLUDED.state, " +
+        "updated_at = CURRENT_TIMESTAMP";
+
+    private static final String UPSERT_REPLAYED_ORDER_METRICS =
+        "INSERT INTO order_metrics_replayed (window_name, window_start, status, partition_id, window_end, " +
+        "order_count, total_revenue) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (window_name, window_start, status, partition_id) DO UPDATE SET " +
+        "order_count = EXCLUDED.order_count, total_revenue = EXCLUDED.total_revenue";
+
+    private static final String UPSERT_REPLAYED_PRODUCT_SALES =
+        "INSERT INTO product_sales_replayed (window_name, window_start, product_id, partition_id, window_end, " +
+        "order_count, quantity_sold, revenue) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (window_name, window_start, product_id, partition_id) DO UPDATE SET " +
+        "order_count = EXCLUDED.order_count, quantity_sold = EXCLUDED.quantity_sold, revenue = EXCLUDED.revenue";
+
+    private static final String REPLACE_ORDER_METRICS =
+        "INSERT INTO order_metrics_rollup (window_name, window_start, window_end, status, order_count, " +
+        "total_revenue, avg_order_value, updated_at) " +
+        "SELECT window_name, window_start, MAX(window_end), status, SUM(order_count), SUM(total_revenue), " +
+        "COALESCE(ROUND(SUM(total_revenue) / NULLIF(SUM(order_count), 0), 2), 0), CURRENT_TIMESTAMP " +
+        "FROM order_metrics_replayed WHERE window_name = ? AND window_start = ? AND status = ? " +
+        "GROUP BY window_name, window_start, status " +
+        "ON CONFLICT (window_name, window_start, status) DO UPDATE SET " +
+        "order_count = EXCLUDED.order_count, total_revenue = EXCLUDED.total_revenue, " +
+        "avg_order_value = EXCLUDED.avg_order_value, updated_at = CURRENT_TIMESTAMP";
+
+    private static final String REPLACE_PRODUCT_SALES =
+        "INSERT INTO product_sales_rollup (window_name, window_start, window_end, product_id, order_count, " +
+        "quantity_sold, revenue, updated_at) " +
+        "SELECT window_name, window_start, MAX(window_end), product_id, SUM(order_count), SUM(quantity_sold), " +
+        "SUM(revenue), CURRENT_TIMESTAMP " +
+        "FROM product_sales_replayed WHERE window_name = ? AND window_start = ? AND product_id = ? " +
+        "GROUP BY window_name, window_start, product_id " +
+        "ON CONFLICT (window_name, window_start, product_id) DO UPDATE SET " +
+        "order_count = EXCLUDED.order_count, quantity_sold = EXCLUDED.quantity_sold, " +
+        "revenue = EXCLUDED.revenue, updated_at = CURRENT_TIMESTAMP";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.analytics-stream.flush-batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    public RollupStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Add closed windows to the rollups and save the checkpoints, all or nothing
+     */
+    void write(Map<WindowKey, WindowTotals> byStatus, Map<WindowKey, WindowTotals> byProduct,
+               String consumerGroup, String topic, List<Checkpoint> checkpoints) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!byStatus.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_ORDER_METRICS, new ArrayList<>(byStatus.entrySet()), batchSize,
+                    (ps, entry) -> {
+                        setWindow(ps, entry.getKey());
+                        ps.setString(4, entry.getKey().getDimension());
+                        ps.setLong(5, entry.getValue().getOrders());
+                        ps.setBigDecimal(6, money(entry.getValue().getRevenueMinor()));
+                        ps.setBigDecimal(7, entry.getValue().getOrders() > 0
+                            ? money(entry.getValue().getRevenueMinor() / entry.getValue().getOrders())
+                            : BigDecimal.ZERO);
+                    });
+            }
+            if (!byProduct.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_PRODUCT_SALES, new ArrayList<>(byProduct.entrySet()), batchSize,
+                    (ps, entry) -> {
+                        setWindow(ps, entry.getKey());
+                        ps.setObject(4, UUID.fromString(entry.getKey().getDimension()));
+                        ps.setLong(5, entry.getValue().getOrders());
+                        ps.setLong(6, entry.getValue().getQuantity());
+                        ps.setBigDecimal(7, money(entry.getValue().getRevenueMinor()));
+                    });
+            }
+            jdbcTemplate.batchUpdate(UPSERT_CHECKPOINT, checkpoints, batchSize, (ps, checkpoint) -> {
+                ps.setString(1, consumerGroup);
+                ps.setString(2, topic);
+                ps.setInt(3, checkpoint.partition);
+                ps.setLong(4, checkpoint.nextOffset);
+                ps.setTimestamp(5, checkpoint.watermark != Long.MIN_VALUE ? timestamp(checkpoint.watermark) : null);
+                ps.setString(6, checkpoint.state);
+            });
+        });
+    }
+
+    /**
+     * Publish the windows one order-events partition rebuilt in a replay: its totals replace
+     * what an earlier replay saved for it, and each window's rollup rows are replaced by the
+     * sum over the partitions replayed. Publishing the same totals again changes nothing.
+     */
+    void replace(int partition, Map<WindowKey, WindowTotals> byStatus, Map<WindowKey, WindowTotals> byProduct) {
+        List<Map.Entry<WindowKey, WindowTotals>> statusRows = new ArrayList<>(byStatus.entrySet());
+        List<Map.Entry<WindowKey, WindowTotals>> productRows = new ArrayList<>(byProduct.entrySet());
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!statusRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_REPLAYED_ORDER_METRICS, statusRows, batchSize, (ps, entry) -> {
+                    setReplayedWindow(ps, entry.getKey(), entry.getKey().getDimension(), partition);
+                    ps.setLong(6, entry.getValue().getOrders());
+                    ps.setBigDecimal(7, money(entry.getValue().getRevenueMinor()));
+                });
+                jdbcTemplate.batchUpdate(REPLACE_ORDER_METRICS, statusRows, batchSize, (ps, entry) -> {
+                    ps.setString(1, entry.getKey().getWindow());
+                    ps.setTimestamp(2, timestamp(entry.getKey().getStart()));
+                    ps.setString(3, entry.getKey().getDimension());
+                });
+            }
+            if (!productRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_REPLAYED_PRODUCT_SALES, productRows, batchSize, (ps, entry) -> {
+                    setReplayedWindow(ps, entry.getKey(), UUID.fromString(entry.getKey().getDimension()), partition);
+                    ps.setLong(6, entry.getValue().getOrders());
+                    ps.setLong(7, entry.getValue().getQuantity());
+                    ps.setBigDecimal(8, money(entry.getValue().getRevenueMinor()));
+                });
+                jdbcTemplate.batchUpdate(REPLACE_PRODUCT_SALES, productRows, batchSize, (ps, entry) -> {
+                    ps.setString(1, entry.getKey().getWindow());
+                    ps.setTimestamp(2, timestamp(entry.getKey().getStart()));
+                    ps.setObject(3, UUID.fromString(entry.getKey().getDimension()));
+                });
+            }
+        });
+    }
+
+    /**
+     * Saved state of the given partitions, by partition; partitions never checkpointed are absent
+     */
+    Map<Integer, String> loadCheckpoints(String consumerGroup, String topic, Collection<Integer> partitions) {
+        Map<Integer, String> states = new HashMap<>();
+        if (partitions.isEmpty()) {
+            return states;
+        }
+        String placeholders = String.join(",", Collections.nCopies(partitions.size(), "?"));
+        List<Object> args = new ArrayList<>();
+        args.add(consumerGroup);
+        args.add(topic);
+        args.addAll(partitions);
+        jdbcTemplate.query(
+            "SELECT partition_id, state FROM analytics_checkpoints WHERE consumer_group = ? AND topic = ? " +
+            "AND partition_id IN (" + placeholders + ")",
+            rs -> {
+                states.put(rs.getInt("partition_id"), rs.getString("state"));
+            },
+            args.toArray());
+        return states;
+    }
+
+    private static void setWindow(PreparedStatement ps, WindowKey key) throws SQLException {
+        ps.setString(1, key.getWindow());
+        ps.setTimestamp(2, timestamp(key.getStart()));
+        ps.setTimestamp(3, timestamp(key.getEnd()));
+    }
+
+    private static void setReplayedWindow(PreparedStatement ps, WindowKey key, Object dimension, int partition)
+            throws SQLException {
+        ps.setString(1, key.getWindow());
+        ps.setTimestamp(2, timestamp(key.getStart()));
+        ps.setObject(3, dimension);
+        ps.setInt(4, partition);
+        ps.setTimestamp(5, timestamp(key.getEnd()));
+    }
+
+    // Event times are LocalDateTime read as UTC, so this gives back the same wall-clock fields
+    static Timestamp timestamp(long epochMillis) {
+        return Timestamp.valueOf(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC));
+    }
+
+    private static BigDecimal money(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, 2);
+    }
+
+    /**
+     * Where a partition's aggregation stands, as saved alongside its flushed windows
+     */
+    static final class Checkpoint {
+        private final int partition;
+        private final long nextOffset;
+        private final long watermark;
+        private final String state;
+
+        Checkpoint(int partition, long nextOffset, long watermark, String state) {
+            this.partition = partition;
+            this.nextOffset = nextOffset;
+            this.watermark = watermark;
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.orderapp.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Space-Saving heavy hitters (Metwally et al.) over weighted items, in at most
+ * {@code capacity} counters. When full, a new item takes over the smallest counter and
+ * inherits its count as error. For a total weight N:
+ * <ul>
+ *   <li>every tracked count overestimates the true weight by at most its error, and the
+ *       error is at most N / capacity;</li>
+ *   <li>an untracked item weighs at most {@link #minCount()}, so every item heavier than
+ *       N / capacity is tracked.</li>
+ * </ul>
+ * Summaries merge (Agarwal et al., "Mergeable Summaries") with the same N / capacity bound
+ * on the combined weight, so windows and instances can be summed. Not thread-safe.
+ */
+public final class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, Counter> counters;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Space-Saving needs at least one counter");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(String item, long weight) {
+        total += weight;
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            counter.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter(item, weight, 0));
+            return;
+        }
+        Counter smallest = smallest();
+        counters.remove(smallest.item);
+        counters.put(item, new Counter(item, smallest.count + weight, smallest.count));
+    }
+
+    /**
+     * Add another summary of the same capacity. An item missing from one side is counted
+     * at that side's minimum, the most it can have had there.
+     */
+    public void merge(SpaceSaving other) {
+        if (other.capacity != capacity) {
+            throw new IllegalArgumentException("Cannot merge Space-Saving summaries of " + capacity
+                + " and " + other.capacity + " counters");
+        }
+        long thisMin = minCount();
+        long otherMin = other.minCount();
+        Set<String> items = new HashSet<>(counters.keySet());
+        items.addAll(other.counters.keySet());
+
+        List<Counter> merged = new ArrayList<>(items.size());
+        for (String item : items) {
+            Counter mine = counters.get(item);
+            Counter theirs = other.counters.get(item);
+            long count = (mine != null ? mine.count : thisMin) + (theirs != null ? theirs.count : otherMin);
+            long error = (mine != null ? mine.error : thisMin) + (theirs != null ? theirs.error : otherMin);
+            merged.add(new Counter(item, count, error));
+        }
+        merged.sort((a, b) -> Long.compare(b.count, a.count));
+
+        counters.clear();
+        for (Counter counter : merged.subList(0, Math.min(capacity, merged.size()))) {
+            counters.put(counter.item, counter);
+        }
+        total += other.total;
+    }
+
+    /**
+     * Upper bound on the weight of any item not tracked: the smallest count once full
+     */
+    public long minCount() {
+        return counters.size() < capacity ? 0 : smallest().count;
+    }
+
+    /**
+     * Tracked items by descending count
+     */
+    public List<Counter> top(int limit) {
+        List<Counter> sorted = new ArrayList<>(counters.values());
+        sorted.sort((a, b) -> Long.compare(b.count, a.count));
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    public Counter get(String item) {
+        return counters.get(item);
+    }
+
+    public int getCapacity() { return capacity; }
+    public long getTotal() { return total; }
+    public int size() { return counters.size(); }
+
+    /**
+     * Largest overestimate of any tracked count
+     */
+    public long maxError() {
+        return total / capacity;
+    }
+
+    private Counter smallest() {
+        // Linear in the capacity; only paid when a new item evicts one
+        Counter smallest = null;
+        for (Counter counter : counters.values()) {
+            if (smallest == null || counter.count < smallest.count) {
+                smallest = counter;
+            }
+        }
+        return smallest;
+    }
+
+    void restore(String item, long count, long error) {
+        counters.put(item, new Counter(item, count, error));
+    }
+
+    void restoreTotal(long total) {
+        this.total = total;
+    }
+
+    /**
+     * A tracked item: its true weight is between count - error and count
+     */
+    public static final class Counter {
+        private final String item;
+        private long count;
+        private final long error;
+
+        private Counter(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getItem() { return item; }
+        public long getCount() { return count; }
+        public long getError() { return error; }
+        public long getLowerBound() { return count - error; }
+    }
+}
@@ -0,0 +1,344 @@
+package com.orderapp.analytics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orderapp.entity.Money;
+import com.orderapp.event.OrderCancelledEvent;
+import com.orderapp.event.OrderCreatedEvent;
+import com.orderapp.event.OrderEvent;
+import com.orderapp.event.OrderStatusChangedEvent;
+import com.orderapp.metrics.OrderMetrics;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Windowed aggregation of the order-analytics stream into the rollup tables. Every
+ * configured window (tumbling or hopping) keeps order count and revenue per status the
+ * order entered, with 'ALL' for orders created, and units and revenue per product.
+ * <p>
+ * Windows follow event time, {@link EventTime}. Each partition keeps its
+ * own watermark, the latest event time seen minus the allowed lateness; a window closes
+ * once the watermark passes its end, and events arriving for a closed window are counted
+ * and dropped. A partition that goes quiet advances its watermark on the wall clock.
+ * <p>
+ * Every checkpoint interval the closed windows are flushed in batches together with each
+ * partition's open windows and next offset, in one transaction. On assignment a partition
+ * is restored from its checkpoint and the consumer seeks to the saved offset, or to an
+ * earlier one the {@link TopProductsTracker} needs, and events before the saved offset are
+ * skipped. A restart or rebalance thus picks up where the last checkpoint left off without
+ * counting anything twice. {@link RollupReadModel} rebuilds the same rollups from a replay.
+ */
+@Service
+@ConditionalOnProperty(name = "app.analytics-stream.enabled", havingValue = "true", matchIfMissing = true)
+public class StreamingAggregationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingAggregationEngine.class);
+
+    public static final String TOPIC = "order-analytics";
+    public static final String CONSUMER_GROUP = "analytics-service-group";
+
+    static final String ALL_ORDERS = "ALL";
+
+    private static final ObjectMapper STATE_MAPPER = new ObjectMapper();
+
+    private final RollupStore rollupStore;
+    private final OrderMetrics orderMetrics;
+    private final List<WindowSpec> windows;
+    private final long allowedLatenessMillis;
+    private final long idleTimeoutMillis;
+
+    private final Map<Integer, PartitionWindows> partitions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StreamingAggregationEngine(RollupStore rollupStore, OrderMetrics orderMetrics,
+                                      @Value("${app.analytics-stream.windows:minute=1m,hour=1h,day=1d}") String windows,
+                                      @Value("${app.analytics-stream.allowed-lateness-seconds:120}") long allowedLatenessSeconds,
+                                      @Value("${app.analytics-stream.idle-timeout-seconds:60}") long idleTimeoutSeconds) {
+        this.rollupStore = rollupStore;
+        this.orderMetrics = orderMetrics;
+        this.windows = WindowSpec.parseAll(windows);
+        this.allowedLatenessMillis = TimeUnit.SECONDS.toMillis(allowedLatenessSeconds);
+        this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        logger.info("Aggregating {} over windows {}", TOPIC, windows);
+        orderMetrics.gaugeAnalyticsStream(
+            () -> partitions.values().stream().mapToInt(PartitionWindows::openWindows).sum(),
+            () -> {
+                long oldest = partitions.values().stream()
+                    .mapToLong(PartitionWindows::getWatermark)
+                    .filter(watermark -> watermark != Long.MIN_VALUE)
+                    .min().orElse(Long.MIN_VALUE);
+                return oldest != Long.MIN_VALUE ? Math.max(0, EventTime.now() - oldest) / 1000.0 : 0;
+            });
+    }
+
+    public void onOrderCreated(int partition, long offset, long recordTimestamp, OrderCreatedEvent event) {
+        aggregate(partition, offset, EventTime.of(event, recordTimestamp), updateFor(event));
+    }
+
+    public void onOrderStatusChanged(int partition, long offset, long recordTimestamp, OrderStatusChangedEvent event) {
+        aggregate(partition, offset, EventTime.of(event, recordTimestamp), updateFor(event));
+    }
+
+    public void onOrderCancelled(int partition, long offset, long recordTimestamp, OrderCancelledEvent event) {
+        aggregate(partition, offset, EventTime.of(event, recordTimestamp), updateFor(event));
+    }
+
+    private void aggregate(int partition, long offset, long eventTime, WindowUpdate update) {
+        if (update == null) {
+            return;
+        }
+        PartitionWindows state = partitions.computeIfAbsent(partition, PartitionWindows::new);
+        synchronized (state) {
+            if (offset < state.getNextOffset()) {
+                // Already counted in the state restored from the checkpoint
+                return;
+            }
+            long watermark = state.advance(eventTime, offset, allowedLatenessMillis, EventTime.now());
+            addToWindows(state, windows, eventTime, watermark, update, orderMetrics::recordAnalyticsLateEvent);
+        }
+    }
+
+    /**
+     * How an event adds to the windows it falls in, or null when the rollups ignore it
+     */
+    static WindowUpdate updateFor(OrderEvent event) {
+        if (event instanceof OrderCreatedEvent) {
+            OrderCreatedEvent created = (OrderCreatedEvent) event;
+            long revenue = minorUnits(created.getTotalAmount());
+            return (state, window, start, end) -> {
+                state.addByStatus(new WindowKey(window, start, end, ALL_ORDERS), 1, revenue);
+                if (created.getStatus() != null) {
+                    state.addByStatus(new WindowKey(window, start, end, created.getStatus()), 1, revenue);
+                }
+                if (created.getItems() != null) {
+                    for (OrderCreatedEvent.OrderItemData item : created.getItems()) {
+                        // Events published before product ids were added cannot be attributed
+                        if (item.getProductId() != null) {
+                            state.addByProduct(new WindowKey(window, start, end, item.getProductId().toString()),
+                                item.getQuantity() != null ? item.getQuantity() : 0, minorUnits(item.getTotalPrice()));
+                        }
+                    }
+                }
+            };
+        }
+        if (event instanceof OrderStatusChangedEvent) {
+            OrderStatusChangedEvent changed = (OrderStatusChangedEvent) event;
+            if (changed.getNewStatus() == null) {
+                return null;
+            }
+            long revenue = minorUnits(changed.getTotalAmount());
+            return (state, window, start, end) ->
+                state.addByStatus(new WindowKey(window, start, end, changed.getNewStatus()), 1, revenue);
+        }
+        if (event instanceof OrderCancelledEvent) {
+            long revenue = minorUnits(((OrderCancelledEvent) event).getRefundAmount());
+            return (state, window, start, end) ->
+                state.addByStatus(new WindowKey(window, start, end, "CANCELLED"), 1, revenue);
+        }
+        return null;
+    }
+
+    /**
+     * Add an event to each of its windows that the watermark has not closed; the name of
+     * every window it is too late for goes to onLate
+     */
+    static void addToWindows(PartitionWindows state, List<WindowSpec> windows, long eventTime, long watermark,
+                             WindowUpdate update, Consumer<String> onLate) {
+        for (WindowSpec window : windows) {
+            window.forEachStart(eventTime, start -> {
+                long end = start + window.getSizeMillis();
+                if (end <= watermark) {
+                    onLate.accept(window.getName());
+                    return;
+                }
+                update.apply(state, window.getName(), start, end);
+            });
+        }
+    }
+
+    List<WindowSpec> getWindows() {
+        return windows;
+    }
+
+    long getAllowedLatenessMillis() {
+        return allowedLatenessMillis;
+    }
+
+    /**
+     * Restore newly assigned partitions from their checkpoints; returns the offset each
+     * restored partition must be read from, past what its checkpoint covers
+     */
+    public Map<Integer, Long> onPartitionsAssigned(Collection<TopicPartition> assigned) {
+        Map<Integer, Long> resume = new HashMap<>();
+        List<Integer> restore = assigned.stream()
+            .filter(topicPartition -> TOPIC.equals(topicPartition.topic()))
+            .map(TopicPartition::partition)
+            .filter(partition -> !partitions.containsKey(partition))
+            .collect(Collectors.toList());
+        if (restore.isEmpty()) {
+            return resume;
+        }
+        Map<Integer, String> saved;
+        try {
+            saved = rollupStore.loadCheckpoints(CONSUMER_GROUP, TOPIC, restore);
+        } catch (RuntimeException e) {
+            // Carry on from the committed offsets; the open windows of the last checkpoint are lost
+            logger.error("Could not load aggregation checkpoints of {} partitions {}", TOPIC, restore, e);
+            return resume;
+        }
+        for (Map.Entry<Integer, String> checkpoint : saved.entrySet()) {
+            int partition = checkpoint.getKey();
+            try {
+                PartitionWindows state = PartitionWindows.fromJson(partition, checkpoint.getValue(), STATE_MAPPER);
+                partitions.put(partition, state);
+                if (state.getNextOffset() >= 0) {
+                    resume.put(partition, state.getNextOffset());
+                }
+                logger.info("Restored {}-{} aggregation at offset {} with {} open windows",
+                    TOPIC, partition, state.getNextOffset(), state.openWindows());
+            } catch (JsonProcessingException e) {
+                logger.error("Discarding unreadable aggregation checkpoint of {}-{}", TOPIC, partition, e);
+            }
+        }
+        return resume;
+    }
+
+    /**
+     * Checkpoint partitions before they move to another consumer, then forget them
+     */
+    public void onPartitionsRevoked(Collection<TopicPartition> revoked) {
+        List<PartitionWindows> leaving = revoked.stream()
+            .filter(topicPartition -> TOPIC.equals(topicPartition.topic()))
+            .map(topicPartition -> partitions.get(topicPartition.partition()))
+            .filter(state -> state != null)
+            .collect(Collectors.toList());
+        if (leaving.isEmpty()) {
+            return;
+        }
+        // If this fails the new owner resumes from the previous checkpoint, which is consistent with the rollups
+        checkpoint(leaving);
+        leaving.forEach(state -> partitions.remove(state.getPartition()));
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics-stream.checkpoint-interval-ms:10000}",
+               initialDelayString = "${app.analytics-stream.checkpoint-interval-ms:10000}")
+    public void checkpoint() {
+        checkpoint(new ArrayList<>(partitions.values()));
+    }
+
+    @PreDestroy
+    public void close() {
+        checkpoint();
+    }
+
+    /**
+     * Flush the closed windows of the given partitions and save their checkpoints in one
+     * transaction. If it fails the closed windows go back into their partitions for the
+     * next attempt.
+     */
+    private synchronized void checkpoint(Collection<PartitionWindows> states) {
+        long now = EventTime.now();
+        List<Flush> flushes = new ArrayList<>();
+        List<RollupStore.Checkpoint> checkpoints = new ArrayList<>();
+        for (PartitionWindows state : states) {
+            synchronized (state) {
+                state.advanceIdle(now, allowedLatenessMillis, idleTimeoutMillis);
+                Flush flush = new Flush(state);
+                boolean closed = state.takeClosed(flush.byStatus, flush.byProduct);
+                if (!closed && !state.isDirty()) {
+                    continue;
+                }
+                try {
+                    checkpoints.add(new RollupStore.Checkpoint(state.getPartition(), state.getNextOffset(),
+                        state.getWatermark(), state.toJson(STATE_MAPPER)));
+                } catch (JsonProcessingException e) {
+                    state.restoreClosed(flush.byStatus, flush.byProduct);
+                    logger.error("Could not serialize aggregation state of {}-{}", TOPIC, state.getPartition(), e);
+                    continue;
+                }
+                state.markClean();
+                flushes.add(flush);
+            }
+        }
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+
+        // Partitions contribute to the same windows; add them up before writing
+        Map<WindowKey, WindowTotals> byStatus = new HashMap<>();
+        Map<WindowKey, WindowTotals> byProduct = new HashMap<>();
+        for (Flush flush : flushes) {
+            merge(flush.byStatus, byStatus);
+            merge(flush.byProduct, byProduct);
+        }
+        int rows = byStatus.size() + byProduct.size();
+        long startNanos = System.nanoTime();
+        try {
+            rollupStore.write(byStatus, byProduct, CONSUMER_GROUP, TOPIC, checkpoints);
+            orderMetrics.recordAnalyticsFlush(rows, System.nanoTime() - startNanos, true);
+            if (rows > 0) {
+                logger.debug("Flushed {} rollup rows and {} checkpoints", rows, checkpoints.size());
+            }
+        } catch (RuntimeException e) {
+            orderMetrics.recordAnalyticsFlush(rows, System.nanoTime() - startNanos, false);
+            logger.error("Failed to flush {} rollup rows; retrying on the next checkpoint", rows, e);
+            for (Flush flush : flushes) {
+                synchronized (flush.state) {
+                    flush.state.restoreClosed(flush.byStatus, flush.byProduct);
+                }
+            }
+        }
+    }
+
+    private static void merge(Map<WindowKey, WindowTotals> from, Map<WindowKey, WindowTotals> into) {
+        for (Map.Entry<WindowKey, WindowTotals> entry : from.entrySet()) {
+            WindowTotals totals = entry.getValue();
+            into.computeIfAbsent(entry.getKey(), key -> new WindowTotals())
+                .add(totals.getOrders(), totals.getQuantity(), totals.getRevenueMinor());
+        }
+    }
+
+    private static long minorUnits(Money money) {
+        return money != null ? money.getMinorUnits() : 0;
+    }
+
+    @FunctionalInterface
+    interface WindowUpdate {
+        void apply(PartitionWindows state, String window, long start, long end);
+    }
+
+    /**
+     * Closed windows taken out of one partition for a flush
+     */
+    private static final class Flush {
+        private final PartitionWindows state;
+        private final Map<WindowKey, WindowTotals> byStatus = new HashMap<>();
+        private final Map<WindowKey, WindowTotals> byProduct = new HashMap<>();
+
+        private Flush(PartitionWindows state) {
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.orderapp.analytics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Units sold per product in fixed memory: Space-Saving picks the candidates and bounds
+ * their error deterministically, Count-Min tightens the estimate of each. A reported
+ * estimate is the smaller of the two upper bounds, so it never undercounts and
+ * overcounts by at most min(N / counters, e / width * N), the Count-Min part with
+ * probability 1 - e^-depth. Mergeable, and serializable so instances can exchange them.
+ */
+public final class TopProductsSketch {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final SpaceSaving candidates;
+    private final CountMinSketch frequencies;
+
+    public TopProductsSketch(int counters, int depth, int width) {
+        this.candidates = new SpaceSaving(counters);
+        this.frequencies = new CountMinSketch(depth, width);
+    }
+
+    public void offer(String productId, long units) {
+        if (units <= 0) {
+            return;
+        }
+        candidates.offer(productId, units);
+        frequencies.add(productId, units);
+    }
+
+    public void merge(TopProductsSketch other) {
+        candidates.merge(other.candidates);
+        frequencies.merge(other.frequencies);
+    }
+
+    /**
+     * The heaviest products, heaviest first. A product is marked guaranteed when its lower
+     * bound beats the upper bound of everything ranked below it, tracked or not.
+     */
+    public List<Estimate> top(int limit) {
+        List<SpaceSaving.Counter> ranked = candidates.top(candidates.size());
+        List<Estimate> estimates = new ArrayList<>(ranked.size());
+        for (SpaceSaving.Counter counter : ranked) {
+            long upper = Math.min(counter.getCount(), frequencies.estimate(counter.getItem()));
+            estimates.add(new Estimate(counter.getItem(), upper, Math.max(0, counter.getLowerBound())));
+        }
+        estimates.sort((a, b) -> Long.compare(b.estimate, a.estimate));
+
+        List<Estimate> top = new ArrayList<>(estimates.subList(0, Math.min(limit, estimates.size())));
+        long untracked = candidates.minCount();
+        for (int i = 0; i < top.size(); i++) {
+            long below = i + 1 < estimates.size() ? estimates.get(i + 1).estimate : 0;
+            top.get(i).guaranteed = top.get(i).lowerBound >= Math.max(below, untracked);
+        }
+        return top;
+    }
+
+    public long getTotalUnits() {
+        return candidates.getTotal();
+    }
+
+    /**
+     * Most any reported estimate can overcount, in units
+     */
+    public long maxError() {
+        return Math.min(candidates.maxError(), (long) Math.ceil(frequencies.epsilon() * frequencies.getTotal()));
+    }
+
+    public long spaceSavingError() {
+        return candidates.maxError();
+    }
+
+    public long countMinError() {
+        return (long) Math.ceil(frequencies.epsilon() * frequencies.getTotal());
+    }
+
+    public double countMinConfidence() {
+        return 1 - frequencies.delta();
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeInt(candidates.getCapacity());
+            out.writeInt(frequencies.getDepth());
+            out.writeInt(frequencies.getWidth());
+            out.writeLong(candidates.getTotal());
+            List<SpaceSaving.Counter> counters = candidates.top(candidates.size());
+            out.writeInt(counters.size());
+            for (SpaceSaving.Counter counter : counters) {
+                out.writeUTF(counter.getItem());
+                out.writeLong(counter.getCount());
+                out.writeLong(counter.getError());
+            }
+            out.writeLong(frequencies.getTotal());
+            for (long cell : frequencies.table()) {
+                out.writeLong(cell);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static TopProductsSketch fromBytes(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported top-products sketch version " + version);
+            }
+            TopProductsSketch sketch = new TopProductsSketch(in.readInt(), in.readInt(), in.readInt());
+            sketch.candidates.restoreTotal(in.readLong());
+            int counters = in.readInt();
+            for (int i = 0; i < counters; i++) {
+                sketch.candidates.restore(in.readUTF(), in.readLong(), in.readLong());
+            }
+            sketch.frequencies.restoreTotal(in.readLong());
+            long[] table = sketch.frequencies.table();
+            for (int i = 0; i < table.length; i++) {
+                table[i] = in.readLong();
+            }
+            return sketch;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed top-products sketch", e);
+        }
+    }
+
+    /**
+     * A product's estimated units: the true figure is between lowerBound and estimate
+     */
+    public static final class Estimate {
+        private final String productId;
+        private final long estimate;
+        private final long lowerBound;
+        private boolean guaranteed;
+
+        private Estimate(String productId, long estimate, long lowerBound) {
+            this.productId = productId;
+            this.estimate = estimate;
+            this.lowerBound = lowerBound;
+        }
+
+        public String getProductId() { return productId; }
+        public long getEstimate() { return estimate; }
+        public long getLowerBound() { return lowerBound; }
+        public boolean isGuaranteed() { return guaranteed; }
+    }
+}
@@ -0,0 +1,143 @@
+package com.orderapp.analytics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-partition top-products sketches and the offsets they count up to (see V11
+ * migration). A bucket is stored whole and replaced on every save, so saving the same
+ * state twice is harmless.
+ */
+@Component
+@ConditionalOnProperty(name = "app.top-products.enabled", havingValue = "true", matchIfMissing = true)
+public class TopProductsStore {
+
+    private static final String UPSERT_BUCKET =
+        "INSERT INTO top_product_sketches (partition_id, bucket_millis, bucket_start, sketch, updated_at) " +
+        "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (partition_id, bucket_millis, bucket_start) DO UPDATE SET " +
+        "sketch = EXCLUDED.sketch, updated_at = CURRENT_TIMESTAMP";
+
+    private static final String UPSERT_CHECKPOINT =
+        "INSERT INTO top_product_checkpoints (partition_id, next_offset, updated_at) " +
+        "VALUES (?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (partition_id) DO UPDATE SET next_offset = EXCLUDED.next_offset, updated_at = CURRENT_TIMESTAMP";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public TopProductsStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Save the changed buckets of each partition with its next offset, and drop buckets
+     * older than their ring, all or nothing
+     */
+    void save(List<Checkpoint> checkpoints, Map<Long, Long> oldestStartByBucketMillis) {
+        List<Bucket> buckets = new ArrayList<>();
+        checkpoints.forEach(checkpoint -> buckets.addAll(checkpoint.buckets));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPSERT_BUCKET, buckets, 100, (ps, bucket) -> {
+                ps.setInt(1, bucket.partition);
+                ps.setLong(2, bucket.bucketMillis);
+                ps.setTimestamp(3, RollupStore.timestamp(bucket.start));
+                ps.setBytes(4, bucket.sketch);
+            });
+            jdbcTemplate.batchUpdate(UPSERT_CHECKPOINT, checkpoints, 100, (ps, checkpoint) -> {
+                ps.setInt(1, checkpoint.partition);
+                ps.setLong(2, checkpoint.nextOffset);
+            });
+            oldestStartByBucketMillis.forEach((bucketMillis, oldest) -> jdbcTemplate.update(
+                "DELETE FROM top_product_sketches WHERE bucket_millis = ? AND bucket_start < ?",
+                bucketMillis, RollupStore.timestamp(oldest)));
+        });
+    }
+
+    /**
+     * Saved state of a partition, or null if it was never saved
+     */
+    Checkpoint load(int partition) {
+        List<Long> offsets = jdbcTemplate.queryForList(
+            "SELECT next_offset FROM top_product_checkpoints WHERE partition_id = ?", Long.class, partition);
+        if (offsets.isEmpty()) {
+            return null;
+        }
+        List<Bucket> buckets = jdbcTemplate.query(
+            "SELECT bucket_millis, bucket_start, sketch FROM top_product_sketches WHERE partition_id = ?",
+            (rs, row) -> new Bucket(partition, rs.getLong("bucket_millis"),
+                epochMillis(rs.getTimestamp("bucket_start")), rs.getBytes("sketch")),
+            partition);
+        return new Checkpoint(partition, offsets.get(0), buckets);
+    }
+
+    /**
+     * Saved buckets of one size that end after {@code from}, by partition, leaving out the
+     * given partitions
+     */
+    Map<Integer, List<Bucket>> loadBuckets(long bucketMillis, long from, Collection<Integer> except) {
+        Map<Integer, List<Bucket>> byPartition = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT partition_id, bucket_start, sketch FROM top_product_sketches " +
+            "WHERE bucket_millis = ? AND bucket_start > ?",
+            rs -> {
+                int partition = rs.getInt("partition_id");
+                if (!except.contains(partition)) {
+                    byPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(new Bucket(partition,
+                        bucketMillis, epochMillis(rs.getTimestamp("bucket_start")), rs.getBytes("sketch")));
+                }
+            },
+            bucketMillis, RollupStore.timestamp(from - bucketMillis));
+        return byPartition;
+    }
+
+    private static long epochMillis(Timestamp timestamp) {
+        return timestamp.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * One serialized bucket of a partition
+     */
+    static final class Bucket {
+        final int partition;
+        final long bucketMillis;
+        final long start;
+        final byte[] sketch;
+
+        Bucket(int partition, long bucketMillis, long start, byte[] sketch) {
+            this.partition = partition;
+            this.bucketMillis = bucketMillis;
+            this.start = start;
+            this.sketch = sketch;
+        }
+    }
+
+    /**
+     * A partition's next offset and the buckets that count everything before it
+     */
+    static final class Checkpoint {
+        final int partition;
+        final long nextOffset;
+        final List<Bucket> buckets;
+
+        Checkpoint(int partition, long nextOffset, List<Bucket> buckets) {
+            this.partition = partition;
+            this.nextOffset = nextOffset;
+            this.buckets = buckets;
+        }
+    }
+}
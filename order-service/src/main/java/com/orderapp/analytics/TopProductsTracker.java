@@ -0,0 +1,374 @@
+package com.orderapp.analytics;
+
+import com.orderapp.dto.TopProductsResponse;
+import com.orderapp.entity.Product;
+import com.orderapp.event.OrderCreatedEvent;
+import com.orderapp.repository.ProductRepository;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Bestselling products of the last minutes or hours, from the items of every order
+ * created. Units sold go into one {@link TopProductsSketch} per minute for the last hour
+ * and one per hour for the last day, kept per order-analytics partition; a query merges
+ * the buckets its window covers, so memory stays fixed whatever the traffic. Windows over
+ * an hour are counted in whole hours.
+ * <p>
+ * Every checkpoint interval each partition's changed buckets are saved with its next
+ * offset in one transaction. On assignment a partition is restored from what was saved,
+ * and events before that offset are skipped, so a rebalance or restart neither loses nor
+ * counts anything twice. A query merges this instance's partitions with the saved buckets
+ * of all the others, so it answers for the whole topic on any instance, with other
+ * instances' partitions one checkpoint interval behind.
+ */
+@Service
+@ConditionalOnProperty(name = "app.top-products.enabled", havingValue = "true", matchIfMissing = true)
+public class TopProductsTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopProductsTracker.class);
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final int MINUTE_BUCKETS = 60;
+    private static final int HOUR_BUCKETS = 24;
+
+    private final TopProductsStore store;
+    private final ProductRepository productRepository;
+
+    private final int counters;
+    private final int depth;
+    private final int width;
+
+    private final Map<Integer, PartitionSketches> partitions = new ConcurrentHashMap<>();
+    private final Map<String, String[]> labels;
+
+    @Autowired
+    public TopProductsTracker(TopProductsStore store, ProductRepository productRepository,
+                              @Value("${app.top-products.counters:256}") int counters,
+                              @Value("${app.top-products.cms-depth:4}") int depth,
+                              @Value("${app.top-products.cms-width:1024}") int width,
+                              @Value("${app.top-products.max-labels:10000}") int maxLabels) {
+        this.store = store;
+        this.productRepository = productRepository;
+        this.counters = counters;
+        this.depth = depth;
+        this.width = width;
+        this.labels = new LinkedHashMap<String, String[]>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
+                return size() > maxLabels;
+            }
+        };
+    }
+
+    public void record(int partition, long offset, OrderCreatedEvent event, long recordTimestamp) {
+        PartitionSketches state = partitions.computeIfAbsent(partition, PartitionSketches::new);
+        synchronized (state) {
+            if (offset < state.nextOffset) {
+                // Already counted in the buckets restored from the checkpoint
+                return;
+            }
+            state.nextOffset = offset + 1;
+            state.dirty = true;
+            if (event.getItems() == null || event.getItems().isEmpty()) {
+                return;
+            }
+            long eventTime = EventTime.of(event, recordTimestamp);
+            state.minutes.record(eventTime, event);
+            state.hours.record(eventTime, event);
+        }
+        synchronized (labels) {
+            for (OrderCreatedEvent.OrderItemData item : event.getItems()) {
+                if (item.getProductId() != null) {
+                    labels.put(item.getProductId().toString(), new String[] {item.getSku(), item.getProductName()});
+                }
+            }
+        }
+    }
+
+    /**
+     * Restore newly assigned partitions from their checkpoints; returns the offset each
+     * restored partition must be read from
+     */
+    public Map<Integer, Long> onPartitionsAssigned(Collection<TopicPartition> assigned) {
+        Map<Integer, Long> resume = new HashMap<>();
+        for (TopicPartition topicPartition : assigned) {
+            int partition = topicPartition.partition();
+            if (!StreamingAggregationEngine.TOPIC.equals(topicPartition.topic()) || partitions.containsKey(partition)) {
+                continue;
+            }
+            try {
+                TopProductsStore.Checkpoint saved = store.load(partition);
+                if (saved == null) {
+                    continue;
+                }
+                PartitionSketches state = new PartitionSketches(partition);
+                state.nextOffset = saved.nextOffset;
+                for (TopProductsStore.Bucket bucket : saved.buckets) {
+                    Ring ring = bucket.bucketMillis == MINUTE ? state.minutes : state.hours;
+                    ring.restore(bucket.start, TopProductsSketch.fromBytes(bucket.sketch));
+                }
+                partitions.put(partition, state);
+                resume.put(partition, saved.nextOffset);
+            } catch (RuntimeException e) {
+                // Counted from the consumer's position; what the checkpoint held is missing from this partition
+                logger.error("Could not restore top-products sketches of {}-{}", StreamingAggregationEngine.TOPIC,
+                    partition, e);
+            }
+        }
+        return resume;
+    }
+
+    /**
+     * Checkpoint partitions before they move to another consumer, then forget them
+     */
+    public void onPartitionsRevoked(Collection<TopicPartition> revoked) {
+        List<PartitionSketches> leaving = revoked.stream()
+            .filter(topicPartition -> StreamingAggregationEngine.TOPIC.equals(topicPartition.topic()))
+            .map(topicPartition -> partitions.get(topicPartition.partition()))
+            .filter(state -> state != null)
+            .collect(Collectors.toList());
+        if (leaving.isEmpty()) {
+            return;
+        }
+        // If this fails the new owner resumes from the previous checkpoint, which matches its buckets
+        checkpoint(leaving);
+        leaving.forEach(state -> partitions.remove(state.partition));
+    }
+
+    @Scheduled(fixedDelayString = "${app.top-products.checkpoint-interval-ms:10000}",
+               initialDelayString = "${app.top-products.checkpoint-interval-ms:10000}")
+    public void checkpoint() {
+        checkpoint(new ArrayList<>(partitions.values()));
+    }
+
+    @PreDestroy
+    public void close() {
+        checkpoint();
+    }
+
+    private synchronized void checkpoint(Collection<PartitionSketches> states) {
+        List<TopProductsStore.Checkpoint> checkpoints = new ArrayList<>();
+        List<PartitionSketches> saving = new ArrayList<>();
+        for (PartitionSketches state : states) {
+            synchronized (state) {
+                if (!state.dirty) {
+                    continue;
+                }
+                List<TopProductsStore.Bucket> buckets = new ArrayList<>();
+                state.minutes.takeDirty(state.partition, buckets);
+                state.hours.takeDirty(state.partition, buckets);
+                checkpoints.add(new TopProductsStore.Checkpoint(state.partition, state.nextOffset, buckets));
+                state.dirty = false;
+                saving.add(state);
+            }
+        }
+        if (checkpoints.isEmpty()) {
+            return;
+        }
+        long now = EventTime.now();
+        Map<Long, Long> oldest = Map.of(
+            MINUTE, (Math.floorDiv(now, MINUTE) - MINUTE_BUCKETS) * MINUTE,
+            HOUR, (Math.floorDiv(now, HOUR) - HOUR_BUCKETS) * HOUR);
+        try {
+            store.save(checkpoints, oldest);
+        } catch (RuntimeException e) {
+            logger.error("Failed to save top-products sketches of {} partitions; retrying on the next checkpoint",
+                checkpoints.size(), e);
+            for (PartitionSketches state : saving) {
+                synchronized (state) {
+                    state.markAllDirty();
+                }
+            }
+        }
+    }
+
+    /**
+     * Merged sketch of the products sold within the window (e.g. 15m, 1h), up to a day,
+     * over every partition
+     */
+    public TopProductsSketch sketch(String window) {
+        long windowMillis = DurationStyle.detectAndParse(window).toMillis();
+        if (windowMillis <= 0 || windowMillis > HOUR * HOUR_BUCKETS) {
+            throw new IllegalArgumentException("Window must be positive and at most 24h: " + window);
+        }
+        boolean byMinute = windowMillis <= MINUTE * MINUTE_BUCKETS;
+        long from = EventTime.now() - windowMillis;
+
+        TopProductsSketch merged = newSketch();
+        Set<Integer> local = partitions.keySet();
+        for (PartitionSketches state : partitions.values()) {
+            synchronized (state) {
+                (byMinute ? state.minutes : state.hours).mergeInto(merged, from);
+            }
+        }
+        store.loadBuckets(byMinute ? MINUTE : HOUR, from, local).values().forEach(buckets ->
+            buckets.forEach(bucket -> merged.merge(TopProductsSketch.fromBytes(bucket.sketch))));
+        return merged;
+    }
+
+    /**
+     * The heaviest sellers within the window, with the bounds of their estimates
+     */
+    public TopProductsResponse topProducts(String window, int limit) {
+        TopProductsSketch sketch = sketch(window);
+        List<TopProductsSketch.Estimate> top = sketch.top(limit);
+        Map<String, String[]> found = labels(top);
+        List<TopProductsResponse.ProductEstimate> products = top.stream()
+            .map(estimate -> {
+                String[] label = found.get(estimate.getProductId());
+                return new TopProductsResponse.ProductEstimate(estimate.getProductId(),
+                    label != null ? label[0] : null, label != null ? label[1] : null,
+                    estimate.getEstimate(), estimate.getLowerBound(), estimate.isGuaranteed());
+            })
+            .collect(Collectors.toList());
+        return new TopProductsResponse(window, sketch.getTotalUnits(), sketch.maxError(), sketch.spaceSavingError(),
+            sketch.countMinError(), sketch.countMinConfidence(), products);
+    }
+
+    // SKU and name of each product, from the events seen here or else the products table
+    private Map<String, String[]> labels(List<TopProductsSketch.Estimate> top) {
+        Map<String, String[]> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        synchronized (labels) {
+            for (TopProductsSketch.Estimate estimate : top) {
+                String[] label = labels.get(estimate.getProductId());
+                if (label != null) {
+                    found.put(estimate.getProductId(), label);
+                } else {
+                    missing.add(UUID.fromString(estimate.getProductId()));
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Product product : productRepository.findAllById(missing)) {
+                found.put(product.getId().toString(), new String[] {product.getSku(), product.getName()});
+            }
+        }
+        return found;
+    }
+
+    private TopProductsSketch newSketch() {
+        return new TopProductsSketch(counters, depth, width);
+    }
+
+    /**
+     * Minute and hour buckets of one partition and the next offset they have counted up
+     * to. Guarded by the instance.
+     */
+    private final class PartitionSketches {
+        private final int partition;
+        private final Ring minutes = new Ring(MINUTE, MINUTE_BUCKETS);
+        private final Ring hours = new Ring(HOUR, HOUR_BUCKETS);
+        private long nextOffset = -1;
+        private boolean dirty;
+
+        private PartitionSketches(int partition) {
+            this.partition = partition;
+        }
+
+        private void markAllDirty() {
+            minutes.markAllDirty();
+            hours.markAllDirty();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Buckets of one size covering the most recent span, reused as time moves on
+     */
+    private final class Ring {
+        private final long bucketMillis;
+        private final Bucket[] buckets;
+
+        private Ring(long bucketMillis, int count) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = new Bucket[count];
+            for (int i = 0; i < count; i++) {
+                buckets[i] = new Bucket();
+            }
+        }
+
+        private void record(long eventTime, OrderCreatedEvent event) {
+            Bucket bucket = claim(Math.floorDiv(eventTime, bucketMillis));
+            if (bucket == null) {
+                return;
+            }
+            for (OrderCreatedEvent.OrderItemData item : event.getItems()) {
+                if (item.getProductId() != null && item.getQuantity() != null) {
+                    bucket.sketch.offer(item.getProductId().toString(), item.getQuantity());
+                }
+            }
+            bucket.dirty = true;
+        }
+
+        private void restore(long start, TopProductsSketch sketch) {
+            Bucket bucket = claim(Math.floorDiv(start, bucketMillis));
+            if (bucket != null) {
+                bucket.sketch = sketch;
+            }
+        }
+
+        // The bucket for an index, emptied if it held an older one; null if older than the whole ring
+        private Bucket claim(long index) {
+            Bucket bucket = buckets[(int) Math.floorMod(index, (long) buckets.length)];
+            long start = index * bucketMillis;
+            if (bucket.start < start || bucket.sketch == null) {
+                bucket.start = start;
+                bucket.sketch = newSketch();
+            } else if (bucket.start > start) {
+                return null;
+            }
+            return bucket;
+        }
+
+        private void mergeInto(TopProductsSketch merged, long from) {
+            for (Bucket bucket : buckets) {
+                if (bucket.sketch != null && bucket.start + bucketMillis > from) {
+                    merged.merge(bucket.sketch);
+                }
+            }
+        }
+
+        private void takeDirty(int partition, List<TopProductsStore.Bucket> into) {
+            for (Bucket bucket : buckets) {
+                if (bucket.dirty) {
+                    into.add(new TopProductsStore.Bucket(partition, bucketMillis, bucket.start, bucket.sketch.toBytes()));
+                    bucket.dirty = false;
+                }
+            }
+        }
+
+        private void markAllDirty() {
+            for (Bucket bucket : buckets) {
+                bucket.dirty = bucket.sketch != null;
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private long start;
+        private TopProductsSketch sketch;
+        private boolean dirty;
+    }
+}
@@ -0,0 +1,197 @@
+package com.orderapp.analytics;
+
+import com.orderapp.dto.UniqueCustomersResponse;
+import com.orderapp.entity.CustomerSketch;
+import com.orderapp.event.OrderEvent;
+import com.orderapp.repository.CustomerSketchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distinct customers who ordered, per day, as {@link HyperLogLog} sketches. The consumer
+ * adds each order's user id to the sketch of its event day; every flush interval the
+ * day sketches are merged into customer_sketches under a row lock. Merging is
+ * idempotent, so events delivered twice and several instances writing the same day are
+ * both harmless. Any range of days is answered by merging the stored days with what is
+ * not flushed yet.
+ */
+@Service
+public class UniqueCustomerTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(UniqueCustomerTracker.class);
+
+    private static final int STORE_ATTEMPTS = 3;
+
+    private final CustomerSketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<LocalDate, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+    @Value("${app.unique-customers.precision:14}")
+    private int precision;
+
+    @Value("${app.unique-customers.max-range-days:731}")
+    private int maxRangeDays;
+
+    @Autowired
+    public UniqueCustomerTracker(CustomerSketchRepository sketchRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void record(OrderEvent event, long recordTimestamp) {
+        if (event.getUserId() == null) {
+            return;
+        }
+        LocalDate day = eventDay(event, recordTimestamp);
+        // compute() is atomic per day, so an add cannot land in a sketch being flushed
+        pending.compute(day, (key, sketch) -> {
+            HyperLogLog target = sketch != null ? sketch : newSketch();
+            target.add(event.getUserId());
+            return target;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.unique-customers.flush-interval-ms:30000}")
+    public void flush() {
+        for (LocalDate day : new ArrayList<>(pending.keySet())) {
+            HyperLogLog sketch = pending.remove(day);
+            if (sketch == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> mergeIntoStored(day, sketch));
+            } catch (RuntimeException e) {
+                // Typically another instance inserting the same day first; try again next time
+                logger.warn("Could not flush customer sketch of {}: {}", day, e.getMessage());
+                pending.merge(day, sketch, (newer, failed) -> {
+                    newer.merge(failed);
+                    return newer;
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Merge sketches rebuilt elsewhere, such as by a replay, into the stored days in one
+     * transaction. Days are locked in date order.
+     */
+    void store(Map<LocalDate, HyperLogLog> days) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                    new TreeMap<>(days).forEach(this::mergeIntoStored));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // Another writer inserted one of the days first; the retry locks its row instead
+                if (attempt == STORE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    static LocalDate eventDay(OrderEvent event, long recordTimestamp) {
+        return Instant.ofEpochMilli(EventTime.of(event, recordTimestamp)).atOffset(ZoneOffset.UTC).toLocalDate();
+    }
+
+    HyperLogLog newSketch() {
+        return new HyperLogLog(precision);
+    }
+
+    // Within a transaction
+    private void mergeIntoStored(LocalDate day, HyperLogLog sketch) {
+        CustomerSketch stored = sketchRepository.findForUpdate(day).orElse(null);
+        if (stored == null) {
+            sketchRepository.save(new CustomerSketch(day, sketch.toBytes()));
+            return;
+        }
+        HyperLogLog merged = HyperLogLog.fromBytes(stored.getSketch());
+        merged.merge(sketch);
+        stored.setSketch(merged.toBytes());
+    }
+
+    /**
+     * Distinct customers from one day to another, inclusive, over the whole range and per
+     * day, week (ISO, from Monday) or month
+     */
+    public UniqueCustomersResponse uniqueCustomers(LocalDate from, LocalDate to, String granularity) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("'to' must not be before 'from'");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new IllegalArgumentException("Range must be at most " + maxRangeDays + " days");
+        }
+
+        Map<LocalDate, HyperLogLog> days = new HashMap<>();
+        for (CustomerSketch stored : sketchRepository.findByBucketDateBetween(from, to)) {
+            days.put(stored.getBucketDate(), HyperLogLog.fromBytes(stored.getSketch()));
+        }
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            LocalDate key = day;
+            pending.computeIfPresent(day, (ignored, unflushed) -> {
+                days.computeIfAbsent(key, d -> new HyperLogLog(precision)).merge(unflushed);
+                return unflushed;
+            });
+        }
+
+        HyperLogLog total = new HyperLogLog(precision);
+        List<UniqueCustomersResponse.Bucket> buckets = new ArrayList<>();
+        for (LocalDate start = from; !start.isAfter(to); ) {
+            LocalDate end = bucketEnd(start, granularity);
+            if (end.isAfter(to)) {
+                end = to;
+            }
+            HyperLogLog bucket = new HyperLogLog(precision);
+            for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                HyperLogLog sketch = days.get(day);
+                if (sketch != null) {
+                    bucket.merge(sketch);
+                }
+            }
+            total.merge(bucket);
+            buckets.add(new UniqueCustomersResponse.Bucket(start, end, bucket.estimate()));
+            start = end.plusDays(1);
+        }
+        return new UniqueCustomersResponse(from, to, total.estimate(), total.relativeStandardError(), buckets);
+    }
+
+    private static LocalDate bucketEnd(LocalDate start, String granularity) {
+        switch (granularity.toLowerCase()) {
+            case "day":
+                return start;
+            case "week":
+                return start.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+            case "month":
+                return start.with(TemporalAdjusters.lastDayOfMonth());
+            default:
+                throw new IllegalArgumentException("Granularity must be day, week or month: " + granularity);
+        }
+    }
+}
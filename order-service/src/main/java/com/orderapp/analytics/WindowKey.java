@@ -0,0 +1,43 @@
+package com.orderapp.analytics;
+
+import java.util.Objects;
+
+/**
+ * One window instance and the dimension value it is grouped by (a status or a product id)
+ */
+final class WindowKey {
+
+    private final String window;
+    private final long start;
+    private final long end;
+    private final String dimension;
+
+    WindowKey(String window, long start, long end, String dimension) {
+        this.window = window;
+        this.start = start;
+        this.end = end;
+        this.dimension = dimension;
+    }
+
+    String getWindow() { return window; }
+    long getStart() { return start; }
+    long getEnd() { return end; }
+    String getDimension() { return dimension; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WindowKey)) {
+            return false;
+        }
+        WindowKey other = (WindowKey) o;
+        return start == other.start && window.equals(other.window) && dimension.equals(other.dimension);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(window, start, dimension);
+    }
+}
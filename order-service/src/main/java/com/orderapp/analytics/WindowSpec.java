@@ -0,0 +1,68 @@
+package com.orderapp.analytics;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * A window shape, tumbling when the slide equals the size and hopping when it is shorter.
+ * Windows are aligned to the epoch, so hour windows start on the hour and day windows at
+ * midnight.
+ */
+public final class WindowSpec {
+
+    private final String name;
+    private final long sizeMillis;
+    private final long slideMillis;
+
+    public WindowSpec(String name, long sizeMillis, long slideMillis) {
+        if (sizeMillis <= 0 || slideMillis <= 0 || slideMillis > sizeMillis) {
+            throw new IllegalArgumentException("Window " + name + " needs 0 < slide <= size");
+        }
+        this.name = name;
+        this.sizeMillis = sizeMillis;
+        this.slideMillis = slideMillis;
+    }
+
+    /**
+     * Parse {@code name=size[/slide],...}, e.g. {@code minute=1m,hour=1h,hour-hopping=1h/15m}
+     */
+    public static List<WindowSpec> parseAll(String specs) {
+        List<WindowSpec> windows = new ArrayList<>();
+        for (String spec : specs.split(",")) {
+            if (spec.isBlank()) {
+                continue;
+            }
+            String[] nameAndShape = spec.trim().split("=", 2);
+            if (nameAndShape.length != 2) {
+                throw new IllegalArgumentException("Window spec must be name=size[/slide]: " + spec);
+            }
+            String[] shape = nameAndShape[1].trim().split("/", 2);
+            long size = DurationStyle.detectAndParse(shape[0].trim()).toMillis();
+            long slide = shape.length > 1 ? DurationStyle.detectAndParse(shape[1].trim()).toMillis() : size;
+            windows.add(new WindowSpec(nameAndShape[0].trim(), size, slide));
+        }
+        return windows;
+    }
+
+    /**
+     * Call back with the start of every window containing the event time, latest first
+     */
+    public void forEachStart(long eventTimeMillis, LongConsumer start) {
+        for (long s = Math.floorDiv(eventTimeMillis, slideMillis) * slideMillis; s > eventTimeMillis - sizeMillis; s -= slideMillis) {
+            start.accept(s);
+        }
+    }
+
+    public String getName() { return name; }
+    public long getSizeMillis() { return sizeMillis; }
+    public long getSlideMillis() { return slideMillis; }
+    public boolean isTumbling() { return slideMillis == sizeMillis; }
+
+    @Override
+    public String toString() {
+        return name + "=" + sizeMillis + "ms" + (isTumbling() ? "" : "/" + slideMillis + "ms");
+    }
+}
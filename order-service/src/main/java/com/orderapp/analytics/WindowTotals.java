@@ -0,0 +1,30 @@
+package com.orderapp.analytics;
+
+/**
+ * Running totals of one window; revenue is kept in minor currency units
+ */
+final class WindowTotals {
+
+    private long orders;
+    private long quantity;
+    private long revenueMinor;
+
+    WindowTotals() {
+    }
+
+    WindowTotals(long orders, long quantity, long revenueMinor) {
+        this.orders = orders;
+        this.quantity = quantity;
+        this.revenueMinor = revenueMinor;
+    }
+
+    void add(long orders, long quantity, long revenueMinor) {
+        this.orders += orders;
+        this.quantity += quantity;
+        this.revenueMinor += revenueMinor;
+    }
+
+    long getOrders() { return orders; }
+    long getQuantity() { return quantity; }
+    long getRevenueMinor() { return revenueMinor; }
+}
@@ -0,0 +1,307 @@
+package com.orderapp.archive;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only, memory-mapped view of one archive segment file.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header     magic, version, order/item counts, min/max of created_at, user_id and status
+ *   directory  per column: offset, compressed length, raw length
+ *   id index   (msb, lsb, row) per order sorted by id, uncompressed for binary search
+ *   columns    deflate-compressed column blobs
+ * </pre>
+ * Orders are stored sorted by created_at; items are stored grouped by order row and
+ * addressed through the ITEM_START column.
+ */
+public class ArchiveSegment {
+
+    static final int MAGIC = 0x4F415243; // "OARC"
+    static final short VERSION = 1;
+    static final long NULL_TIME = Long.MIN_VALUE;
+    static final int ID_ENTRY_BYTES = 20;
+
+    /**
+     * Column order is part of the file format; append new columns at the end only
+     */
+    enum Column {
+        ORDER_NUMBER, USER_MSB, USER_LSB, USER_NAME, USER_EMAIL, STATUS,
+        TOTAL, TAX, SHIPPING,
+        SHIP_STREET, SHIP_CITY, SHIP_STATE, SHIP_POSTAL, SHIP_COUNTRY, NOTES,
+        CREATED, UPDATED, SHIPPED, DELIVERED,
+        ITEM_START, ITEM_ID_MSB, ITEM_ID_LSB, PRODUCT_MSB, PRODUCT_LSB,
+        PRODUCT_NAME, PRODUCT_SKU, QUANTITY, UNIT_PRICE, ITEM_TOTAL
+    }
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final int orderCount;
+    private final int itemCount;
+    private final long minCreated;
+    private final long maxCreated;
+    private final UUID minUser;
+    private final UUID maxUser;
+    private final int minStatus;
+    private final int maxStatus;
+    private final int idIndexOffset;
+    private final long[] columnOffsets;
+    private final int[] compressedLengths;
+    private final int[] rawLengths;
+
+    @SuppressWarnings("unchecked")
+    private final SoftReference<Object>[] decoded = new SoftReference[Column.values().length];
+
+    private ArchiveSegment(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+
+        ByteBuffer header = buffer.duplicate();
+        if (header.getInt() != MAGIC) {
+            throw new IllegalStateException("Not an order archive segment: " + path);
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IllegalStateException("Unsupported archive segment version " + version + ": " + path);
+        }
+        this.orderCount = header.getInt();
+        this.itemCount = header.getInt();
+        this.minCreated = header.getLong();
+        this.maxCreated = header.getLong();
+        this.minUser = new UUID(header.getLong(), header.getLong());
+        this.maxUser = new UUID(header.getLong(), header.getLong());
+        this.minStatus = header.get();
+        this.maxStatus = header.get();
+
+        int columns = header.getInt();
+        this.columnOffsets = new long[columns];
+        this.compressedLengths = new int[columns];
+        this.rawLengths = new int[columns];
+        for (int i = 0; i < columns; i++) {
+            columnOffsets[i] = header.getLong();
+            compressedLengths[i] = header.getInt();
+            rawLengths[i] = header.getInt();
+            if (columnOffsets[i] < 0 || compressedLengths[i] < 0 || rawLengths[i] < 0
+                    || columnOffsets[i] + compressedLengths[i] > buffer.capacity()) {
+                throw new IllegalStateException("Truncated archive segment, column " + i + " ends past "
+                    + buffer.capacity() + " bytes: " + path);
+            }
+        }
+        this.idIndexOffset = header.position();
+        if (idIndexOffset + (long) orderCount * ID_ENTRY_BYTES > buffer.capacity()) {
+            throw new IllegalStateException("Truncated archive segment, id index ends past "
+                + buffer.capacity() + " bytes: " + path);
+        }
+    }
+
+    public static ArchiveSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ArchiveSegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Truncated archive segment header: " + path, e);
+        }
+    }
+
+    // Index accessors
+    public Path getPath() { return path; }
+    public int getOrderCount() { return orderCount; }
+    public int getItemCount() { return itemCount; }
+    public long getMinCreated() { return minCreated; }
+    public long getMaxCreated() { return maxCreated; }
+    public UUID getMinUser() { return minUser; }
+    public UUID getMaxUser() { return maxUser; }
+    public int getMinStatus() { return minStatus; }
+    public int getMaxStatus() { return maxStatus; }
+
+    public boolean overlapsCreated(long from, long to) {
+        return maxCreated >= from && minCreated <= to;
+    }
+
+    public boolean mayContainUser(UUID userId) {
+        return minUser.compareTo(userId) <= 0 && maxUser.compareTo(userId) >= 0;
+    }
+
+    public boolean mayContainStatus(int statusMask) {
+        int segmentMask = (int) ((1L << (maxStatus + 1)) - (1L << minStatus));
+        return (segmentMask & statusMask) != 0;
+    }
+
+    /**
+     * Binary search of the uncompressed id index; returns the order row or -1
+     */
+    public int findRow(UUID orderId) {
+        long msb = orderId.getMostSignificantBits();
+        long lsb = orderId.getLeastSignificantBits();
+        int low = 0;
+        int high = orderCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = idIndexOffset + mid * ID_ENTRY_BYTES;
+            int cmp = compareId(buffer.getLong(entry), buffer.getLong(entry + 8), msb, lsb);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(entry + 16);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Order ids indexed by row
+     */
+    public UUID[] orderIds() {
+        UUID[] ids = new UUID[orderCount];
+        for (int i = 0; i < orderCount; i++) {
+            int entry = idIndexOffset + i * ID_ENTRY_BYTES;
+            ids[buffer.getInt(entry + 16)] = new UUID(buffer.getLong(entry), buffer.getLong(entry + 8));
+        }
+        return ids;
+    }
+
+    static int compareId(long msbA, long lsbA, long msbB, long lsbB) {
+        int cmp = Long.compare(msbA, msbB);
+        return cmp != 0 ? cmp : Long.compare(lsbA, lsbB);
+    }
+
+    /**
+     * Sum of TOTAL (minor units) over orders whose status bit is set in statusMask and
+     * whose created_at lies in [from, to]. Runs as a branch-free loop over primitive columns.
+     */
+    public long sumTotal(int statusMask, long from, long to) {
+        if (!overlapsCreated(from, to) || !mayContainStatus(statusMask)) {
+            return 0L;
+        }
+        long[] created = longs(Column.CREATED);
+        byte[] status = bytes(Column.STATUS);
+        long[] total = longs(Column.TOTAL);
+        long sum = 0L;
+        if (from <= minCreated && to >= maxCreated) {
+            for (int i = 0; i < orderCount; i++) {
+                sum += ((statusMask >>> status[i]) & 1) * total[i];
+            }
+        } else {
+            for (int i = 0; i < orderCount; i++) {
+                long t = created[i];
+                long inRange = (t >= from && t <= to) ? 1L : 0L;
+                sum += inRange * ((statusMask >>> status[i]) & 1) * total[i];
+            }
+        }
+        return sum;
+    }
+
+    // Column decoding, cached softly so cold segments can be reclaimed under memory pressure
+    long[] longs(Column column) {
+        Object cached = cached(column);
+        if (cached != null) {
+            return (long[]) cached;
+        }
+        ByteBuffer raw = inflate(column);
+        long[] values = new long[raw.remaining() / Long.BYTES];
+        raw.asLongBuffer().get(values);
+        return cache(column, values);
+    }
+
+    int[] ints(Column column) {
+        Object cached = cached(column);
+        if (cached != null) {
+            return (int[]) cached;
+        }
+        ByteBuffer raw = inflate(column);
+        int[] values = new int[raw.remaining() / Integer.BYTES];
+        raw.asIntBuffer().get(values);
+        return cache(column, values);
+    }
+
+    byte[] bytes(Column column) {
+        Object cached = cached(column);
+        if (cached != null) {
+            return (byte[]) cached;
+        }
+        ByteBuffer raw = inflate(column);
+        byte[] values = new byte[raw.remaining()];
+        raw.get(values);
+        return cache(column, values);
+    }
+
+    String[] strings(Column column) {
+        Object cached = cached(column);
+        if (cached != null) {
+            return (String[]) cached;
+        }
+        ByteBuffer raw = inflate(column);
+        String[] values = new String[raw.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            int length = raw.getInt();
+            if (length >= 0) {
+                values[i] = new String(raw.array(), raw.position(), length, StandardCharsets.UTF_8);
+                raw.position(raw.position() + length);
+            }
+        }
+        return cache(column, values);
+    }
+
+    private Object cached(Column column) {
+        SoftReference<Object> ref = decoded[column.ordinal()];
+        return ref != null ? ref.get() : null;
+    }
+
+    private <T> T cache(Column column, T values) {
+        decoded[column.ordinal()] = new SoftReference<>(values);
+        return values;
+    }
+
+    private ByteBuffer inflate(Column column) {
+        int i = column.ordinal();
+        ByteBuffer compressed = buffer.duplicate();
+        compressed.position((int) columnOffsets[i]);
+        compressed.limit((int) columnOffsets[i] + compressedLengths[i]);
+
+        byte[] raw = new byte[rawLengths[i]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, raw.length - read);
+                // Out of input before the column is complete: the blob was cut short
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Corrupt column " + column + " in " + path
+                        + ": truncated after " + read + " of " + raw.length + " bytes");
+                }
+                read += n;
+            }
+            if (read < raw.length) {
+                throw new IllegalStateException("Corrupt column " + column + " in " + path
+                    + ": " + read + " of " + raw.length + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt column " + column + " in " + path, e);
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(raw);
+    }
+
+    @Override
+    public String toString() {
+        return "ArchiveSegment{" +
+                "path=" + path +
+                ", orders=" + orderCount +
+                ", items=" + itemCount +
+                '}';
+    }
+}
@@ -0,0 +1,226 @@
+package com.orderapp.archive;
+
+import com.orderapp.archive.ArchiveSegment.Column;
+import com.orderapp.entity.Address;
+import com.orderapp.entity.Money;
+import com.orderapp.entity.Order;
+import com.orderapp.entity.OrderItem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a batch of orders (with their user and items loaded) as one columnar segment file.
+ * The file is written next to the target, fsynced and then atomically moved into place,
+ * and the directory is fsynced after the move.
+ */
+public final class ArchiveSegmentWriter {
+
+    private static final int HEADER_FIXED_BYTES = 4 + 2 + 4 + 4 + 8 + 8 + 16 + 16 + 1 + 1 + 4;
+    private static final int DIRECTORY_ENTRY_BYTES = 8 + 4 + 4;
+
+    private ArchiveSegmentWriter() {}
+
+    public static void write(Path target, List<Order> batch) throws IOException {
+        if (batch.isEmpty()) {
+            throw new IllegalArgumentException("Cannot write an empty archive segment");
+        }
+
+        List<Order> orders = new ArrayList<>(batch);
+        orders.sort(Comparator.comparing(Order::getCreatedAt));
+        int n = orders.size();
+
+        Map<Column, byte[]> raw = new EnumMap<>(Column.class);
+        raw.put(Column.ORDER_NUMBER, strings(orders, Order::getOrderNumber));
+        raw.put(Column.USER_MSB, longs(orders, o -> o.getUser().getId().getMostSignificantBits()));
+        raw.put(Column.USER_LSB, longs(orders, o -> o.getUser().getId().getLeastSignificantBits()));
+        raw.put(Column.USER_NAME, strings(orders, o -> o.getUser().getFullName()));
+        raw.put(Column.USER_EMAIL, strings(orders, o -> o.getUser().getEmail()));
+        raw.put(Column.STATUS, statuses(orders));
+        raw.put(Column.TOTAL, longs(orders, o -> cents(o.getTotalAmount())));
+        raw.put(Column.TAX, longs(orders, o -> cents(o.getTaxAmount())));
+        raw.put(Column.SHIPPING, longs(orders, o -> cents(o.getShippingAmount())));
+        raw.put(Column.SHIP_STREET, strings(orders, o -> address(o, Address::getStreetAddress)));
+        raw.put(Column.SHIP_CITY, strings(orders, o -> address(o, Address::getCity)));
+        raw.put(Column.SHIP_STATE, strings(orders, o -> address(o, Address::getState)));
+        raw.put(Column.SHIP_POSTAL, strings(orders, o -> address(o, Address::getPostalCode)));
+        raw.put(Column.SHIP_COUNTRY, strings(orders, o -> address(o, Address::getCountry)));
+        raw.put(Column.NOTES, strings(orders, Order::getNotes));
+        raw.put(Column.CREATED, longs(orders, o -> epochMillis(o.getCreatedAt())));
+        raw.put(Column.UPDATED, longs(orders, o -> epochMillis(o.getUpdatedAt())));
+        raw.put(Column.SHIPPED, longs(orders, o -> epochMillis(o.getShippedAt())));
+        raw.put(Column.DELIVERED, longs(orders, o -> epochMillis(o.getDeliveredAt())));
+
+        List<OrderItem> items = new ArrayList<>();
+        ByteBuffer itemStart = ByteBuffer.allocate(n * Integer.BYTES);
+        for (Order order : orders) {
+            itemStart.putInt(items.size());
+            items.addAll(order.getOrderItems());
+        }
+        raw.put(Column.ITEM_START, itemStart.array());
+        raw.put(Column.ITEM_ID_MSB, longs(items, i -> i.getId().getMostSignificantBits()));
+        raw.put(Column.ITEM_ID_LSB, longs(items, i -> i.getId().getLeastSignificantBits()));
+        raw.put(Column.PRODUCT_MSB, longs(items, i -> i.getProduct().getId().getMostSignificantBits()));
+        raw.put(Column.PRODUCT_LSB, longs(items, i -> i.getProduct().getId().getLeastSignificantBits()));
+        raw.put(Column.PRODUCT_NAME, strings(items, OrderItem::getProductName));
+        raw.put(Column.PRODUCT_SKU, strings(items, OrderItem::getProductSku));
+        raw.put(Column.QUANTITY, ints(items, OrderItem::getQuantity));
+        raw.put(Column.UNIT_PRICE, longs(items, i -> cents(i.getUnitPrice())));
+        raw.put(Column.ITEM_TOTAL, longs(items, i -> cents(i.getTotalPrice())));
+
+        // Compress each column
+        Column[] columns = Column.values();
+        byte[][] compressed = new byte[columns.length][];
+        for (Column column : columns) {
+            compressed[column.ordinal()] = deflate(raw.get(column));
+        }
+
+        // Sorted id index
+        Integer[] rows = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            rows[i] = i;
+        }
+        Arrays.sort(rows, (a, b) -> orders.get(a).getId().compareTo(orders.get(b).getId()));
+
+        int idIndexOffset = HEADER_FIXED_BYTES + columns.length * DIRECTORY_ENTRY_BYTES;
+        long dataOffset = idIndexOffset + (long) n * ArchiveSegment.ID_ENTRY_BYTES;
+
+        ByteBuffer head = ByteBuffer.allocate((int) dataOffset);
+        head.putInt(ArchiveSegment.MAGIC);
+        head.putShort(ArchiveSegment.VERSION);
+        head.putInt(n);
+        head.putInt(items.size());
+        head.putLong(epochMillis(orders.get(0).getCreatedAt()));
+        head.putLong(epochMillis(orders.get(n - 1).getCreatedAt()));
+        UUID minUser = orders.stream().map(o -> o.getUser().getId()).min(UUID::compareTo).get();
+        UUID maxUser = orders.stream().map(o -> o.getUser().getId()).max(UUID::compareTo).get();
+        head.putLong(minUser.getMostSignificantBits()).putLong(minUser.getLeastSignificantBits());
+        head.putLong(maxUser.getMostSignificantBits()).putLong(maxUser.getLeastSignificantBits());
+        head.put((byte) orders.stream().mapToInt(o -> o.getStatus().ordinal()).min().getAsInt());
+        head.put((byte) orders.stream().mapToInt(o -> o.getStatus().ordinal()).max().getAsInt());
+        head.putInt(columns.length);
+        long offset = dataOffset;
+        for (Column column : columns) {
+            head.putLong(offset);
+            head.putInt(compressed[column.ordinal()].length);
+            head.putInt(raw.get(column).length);
+            offset += compressed[column.ordinal()].length;
+        }
+        for (Integer row : rows) {
+            UUID id = orders.get(row).getId();
+            head.putLong(id.getMostSignificantBits());
+            head.putLong(id.getLeastSignificantBits());
+            head.putInt(row);
+        }
+        head.flip();
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, head);
+            for (Column column : columns) {
+                writeFully(channel, ByteBuffer.wrap(compressed[column.ordinal()]));
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        // Make the rename durable too, so a crash cannot lose a segment whose rows are deleted
+        try (FileChannel directory = FileChannel.open(target.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    static long cents(Money amount) {
+        return amount == null ? 0L : amount.getMinorUnits();
+    }
+
+    static long epochMillis(LocalDateTime time) {
+        return time == null ? ArchiveSegment.NULL_TIME : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static String address(Order order, Function<Address, String> field) {
+        return order.getShippingAddress() != null ? field.apply(order.getShippingAddress()) : null;
+    }
+
+    private static <T> byte[] longs(List<T> rows, ToLongFunction<T> value) {
+        ByteBuffer buffer = ByteBuffer.allocate(rows.size() * Long.BYTES);
+        for (T row : rows) {
+            buffer.putLong(value.applyAsLong(row));
+        }
+        return buffer.array();
+    }
+
+    private static <T> byte[] ints(List<T> rows, ToIntFunction<T> value) {
+        ByteBuffer buffer = ByteBuffer.allocate(rows.size() * Integer.BYTES);
+        for (T row : rows) {
+            buffer.putInt(value.applyAsInt(row));
+        }
+        return buffer.array();
+    }
+
+    private static byte[] statuses(List<Order> orders) {
+        byte[] values = new byte[orders.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (byte) orders.get(i).getStatus().ordinal();
+        }
+        return values;
+    }
+
+    private static <T> byte[] strings(List<T> rows, Function<T, String> value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows.size() * 16);
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        out.write(length.putInt(0, rows.size()).array(), 0, Integer.BYTES);
+        for (T row : rows) {
+            String s = value.apply(row);
+            byte[] bytes = s != null ? s.getBytes(StandardCharsets.UTF_8) : null;
+            out.write(length.putInt(0, bytes != null ? bytes.length : -1).array(), 0, Integer.BYTES);
+            if (bytes != null) {
+                out.write(bytes, 0, bytes.length);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(chunk);
+                out.write(chunk, 0, written);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.orderapp.archive;
+
+import com.orderapp.archive.ArchiveSegment.Column;
+import com.orderapp.dto.OrderItemResponse;
+import com.orderapp.dto.OrderResponse;
+import com.orderapp.entity.Address;
+import com.orderapp.entity.Money;
+import com.orderapp.entity.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Read side of the cold-order archive: the set of segment files under
+ * app.archive.directory, with per-segment min/max indexes held in memory.
+ * OrderService falls through to this archive when the hot tables miss. The directory
+ * is shared by every instance and rescanned periodically for new segments.
+ */
+@Component
+public class ColdOrderArchive {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColdOrderArchive.class);
+
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+    private final Set<String> loaded = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.archive.directory:data/order-archive}")
+    private String directory;
+
+    @PostConstruct
+    public void loadSegments() throws IOException {
+        Path dir = getDirectory();
+        Files.createDirectories(dir);
+        refresh();
+        logger.info("Loaded {} cold order archive segment(s) from {}", segments.size(), dir);
+    }
+
+    /**
+     * Open segments that appeared in the directory since the last look, such as those
+     * written by the instance that ran the archiver
+     */
+    @Scheduled(fixedDelayString = "${app.archive.refresh-ms:60000}", initialDelayString = "${app.archive.refresh-ms:60000}")
+    public synchronized void refresh() throws IOException {
+        int added = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(getDirectory(), "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (!loaded.contains(file.getFileName().toString())) {
+                    register(ArchiveSegment.open(file));
+                    added++;
+                }
+            }
+        }
+        if (added > 0) {
+            logger.debug("Opened {} new cold order archive segment(s)", added);
+        }
+    }
+
+    public Path getDirectory() {
+        return Paths.get(directory);
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    public List<ArchiveSegment> getSegments() {
+        return List.copyOf(segments);
+    }
+
+    synchronized void register(ArchiveSegment segment) {
+        if (loaded.add(segment.getPath().getFileName().toString())) {
+            segments.add(segment);
+        }
+    }
+
+    public boolean contains(UUID orderId) {
+        for (ArchiveSegment segment : segments) {
+            if (segment.findRow(orderId) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Optional<OrderResponse> findById(UUID orderId) {
+        for (ArchiveSegment segment : segments) {
+            int row = segment.findRow(orderId);
+            if (row >= 0) {
+                return Optional.of(materialize(segment, row, orderId));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * All archived orders of a user, newest first
+     */
+    public List<OrderResponse> findByUserId(UUID userId) {
+        long msb = userId.getMostSignificantBits();
+        long lsb = userId.getLeastSignificantBits();
+        List<OrderResponse> result = new ArrayList<>();
+        for (ArchiveSegment segment : segments) {
+            if (!segment.mayContainUser(userId)) {
+                continue;
+            }
+            long[] userMsb = segment.longs(Column.USER_MSB);
+            long[] userLsb = segment.longs(Column.USER_LSB);
+            UUID[] ids = null;
+            for (int row = 0; row < segment.getOrderCount(); row++) {
+                if (userMsb[row] == msb && userLsb[row] == lsb) {
+                    if (ids == null) {
+                        ids = segment.orderIds();
+                    }
+                    result.add(materialize(segment, row, ids[row]));
+                }
+            }
+        }
+        result.sort(Comparator.comparing(OrderResponse::getCreatedAt).reversed());
+        return result;
+    }
+
+    /**
+     * Revenue of archived orders in the given statuses, optionally bounded by created_at
+     */
+    public BigDecimal sumRevenue(Collection<Order.OrderStatus> statuses, LocalDateTime start, LocalDateTime end) {
+        int statusMask = 0;
+        for (Order.OrderStatus status : statuses) {
+            statusMask |= 1 << status.ordinal();
+        }
+        long from = start != null ? ArchiveSegmentWriter.epochMillis(start) : Long.MIN_VALUE + 1;
+        long to = end != null ? ArchiveSegmentWriter.epochMillis(end) : Long.MAX_VALUE;
+
+        long cents = 0L;
+        for (ArchiveSegment segment : segments) {
+            cents += segment.sumTotal(statusMask, from, to);
+        }
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private OrderResponse materialize(ArchiveSegment segment, int row, UUID orderId) {
+        OrderResponse response = new OrderResponse();
+        response.setId(orderId);
+        response.setOrderNumber(segment.strings(Column.ORDER_NUMBER)[row]);
+        response.setUserId(new UUID(segment.longs(Column.USER_MSB)[row], segment.longs(Column.USER_LSB)[row]));
+        response.setUserFullName(segment.strings(Column.USER_NAME)[row]);
+        response.setUserEmail(segment.strings(Column.USER_EMAIL)[row]);
+        response.setStatus(STATUSES[segment.bytes(Column.STATUS)[row]]);
+        response.setTotalAmount(Money.ofMinor(segment.longs(Column.TOTAL)[row]));
+        response.setTaxAmount(Money.ofMinor(segment.longs(Column.TAX)[row]));
+        response.setShippingAmount(Money.ofMinor(segment.longs(Column.SHIPPING)[row]));
+        response.setNotes(segment.strings(Column.NOTES)[row]);
+        response.setCreatedAt(time(segment.longs(Column.CREATED)[row]));
+        response.setUpdatedAt(time(segment.longs(Column.UPDATED)[row]));
+        response.setShippedAt(time(segment.longs(Column.SHIPPED)[row]));
+        response.setDeliveredAt(time(segment.longs(Column.DELIVERED)[row]));
+
+        String street = segment.strings(Column.SHIP_STREET)[row];
+        String city = segment.strings(Column.SHIP_CITY)[row];
+        String state = segment.strings(Column.SHIP_STATE)[row];
+        String postalCode = segment.strings(Column.SHIP_POSTAL)[row];
+        String country = segment.strings(Column.SHIP_COUNTRY)[row];
+        if (street != null || city != null || state != null || postalCode != null || country != null) {
+            response.setShippingAddress(new Address(street, city, state, postalCode, country));
+        }
+
+        int[] itemStart = segment.ints(Column.ITEM_START);
+        int first = itemStart[row];
+        int last = row + 1 < itemStart.length ? itemStart[row + 1] : segment.getItemCount();
+        List<OrderItemResponse> items = new ArrayList<>(last - first);
+        long subtotal = 0L;
+        int totalItems = 0;
+        for (int i = first; i < last; i++) {
+            OrderItemResponse item = new OrderItemResponse();
+            item.setId(new UUID(segment.longs(Column.ITEM_ID_MSB)[i], segment.longs(Column.ITEM_ID_LSB)[i]));
+            item.setProductId(new UUID(segment.longs(Column.PRODUCT_MSB)[i], segment.longs(Column.PRODUCT_LSB)[i]));
+            item.setProductName(segment.strings(Column.PRODUCT_NAME)[i]);
+            item.setProductSku(segment.strings(Column.PRODUCT_SKU)[i]);
+            item.setQuantity(segment.ints(Column.QUANTITY)[i]);
+            item.setUnitPrice(Money.ofMinor(segment.longs(Column.UNIT_PRICE)[i]));
+            long itemTotal = segment.longs(Column.ITEM_TOTAL)[i];
+            item.setTotalPrice(Money.ofMinor(itemTotal));
+            subtotal += itemTotal;
+            totalItems += item.getQuantity();
+            items.add(item);
+        }
+        response.setItems(items);
+        response.setSubtotal(Money.ofMinor(subtotal));
+        response.setTotalItems(totalItems);
+        return response;
+    }
+
+    private static LocalDateTime time(long epochMillis) {
+        return epochMillis == ArchiveSegment.NULL_TIME
+            ? null
+            : LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
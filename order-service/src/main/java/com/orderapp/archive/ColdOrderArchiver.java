@@ -0,0 +1,232 @@
+package com.orderapp.archive;
+
+import com.orderapp.archive.ArchiveSegment.Column;
+import com.orderapp.entity.Order;
+import com.orderapp.repository.OrderRepository;
+import com.orderapp.service.OrderViewStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Moves delivered orders older than app.archive.min-age-days out of Postgres into
+ * columnar segment files. Off unless app.archive.enabled is set, and then only with an
+ * absolute app.archive.directory, which must be storage shared by every instance.
+ *
+ * Each batch runs in one transaction holding a Postgres advisory lock, so only one
+ * instance archives at a time. The segment is written under a pending name, fsynced,
+ * and read back and checked against the orders before their rows are deleted; it only
+ * takes its final name, and becomes visible to readers, once the delete has committed.
+ * A pending segment left by a crash is promoted if its rows are gone, else discarded.
+ */
+@Service
+@ConditionalOnProperty(name = "app.archive.enabled", havingValue = "true")
+public class ColdOrderArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColdOrderArchiver.class);
+
+    private static final DateTimeFormatter SEGMENT_NAME = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+    private static final String PENDING_SUFFIX = ".pending";
+
+    // pg_try_advisory_xact_lock key, "OARC"
+    private static final long ARCHIVE_LOCK = 0x4F415243L;
+
+    private final OrderRepository orderRepository;
+    private final ColdOrderArchive archive;
+    private final OrderViewStore orderViewStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.archive.min-age-days:365}")
+    private int minAgeDays;
+
+    @Value("${app.archive.batch-size:10000}")
+    private int batchSize;
+
+    @Autowired
+    public ColdOrderArchiver(OrderRepository orderRepository,
+                             ColdOrderArchive archive,
+                             OrderViewStore orderViewStore,
+                             PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.archive = archive;
+        this.orderViewStore = orderViewStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void checkDirectory() {
+        // A relative path would be local to each instance: archived orders would only be readable on one of them
+        if (!archive.getDirectory().isAbsolute()) {
+            throw new IllegalStateException("app.archive.directory must be an absolute path on storage shared "
+                + "by every instance, not " + archive.getDirectory());
+        }
+    }
+
+    /**
+     * Archive eligible orders batch by batch until none are left, or until another
+     * instance holds the archive lock
+     */
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public int archiveColdOrders() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+        int archived = 0;
+        int batch;
+        do {
+            batch = archiveBatch(cutoff);
+            archived += Math.max(batch, 0);
+        } while (batch > 0);
+
+        if (batch < 0) {
+            logger.info("Order archiving is running on another instance");
+        }
+        if (archived > 0) {
+            logger.info("Archived {} delivered orders created before {}", archived, cutoff);
+        }
+        return archived;
+    }
+
+    // Orders archived, or -1 if another instance holds the lock
+    private int archiveBatch(LocalDateTime cutoff) {
+        Path[] pending = new Path[1];
+        Integer archived;
+        try {
+            archived = transactionTemplate.execute(status -> {
+                if (!orderRepository.tryAdvisoryXactLock(ARCHIVE_LOCK)) {
+                    return -1;
+                }
+                recoverPending();
+
+                List<UUID> ids = orderRepository.findIdsByStatusCreatedBefore(
+                    Order.OrderStatus.DELIVERED, cutoff, PageRequest.of(0, batchSize));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                pending[0] = writeVerifiedSegment(ids);
+                orderViewStore.deleteAll(ids);
+                orderRepository.deleteAllByIdInBatch(ids);
+                return ids.size();
+            });
+        } catch (RuntimeException e) {
+            discard(pending[0]);
+            throw e;
+        }
+
+        // Only visible to readers once the rows are gone from the hot tables
+        if (pending[0] != null) {
+            promote(pending[0]);
+        }
+        return archived != null ? archived : 0;
+    }
+
+    private Path writeVerifiedSegment(List<UUID> ids) {
+        List<Order> orders = orderRepository.findAllWithItemsByIdIn(ids);
+        Path file = archive.getDirectory().resolve("orders-" + LocalDateTime.now().format(SEGMENT_NAME)
+            + ColdOrderArchive.SEGMENT_SUFFIX + PENDING_SUFFIX);
+        try {
+            ArchiveSegmentWriter.write(file, orders);
+            verify(ArchiveSegment.open(file), orders);
+            return file;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write archive segment " + file, e);
+        }
+    }
+
+    /**
+     * Read the written segment back and check every order is in it as loaded, so the
+     * rows are never deleted on the strength of a bad file
+     */
+    static void verify(ArchiveSegment segment, List<Order> orders) {
+        int items = orders.stream().mapToInt(order -> order.getOrderItems().size()).sum();
+        if (segment.getOrderCount() != orders.size() || segment.getItemCount() != items) {
+            throw new IllegalStateException("Archive segment " + segment.getPath() + " holds "
+                + segment.getOrderCount() + " orders and " + segment.getItemCount() + " items, expected "
+                + orders.size() + " and " + items);
+        }
+        String[] numbers = segment.strings(Column.ORDER_NUMBER);
+        long[] totals = segment.longs(Column.TOTAL);
+        int[] itemStart = segment.ints(Column.ITEM_START);
+        for (Order order : orders) {
+            int row = segment.findRow(order.getId());
+            if (row < 0 || !order.getOrderNumber().equals(numbers[row])
+                    || totals[row] != ArchiveSegmentWriter.cents(order.getTotalAmount())
+                    || itemCount(itemStart, row, items) != order.getOrderItems().size()) {
+                throw new IllegalStateException("Archive segment " + segment.getPath()
+                    + " does not match order " + order.getId());
+            }
+        }
+    }
+
+    private static int itemCount(int[] itemStart, int row, int items) {
+        return (row + 1 < itemStart.length ? itemStart[row + 1] : items) - itemStart[row];
+    }
+
+    /**
+     * Settle segments left pending by a run that died between writing and renaming. Every
+     * row of a batch is deleted in one transaction, so checking one order tells which way
+     * it went.
+     */
+    private void recoverPending() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(archive.getDirectory(), "*" + PENDING_SUFFIX)) {
+            for (Path file : files) {
+                ArchiveSegment segment = ArchiveSegment.open(file);
+                UUID first = segment.orderIds()[0];
+                if (orderRepository.existsById(first)) {
+                    logger.warn("Discarding archive segment {} whose orders were never deleted", file);
+                    discard(file);
+                } else {
+                    logger.warn("Completing archive segment {} whose orders were already deleted", file);
+                    promote(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover pending archive segments", e);
+        }
+    }
+
+    private void promote(Path pending) {
+        String name = pending.getFileName().toString();
+        Path target = pending.resolveSibling(name.substring(0, name.length() - PENDING_SUFFIX.length()));
+        try {
+            Files.move(pending, target, StandardCopyOption.ATOMIC_MOVE);
+            try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+                directory.force(true);
+            }
+            archive.register(ArchiveSegment.open(target));
+        } catch (IOException e) {
+            // The rows are gone; the next run finds the pending segment and promotes it
+            logger.error("Failed to promote archive segment {}", pending, e);
+        }
+    }
+
+    private void discard(Path pending) {
+        if (pending == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(pending);
+        } catch (IOException e) {
+            logger.error("Failed to delete discarded archive segment {}", pending, e);
+        }
+    }
+}
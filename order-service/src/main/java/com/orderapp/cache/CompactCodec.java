@@ -0,0 +1,13 @@
+package com.orderapp.cache;
+
+/**
+ * Binary form of one cached type, registered with {@link CompactRedisSerializer} under
+ * a tag. Fields are written in a fixed order with no names, so any change to what
+ * is written must come with a new schema version.
+ */
+public interface CompactCodec<T> {
+
+    void write(T value, CompactOutput out, CompactRedisSerializer values);
+
+    T read(CompactInput in, CompactRedisSerializer values);
+}
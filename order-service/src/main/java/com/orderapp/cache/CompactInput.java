@@ -0,0 +1,113 @@
+package com.orderapp.cache;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Reads what {@link CompactOutput} wrote. A value cut short or otherwise malformed
+ * fails with a SerializationException, as Spring's own Redis serializers do.
+ */
+public final class CompactInput {
+
+    private final byte[] buffer;
+    private final int limit;
+    private int position;
+
+    public CompactInput(byte[] buffer, int offset, int limit) {
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    public int readByte() {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public byte[] readBytes(int length) {
+        require(length);
+        byte[] bytes = new byte[length];
+        System.arraycopy(buffer, position, bytes, 0, length);
+        position += length;
+        return bytes;
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint in cached value");
+    }
+
+    public int readVarInt() {
+        long value = readVarLong();
+        if (value > Integer.MAX_VALUE) {
+            throw new SerializationException("Varint out of range in cached value: " + value);
+        }
+        return (int) value;
+    }
+
+    public long readSignedVarLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public long readLong() {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        require(length - 1);
+        String value = new String(buffer, position, length - 1, StandardCharsets.UTF_8);
+        position += length - 1;
+        return value;
+    }
+
+    public UUID readUuid() {
+        return readBoolean() ? new UUID(readLong(), readLong()) : null;
+    }
+
+    public Integer readInteger() {
+        return readBoolean() ? (int) readSignedVarLong() : null;
+    }
+
+    public LocalDateTime readDateTime() {
+        if (!readBoolean()) {
+            return null;
+        }
+        long seconds = readSignedVarLong();
+        return LocalDateTime.ofEpochSecond(seconds, readVarInt(), ZoneOffset.UTC);
+    }
+
+    public boolean hasRemaining() {
+        return position < limit;
+    }
+
+    private void require(int length) {
+        if (length < 0 || position + length > limit) {
+            throw new SerializationException("Cached value ends before its last field");
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.orderapp.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Growable byte buffer with the primitives cache codecs write: varints, zigzag longs
+ * and length-prefixed strings. Every nullable field carries its own presence marker.
+ */
+public final class CompactOutput {
+
+    private byte[] buffer;
+    private int size;
+
+    public CompactOutput(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void writeByte(int value) {
+        ensure(1);
+        buffer[size++] = (byte) value;
+    }
+
+    public void writeBytes(byte[] bytes) {
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, size, length);
+        size += length;
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Unsigned LEB128; seven bits per byte, so small counts and lengths take one byte
+     */
+    public void writeVarLong(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+
+    public void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    // Zigzag maps small negative numbers to small varints too
+    public void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    // Length + 1, so 0 means null
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length + 1);
+        writeBytes(bytes);
+    }
+
+    public void writeUuid(UUID value) {
+        writeBoolean(value != null);
+        if (value != null) {
+            writeLong(value.getMostSignificantBits());
+            writeLong(value.getLeastSignificantBits());
+        }
+    }
+
+    public void writeInteger(Integer value) {
+        writeBoolean(value != null);
+        if (value != null) {
+            writeSignedVarLong(value);
+        }
+    }
+
+    // Timestamps are zone-less; written as UTC epoch seconds plus nanos, like the archive columns
+    public void writeDateTime(LocalDateTime value) {
+        writeBoolean(value != null);
+        if (value != null) {
+            writeSignedVarLong(value.toEpochSecond(ZoneOffset.UTC));
+            writeVarInt(value.getNano());
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package com.orderapp.cache;
+
+import com.orderapp.dto.OrderResponse;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binary Redis value serializer for cache entries and redisTemplate values. A value is
+ * <pre>
+ *   format version (1 byte) | flags (1 byte) | [raw length (varint), if LZ4] | value
+ *   value = tag (1 byte) | [schema version (1 byte), if a registered type] | fields
+ * </pre>
+ * Strings, numbers, UUIDs, lists and {@link PageImpl} pages have built-in tags; other
+ * types are written by the {@link CompactCodec} registered for them, with no class names
+ * or field names in the payload. Anything else is embedded as JSON from the fallback
+ * serializer. Values larger than the compression threshold are LZ4-compressed when
+ * that makes them smaller.
+ * <p>
+ * Reads accept every format: payloads starting with a printable character are JSON
+ * from the fallback serializer, as older releases wrote them. A value this release
+ * cannot decode, because of a newer format version, an unknown tag or another schema
+ * version, reads as absent, so the cache treats it as a miss and overwrites it.
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactRedisSerializer.class);
+
+    static final int FORMAT_VERSION = 1;
+    private static final int FLAG_LZ4 = 1;
+    private static final int HEADER_BYTES = 2;
+    // JSON starts with a printable character; format versions stay below it
+    private static final int FIRST_JSON_BYTE = 0x20;
+    private static final int MAX_VALUE_BYTES = 512 * 1024 * 1024;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_JSON = 1;
+    private static final int TAG_NULL_VALUE = 2;
+    private static final int TAG_STRING = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_INTEGER = 5;
+    private static final int TAG_BOOLEAN = 6;
+    private static final int TAG_UUID = 7;
+    private static final int TAG_LIST = 8;
+    private static final int TAG_PAGE = 9;
+
+    /** Registered types take tags from here up to 255 */
+    public static final int FIRST_CUSTOM_TAG = 32;
+    public static final int ORDER_RESPONSE_TAG = 32;
+
+    private final RedisSerializer<Object> jsonSerializer;
+    private final boolean writeCompact;
+    private final int compressAboveBytes;
+    private final LZ4Compressor compressor;
+    private final LZ4SafeDecompressor decompressor;
+
+    private final Map<Class<?>, Registration<?>> byType = new ConcurrentHashMap<>();
+    private final Registration<?>[] byTag = new Registration<?>[256];
+
+    /**
+     * @param jsonSerializer writes types without a codec and reads JSON-format values
+     * @param writeCompact false to write every value as plain JSON while still reading both formats
+     * @param compressAboveBytes values with a larger encoding are compressed; negative disables compression
+     */
+    public CompactRedisSerializer(RedisSerializer<Object> jsonSerializer, boolean writeCompact,
+                                  int compressAboveBytes) {
+        this.jsonSerializer = jsonSerializer;
+        this.writeCompact = writeCompact;
+        this.compressAboveBytes = compressAboveBytes < 0 ? Integer.MAX_VALUE : compressAboveBytes;
+        LZ4Factory lz4 = LZ4Factory.fastestInstance();
+        this.compressor = lz4.fastCompressor();
+        this.decompressor = lz4.safeDecompressor();
+        register(ORDER_RESPONSE_TAG, OrderResponse.class, OrderResponseCodec.SCHEMA_VERSION, new OrderResponseCodec());
+    }
+
+    /**
+     * Add a type with its own binary form. Bump the schema version whenever the codec
+     * writes something different; entries written with another version then read as misses.
+     */
+    public synchronized <T> void register(int tag, Class<T> type, int schemaVersion, CompactCodec<T> codec) {
+        if (tag < FIRST_CUSTOM_TAG || tag >= byTag.length) {
+            throw new IllegalArgumentException("Tag must be between " + FIRST_CUSTOM_TAG + " and 255: " + tag);
+        }
+        if (byTag[tag] != null || byType.containsKey(type)) {
+            throw new IllegalArgumentException("Tag " + tag + " or type " + type.getName() + " already registered");
+        }
+        if (schemaVersion < 0 || schemaVersion > 255) {
+            throw new IllegalArgumentException("Schema version must fit in a byte: " + schemaVersion);
+        }
+        Registration<T> registration = new Registration<>(tag, schemaVersion, codec);
+        byTag[tag] = registration;
+        byType.put(type, registration);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (!writeCompact) {
+            return jsonSerializer.serialize(value);
+        }
+        CompactOutput out = new CompactOutput(256);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(0);
+        writeValue(value, out);
+
+        int rawSize = out.size() - HEADER_BYTES;
+        if (rawSize > compressAboveBytes) {
+            byte[] compressed = compressor.compress(out.buffer(), HEADER_BYTES, rawSize);
+            if (compressed.length + 5 < rawSize) {
+                CompactOutput framed = new CompactOutput(HEADER_BYTES + 5 + compressed.length);
+                framed.writeByte(FORMAT_VERSION);
+                framed.writeByte(FLAG_LZ4);
+                framed.writeVarInt(rawSize);
+                framed.writeBytes(compressed);
+                return framed.toByteArray();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        int version = bytes[0] & 0xFF;
+        if (version >= FIRST_JSON_BYTE) {
+            return jsonSerializer.deserialize(bytes);
+        }
+        if (version != FORMAT_VERSION || bytes.length < HEADER_BYTES) {
+            logger.debug("Ignoring cached value in format {}", version);
+            return null;
+        }
+
+        CompactInput in = new CompactInput(bytes, HEADER_BYTES, bytes.length);
+        if ((bytes[1] & FLAG_LZ4) != 0) {
+            int rawSize = in.readVarInt();
+            if (rawSize > MAX_VALUE_BYTES) {
+                throw new SerializationException("Cached value claims " + rawSize + " bytes uncompressed");
+            }
+            int offset = HEADER_BYTES + varIntLength(rawSize);
+            byte[] raw = new byte[rawSize];
+            try {
+                int length = decompressor.decompress(bytes, offset, bytes.length - offset, raw, 0, rawSize);
+                if (length != rawSize) {
+                    throw new SerializationException("Cached value decompressed to " + length + " of " + rawSize + " bytes");
+                }
+            } catch (LZ4Exception e) {
+                throw new SerializationException("Cannot decompress cached value", e);
+            }
+            in = new CompactInput(raw, 0, rawSize);
+        }
+        try {
+            return readValue(in);
+        } catch (UnknownSchemaException e) {
+            logger.debug("Ignoring cached value: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write a value with its tag; codecs call this for nested values of any type
+     */
+    @SuppressWarnings("unchecked")
+    public void writeValue(Object value, CompactOutput out) {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof NullValue) {
+            out.writeByte(TAG_NULL_VALUE);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeSignedVarLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INTEGER);
+            out.writeSignedVarLong((Integer) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof UUID) {
+            out.writeByte(TAG_UUID);
+            out.writeUuid((UUID) value);
+        } else if (byType.containsKey(value.getClass())) {
+            Registration<Object> registration = (Registration<Object>) byType.get(value.getClass());
+            out.writeByte(registration.tag);
+            out.writeByte(registration.schemaVersion);
+            registration.codec.write(value, out, this);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TAG_LIST);
+            out.writeVarInt(list.size());
+            for (Object element : list) {
+                writeValue(element, out);
+            }
+        } else if (value.getClass() == PageImpl.class) {
+            out.writeByte(TAG_PAGE);
+            writePage((Page<?>) value, out);
+        } else {
+            out.writeByte(TAG_JSON);
+            byte[] json = jsonSerializer.serialize(value);
+            out.writeVarInt(json.length);
+            out.writeBytes(json);
+        }
+    }
+
+    public Object readValue(CompactInput in) {
+        int tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_NULL_VALUE:
+                return NullValue.INSTANCE;
+            case TAG_STRING:
+                return in.readString();
+            case TAG_LONG:
+                return in.readSignedVarLong();
+            case TAG_INTEGER:
+                return (int) in.readSignedVarLong();
+            case TAG_BOOLEAN:
+                return in.readBoolean();
+            case TAG_UUID:
+                return in.readUuid();
+            case TAG_LIST:
+                int size = in.readVarInt();
+                List<Object> list = new ArrayList<>(Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case TAG_PAGE:
+                return readPage(in);
+            case TAG_JSON:
+                return jsonSerializer.deserialize(in.readBytes(in.readVarInt()));
+            default:
+                Registration<?> registration = byTag[tag];
+                if (registration == null) {
+                    throw new UnknownSchemaException("unknown tag " + tag);
+                }
+                int schemaVersion = in.readByte();
+                if (schemaVersion != registration.schemaVersion) {
+                    throw new UnknownSchemaException("tag " + tag + " has schema " + schemaVersion
+                        + ", this release reads " + registration.schemaVersion);
+                }
+                return registration.codec.read(in, this);
+        }
+    }
+
+    private void writePage(Page<?> page, CompactOutput out) {
+        List<?> content = page.getContent();
+        out.writeVarInt(content.size());
+        for (Object element : content) {
+            writeValue(element, out);
+        }
+        Pageable pageable = page.getPageable();
+        out.writeBoolean(pageable.isPaged());
+        if (pageable.isPaged()) {
+            out.writeVarInt(pageable.getPageNumber());
+            out.writeVarInt(pageable.getPageSize());
+            List<Sort.Order> orders = pageable.getSort().toList();
+            out.writeVarInt(orders.size());
+            for (Sort.Order order : orders) {
+                out.writeString(order.getProperty());
+                out.writeBoolean(order.isAscending());
+                out.writeBoolean(order.isIgnoreCase());
+                out.writeByte(order.getNullHandling().ordinal());
+            }
+        }
+        out.writeVarLong(page.getTotalElements());
+    }
+
+    private Page<Object> readPage(CompactInput in) {
+        int size = in.readVarInt();
+        List<Object> content = new ArrayList<>(Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            content.add(readValue(in));
+        }
+        Pageable pageable = Pageable.unpaged();
+        if (in.readBoolean()) {
+            int pageNumber = in.readVarInt();
+            int pageSize = in.readVarInt();
+            int sortCount = in.readVarInt();
+            List<Sort.Order> orders = new ArrayList<>(Math.min(sortCount, 16));
+            for (int i = 0; i < sortCount; i++) {
+                String property = in.readString();
+                Sort.Direction direction = in.readBoolean() ? Sort.Direction.ASC : Sort.Direction.DESC;
+                boolean ignoreCase = in.readBoolean();
+                Sort.NullHandling[] nullHandlings = Sort.NullHandling.values();
+                int nullHandling = in.readByte();
+                if (nullHandling >= nullHandlings.length) {
+                    throw new UnknownSchemaException("unknown null handling " + nullHandling);
+                }
+                Sort.Order order = new Sort.Order(direction, property, nullHandlings[nullHandling]);
+                orders.add(ignoreCase ? order.ignoreCase() : order);
+            }
+            pageable = PageRequest.of(pageNumber, pageSize, Sort.by(orders));
+        }
+        return new PageImpl<>(content, pageable, in.readVarLong());
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static final class Registration<T> {
+        private final int tag;
+        private final int schemaVersion;
+        private final CompactCodec<T> codec;
+
+        private Registration(int tag, int schemaVersion, CompactCodec<T> codec) {
+            this.tag = tag;
+            this.schemaVersion = schemaVersion;
+            this.codec = codec;
+        }
+    }
+
+    /**
+     * Written by a release with types or schemas this one does not know; read as a miss
+     */
+    static final class UnknownSchemaException extends RuntimeException {
+        UnknownSchemaException(String message) {
+            super(message, null, false, false);
+        }
+    }
+}
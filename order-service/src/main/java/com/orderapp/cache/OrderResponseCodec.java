@@ -0,0 +1,154 @@
+package com.orderapp.cache;
+
+import com.orderapp.dto.OrderItemResponse;
+import com.orderapp.dto.OrderResponse;
+import com.orderapp.entity.Address;
+import com.orderapp.entity.Money;
+import com.orderapp.entity.Order;
+
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * OrderResponse with its items inline. The status is written by name so reordering the
+ * enum does not change what cached entries mean; amounts are cents plus a currency
+ * marker, as {@link Money} holds them.
+ */
+final class OrderResponseCodec implements CompactCodec<OrderResponse> {
+
+    static final int SCHEMA_VERSION = 1;
+
+    private static final int MONEY_NULL = 0;
+    private static final int MONEY_DEFAULT_CURRENCY = 1;
+    private static final int MONEY_OTHER_CURRENCY = 2;
+
+    @Override
+    public void write(OrderResponse order, CompactOutput out, CompactRedisSerializer values) {
+        out.writeUuid(order.getId());
+        out.writeString(order.getOrderNumber());
+        out.writeUuid(order.getUserId());
+        out.writeString(order.getUserFullName());
+        out.writeString(order.getUserEmail());
+        out.writeString(order.getStatus() != null ? order.getStatus().name() : null);
+        writeMoney(order.getTotalAmount(), out);
+        writeMoney(order.getTaxAmount(), out);
+        writeMoney(order.getShippingAmount(), out);
+        writeMoney(order.getSubtotal(), out);
+        writeAddress(order.getShippingAddress(), out);
+        out.writeString(order.getNotes());
+        out.writeDateTime(order.getCreatedAt());
+        out.writeDateTime(order.getUpdatedAt());
+        out.writeDateTime(order.getShippedAt());
+        out.writeDateTime(order.getDeliveredAt());
+        out.writeSignedVarLong(order.getTotalItems());
+
+        List<OrderItemResponse> items = order.getItems();
+        out.writeBoolean(items != null);
+        if (items != null) {
+            out.writeVarInt(items.size());
+            for (OrderItemResponse item : items) {
+                out.writeUuid(item.getId());
+                out.writeUuid(item.getProductId());
+                out.writeString(item.getProductName());
+                out.writeString(item.getProductSku());
+                out.writeInteger(item.getQuantity());
+                writeMoney(item.getUnitPrice(), out);
+                writeMoney(item.getTotalPrice(), out);
+            }
+        }
+    }
+
+    @Override
+    public OrderResponse read(CompactInput in, CompactRedisSerializer values) {
+        OrderResponse order = new OrderResponse();
+        order.setId(in.readUuid());
+        order.setOrderNumber(in.readString());
+        order.setUserId(in.readUuid());
+        order.setUserFullName(in.readString());
+        order.setUserEmail(in.readString());
+        String status = in.readString();
+        order.setStatus(status != null ? status(status) : null);
+        order.setTotalAmount(readMoney(in));
+        order.setTaxAmount(readMoney(in));
+        order.setShippingAmount(readMoney(in));
+        order.setSubtotal(readMoney(in));
+        order.setShippingAddress(readAddress(in));
+        order.setNotes(in.readString());
+        order.setCreatedAt(in.readDateTime());
+        order.setUpdatedAt(in.readDateTime());
+        order.setShippedAt(in.readDateTime());
+        order.setDeliveredAt(in.readDateTime());
+        order.setTotalItems((int) in.readSignedVarLong());
+
+        if (in.readBoolean()) {
+            int count = in.readVarInt();
+            List<OrderItemResponse> items = new ArrayList<>(Math.min(count, 256));
+            for (int i = 0; i < count; i++) {
+                OrderItemResponse item = new OrderItemResponse();
+                item.setId(in.readUuid());
+                item.setProductId(in.readUuid());
+                item.setProductName(in.readString());
+                item.setProductSku(in.readString());
+                item.setQuantity(in.readInteger());
+                item.setUnitPrice(readMoney(in));
+                item.setTotalPrice(readMoney(in));
+                items.add(item);
+            }
+            order.setItems(items);
+        }
+        return order;
+    }
+
+    private static Order.OrderStatus status(String name) {
+        try {
+            return Order.OrderStatus.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            // A status added by a newer release
+            throw new CompactRedisSerializer.UnknownSchemaException("unknown order status " + name);
+        }
+    }
+
+    private static void writeMoney(Money money, CompactOutput out) {
+        if (money == null) {
+            out.writeByte(MONEY_NULL);
+            return;
+        }
+        if (money.getCurrency().equals(Money.DEFAULT_CURRENCY)) {
+            out.writeByte(MONEY_DEFAULT_CURRENCY);
+        } else {
+            out.writeByte(MONEY_OTHER_CURRENCY);
+            out.writeString(money.getCurrency().getCurrencyCode());
+        }
+        out.writeSignedVarLong(money.getMinorUnits());
+    }
+
+    private static Money readMoney(CompactInput in) {
+        int marker = in.readByte();
+        if (marker == MONEY_NULL) {
+            return null;
+        }
+        Currency currency = marker == MONEY_OTHER_CURRENCY
+            ? Currency.getInstance(in.readString())
+            : Money.DEFAULT_CURRENCY;
+        return Money.ofMinor(in.readSignedVarLong(), currency);
+    }
+
+    private static void writeAddress(Address address, CompactOutput out) {
+        out.writeBoolean(address != null);
+        if (address != null) {
+            out.writeString(address.getStreetAddress());
+            out.writeString(address.getCity());
+            out.writeString(address.getState());
+            out.writeString(address.getPostalCode());
+            out.writeString(address.getCountry());
+        }
+    }
+
+    private static Address readAddress(CompactInput in) {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return new Address(in.readString(), in.readString(), in.readString(), in.readString(), in.readString());
+    }
+}
@@ -1,6 +1,12 @@
 package com.orderapp.config;
 
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.orderapp.cache.CompactRedisSerializer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -9,6 +15,7 @@ import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -21,6 +28,12 @@ public class CacheConfig {
     @Value("${app.cache.ttl:300}")
     private long cacheTtlSeconds;
 
+    @Value("${app.cache.value-format:compact}")
+    private String valueFormat;
+
+    @Value("${app.cache.compress-above-bytes:1024}")
+    private int compressAboveBytes;
+
     @Bean
     public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
@@ -28,10 +41,12 @@ public class CacheConfig {
             .serializeKeysWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
                 .fromSerializer(new StringRedisSerializer()))
             .serializeValuesWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
-                .fromSerializer(new GenericJackson2JsonRedisSerializer()));
+                .fromSerializer(redisValueSerializer()));
 
+        // Statistics on so actuator binds cache.gets{result=hit|miss} for each cache
         return RedisCacheManager.builder(redisConnectionFactory)
             .cacheDefaults(config)
+            .enableStatistics()
             .build();
     }
 
@@ -40,9 +55,48 @@ public class CacheConfig {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
         template.setConnectionFactory(redisConnectionFactory);
         template.setKeySerializer(new StringRedisSerializer());
-        template.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setValueSerializer(redisValueSerializer());
         template.setHashKeySerializer(new StringRedisSerializer());
-        template.setHashValueSerializer(new GenericJackson2JsonRedisSerializer());
+        template.setHashValueSerializer(redisValueSerializer());
         return template;
     }
+
+    /**
+     * Subscriber connection for response cache invalidations sent by other instances
+     */
+    @Bean
+    @ConditionalOnProperty(name = "app.response-cache.broadcast.enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer responseCacheListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
+    /**
+     * Serializer for cached and redisTemplate values and the recent-orders documents. It
+     * reads JSON and compact values alike; "json" makes it write values releases before the
+     * compact format can still read, for rolling out to or back from such a release.
+     */
+    @Bean
+    public CompactRedisSerializer redisValueSerializer() {
+        boolean compact = "compact".equalsIgnoreCase(valueFormat);
+        if (!compact && !"json".equalsIgnoreCase(valueFormat)) {
+            throw new IllegalArgumentException("app.cache.value-format must be json or compact: " + valueFormat);
+        }
+        return new CompactRedisSerializer(jsonValueSerializer(), compact, compressAboveBytes);
+    }
+
+    /**
+     * Typed JSON serializer for cached values. The default GenericJackson2JsonRedisSerializer
+     * mapper has no java.time support, so OrderResponse timestamps could not be written.
+     */
+    public static GenericJackson2JsonRedisSerializer jsonValueSerializer() {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        mapper.activateDefaultTyping(mapper.getPolymorphicTypeValidator(),
+            ObjectMapper.DefaultTyping.EVERYTHING, JsonTypeInfo.As.PROPERTY);
+        GenericJackson2JsonRedisSerializer.registerNullValueSerializer(mapper, null);
+        return new GenericJackson2JsonRedisSerializer(mapper);
+    }
 }
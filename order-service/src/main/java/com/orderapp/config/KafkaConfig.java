@@ -2,10 +2,14 @@ package com.orderapp.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.orderapp.publish.OverflowPolicy;
+import com.orderapp.publish.PublishProfile;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -31,6 +35,45 @@ public class KafkaConfig {
     @Value("${spring.kafka.consumer.group-id:order-service-group}")
     private String groupId;
     
+    @Value("${app.kafka-publish.events.queue-capacity:10000}")
+    private int eventsQueueCapacity;
+
+    @Value("${app.kafka-publish.events.overflow:SPILL}")
+    private OverflowPolicy eventsOverflow;
+
+    @Value("${app.kafka-publish.events.block-timeout-ms:50}")
+    private long eventsBlockTimeoutMs;
+
+    @Value("${app.kafka-publish.events.linger-ms:5}")
+    private int eventsLingerMs;
+
+    @Value("${app.kafka-publish.events.batch-size:65536}")
+    private int eventsBatchSize;
+
+    @Value("${app.kafka-publish.events.compression-type:lz4}")
+    private String eventsCompressionType;
+
+    @Value("${app.kafka-publish.analytics.queue-capacity:10000}")
+    private int analyticsQueueCapacity;
+
+    @Value("${app.kafka-publish.analytics.overflow:SHED}")
+    private OverflowPolicy analyticsOverflow;
+
+    @Value("${app.kafka-publish.analytics.block-timeout-ms:0}")
+    private long analyticsBlockTimeoutMs;
+
+    @Value("${app.kafka-publish.analytics.linger-ms:50}")
+    private int analyticsLingerMs;
+
+    @Value("${app.kafka-publish.analytics.batch-size:262144}")
+    private int analyticsBatchSize;
+
+    @Value("${app.kafka-publish.analytics.compression-type:lz4}")
+    private String analyticsCompressionType;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
     /**
      * ObjectMapper for JSON serialization/deserialization
      */
@@ -42,7 +85,8 @@ public class KafkaConfig {
     }
     
     /**
-     * Producer configuration
+     * Producer configuration shared by every publish profile; batching and compression
+     * are set per profile
      */
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
@@ -54,14 +98,14 @@ public class KafkaConfig {
         // Performance and reliability settings
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
-        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 1);
         configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 33554432);
         
         // Idempotence for exactly-once semantics
         configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
         
-        return new DefaultKafkaProducerFactory<>(configProps);
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(configProps);
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
     }
     
     /**
@@ -72,6 +116,28 @@ public class KafkaConfig {
         return new KafkaTemplate<>(producerFactory());
     }
     
+    /**
+     * order-events and custom topics: short linger, and spilled rather than lost under pressure
+     */
+    @Bean
+    public PublishProfile eventsPublishProfile() {
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(producerFactory(),
+                PublishProfile.producerOverrides(eventsLingerMs, eventsBatchSize, eventsCompressionType));
+        return new PublishProfile(PublishProfile.EVENTS, template, eventsQueueCapacity,
+                eventsOverflow, eventsBlockTimeoutMs);
+    }
+    
+    /**
+     * order-analytics: larger batches for throughput, shed under pressure
+     */
+    @Bean
+    public PublishProfile analyticsPublishProfile() {
+        KafkaTemplate<String, Object> template = new KafkaTemplate<>(producerFactory(),
+                PublishProfile.producerOverrides(analyticsLingerMs, analyticsBatchSize, analyticsCompressionType));
+        return new PublishProfile(PublishProfile.ANALYTICS, template, analyticsQueueCapacity,
+                analyticsOverflow, analyticsBlockTimeoutMs);
+    }
+    
     /**
      * Consumer configuration
      */
@@ -92,7 +158,10 @@ public class KafkaConfig {
         configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "com.orderapp.event");
         configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, "com.orderapp.event.OrderEvent");
         
-        return new DefaultKafkaConsumerFactory<>(configProps);
+        // Binds the Kafka client metrics, including records-lag per listener client
+        DefaultKafkaConsumerFactory<String, Object> factory = new DefaultKafkaConsumerFactory<>(configProps);
+        factory.addListener(new MicrometerConsumerListener<>(meterRegistry));
+        return factory;
     }
     
     /**
@@ -107,7 +176,7 @@ public class KafkaConfig {
         // Manual acknowledgment mode for better control
         factory.getContainerProperties().setAckMode(org.springframework.kafka.listener.ContainerProperties.AckMode.MANUAL);
         
-        // Concurrency settings
+        // Starting concurrency; ListenerAutoscaler resizes each listener at runtime
         factory.setConcurrency(3);
         
         return factory;
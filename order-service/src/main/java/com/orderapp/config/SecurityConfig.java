@@ -1,29 +1,63 @@
 package com.orderapp.config;
 
+import com.orderapp.security.BearerTokenAuthenticationFilter;
+import com.orderapp.security.CacheEvictingUserDetailsManager;
+import com.orderapp.security.CachingAuthenticationProvider;
+import com.orderapp.security.TokenService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.annotation.web.configurers.HeadersConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.util.Arrays;
+import java.util.regex.Pattern;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(SecurityConfig.class);
+
+    // A password already carrying its encoding id, such as {bcrypt}
+    private static final Pattern ENCODED_PASSWORD = Pattern.compile("^\\{.+}.*$");
+
+    @Value("${app.auth.credentials-cache.max-entries:10000}")
+    private int credentialsCacheMaxEntries;
+
+    @Value("${app.auth.credentials-cache.ttl-seconds:60}")
+    private long credentialsCacheTtlSeconds;
+
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, CacheEvictingUserDetailsManager userDetailsService,
+                                           TokenService tokenService) throws Exception {
         http
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(AbstractHttpConfigurer::disable)
             .headers(headers -> headers.frameOptions(HeadersConfigurer.FrameOptionsConfig::disable))
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .authenticationManager(authenticationManager(userDetailsService))
+            .addFilterBefore(new BearerTokenAuthenticationFilter(tokenService), BasicAuthenticationFilter.class)
             .authorizeHttpRequests(authz -> authz
+                .antMatchers("/actuator/requestlog", "/actuator/requestlog/**").hasRole("ADMIN")
+                .antMatchers("/admin/**").hasRole("ADMIN")
                 .antMatchers("/actuator/**").permitAll()
                 .antMatchers("/h2-console/**").permitAll()
                 .anyRequest().authenticated()
@@ -33,6 +67,33 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * The spring.security.user account, as Spring Boot would set it up, behind a manager
+     * that evicts cached credentials whenever a user is changed
+     */
+    @Bean
+    public CacheEvictingUserDetailsManager userDetailsService(SecurityProperties properties) {
+        SecurityProperties.User user = properties.getUser();
+        if (user.isPasswordGenerated()) {
+            logger.warn("Using generated security password: {}", user.getPassword());
+        }
+        String password = ENCODED_PASSWORD.matcher(user.getPassword()).matches()
+            ? user.getPassword() : "{noop}" + user.getPassword();
+        return new CacheEvictingUserDetailsManager(new InMemoryUserDetailsManager(
+            User.withUsername(user.getName()).password(password).roles(user.getRoles().toArray(new String[0])).build()));
+    }
+
+    // Basic credentials are verified once and then served from a bounded cache
+    private AuthenticationManager authenticationManager(CacheEvictingUserDetailsManager userDetailsService) {
+        DaoAuthenticationProvider daoProvider = new DaoAuthenticationProvider();
+        daoProvider.setUserDetailsService(userDetailsService);
+        daoProvider.setPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+        CachingAuthenticationProvider credentialsCache = new CachingAuthenticationProvider(
+            daoProvider, credentialsCacheMaxEntries, credentialsCacheTtlSeconds);
+        userDetailsService.onChange(credentialsCache::evict);
+        return new ProviderManager(credentialsCache);
+    }
+
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
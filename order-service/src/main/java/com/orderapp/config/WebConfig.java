@@ -0,0 +1,54 @@
+package com.orderapp.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orderapp.admission.AdmissionControl;
+import com.orderapp.admission.AdmissionControlFilter;
+import com.orderapp.warmup.HotKeyRecorder;
+import com.orderapp.web.RequestFlightRecorder;
+import com.orderapp.web.RequestLogFilter;
+import com.orderapp.web.RequestSampling;
+import com.orderapp.web.ResponseCache;
+import com.orderapp.web.ResponseCacheFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class WebConfig {
+
+    @Bean
+    public FilterRegistrationBean<RequestLogFilter> requestLogFilter(RequestFlightRecorder recorder,
+                                                                     RequestSampling sampling) {
+        FilterRegistrationBean<RequestLogFilter> registration =
+            new FilterRegistrationBean<>(new RequestLogFilter(recorder, sampling));
+        // Ahead of Spring Security so that rejected requests are recorded as well
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 10);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.admission.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilter(AdmissionControl admissionControl,
+                                                                                 ObjectMapper objectMapper) {
+        FilterRegistrationBean<AdmissionControlFilter> registration =
+            new FilterRegistrationBean<>(new AdmissionControlFilter(admissionControl, objectMapper));
+        // After Spring Security, so unauthenticated requests are turned away without taking a slot
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 5);
+        return registration;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.response-cache.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<ResponseCacheFilter> responseCacheFilter(ResponseCache responseCache,
+                                                                           ObjectProvider<HotKeyRecorder> hotKeys) {
+        FilterRegistrationBean<ResponseCacheFilter> registration =
+            new FilterRegistrationBean<>(new ResponseCacheFilter(responseCache, hotKeys.getIfAvailable()));
+        registration.addUrlPatterns("/orders/*", "/products/*");
+        // After Spring Security so cached responses are still only served to authenticated callers
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 10);
+        return registration;
+    }
+}
@@ -0,0 +1,46 @@
+package com.orderapp.controller;
+
+import com.orderapp.dto.TokenResponse;
+import com.orderapp.security.TokenService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/auth")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:8080"})
+public class AuthController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
+    private final TokenService tokenService;
+
+    @Autowired
+    public AuthController(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    /**
+     * Exchange HTTP Basic credentials for a short-lived bearer token. Only Basic is
+     * accepted here, so a token cannot be used to extend itself.
+     */
+    @PostMapping("/token")
+    public ResponseEntity<TokenResponse> issueToken(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorization,
+                                                    Authentication authentication) {
+        if (!authorization.regionMatches(true, 0, "Basic ", 0, 6)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .header(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"Realm\"")
+                .build();
+        }
+        logger.debug("Issuing token for user: {}", authentication.getName());
+        String token = tokenService.issue(authentication);
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CACHE_CONTROL, "no-store")
+            .body(new TokenResponse(token, tokenService.getTtlSeconds()));
+    }
+}
@@ -1,22 +1,39 @@
 package com.orderapp.controller;
 
+import com.orderapp.analytics.TopProductsTracker;
+import com.orderapp.analytics.UniqueCustomerTracker;
 import com.orderapp.dto.CreateOrderRequest;
 import com.orderapp.dto.OrderResponse;
+import com.orderapp.dto.OrderSubmission;
+import com.orderapp.dto.TopProductsResponse;
+import com.orderapp.dto.UniqueCustomersResponse;
 import com.orderapp.entity.Order;
+import com.orderapp.exception.ResourceNotFoundException;
+import com.orderapp.lookup.LookupFilters;
+import com.orderapp.service.OrderIntakeService;
 import com.orderapp.service.OrderService;
+import com.orderapp.service.RecentOrdersIndex;
+import com.orderapp.warmup.HotKeyRecorder;
+import com.orderapp.web.ETags;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -29,30 +46,82 @@ public class OrderController {
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
 
     private final OrderService orderService;
+    private final OrderIntakeService orderIntakeService;
+    private final TopProductsTracker topProductsTracker;
+    private final UniqueCustomerTracker uniqueCustomerTracker;
+    private final RecentOrdersIndex recentOrders;
+    private final HotKeyRecorder hotKeys;
+    private final LookupFilters lookupFilters;
 
     @Autowired
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderIntakeService orderIntakeService,
+                           ObjectProvider<TopProductsTracker> topProductsTracker,
+                           UniqueCustomerTracker uniqueCustomerTracker,
+                           ObjectProvider<RecentOrdersIndex> recentOrders,
+                           ObjectProvider<HotKeyRecorder> hotKeys,
+                           ObjectProvider<LookupFilters> lookupFilters) {
         this.orderService = orderService;
+        this.orderIntakeService = orderIntakeService;
+        this.topProductsTracker = topProductsTracker.getIfAvailable();
+        this.uniqueCustomerTracker = uniqueCustomerTracker;
+        this.recentOrders = recentOrders.getIfAvailable();
+        this.hotKeys = hotKeys.getIfAvailable();
+        this.lookupFilters = lookupFilters.getIfAvailable();
     }
 
     @PostMapping
     public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody CreateOrderRequest request) {
-        logger.info("Creating new order for user: {}", request.getUserId());
+        logger.debug("Creating new order for user: {}", request.getUserId());
         OrderResponse order = orderService.createOrder(request);
         return new ResponseEntity<>(order, HttpStatus.CREATED);
     }
 
+    @PostMapping("/async")
+    public ResponseEntity<OrderSubmission> submitOrder(@Valid @RequestBody CreateOrderRequest request) {
+        logger.debug("Queueing new order for user: {}", request.getUserId());
+        OrderSubmission submission = orderIntakeService.submit(request);
+        URI statusUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+            .path("/orders/async/{orderNumber}")
+            .buildAndExpand(submission.getOrderNumber())
+            .toUri();
+        return ResponseEntity.accepted().location(statusUrl).body(submission);
+    }
+
+    @GetMapping("/async/{orderNumber}")
+    public ResponseEntity<OrderSubmission> getSubmissionStatus(@PathVariable String orderNumber) {
+        logger.debug("Fetching status of queued order: {}", orderNumber);
+        OrderSubmission submission = orderIntakeService.getSubmission(orderNumber);
+        if (submission.getStatus() == OrderSubmission.Status.COMPLETED) {
+            URI orderUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/orders/{orderId}")
+                .buildAndExpand(submission.getOrderId())
+                .toUri();
+            return ResponseEntity.ok().location(orderUrl).body(submission);
+        }
+        return ResponseEntity.ok(submission);
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponse> getOrderById(@PathVariable UUID orderId) {
-        logger.info("Fetching order with id: {}", orderId);
+        logger.debug("Fetching order with id: {}", orderId);
         OrderResponse order = orderService.getOrderById(orderId);
-        return ResponseEntity.ok(order);
+        return ResponseEntity.ok().eTag(ETags.of(order.getId(), order.getUpdatedAt())).body(order);
     }
 
     @GetMapping("/number/{orderNumber}")
     public ResponseEntity<OrderResponse> getOrderByOrderNumber(@PathVariable String orderNumber) {
-        logger.info("Fetching order with order number: {}", orderNumber);
-        OrderResponse order = orderService.getOrderByOrderNumber(orderNumber);
+        logger.debug("Fetching order with order number: {}", orderNumber);
+        // Unknown numbers are answered from the lookup filter before a transaction is opened
+        if (definitelyAbsent(LookupFilters.Key.ORDER_NUMBER, orderNumber)) {
+            throw new ResourceNotFoundException("Order not found with order number: " + orderNumber);
+        }
+        OrderResponse order;
+        try {
+            order = orderService.getOrderByOrderNumber(orderNumber);
+        } catch (ResourceNotFoundException e) {
+            recordFalsePositive(LookupFilters.Key.ORDER_NUMBER);
+            throw e;
+        }
         return ResponseEntity.ok(order);
     }
 
@@ -63,7 +132,7 @@ public class OrderController {
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "desc") String sortDir) {
         
-        logger.info("Fetching all orders - page: {}, size: {}", page, size);
+        logger.debug("Fetching all orders - page: {}, size: {}", page, size);
         
         Sort sort = sortDir.equalsIgnoreCase("desc") 
             ? Sort.by(sortBy).descending() 
@@ -81,17 +150,34 @@ public class OrderController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         
-        logger.info("Fetching orders for user: {}", userId);
+        logger.debug("Fetching orders for user: {}", userId);
         
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<OrderResponse> orders = orderService.getOrdersByUserId(userId, pageable);
+        if (definitelyAbsent(LookupFilters.Key.USER_ID, userId.toString())) {
+            throw new ResourceNotFoundException("User not found with id: " + userId);
+        }
+        if (hotKeys != null) {
+            hotKeys.record(HotKeyRecorder.Kind.USER, userId.toString());
+        }
+        // Recent pages come from Redis before a transaction, and a connection, is opened
+        Page<OrderResponse> orders = recentOrders != null
+            ? recentOrders.find(userId, pageable).orElse(null)
+            : null;
+        if (orders == null) {
+            try {
+                orders = orderService.getOrdersByUserId(userId, pageable);
+            } catch (ResourceNotFoundException e) {
+                recordFalsePositive(LookupFilters.Key.USER_ID);
+                throw e;
+            }
+        }
         
         return ResponseEntity.ok(orders);
     }
 
     @GetMapping("/status/{status}")
     public ResponseEntity<List<OrderResponse>> getOrdersByStatus(@PathVariable Order.OrderStatus status) {
-        logger.info("Fetching orders with status: {}", status);
+        logger.debug("Fetching orders with status: {}", status);
         List<OrderResponse> orders = orderService.getOrdersByStatus(status);
         return ResponseEntity.ok(orders);
     }
@@ -101,21 +187,21 @@ public class OrderController {
             @PathVariable UUID orderId,
             @RequestParam Order.OrderStatus status) {
         
-        logger.info("Updating order {} status to {}", orderId, status);
+        logger.debug("Updating order {} status to {}", orderId, status);
         OrderResponse order = orderService.updateOrderStatus(orderId, status);
         return ResponseEntity.ok(order);
     }
 
     @PutMapping("/{orderId}/cancel")
     public ResponseEntity<Void> cancelOrder(@PathVariable UUID orderId) {
-        logger.info("Cancelling order: {}", orderId);
+        logger.debug("Cancelling order: {}", orderId);
         orderService.cancelOrder(orderId);
         return ResponseEntity.noContent().build();
     }
 
     @GetMapping("/analytics/revenue")
     public ResponseEntity<BigDecimal> getTotalRevenue() {
-        logger.info("Fetching total revenue");
+        logger.debug("Fetching total revenue");
         BigDecimal revenue = orderService.getTotalRevenue();
         return ResponseEntity.ok(revenue);
     }
@@ -125,7 +211,7 @@ public class OrderController {
             @RequestParam String startDate,
             @RequestParam String endDate) {
         
-        logger.info("Fetching revenue between {} and {}", startDate, endDate);
+        logger.debug("Fetching revenue between {} and {}", startDate, endDate);
         
         LocalDateTime start = LocalDateTime.parse(startDate + "T00:00:00");
         LocalDateTime end = LocalDateTime.parse(endDate + "T23:59:59");
@@ -134,10 +220,57 @@ public class OrderController {
         return ResponseEntity.ok(revenue);
     }
 
+    @GetMapping("/analytics/top-products")
+    public ResponseEntity<TopProductsResponse> getTopProducts(
+            @RequestParam(defaultValue = "1h") String window,
+            @RequestParam(defaultValue = "10") int limit) {
+        logger.debug("Fetching top {} products over {}", limit, window);
+        return ResponseEntity.ok(topProductsTracker().topProducts(window, Math.max(1, Math.min(limit, 100))));
+    }
+
+    /**
+     * Sketch for the window over every partition, for merging with sketches of other sources
+     */
+    @GetMapping(value = "/analytics/top-products/sketch", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<byte[]> getTopProductsSketch(@RequestParam(defaultValue = "1h") String window) {
+        return ResponseEntity.ok(topProductsTracker().sketch(window).toBytes());
+    }
+
+    private TopProductsTracker topProductsTracker() {
+        if (topProductsTracker == null) {
+            throw new ResourceNotFoundException("Top products are not tracked (app.top-products.enabled is false)");
+        }
+        return topProductsTracker;
+    }
+
+    /**
+     * Approximate distinct customers who ordered between two days (inclusive, default today)
+     */
+    @GetMapping("/analytics/unique-customers")
+    public ResponseEntity<UniqueCustomersResponse> getUniqueCustomers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end;
+        logger.debug("Fetching unique customers from {} to {} by {}", start, end, granularity);
+        return ResponseEntity.ok(uniqueCustomerTracker.uniqueCustomers(start, end, granularity));
+    }
+
     @GetMapping("/analytics/count/{status}")
     public ResponseEntity<Long> getOrderCountByStatus(@PathVariable Order.OrderStatus status) {
-        logger.info("Fetching order count for status: {}", status);
+        logger.debug("Fetching order count for status: {}", status);
         long count = orderService.getOrderCountByStatus(status);
         return ResponseEntity.ok(count);
     }
+
+    private boolean definitelyAbsent(LookupFilters.Key key, String value) {
+        return lookupFilters != null && lookupFilters.definitelyAbsent(key, value);
+    }
+
+    private void recordFalsePositive(LookupFilters.Key key) {
+        if (lookupFilters != null) {
+            lookupFilters.recordFalsePositive(key);
+        }
+    }
 }
@@ -1,9 +1,13 @@
 package com.orderapp.controller;
 
 import com.orderapp.entity.Product;
+import com.orderapp.lookup.LookupFilters;
 import com.orderapp.repository.ProductRepository;
+import com.orderapp.service.ProductCatalog;
+import com.orderapp.web.ETags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -14,7 +18,9 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/products")
@@ -24,10 +30,15 @@ public class ProductController {
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
     private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
+    private final LookupFilters lookupFilters;
 
     @Autowired
-    public ProductController(ProductRepository productRepository) {
+    public ProductController(ProductRepository productRepository, ProductCatalog productCatalog,
+                             ObjectProvider<LookupFilters> lookupFilters) {
         this.productRepository = productRepository;
+        this.productCatalog = productCatalog;
+        this.lookupFilters = lookupFilters.getIfAvailable();
     }
 
     @GetMapping
@@ -43,7 +54,7 @@ public class ProductController {
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice) {
 
-        logger.info("Fetching products - page: {}, size: {}", page, size);
+        logger.debug("Fetching products - page: {}, size: {}", page, size);
 
         Sort sort = sortDir.equalsIgnoreCase("desc") 
             ? Sort.by(sortBy).descending() 
@@ -59,60 +70,78 @@ public class ProductController {
 
     @GetMapping("/{productId}")
     public ResponseEntity<Product> getProductById(@PathVariable UUID productId) {
-        logger.info("Fetching product with id: {}", productId);
+        logger.debug("Fetching product with id: {}", productId);
         return productRepository.findById(productId)
-            .map(ResponseEntity::ok)
+            .map(product -> ResponseEntity.ok().eTag(ETags.of(product.getId(), product.getUpdatedAt())).body(product))
             .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/sku/{sku}")
     public ResponseEntity<Product> getProductBySku(@PathVariable String sku) {
-        logger.info("Fetching product with SKU: {}", sku);
-        return productRepository.findBySku(sku)
+        logger.debug("Fetching product with SKU: {}", sku);
+        return find(LookupFilters.Key.PRODUCT_SKU, sku, () -> productRepository.findBySku(sku))
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/available")
     public ResponseEntity<List<Product>> getAvailableProducts() {
-        logger.info("Fetching available products");
-        List<Product> products = productRepository.findAvailableProducts();
-        return ResponseEntity.ok(products);
+        logger.debug("Fetching available products");
+        String etag = productCatalog.getETag();
+        List<Product> products = productCatalog.getAvailableProducts();
+        return ResponseEntity.ok().eTag(etag).body(products);
     }
 
     @GetMapping("/category/{category}")
     public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String category) {
-        logger.info("Fetching products for category: {}", category);
-        List<Product> products = productRepository.findByCategory(category);
+        logger.debug("Fetching products for category: {}", category);
+        List<Product> products = productCatalog.getProductsByCategory(category);
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/brand/{brand}")
     public ResponseEntity<List<Product>> getProductsByBrand(@PathVariable String brand) {
-        logger.info("Fetching products for brand: {}", brand);
-        List<Product> products = productRepository.findByBrand(brand);
+        logger.debug("Fetching products for brand: {}", brand);
+        List<Product> products = productCatalog.getProductsByBrand(brand);
+        return ResponseEntity.ok(products);
+    }
+
+    @GetMapping("/price-range")
+    public ResponseEntity<List<Product>> getProductsByPriceRange(
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "100") int limit) {
+        logger.debug("Fetching products priced between {} and {}", minPrice, maxPrice);
+        List<Product> products = productCatalog.getProductsByPriceRange(minPrice, maxPrice, Math.max(0, limit));
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/low-stock")
     public ResponseEntity<List<Product>> getLowStockProducts(
             @RequestParam(defaultValue = "10") Integer threshold) {
-        logger.info("Fetching low stock products with threshold: {}", threshold);
+        logger.debug("Fetching low stock products with threshold: {}", threshold);
         List<Product> products = productRepository.findLowStockProducts(threshold);
         return ResponseEntity.ok(products);
     }
 
     @GetMapping("/categories")
     public ResponseEntity<List<String>> getAllCategories() {
-        logger.info("Fetching all product categories");
-        List<String> categories = productRepository.findAllCategories();
-        return ResponseEntity.ok(categories);
+        logger.debug("Fetching all product categories");
+        String etag = productCatalog.getETag();
+        List<String> categories = productCatalog.getCategories();
+        return ResponseEntity.ok().eTag(etag).body(categories);
     }
 
     @GetMapping("/brands")
     public ResponseEntity<List<String>> getAllBrands() {
-        logger.info("Fetching all product brands");
-        List<String> brands = productRepository.findAllBrands();
-        return ResponseEntity.ok(brands);
+        logger.debug("Fetching all product brands");
+        String etag = productCatalog.getETag();
+        List<String> brands = productCatalog.getBrands();
+        return ResponseEntity.ok().eTag(etag).body(brands);
+    }
+
+    // Keys the lookup filter rules out are answered without a query
+    private <T> Optional<T> find(LookupFilters.Key key, String value, Supplier<Optional<T>> lookup) {
+        return lookupFilters != null ? lookupFilters.find(key, value, lookup) : lookup.get();
     }
 }
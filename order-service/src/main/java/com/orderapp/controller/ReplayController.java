@@ -0,0 +1,57 @@
+package com.orderapp.controller;
+
+import com.orderapp.dto.ReplayRequest;
+import com.orderapp.dto.ReplayStatus;
+import com.orderapp.replay.EventReplayService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Rebuilds read models from order-events; admin only
+ */
+@RestController
+@RequestMapping("/admin/replay")
+public class ReplayController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplayController.class);
+
+    private final EventReplayService replayService;
+
+    @Autowired
+    public ReplayController(EventReplayService replayService) {
+        this.replayService = replayService;
+    }
+
+    @PostMapping
+    public ResponseEntity<ReplayStatus> startReplay(@Valid @RequestBody(required = false) ReplayRequest request) {
+        ReplayStatus status = replayService.start(request != null ? request : new ReplayRequest());
+        logger.info("Replay requested from {} into {}", status.getStartingPoint(), status.getReadModels());
+        URI statusUrl = ServletUriComponentsBuilder.fromCurrentRequest().build().toUri();
+        return ResponseEntity.accepted().location(statusUrl).body(status);
+    }
+
+    @GetMapping
+    public ResponseEntity<ReplayStatus> getReplayStatus() {
+        ReplayStatus status = replayService.status();
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<ReplayStatus> cancelReplay() {
+        ReplayStatus status = replayService.cancel();
+        return status != null ? ResponseEntity.accepted().body(status) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/read-models")
+    public ResponseEntity<List<String>> getReadModels() {
+        return ResponseEntity.ok(replayService.getReadModelNames());
+    }
+}
@@ -1,9 +1,11 @@
 package com.orderapp.controller;
 
 import com.orderapp.entity.User;
+import com.orderapp.lookup.LookupFilters;
 import com.orderapp.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -13,7 +15,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/users")
@@ -23,10 +27,12 @@ public class UserController {
     private static final Logger logger = LoggerFactory.getLogger(UserController.class);
 
     private final UserRepository userRepository;
+    private final LookupFilters lookupFilters;
 
     @Autowired
-    public UserController(UserRepository userRepository) {
+    public UserController(UserRepository userRepository, ObjectProvider<LookupFilters> lookupFilters) {
         this.userRepository = userRepository;
+        this.lookupFilters = lookupFilters.getIfAvailable();
     }
 
     @GetMapping
@@ -39,7 +45,7 @@ public class UserController {
             @RequestParam(required = false) User.UserStatus status,
             @RequestParam(required = false) String name) {
 
-        logger.info("Fetching users - page: {}, size: {}", page, size);
+        logger.debug("Fetching users - page: {}, size: {}", page, size);
 
         Sort sort = sortDir.equalsIgnoreCase("desc") 
             ? Sort.by(sortBy).descending() 
@@ -54,23 +60,23 @@ public class UserController {
 
     @GetMapping("/{userId}")
     public ResponseEntity<User> getUserById(@PathVariable UUID userId) {
-        logger.info("Fetching user with id: {}", userId);
-        return userRepository.findById(userId)
+        logger.debug("Fetching user with id: {}", userId);
+        return find(LookupFilters.Key.USER_ID, userId.toString(), () -> userRepository.findById(userId))
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/email/{email}")
     public ResponseEntity<User> getUserByEmail(@PathVariable String email) {
-        logger.info("Fetching user with email: {}", email);
-        return userRepository.findByEmail(email)
+        logger.debug("Fetching user with email: {}", email);
+        return find(LookupFilters.Key.USER_EMAIL, email, () -> userRepository.findByEmail(email))
             .map(ResponseEntity::ok)
             .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/status/{status}")
     public ResponseEntity<List<User>> getUsersByStatus(@PathVariable User.UserStatus status) {
-        logger.info("Fetching users with status: {}", status);
+        logger.debug("Fetching users with status: {}", status);
         List<User> users = userRepository.findByStatus(status);
         return ResponseEntity.ok(users);
     }
@@ -81,11 +87,16 @@ public class UserController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
 
-        logger.info("Searching users by name: {}", name);
+        logger.debug("Searching users by name: {}", name);
         
         Pageable pageable = PageRequest.of(page, size, Sort.by("firstName").ascending());
         Page<User> users = userRepository.findByNameContaining(name, pageable);
         
         return ResponseEntity.ok(users);
     }
+
+    // Keys the lookup filter rules out are answered without a query
+    private <T> Optional<T> find(LookupFilters.Key key, String value, Supplier<Optional<T>> lookup) {
+        return lookupFilters != null ? lookupFilters.find(key, value, lookup) : lookup.get();
+    }
 }
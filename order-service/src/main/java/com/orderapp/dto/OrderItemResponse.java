@@ -1,8 +1,8 @@
 package com.orderapp.dto;
 
+import com.orderapp.entity.Money;
 import com.orderapp.entity.OrderItem;
 
-import java.math.BigDecimal;
 import java.util.UUID;
 
 public class OrderItemResponse {
@@ -12,8 +12,8 @@ public class OrderItemResponse {
     private String productName;
     private String productSku;
     private Integer quantity;
-    private BigDecimal unitPrice;
-    private BigDecimal totalPrice;
+    private Money unitPrice;
+    private Money totalPrice;
 
     // Constructors
     public OrderItemResponse() {}
@@ -44,9 +44,9 @@ public class OrderItemResponse {
     public Integer getQuantity() { return quantity; }
     public void setQuantity(Integer quantity) { this.quantity = quantity; }
 
-    public BigDecimal getUnitPrice() { return unitPrice; }
-    public void setUnitPrice(BigDecimal unitPrice) { this.unitPrice = unitPrice; }
+    public Money getUnitPrice() { return unitPrice; }
+    public void setUnitPrice(Money unitPrice) { this.unitPrice = unitPrice; }
 
-    public BigDecimal getTotalPrice() { return totalPrice; }
-    public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+    public Money getTotalPrice() { return totalPrice; }
+    public void setTotalPrice(Money totalPrice) { this.totalPrice = totalPrice; }
 }
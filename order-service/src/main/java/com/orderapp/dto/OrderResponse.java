@@ -1,9 +1,9 @@
 package com.orderapp.dto;
 
 import com.orderapp.entity.Address;
+import com.orderapp.entity.Money;
 import com.orderapp.entity.Order;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
@@ -18,10 +18,10 @@ public class OrderResponse {
     private String userEmail;
     private List<OrderItemResponse> items;
     private Order.OrderStatus status;
-    private BigDecimal totalAmount;
-    private BigDecimal taxAmount;
-    private BigDecimal shippingAmount;
-    private BigDecimal subtotal;
+    private Money totalAmount;
+    private Money taxAmount;
+    private Money shippingAmount;
+    private Money subtotal;
     private Address shippingAddress;
     private String notes;
     private LocalDateTime createdAt;
@@ -78,17 +78,17 @@ public class OrderResponse {
     public Order.OrderStatus getStatus() { return status; }
     public void setStatus(Order.OrderStatus status) { this.status = status; }
 
-    public BigDecimal getTotalAmount() { return totalAmount; }
-    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    public Money getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Money totalAmount) { this.totalAmount = totalAmount; }
 
-    public BigDecimal getTaxAmount() { return taxAmount; }
-    public void setTaxAmount(BigDecimal taxAmount) { this.taxAmount = taxAmount; }
+    public Money getTaxAmount() { return taxAmount; }
+    public void setTaxAmount(Money taxAmount) { this.taxAmount = taxAmount; }
 
-    public BigDecimal getShippingAmount() { return shippingAmount; }
-    public void setShippingAmount(BigDecimal shippingAmount) { this.shippingAmount = shippingAmount; }
+    public Money getShippingAmount() { return shippingAmount; }
+    public void setShippingAmount(Money shippingAmount) { this.shippingAmount = shippingAmount; }
 
-    public BigDecimal getSubtotal() { return subtotal; }
-    public void setSubtotal(BigDecimal subtotal) { this.subtotal = subtotal; }
+    public Money getSubtotal() { return subtotal; }
+    public void setSubtotal(Money subtotal) { this.subtotal = subtotal; }
 
     public Address getShippingAddress() { return shippingAddress; }
     public void setShippingAddress(Address shippingAddress) { this.shippingAddress = shippingAddress; }
@@ -0,0 +1,92 @@
+package com.orderapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.orderapp.entity.QueuedOrder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An order accepted by POST /orders/async, tracked from the intake queue until it is
+ * applied or rejected. Serialized as the body of the status endpoint, which reads it
+ * back from queued_orders.
+ */
+public class OrderSubmission {
+
+    public enum Status {
+        QUEUED, PROCESSING, COMPLETED, FAILED
+    }
+
+    private final String orderNumber;
+    private final UUID userId;
+    private final LocalDateTime submittedAt;
+
+    @JsonIgnore
+    private final CreateOrderRequest request;
+
+    @JsonIgnore
+    private final long enqueuedNanos;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile UUID orderId;
+    private volatile String message;
+    private volatile LocalDateTime completedAt;
+
+    // Constructors
+    public OrderSubmission(String orderNumber, CreateOrderRequest request) {
+        this.orderNumber = orderNumber;
+        this.userId = request.getUserId();
+        this.request = request;
+        this.submittedAt = LocalDateTime.now();
+        this.enqueuedNanos = System.nanoTime();
+    }
+
+    /**
+     * A submission as stored in queued_orders; {@code request} is null when only its
+     * status is wanted
+     */
+    public OrderSubmission(QueuedOrder queued, CreateOrderRequest request) {
+        this.orderNumber = queued.getOrderNumber();
+        this.userId = queued.getUserId();
+        this.request = request;
+        this.submittedAt = queued.getSubmittedAt();
+        this.enqueuedNanos = System.nanoTime();
+        this.status = queued.getStatus();
+        this.orderId = queued.getOrderId();
+        this.message = queued.getMessage();
+        this.completedAt = queued.getCompletedAt();
+    }
+
+    // Getters
+    public String getOrderNumber() { return orderNumber; }
+    public UUID getUserId() { return userId; }
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public CreateOrderRequest getRequest() { return request; }
+    public long getEnqueuedNanos() { return enqueuedNanos; }
+    public Status getStatus() { return status; }
+    public UUID getOrderId() { return orderId; }
+    public String getMessage() { return message; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+
+    // State transitions
+    public void processing() {
+        this.status = Status.PROCESSING;
+    }
+
+    public void complete(UUID orderId) {
+        this.orderId = orderId;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.COMPLETED;
+    }
+
+    public void fail(String message) {
+        this.message = message;
+        this.completedAt = LocalDateTime.now();
+        this.status = Status.FAILED;
+    }
+
+    @JsonIgnore
+    public boolean isDone() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
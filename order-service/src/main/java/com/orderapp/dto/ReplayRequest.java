@@ -0,0 +1,36 @@
+package com.orderapp.dto;
+
+import javax.validation.constraints.PositiveOrZero;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Body of POST /admin/replay. Without fromTime or fromOffset every partition resumes
+ * from its last snapshot, or the beginning of the topic when it has none.
+ */
+public class ReplayRequest {
+
+    // Earliest record timestamp to replay; read models start empty
+    private Instant fromTime;
+
+    // Offset to replay from in every partition; read models start empty
+    @PositiveOrZero(message = "fromOffset must not be negative")
+    private Long fromOffset;
+
+    // Names of the read models to rebuild; all of them when empty
+    private List<String> readModels;
+
+    // Constructors
+    public ReplayRequest() {}
+
+    // Getters and Setters
+    public Instant getFromTime() { return fromTime; }
+    public void setFromTime(Instant fromTime) { this.fromTime = fromTime; }
+
+    public Long getFromOffset() { return fromOffset; }
+    public void setFromOffset(Long fromOffset) { this.fromOffset = fromOffset; }
+
+    public List<String> getReadModels() { return readModels; }
+    public void setReadModels(List<String> readModels) { this.readModels = readModels; }
+}
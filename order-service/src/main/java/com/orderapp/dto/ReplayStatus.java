@@ -0,0 +1,124 @@
+package com.orderapp.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A replay started by POST /admin/replay, updated by its partition workers as it runs.
+ * Serialized as the body of GET /admin/replay.
+ */
+public class ReplayStatus {
+
+    public enum State {
+        RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    private final String topic;
+    private final String startingPoint;
+    private final List<String> readModels;
+    private final List<PartitionProgress> partitions;
+    private final LocalDateTime startedAt;
+
+    private volatile State state = State.RUNNING;
+    private volatile String message;
+    private volatile LocalDateTime finishedAt;
+
+    // Constructors
+    public ReplayStatus(String topic, String startingPoint, List<String> readModels,
+                        List<PartitionProgress> partitions) {
+        this.topic = topic;
+        this.startingPoint = startingPoint;
+        this.readModels = readModels;
+        this.partitions = partitions;
+        this.startedAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public String getTopic() { return topic; }
+    public String getStartingPoint() { return startingPoint; }
+    public List<String> getReadModels() { return readModels; }
+    public List<PartitionProgress> getPartitions() { return partitions; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public State getState() { return state; }
+    public String getMessage() { return message; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+
+    public long getEventsReplayed() {
+        return partitions.stream().mapToLong(PartitionProgress::getEventsReplayed).sum();
+    }
+
+    public long getEventsPerSecond() {
+        long millis = Duration.between(startedAt, finishedAt != null ? finishedAt : LocalDateTime.now()).toMillis();
+        return millis > 0 ? getEventsReplayed() * 1000 / millis : 0;
+    }
+
+    // State transitions
+    public void finish(State state, String message) {
+        this.message = message;
+        this.finishedAt = LocalDateTime.now();
+        this.state = state;
+    }
+
+    @JsonIgnore
+    public boolean isDone() {
+        return state != State.RUNNING;
+    }
+
+    /**
+     * Where one partition's replay stands
+     */
+    public static class PartitionProgress {
+        private final int partition;
+
+        private volatile long startOffset = -1;
+        private volatile long endOffset = -1;
+        private volatile long position = -1;
+        private volatile long eventsReplayed;
+        private volatile long recordsSkipped;
+        private volatile int snapshots;
+        private volatile boolean done;
+        private volatile String error;
+
+        public PartitionProgress(int partition) {
+            this.partition = partition;
+        }
+
+        // Getters
+        public int getPartition() { return partition; }
+        public long getStartOffset() { return startOffset; }
+        /** Offset after the last record present when the replay started; the replay stops there */
+        public long getEndOffset() { return endOffset; }
+        public long getPosition() { return position; }
+        public long getEventsReplayed() { return eventsReplayed; }
+        /** Records that could not be read as order events */
+        public long getRecordsSkipped() { return recordsSkipped; }
+        public int getSnapshots() { return snapshots; }
+        public boolean isDone() { return done; }
+        public String getError() { return error; }
+
+        // Updated by the partition's worker thread only
+        public void started(long startOffset, long endOffset) {
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.position = startOffset;
+        }
+
+        public void advanced(long position, int events, int skipped) {
+            this.position = position;
+            this.eventsReplayed += events;
+            this.recordsSkipped += skipped;
+        }
+
+        public void snapshotTaken() {
+            this.snapshots++;
+        }
+
+        public void finished(String error) {
+            this.error = error;
+            this.done = true;
+        }
+    }
+}
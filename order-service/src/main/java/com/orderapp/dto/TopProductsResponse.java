@@ -0,0 +1,71 @@
+package com.orderapp.dto;
+
+import java.util.List;
+
+/**
+ * Approximate bestsellers of GET /orders/analytics/top-products, with the error bounds
+ * that hold for every estimate in the list
+ */
+public class TopProductsResponse {
+
+    private final String window;
+    private final long totalUnits;
+    private final long maxError;
+    private final long spaceSavingError;
+    private final long countMinError;
+    private final double countMinConfidence;
+    private final List<ProductEstimate> products;
+
+    public TopProductsResponse(String window, long totalUnits, long maxError, long spaceSavingError,
+                               long countMinError, double countMinConfidence, List<ProductEstimate> products) {
+        this.window = window;
+        this.totalUnits = totalUnits;
+        this.maxError = maxError;
+        this.spaceSavingError = spaceSavingError;
+        this.countMinError = countMinError;
+        this.countMinConfidence = countMinConfidence;
+        this.products = products;
+    }
+
+    // Getters
+    public String getWindow() { return window; }
+    public long getTotalUnits() { return totalUnits; }
+    /** Most any estimate overcounts by, in units; never undercounts */
+    public long getMaxError() { return maxError; }
+    /** Deterministic bound: total units / counters */
+    public long getSpaceSavingError() { return spaceSavingError; }
+    /** Probabilistic bound: e / width * total units, holding with countMinConfidence */
+    public long getCountMinError() { return countMinError; }
+    public double getCountMinConfidence() { return countMinConfidence; }
+    public List<ProductEstimate> getProducts() { return products; }
+
+    /**
+     * One product: units sold are between minUnits and estimatedUnits. Guaranteed means it
+     * certainly belongs at least this high in the ranking.
+     */
+    public static class ProductEstimate {
+        private final String productId;
+        private final String sku;
+        private final String productName;
+        private final long estimatedUnits;
+        private final long minUnits;
+        private final boolean guaranteed;
+
+        public ProductEstimate(String productId, String sku, String productName, long estimatedUnits,
+                               long minUnits, boolean guaranteed) {
+            this.productId = productId;
+            this.sku = sku;
+            this.productName = productName;
+            this.estimatedUnits = estimatedUnits;
+            this.minUnits = minUnits;
+            this.guaranteed = guaranteed;
+        }
+
+        public String getProductId() { return productId; }
+        public String getSku() { return sku; }
+        public String getProductName() { return productName; }
+        public long getEstimatedUnits() { return estimatedUnits; }
+        public long getMinUnits() { return minUnits; }
+        public boolean isGuaranteed() { return guaranteed; }
+    }
+}
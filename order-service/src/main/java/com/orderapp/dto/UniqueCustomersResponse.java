@@ -0,0 +1,50 @@
+package com.orderapp.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Estimated distinct customers of GET /orders/analytics/unique-customers, over the whole
+ * range and per day, week or month within it
+ */
+public class UniqueCustomersResponse {
+
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long estimate;
+    private final double relativeStandardError;
+    private final List<Bucket> buckets;
+
+    public UniqueCustomersResponse(LocalDate from, LocalDate to, long estimate, double relativeStandardError,
+                                   List<Bucket> buckets) {
+        this.from = from;
+        this.to = to;
+        this.estimate = estimate;
+        this.relativeStandardError = relativeStandardError;
+        this.buckets = buckets;
+    }
+
+    // Getters
+    public LocalDate getFrom() { return from; }
+    public LocalDate getTo() { return to; }
+    public long getEstimate() { return estimate; }
+    /** One standard deviation as a share of the count; about 95% of estimates are within two */
+    public double getRelativeStandardError() { return relativeStandardError; }
+    public List<Bucket> getBuckets() { return buckets; }
+
+    public static class Bucket {
+        private final LocalDate start;
+        private final LocalDate end;
+        private final long estimate;
+
+        public Bucket(LocalDate start, LocalDate end, long estimate) {
+            this.start = start;
+            this.end = end;
+            this.estimate = estimate;
+        }
+
+        public LocalDate getStart() { return start; }
+        public LocalDate getEnd() { return end; }
+        public long getEstimate() { return estimate; }
+    }
+}
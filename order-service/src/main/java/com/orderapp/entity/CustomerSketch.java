@@ -0,0 +1,47 @@
+package com.orderapp.entity;
+
+import javax.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Serialized HyperLogLog of the customers who ordered on one day (see
+ * {@link com.orderapp.analytics.HyperLogLog}); ranges are counted by merging days
+ */
+@Entity
+@Table(name = "customer_sketches")
+public class CustomerSketch {
+
+    @Id
+    @Column(name = "bucket_date")
+    private LocalDate bucketDate;
+
+    // Sparse or six-bit packed registers; at most ~12 KB at precision 14
+    @Column(nullable = false, length = 65536)
+    private byte[] sketch;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public CustomerSketch() {}
+
+    public CustomerSketch(LocalDate bucketDate, byte[] sketch) {
+        this.bucketDate = bucketDate;
+        this.sketch = sketch;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public LocalDate getBucketDate() { return bucketDate; }
+    public void setBucketDate(LocalDate bucketDate) { this.bucketDate = bucketDate; }
+
+    public byte[] getSketch() { return sketch; }
+    public void setSketch(byte[] sketch) {
+        this.sketch = sketch;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,190 @@
+package com.orderapp.entity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+
+/**
+ * Immutable amount of money held as a long count of minor units (cents) plus a currency.
+ * Arithmetic is exact and allocation-light compared with BigDecimal; amounts are stored in
+ * the existing DECIMAL(10,2) columns through MoneyConverter and serialized in JSON as a
+ * plain decimal number, the same shape BigDecimal had.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int SCALE = 2;
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("USD");
+    public static final Money ZERO = new Money(0L, DEFAULT_CURRENCY);
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0L ? ZERO : new Money(minorUnits, DEFAULT_CURRENCY);
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return currency.equals(DEFAULT_CURRENCY) ? ofMinor(minorUnits) : new Money(minorUnits, currency);
+    }
+
+    /**
+     * Rounds half up to cents, as Postgres does when storing into NUMERIC(10,2)
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        return ofMinor(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    // Arithmetic
+    public Money plus(Money other) {
+        checkCurrency(other);
+        return other.minorUnits == 0L ? this : ofMinor(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkCurrency(other);
+        return other.minorUnits == 0L ? this : ofMinor(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(long quantity) {
+        return quantity == 1L ? this : ofMinor(Math.multiplyExact(minorUnits, quantity), currency);
+    }
+
+    private void checkCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+
+    // Accessors
+    public long getMinorUnits() { return minorUnits; }
+    public Currency getCurrency() { return currency; }
+
+    public boolean isZero() { return minorUnits == 0L; }
+    public boolean isPositive() { return minorUnits > 0L; }
+    public boolean isNegative() { return minorUnits < 0L; }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(minorUnits) + currency.hashCode();
+    }
+
+    /**
+     * Plain decimal with two fraction digits, e.g. "12.50" or "-0.05"
+     */
+    @Override
+    public String toString() {
+        if (minorUnits == Long.MIN_VALUE) {
+            return toBigDecimal().toPlainString();
+        }
+        long abs = Math.abs(minorUnits);
+        long cents = abs % 100;
+        StringBuilder sb = new StringBuilder(24);
+        if (minorUnits < 0) {
+            sb.append('-');
+        }
+        sb.append(abs / 100).append('.');
+        if (cents < 10) {
+            sb.append('0');
+        }
+        return sb.append(cents).toString();
+    }
+
+    /**
+     * Writes the amount as a raw JSON number, without going through BigDecimal
+     */
+    public static class Serializer extends StdScalarSerializer<Money> {
+
+        public Serializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(value.toString());
+        }
+
+        @Override
+        public void serializeWithType(Money value, JsonGenerator gen, SerializerProvider provider,
+                                      TypeSerializer typeSer) throws IOException {
+            WritableTypeId typeId = typeSer.writeTypePrefix(gen, typeSer.typeId(value, JsonToken.VALUE_NUMBER_FLOAT));
+            serialize(value, gen, provider);
+            typeSer.writeTypeSuffix(gen, typeId);
+        }
+    }
+
+    /**
+     * Reads a JSON number or numeric string
+     */
+    public static class Deserializer extends StdScalarDeserializer<Money> {
+
+        public Deserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                return ofMinor(Math.multiplyExact(p.getLongValue(), 100L));
+            }
+            if (p.currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+                return of(p.getDecimalValue());
+            }
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                String text = p.getText().trim();
+                if (text.isEmpty()) {
+                    return null;
+                }
+                try {
+                    return of(new BigDecimal(text));
+                } catch (NumberFormatException e) {
+                    return (Money) ctxt.handleWeirdStringValue(Money.class, text, "not a decimal amount");
+                }
+            }
+            return (Money) ctxt.handleUnexpectedToken(Money.class, p);
+        }
+    }
+}
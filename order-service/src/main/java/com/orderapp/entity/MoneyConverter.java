@@ -0,0 +1,23 @@
+package com.orderapp.entity;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.math.BigDecimal;
+
+/**
+ * Maps Money onto the existing DECIMAL(10,2) amount columns. The columns carry no
+ * currency, so amounts read back in Money.DEFAULT_CURRENCY.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Money money) {
+        return money != null ? money.toBigDecimal() : null;
+    }
+
+    @Override
+    public Money convertToEntityAttribute(BigDecimal amount) {
+        return Money.of(amount);
+    }
+}
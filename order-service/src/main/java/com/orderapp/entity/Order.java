@@ -1,14 +1,12 @@
 package com.orderapp.entity;
 
 import javax.persistence.*;
-import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotNull;
 import org.hibernate.annotations.GenericGenerator;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,18 +36,16 @@ public class Order {
     @Column(nullable = false)
     private OrderStatus status = OrderStatus.PENDING;
 
+    // Amounts are Money (long cents) stored through MoneyConverter
     @NotNull
-    @DecimalMin(value = "0.0", inclusive = false)
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal totalAmount;
+    private Money totalAmount;
 
-    @DecimalMin(value = "0.0")
     @Column(precision = 10, scale = 2)
-    private BigDecimal taxAmount = BigDecimal.ZERO;
+    private Money taxAmount = Money.ZERO;
 
-    @DecimalMin(value = "0.0")
     @Column(precision = 10, scale = 2)
-    private BigDecimal shippingAmount = BigDecimal.ZERO;
+    private Money shippingAmount = Money.ZERO;
 
     @Embedded
     @AttributeOverrides({
@@ -74,13 +70,24 @@ public class Order {
     private LocalDateTime shippedAt;
     private LocalDateTime deliveredAt;
 
+    // Running item aggregates; rebuilt from orderItems on first use after load
+    @Transient
+    private long subtotalCents;
+
+    @Transient
+    private int totalItems;
+
+    @Transient
+    private boolean aggregatesStale = true;
+
     // Constructors
     public Order() {}
 
     public Order(User user, String orderNumber) {
         this.user = user;
         this.orderNumber = orderNumber;
-        this.totalAmount = BigDecimal.ZERO;
+        this.totalAmount = Money.ZERO;
+        this.aggregatesStale = false;
     }
 
     // Getters and Setters
@@ -94,19 +101,22 @@ public class Order {
     public void setUser(User user) { this.user = user; }
 
     public List<OrderItem> getOrderItems() { return orderItems; }
-    public void setOrderItems(List<OrderItem> orderItems) { this.orderItems = orderItems; }
+    public void setOrderItems(List<OrderItem> orderItems) {
+        this.orderItems = orderItems;
+        this.aggregatesStale = true;
+    }
 
     public OrderStatus getStatus() { return status; }
     public void setStatus(OrderStatus status) { this.status = status; }
 
-    public BigDecimal getTotalAmount() { return totalAmount; }
-    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    public Money getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(Money totalAmount) { this.totalAmount = totalAmount; }
 
-    public BigDecimal getTaxAmount() { return taxAmount; }
-    public void setTaxAmount(BigDecimal taxAmount) { this.taxAmount = taxAmount; }
+    public Money getTaxAmount() { return taxAmount; }
+    public void setTaxAmount(Money taxAmount) { this.taxAmount = taxAmount; }
 
-    public BigDecimal getShippingAmount() { return shippingAmount; }
-    public void setShippingAmount(BigDecimal shippingAmount) { this.shippingAmount = shippingAmount; }
+    public Money getShippingAmount() { return shippingAmount; }
+    public void setShippingAmount(Money shippingAmount) { this.shippingAmount = shippingAmount; }
 
     public Address getShippingAddress() { return shippingAddress; }
     public void setShippingAddress(Address shippingAddress) { this.shippingAddress = shippingAddress; }
@@ -128,35 +138,86 @@ public class Order {
 
     // Helper methods
     public void addOrderItem(OrderItem orderItem) {
+        ensureAggregates();
         orderItems.add(orderItem);
         orderItem.setOrder(this);
-        calculateTotalAmount();
+        itemChanged(centsOf(orderItem), quantityOf(orderItem));
     }
 
     public void removeOrderItem(OrderItem orderItem) {
-        orderItems.remove(orderItem);
+        ensureAggregates();
+        if (orderItems.remove(orderItem)) {
+            itemChanged(-centsOf(orderItem), -quantityOf(orderItem));
+        }
         orderItem.setOrder(null);
-        calculateTotalAmount();
     }
 
     public void calculateTotalAmount() {
-        BigDecimal itemsTotal = orderItems.stream()
-            .map(OrderItem::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        this.totalAmount = itemsTotal.add(taxAmount).add(shippingAmount);
+        ensureAggregates();
+        long cents = subtotalCents;
+        if (taxAmount != null) {
+            cents = Math.addExact(cents, taxAmount.getMinorUnits());
+        }
+        if (shippingAmount != null) {
+            cents = Math.addExact(cents, shippingAmount.getMinorUnits());
+        }
+        this.totalAmount = Money.ofMinor(cents);
     }
 
-    public BigDecimal getSubtotal() {
-        return orderItems.stream()
-            .map(OrderItem::getTotalPrice)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public Money getSubtotal() {
+        ensureAggregates();
+        return Money.ofMinor(subtotalCents);
     }
 
     public int getTotalItems() {
-        return orderItems.stream()
-            .mapToInt(OrderItem::getQuantity)
-            .sum();
+        ensureAggregates();
+        return totalItems;
+    }
+
+    /**
+     * Applies a change in one item's line total and quantity. Called by
+     * {@link OrderItem} when its price or quantity changes after it was added.
+     */
+    void itemChanged(long centsDelta, int quantityDelta) {
+        if (aggregatesStale) {
+            return; // the next read rescans the items anyway
+        }
+        subtotalCents = Math.addExact(subtotalCents, centsDelta);
+        totalItems = Math.addExact(totalItems, quantityDelta);
+        calculateTotalAmount();
+    }
+
+    @PostLoad
+    void markAggregatesStale() {
+        // Deferred so that loading an order does not initialize its lazy items
+        aggregatesStale = true;
+    }
+
+    private void ensureAggregates() {
+        if (!aggregatesStale) {
+            return;
+        }
+        long cents = 0L;
+        int quantity = 0;
+        if (orderItems != null) {
+            for (OrderItem orderItem : orderItems) {
+                cents = Math.addExact(cents, centsOf(orderItem));
+                quantity = Math.addExact(quantity, quantityOf(orderItem));
+            }
+        }
+        subtotalCents = cents;
+        totalItems = quantity;
+        aggregatesStale = false;
+    }
+
+    private static long centsOf(OrderItem orderItem) {
+        Money totalPrice = orderItem.getTotalPrice();
+        return totalPrice != null ? totalPrice.getMinorUnits() : 0L;
+    }
+
+    private static int quantityOf(OrderItem orderItem) {
+        Integer quantity = orderItem.getQuantity();
+        return quantity != null ? quantity : 0;
     }
 
     public enum OrderStatus {
@@ -1,12 +1,11 @@
 package com.orderapp.entity;
 
 import javax.persistence.*;
-import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import org.hibernate.annotations.GenericGenerator;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
@@ -22,6 +21,10 @@ public class OrderItem {
     @JoinColumn(name = "order_id", nullable = false)
     private Order order;
 
+    // Partition key of order_items; mirrors the parent order's created_at
+    @Column(name = "order_created_at", nullable = false, updatable = false)
+    private LocalDateTime orderCreatedAt;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
@@ -32,19 +35,17 @@ public class OrderItem {
     private Integer quantity;
 
     @NotNull
-    @DecimalMin(value = "0.0", inclusive = false)
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal unitPrice;
+    private Money unitPrice;
 
     @NotNull
-    @DecimalMin(value = "0.0")
     @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal totalPrice;
+    private Money totalPrice;
 
     // Constructors
     public OrderItem() {}
 
-    public OrderItem(Product product, Integer quantity, BigDecimal unitPrice) {
+    public OrderItem(Product product, Integer quantity, Money unitPrice) {
         this.product = product;
         this.quantity = quantity;
         this.unitPrice = unitPrice;
@@ -58,31 +59,66 @@ public class OrderItem {
     public Order getOrder() { return order; }
     public void setOrder(Order order) { this.order = order; }
 
+    public LocalDateTime getOrderCreatedAt() { return orderCreatedAt; }
+    public void setOrderCreatedAt(LocalDateTime orderCreatedAt) { this.orderCreatedAt = orderCreatedAt; }
+
     public Product getProduct() { return product; }
     public void setProduct(Product product) { this.product = product; }
 
     public Integer getQuantity() { return quantity; }
     public void setQuantity(Integer quantity) { 
+        long oldCents = cents();
+        int oldQuantity = quantityOrZero();
         this.quantity = quantity;
         calculateTotalPrice();
+        notifyOrder(oldCents, oldQuantity);
     }
 
-    public BigDecimal getUnitPrice() { return unitPrice; }
-    public void setUnitPrice(BigDecimal unitPrice) { 
+    public Money getUnitPrice() { return unitPrice; }
+    public void setUnitPrice(Money unitPrice) { 
+        long oldCents = cents();
         this.unitPrice = unitPrice;
         calculateTotalPrice();
+        notifyOrder(oldCents, quantityOrZero());
     }
 
-    public BigDecimal getTotalPrice() { return totalPrice; }
-    public void setTotalPrice(BigDecimal totalPrice) { this.totalPrice = totalPrice; }
+    public Money getTotalPrice() { return totalPrice; }
+    public void setTotalPrice(Money totalPrice) {
+        long oldCents = cents();
+        this.totalPrice = totalPrice;
+        notifyOrder(oldCents, quantityOrZero());
+    }
 
     // Helper methods
+    @PrePersist
+    void copyOrderCreatedAt() {
+        // The parent order is persisted (and audited) before its items cascade
+        if (orderCreatedAt == null && order != null) {
+            orderCreatedAt = order.getCreatedAt();
+        }
+    }
+
     private void calculateTotalPrice() {
         if (quantity != null && unitPrice != null) {
-            this.totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
+            this.totalPrice = unitPrice.times(quantity);
         }
     }
 
+    // Keeps the parent order's running subtotal and quantity in step
+    private void notifyOrder(long oldCents, int oldQuantity) {
+        if (order != null) {
+            order.itemChanged(cents() - oldCents, quantityOrZero() - oldQuantity);
+        }
+    }
+
+    private long cents() {
+        return totalPrice != null ? totalPrice.getMinorUnits() : 0L;
+    }
+
+    private int quantityOrZero() {
+        return quantity != null ? quantity : 0;
+    }
+
     public String getProductName() {
         return product != null ? product.getName() : null;
     }
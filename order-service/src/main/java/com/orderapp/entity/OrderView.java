@@ -0,0 +1,56 @@
+package com.orderapp.entity;
+
+import javax.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One order as served by the detail API: its OrderResponse document, serialized, so a
+ * read needs no joins. Rewritten with every change to the order.
+ */
+@Entity
+@Table(name = "order_views")
+public class OrderView {
+
+    @Id
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    @Column(name = "order_number", nullable = false, unique = true, length = 50)
+    private String orderNumber;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    // JSON of OrderResponse
+    @Column(nullable = false, length = 1048576)
+    private byte[] document;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public OrderView() {}
+
+    public OrderView(UUID orderId, String orderNumber, byte[] document) {
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.document = document;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public UUID getOrderId() { return orderId; }
+    public String getOrderNumber() { return orderNumber; }
+    public Long getVersion() { return version; }
+
+    public byte[] getDocument() { return document; }
+    public void setDocument(byte[] document) {
+        this.document = document;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,72 @@
+package com.orderapp.entity;
+
+import com.orderapp.dto.OrderSubmission;
+
+import javax.persistence.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * An order accepted by POST /orders/async, stored before the 202 is returned so that it
+ * survives the instance that queued it, and the source of its status. updated_at is
+ * refreshed whenever an instance takes the order up; one left QUEUED or PROCESSING for
+ * long was lost with its instance and is queued again.
+ */
+@Entity
+@Table(name = "queued_orders")
+public class QueuedOrder {
+
+    @Id
+    @Column(name = "order_number", length = 50)
+    private String orderNumber;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    // JSON of CreateOrderRequest
+    @Column(nullable = false, length = 1048576)
+    private byte[] request;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OrderSubmission.Status status;
+
+    @Column(name = "order_id")
+    private UUID orderId;
+
+    @Column(length = 500)
+    private String message;
+
+    @Column(name = "submitted_at", nullable = false)
+    private LocalDateTime submittedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Constructors
+    public QueuedOrder() {}
+
+    public QueuedOrder(String orderNumber, UUID userId, byte[] request, LocalDateTime submittedAt) {
+        this.orderNumber = orderNumber;
+        this.userId = userId;
+        this.request = request;
+        this.status = OrderSubmission.Status.QUEUED;
+        this.submittedAt = submittedAt;
+        this.updatedAt = submittedAt;
+    }
+
+    // Getters
+    public String getOrderNumber() { return orderNumber; }
+    public UUID getUserId() { return userId; }
+    public byte[] getRequest() { return request; }
+    public OrderSubmission.Status getStatus() { return status; }
+    public UUID getOrderId() { return orderId; }
+    public String getMessage() { return message; }
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public LocalDateTime getCompletedAt() { return completedAt; }
+}
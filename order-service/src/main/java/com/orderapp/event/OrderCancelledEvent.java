@@ -1,16 +1,15 @@
 package com.orderapp.event;
 
+import com.orderapp.entity.Money;
 import com.orderapp.entity.Order;
 
-import java.math.BigDecimal;
-
 /**
  * Event published when an order is cancelled
  */
 public class OrderCancelledEvent extends OrderEvent {
     
     private String previousStatus;
-    private BigDecimal refundAmount;
+    private Money refundAmount;
     private String cancellationReason;
     private boolean stockRestored;
     
@@ -39,11 +38,11 @@ public class OrderCancelledEvent extends OrderEvent {
         this.previousStatus = previousStatus;
     }
     
-    public BigDecimal getRefundAmount() {
+    public Money getRefundAmount() {
         return refundAmount;
     }
     
-    public void setRefundAmount(BigDecimal refundAmount) {
+    public void setRefundAmount(Money refundAmount) {
         this.refundAmount = refundAmount;
     }
     
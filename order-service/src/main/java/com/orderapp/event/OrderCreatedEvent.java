@@ -1,10 +1,11 @@
 package com.orderapp.event;
 
+import com.orderapp.entity.Money;
 import com.orderapp.entity.Order;
 import com.orderapp.entity.OrderItem;
 
-import java.math.BigDecimal;
 import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -12,7 +13,7 @@ import java.util.stream.Collectors;
  */
 public class OrderCreatedEvent extends OrderEvent {
     
-    private BigDecimal totalAmount;
+    private Money totalAmount;
     private String status;
     private List<OrderItemData> items;
     private String shippingAddress;
@@ -26,7 +27,7 @@ public class OrderCreatedEvent extends OrderEvent {
         super(order, "ORDER_CREATED");
         this.totalAmount = order.getTotalAmount();
         this.status = order.getStatus().toString();
-        this.items = order.getItems().stream()
+        this.items = order.getOrderItems().stream()
                 .map(OrderItemData::new)
                 .collect(Collectors.toList());
         this.shippingAddress = formatAddress(order);
@@ -46,11 +47,11 @@ public class OrderCreatedEvent extends OrderEvent {
     }
     
     // Getters and Setters
-    public BigDecimal getTotalAmount() {
+    public Money getTotalAmount() {
         return totalAmount;
     }
     
-    public void setTotalAmount(BigDecimal totalAmount) {
+    public void setTotalAmount(Money totalAmount) {
         this.totalAmount = totalAmount;
     }
     
@@ -90,14 +91,18 @@ public class OrderCreatedEvent extends OrderEvent {
      * Simplified order item data for events
      */
     public static class OrderItemData {
+        private UUID productId;
+        private String sku;
         private String productName;
         private Integer quantity;
-        private BigDecimal unitPrice;
-        private BigDecimal totalPrice;
+        private Money unitPrice;
+        private Money totalPrice;
         
         public OrderItemData() {}
         
         public OrderItemData(OrderItem item) {
+            this.productId = item.getProduct().getId();
+            this.sku = item.getProduct().getSku();
             this.productName = item.getProduct().getName();
             this.quantity = item.getQuantity();
             this.unitPrice = item.getUnitPrice();
@@ -105,6 +110,22 @@ public class OrderCreatedEvent extends OrderEvent {
         }
         
         // Getters and Setters
+        public UUID getProductId() {
+            return productId;
+        }
+        
+        public void setProductId(UUID productId) {
+            this.productId = productId;
+        }
+        
+        public String getSku() {
+            return sku;
+        }
+        
+        public void setSku(String sku) {
+            this.sku = sku;
+        }
+        
         public String getProductName() {
             return productName;
         }
@@ -121,19 +142,19 @@ public class OrderCreatedEvent extends OrderEvent {
             this.quantity = quantity;
         }
         
-        public BigDecimal getUnitPrice() {
+        public Money getUnitPrice() {
             return unitPrice;
         }
         
-        public void setUnitPrice(BigDecimal unitPrice) {
+        public void setUnitPrice(Money unitPrice) {
             this.unitPrice = unitPrice;
         }
         
-        public BigDecimal getTotalPrice() {
+        public Money getTotalPrice() {
             return totalPrice;
         }
         
-        public void setTotalPrice(BigDecimal totalPrice) {
+        public void setTotalPrice(Money totalPrice) {
             this.totalPrice = totalPrice;
         }
     }
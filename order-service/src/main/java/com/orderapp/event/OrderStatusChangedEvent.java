@@ -1,5 +1,6 @@
 package com.orderapp.event;
 
+import com.orderapp.entity.Money;
 import com.orderapp.entity.Order;
 
 /**
@@ -10,6 +11,7 @@ public class OrderStatusChangedEvent extends OrderEvent {
     private String previousStatus;
     private String newStatus;
     private String reason;
+    private Money totalAmount;
     
     public OrderStatusChangedEvent() {
         super();
@@ -20,6 +22,7 @@ public class OrderStatusChangedEvent extends OrderEvent {
         this.previousStatus = previousStatus != null ? previousStatus.toString() : null;
         this.newStatus = order.getStatus().toString();
         this.reason = reason;
+        this.totalAmount = order.getTotalAmount();
     }
     
     public OrderStatusChangedEvent(Order order, Order.OrderStatus previousStatus) {
@@ -51,6 +54,14 @@ public class OrderStatusChangedEvent extends OrderEvent {
         this.reason = reason;
     }
     
+    public Money getTotalAmount() {
+        return totalAmount;
+    }
+    
+    public void setTotalAmount(Money totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+    
     @Override
     public String toString() {
         return "OrderStatusChangedEvent{" +
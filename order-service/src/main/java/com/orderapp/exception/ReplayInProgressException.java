@@ -0,0 +1,8 @@
+package com.orderapp.exception;
+
+public class ReplayInProgressException extends RuntimeException {
+
+    public ReplayInProgressException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,108 @@
+package com.orderapp.lookup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of strings over a fixed number of bits. {@link #mightContain} never
+ * answers false for a key that was added; it answers true for an absent key with
+ * {@link #expectedFalsePositiveRate()}, estimated from the share of bits set. Keys cannot
+ * be removed. Safe for concurrent adds and reads without locking.
+ */
+public final class BloomFilter {
+
+    private static final int MAX_HASHES = 16;
+
+    private final long bits;
+    private final int hashes;
+    private final AtomicLongArray words;
+    private final AtomicLong bitsSet = new AtomicLong();
+
+    public BloomFilter(long bits, int hashes) {
+        if (bits < Long.SIZE || hashes <= 0 || hashes > MAX_HASHES) {
+            throw new IllegalArgumentException("Bloom filter needs at least 64 bits and 1 to 16 hashes");
+        }
+        int wordCount = Math.toIntExact((bits + Long.SIZE - 1) / Long.SIZE);
+        this.bits = (long) wordCount * Long.SIZE;
+        this.hashes = hashes;
+        this.words = new AtomicLongArray(wordCount);
+    }
+
+    /**
+     * A filter filling a memory budget, with the hash count that minimises false positives
+     * once it holds {@code expectedKeys}
+     */
+    public static BloomFilter withBudget(long budgetBytes, long expectedKeys) {
+        long bits = Math.max(Long.SIZE, budgetBytes * Byte.SIZE);
+        double bitsPerKey = (double) bits / Math.max(1, expectedKeys);
+        int hashes = (int) Math.round(bitsPerKey * Math.log(2));
+        return new BloomFilter(bits, Math.max(1, Math.min(MAX_HASHES, hashes)));
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        long step = step(hash);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash + i * step, bits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    bitsSet.incrementAndGet();
+                    break;
+                }
+                current = words.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        long step = step(hash);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(hash + i * step, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Chance that an absent key passes, from how full the filter is now
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) bitsSet.get() / bits, hashes);
+    }
+
+    public long getBits() { return bits; }
+    public int getHashes() { return hashes; }
+    public long getBitsSet() { return bitsSet.get(); }
+
+    public long getMemoryBytes() {
+        return bits / Byte.SIZE;
+    }
+
+    // Probe positions from two hashes (Kirsch and Mitzenmacher); odd, so the step is never zero
+    private static long step(long hash) {
+        return mix(hash + 0x9e3779b97f4a7c15L) | 1;
+    }
+
+    // FNV-1a over the UTF-8 bytes, finished with the SplitMix64 mixer
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+}
@@ -0,0 +1,308 @@
+package com.orderapp.lookup;
+
+import com.orderapp.metrics.OrderMetrics;
+import com.orderapp.repository.OrderRepository;
+import com.orderapp.repository.ProductRepository;
+import com.orderapp.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * In-memory {@link BloomFilter}s of the order numbers, user ids, user emails and product
+ * SKUs in the database, so lookups of keys that do not exist are answered without it.
+ * Each filter is sized from its memory budget when the application is ready, then picks
+ * up rows created or changed since the last refresh every few seconds, and is rebuilt
+ * when its estimated false-positive rate passes the configured maximum. Orders created
+ * here are added at once.
+ *
+ * A row committed elsewhere is only known after the next refresh. Order numbers carry
+ * their creation time, so one newer than what the filter has covered always goes to the
+ * database; a user or product created outside this service can read as missing for up
+ * to one refresh interval. Until the filters are loaded every lookup goes to the database.
+ */
+@Component
+@ConditionalOnProperty(name = "app.lookup-filters.enabled", havingValue = "true", matchIfMissing = true)
+public class LookupFilters {
+
+    private static final Logger logger = LoggerFactory.getLogger(LookupFilters.class);
+
+    /** Before any row; a load from here reads the whole table */
+    private static final LocalDateTime EVERYTHING = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // See OrderService.nextOrderNumber
+    private static final Pattern ORDER_NUMBER = Pattern.compile("ORD-(\\d{14})-\\d+");
+    private static final DateTimeFormatter ORDER_NUMBER_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    public enum Key {
+        ORDER_NUMBER("order-numbers"),
+        USER_ID("user-ids"),
+        USER_EMAIL("user-emails"),
+        PRODUCT_SKU("product-skus");
+
+        private final String tag;
+
+        Key(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final ProductRepository productRepository;
+    private final OrderMetrics orderMetrics;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<Key, AtomicReference<Built>> filters = new EnumMap<>(Key.class);
+
+    /** Every row stamped up to here was in the database when the filters last loaded it */
+    private volatile LocalDateTime coveredUntil;
+
+    @Value("${app.lookup-filters.order-numbers-bytes:16777216}")
+    private long orderNumberBytes;
+
+    @Value("${app.lookup-filters.user-ids-bytes:4194304}")
+    private long userIdBytes;
+
+    @Value("${app.lookup-filters.user-emails-bytes:4194304}")
+    private long userEmailBytes;
+
+    @Value("${app.lookup-filters.product-skus-bytes:1048576}")
+    private long productSkuBytes;
+
+    @Value("${app.lookup-filters.max-false-positive-rate:0.01}")
+    private double maxFalsePositiveRate;
+
+    @Value("${app.lookup-filters.write-lag-seconds:60}")
+    private long writeLagSeconds;
+
+    @Autowired
+    public LookupFilters(OrderRepository orderRepository, UserRepository userRepository,
+                         ProductRepository productRepository, OrderMetrics orderMetrics,
+                         PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.userRepository = userRepository;
+        this.productRepository = productRepository;
+        this.orderMetrics = orderMetrics;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        for (Key key : Key.values()) {
+            AtomicReference<Built> filter = new AtomicReference<>();
+            filters.put(key, filter);
+            orderMetrics.gaugeLookupFilter(key.getTag(),
+                () -> filter.get() != null ? filter.get().filter.expectedFalsePositiveRate() : 0,
+                () -> filter.get() != null ? filter.get().filter.getMemoryBytes() : 0);
+        }
+    }
+
+    /**
+     * Whether the key is certainly not in the database, so the lookup can be skipped.
+     * False means it may be there, including while the filters are still loading.
+     */
+    public boolean definitelyAbsent(Key key, String value) {
+        Built built = filters.get(key).get();
+        LocalDateTime covered = coveredUntil;
+        if (built == null || covered == null || value == null) {
+            return false;
+        }
+        boolean absent = !built.filter.mightContain(value)
+            && (key != Key.ORDER_NUMBER || numberedBefore(value, covered));
+        orderMetrics.recordLookupFilterCheck(key.getTag(), absent);
+        return absent;
+    }
+
+    /**
+     * Run a lookup unless the filter rules the key out; an empty result after the filter
+     * passed the key counts as a false positive
+     */
+    public <T> Optional<T> find(Key key, String value, Supplier<Optional<T>> lookup) {
+        if (definitelyAbsent(key, value)) {
+            return Optional.empty();
+        }
+        Optional<T> found = lookup.get();
+        if (found.isEmpty()) {
+            recordFalsePositive(key);
+        }
+        return found;
+    }
+
+    /**
+     * Note that a key the filter passed was not found after all
+     */
+    public void recordFalsePositive(Key key) {
+        if (coveredUntil != null) {
+            orderMetrics.recordLookupFilterFalsePositive(key.getTag());
+        }
+    }
+
+    /**
+     * Add a key written by this instance; safe before its transaction commits, as a
+     * rollback only leaves a false positive
+     */
+    public void add(Key key, String value) {
+        Built built = filters.get(key).get();
+        if (built != null && value != null) {
+            built.filter.add(value);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void loadOnStartup() {
+        if (coveredUntil != null) {
+            return;
+        }
+        try {
+            loadAll();
+        } catch (RuntimeException e) {
+            // Lookups go to the database meanwhile; the next refresh tries again
+            logger.warn("Could not load lookup filters: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.lookup-filters.refresh-ms:10000}",
+               initialDelayString = "${app.lookup-filters.refresh-ms:10000}")
+    public synchronized void refresh() {
+        LocalDateTime since = coveredUntil;
+        if (since == null) {
+            loadAll();
+            return;
+        }
+        LocalDateTime loadedUntil = LocalDateTime.now().minusSeconds(writeLagSeconds);
+        for (Key key : Key.values()) {
+            Built built = filters.get(key).get();
+            if (built.degraded(maxFalsePositiveRate)) {
+                rebuild(key);
+            } else {
+                load(key, since, built.filter);
+            }
+        }
+        coveredUntil = loadedUntil;
+    }
+
+    private void loadAll() {
+        LocalDateTime loadedUntil = LocalDateTime.now().minusSeconds(writeLagSeconds);
+        for (Key key : Key.values()) {
+            rebuild(key);
+        }
+        coveredUntil = loadedUntil;
+    }
+
+    private void rebuild(Key key) {
+        long startNanos = System.nanoTime();
+        long rows = counter(key).getAsLong();
+        // Sized for twice today's keys, so growth does not force a rebuild soon
+        BloomFilter filter = BloomFilter.withBudget(budget(key), rows * 2);
+        load(key, EVERYTHING, filter);
+        Built built = new Built(filter);
+        filters.get(key).set(built);
+        if (built.atBuild > maxFalsePositiveRate) {
+            logger.warn("Lookup filter {} is at {} false positives with {} keys; raise its memory budget",
+                key.getTag(), String.format("%.4f", built.atBuild), rows);
+        }
+        logger.info("Loaded lookup filter {}: {} keys, {} KB, {} hashes in {} ms", key.getTag(), rows,
+            filter.getMemoryBytes() / 1024, filter.getHashes(), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    private void load(Key key, LocalDateTime since, BloomFilter filter) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> values = loader(key).apply(since)) {
+                values.forEach(filter::add);
+            }
+        });
+    }
+
+    private Function<LocalDateTime, Stream<String>> loader(Key key) {
+        switch (key) {
+            case ORDER_NUMBER:
+                return orderRepository::streamOrderNumbersCreatedAfter;
+            case USER_ID:
+                return since -> userRepository.streamIdsUpdatedAfter(since).map(UUID::toString);
+            case USER_EMAIL:
+                return userRepository::streamEmailsUpdatedAfter;
+            default:
+                return productRepository::streamSkusUpdatedAfter;
+        }
+    }
+
+    private LongSupplier counter(Key key) {
+        switch (key) {
+            case ORDER_NUMBER:
+                return orderRepository::count;
+            case USER_ID:
+            case USER_EMAIL:
+                return userRepository::count;
+            default:
+                return productRepository::count;
+        }
+    }
+
+    private long budget(Key key) {
+        switch (key) {
+            case ORDER_NUMBER:
+                return orderNumberBytes;
+            case USER_ID:
+                return userIdBytes;
+            case USER_EMAIL:
+                return userEmailBytes;
+            default:
+                return productSkuBytes;
+        }
+    }
+
+    // An order number from after the last load may be in the database but not yet in the filter
+    private static boolean numberedBefore(String orderNumber, LocalDateTime covered) {
+        Matcher matcher = ORDER_NUMBER.matcher(orderNumber);
+        if (!matcher.matches()) {
+            return true;
+        }
+        try {
+            return LocalDateTime.parse(matcher.group(1), ORDER_NUMBER_TIMESTAMP).isBefore(covered);
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+    }
+
+    /**
+     * A filter and its estimated false-positive rate when it was built
+     */
+    private static final class Built {
+        private final BloomFilter filter;
+        private final double atBuild;
+
+        private Built(BloomFilter filter) {
+            this.filter = filter;
+            this.atBuild = filter.expectedFalsePositiveRate();
+        }
+
+        // Worse than allowed only through keys added since; a filter built too small stays as is
+        private boolean degraded(double max) {
+            return atBuild <= max && filter.expectedFalsePositiveRate() > max;
+        }
+    }
+}
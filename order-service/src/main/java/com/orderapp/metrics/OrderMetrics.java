@@ -0,0 +1,551 @@
+package com.orderapp.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Domain metrics for the order service. Meters are registered once, either up front or
+ * on first use of a tag value (topic, listener, SKU) and then looked up by key, so
+ * recording on the hot path allocates no tags.
+ */
+@Component
+public class OrderMetrics {
+
+    public static final String PHASE_VALIDATION = "validation";
+    public static final String PHASE_STOCK = "stock";
+    public static final String PHASE_PERSIST = "persist";
+
+    // Tag of stock contention past the SKUs that have a series of their own
+    static final String OTHER_SKUS = "other";
+
+    private final MeterRegistry registry;
+
+    private final Timer createOrderTimer;
+    private final Timer validationTimer;
+    private final Timer stockTimer;
+    private final Timer persistTimer;
+
+    private final Timer intakeQueueTimer;
+    private final Counter intakeRejected;
+    private final Counter responseCacheHits;
+    private final Counter responseCacheMisses;
+    private final Timer catalogFullRefresh;
+    private final Timer catalogIncrementalRefresh;
+    private final Counter orderViewHits;
+    private final Counter orderViewMisses;
+    private final Counter recentOrdersHits;
+    private final Counter recentOrdersMisses;
+
+    private final Map<String, Counter> stockContention = new ConcurrentHashMap<>();
+    private final int maxContentionSkus;
+    private final Map<String, PublishMeters> publishMeters = new ConcurrentHashMap<>();
+    private final Map<String, PipelineMeters> pipelineMeters = new ConcurrentHashMap<>();
+    private final Map<String, ListenerMeters> listenerMeters = new ConcurrentHashMap<>();
+    private final Map<String, LookupFilterMeters> lookupFilterMeters = new ConcurrentHashMap<>();
+    private final Map<String, AdmissionMeters> admissionMeters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OrderMetrics(MeterRegistry registry,
+                        @Value("${app.metrics.stock-contention-skus:100}") int maxContentionSkus) {
+        this.registry = registry;
+        this.maxContentionSkus = maxContentionSkus;
+        this.createOrderTimer = Timer.builder("orders.create")
+            .description("Time to create an order, end to end")
+            .register(registry);
+        this.validationTimer = phaseTimer(PHASE_VALIDATION);
+        this.stockTimer = phaseTimer(PHASE_STOCK);
+        this.persistTimer = phaseTimer(PHASE_PERSIST);
+        this.intakeQueueTimer = Timer.builder("orders.intake.queue.delay")
+            .description("Time an async order waits in the intake queue before a worker picks it up")
+            .register(registry);
+        this.intakeRejected = Counter.builder("orders.intake.rejected")
+            .description("Async orders rejected because the intake queue was full")
+            .register(registry);
+        this.responseCacheHits = responseCacheCounter("hit");
+        this.responseCacheMisses = responseCacheCounter("miss");
+        this.catalogFullRefresh = catalogRefreshTimer("full");
+        this.catalogIncrementalRefresh = catalogRefreshTimer("incremental");
+        this.orderViewHits = orderViewCounter("hit");
+        this.orderViewMisses = orderViewCounter("miss");
+        this.recentOrdersHits = recentOrdersCounter("hit");
+        this.recentOrdersMisses = recentOrdersCounter("miss");
+    }
+
+    private Timer phaseTimer(String phase) {
+        return Timer.builder("orders.create.phase")
+            .description("Time spent in each phase of order creation")
+            .tag("phase", phase)
+            .register(registry);
+    }
+
+    private Counter responseCacheCounter(String result) {
+        return Counter.builder("http.response.cache")
+            .description("Cacheable GETs served from or missing the response byte cache")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private Timer catalogRefreshTimer(String type) {
+        return Timer.builder("catalog.refresh")
+            .description("Time to build and swap in a new catalog snapshot")
+            .tag("type", type)
+            .register(registry);
+    }
+
+    private Counter orderViewCounter(String result) {
+        return Counter.builder("orders.view.reads")
+            .description("Order detail reads served from order_views (hit) or the order tables (miss)")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private Counter recentOrdersCounter(String result) {
+        return Counter.builder("orders.recent.reads")
+            .description("User order pages served from the Redis recent-orders index (hit) or Postgres (miss)")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    // Order creation
+    public void recordCreateOrder(long nanos) {
+        createOrderTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordValidation(long nanos) {
+        validationTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStock(long nanos) {
+        stockTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPersist(long nanos) {
+        persistTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Count an order line rejected because the SKU did not have enough stock. The first
+     * stock-contention-skus SKUs to run short get a series each and the rest share
+     * sku=other, so the catalog size does not set the number of series.
+     */
+    public void recordStockContention(String sku) {
+        Counter counter = stockContention.get(sku);
+        if (counter == null) {
+            // Racing first uses may overshoot the cap by a few series, which is harmless
+            String tag = stockContention.size() < maxContentionSkus ? sku : OTHER_SKUS;
+            counter = stockContention.computeIfAbsent(tag, key -> Counter.builder("orders.stock.contention")
+                .description("Order lines rejected for insufficient stock")
+                .tag("sku", key)
+                .register(registry));
+        }
+        counter.increment();
+    }
+
+    // Async intake
+    public void gaugeIntakeDepth(Supplier<Number> depth) {
+        Gauge.builder("orders.intake.queue.size", depth)
+            .description("Async orders waiting in the intake queues")
+            .register(registry);
+    }
+
+    public void recordIntakeQueueDelay(long nanos) {
+        intakeQueueTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordIntakeRejected() {
+        intakeRejected.increment();
+    }
+
+    // Response byte cache
+    public void gaugeResponseCacheSize(Supplier<Number> size) {
+        Gauge.builder("http.response.cache.size", size)
+            .description("Encoded responses held in the response byte cache")
+            .register(registry);
+    }
+
+    public void recordResponseCacheHit() {
+        responseCacheHits.increment();
+    }
+
+    public void recordResponseCacheMiss() {
+        responseCacheMisses.increment();
+    }
+
+    // Product catalog snapshot
+    public void gaugeCatalog(Supplier<Number> products, Supplier<Number> estimatedBytes, Supplier<Number> version) {
+        Gauge.builder("catalog.snapshot.products", products)
+            .description("Products in the current catalog snapshot")
+            .register(registry);
+        Gauge.builder("catalog.snapshot.memory", estimatedBytes)
+            .description("Estimated heap held by the current catalog snapshot")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("catalog.snapshot.version", version)
+            .description("Version of the current catalog snapshot")
+            .register(registry);
+    }
+
+    public void recordCatalogRefresh(boolean full, long nanos) {
+        (full ? catalogFullRefresh : catalogIncrementalRefresh).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Order detail read model
+    public void recordOrderViewRead(boolean hit) {
+        (hit ? orderViewHits : orderViewMisses).increment();
+    }
+
+    // Per-user recent orders index
+    public void recordRecentOrdersRead(boolean hit) {
+        (hit ? recentOrdersHits : recentOrdersMisses).increment();
+    }
+
+    // Cache warm-up
+    public void recordHotKeyDropped(String kind) {
+        Counter.builder("cache.warmup.hotkeys.dropped")
+            .description("Hot-key reads dropped because the record queue was full")
+            .tag("kind", kind)
+            .register(registry)
+            .increment();
+    }
+
+    public void gaugeWarmupCoverage(String kind, Supplier<Number> coverage) {
+        Gauge.builder("cache.warmup.coverage", coverage)
+            .description("Share of the planned hot keys loaded by the last warm-up")
+            .tag("kind", kind)
+            .register(registry);
+    }
+
+    public void recordWarmup(long nanos) {
+        Timer.builder("cache.warmup.duration")
+            .description("Time from application ready until cache warm-up finished")
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordWarmupKeys(String kind, int loaded, int missing, int failed, int skipped) {
+        warmupKeys(kind, "loaded").increment(loaded);
+        warmupKeys(kind, "missing").increment(missing);
+        warmupKeys(kind, "failed").increment(failed);
+        warmupKeys(kind, "skipped").increment(skipped);
+    }
+
+    private Counter warmupKeys(String kind, String result) {
+        return Counter.builder("cache.warmup.keys")
+            .description("Hot keys handled by cache warm-up, by outcome")
+            .tag("kind", kind)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    // Negative-lookup filters
+    public void gaugeLookupFilter(String filter, Supplier<Number> falsePositiveRate, Supplier<Number> bytes) {
+        Gauge.builder("lookup.filter.false.positive.rate", falsePositiveRate)
+            .description("False-positive rate of the filter estimated from the bits set")
+            .tag("filter", filter)
+            .register(registry);
+        Gauge.builder("lookup.filter.memory", bytes)
+            .description("Heap held by the filter's bits")
+            .tag("filter", filter)
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    public void recordLookupFilterCheck(String filter, boolean absent) {
+        LookupFilterMeters meters = lookupFilter(filter);
+        (absent ? meters.absent : meters.passed).increment();
+    }
+
+    // With the absent checks this gives the observed rate: false positives / (false positives + absent)
+    public void recordLookupFilterFalsePositive(String filter) {
+        lookupFilter(filter).falsePositives.increment();
+    }
+
+    private LookupFilterMeters lookupFilter(String filter) {
+        LookupFilterMeters meters = lookupFilterMeters.get(filter);
+        return meters != null ? meters
+            : lookupFilterMeters.computeIfAbsent(filter, key -> new LookupFilterMeters(registry, key));
+    }
+
+    // Admission control
+    public void gaugeAdmission(String endpointClass, Supplier<Number> limit, Supplier<Number> inFlight) {
+        Gauge.builder("http.admission.limit", limit)
+            .description("Current adaptive concurrency limit of the endpoint class")
+            .tag("class", endpointClass)
+            .register(registry);
+        Gauge.builder("http.admission.inflight", inFlight)
+            .description("Requests of the endpoint class admitted and still in progress")
+            .tag("class", endpointClass)
+            .register(registry);
+    }
+
+    // Yielded: shed while a higher-priority class was busy, rather than at the class's own limit
+    public void recordAdmissionRejected(String endpointClass, boolean yielded) {
+        AdmissionMeters meters = admissionMeters.get(endpointClass);
+        if (meters == null) {
+            meters = admissionMeters.computeIfAbsent(endpointClass, key -> new AdmissionMeters(registry, key));
+        }
+        (yielded ? meters.yielded : meters.limited).increment();
+    }
+
+    // Kafka publishing
+    public void recordPublishSuccess(String topic, long nanos) {
+        publish(topic).latency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPublishFailure(String topic) {
+        publish(topic).failures.increment();
+    }
+
+    private PublishMeters publish(String topic) {
+        PublishMeters meters = publishMeters.get(topic);
+        return meters != null ? meters : publishMeters.computeIfAbsent(topic, key -> new PublishMeters(registry, key));
+    }
+
+    // Kafka publish pipeline, per publish profile
+    public void gaugePublishQueue(String profile, Supplier<Number> queued, Supplier<Number> spilled) {
+        Gauge.builder("kafka.publish.queue.size", queued)
+            .description("Events waiting for the profile's sender thread")
+            .tag("profile", profile)
+            .register(registry);
+        Gauge.builder("kafka.publish.spill.size", spilled)
+            .description("Events spilled to disk and not yet sent")
+            .tag("profile", profile)
+            .register(registry);
+    }
+
+    public void recordPublishQueueDelay(String profile, long nanos) {
+        pipeline(profile).queueDelay.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPublishBlocked(String profile, long nanos) {
+        pipeline(profile).blocked.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPublishDropped(String profile) {
+        pipeline(profile).dropped.increment();
+    }
+
+    public void recordPublishSpilled(String profile) {
+        pipeline(profile).spilled.increment();
+    }
+
+    private PipelineMeters pipeline(String profile) {
+        PipelineMeters meters = pipelineMeters.get(profile);
+        return meters != null ? meters : pipelineMeters.computeIfAbsent(profile, key -> new PipelineMeters(registry, key));
+    }
+
+    // Kafka consuming
+    /**
+     * Record how old a record is when the listener picks it up
+     */
+    public void recordListenerLag(String listener, long recordTimestampMillis) {
+        if (recordTimestampMillis > 0) {
+            long lagMillis = Math.max(0, System.currentTimeMillis() - recordTimestampMillis);
+            listener(listener).lag.record(lagMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void recordListenerProcessing(String listener, long nanos) {
+        listener(listener).processing.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Processing timer of a listener, read by the listener autoscaler
+     */
+    public Timer getListenerProcessing(String listener) {
+        return listener(listener).processing;
+    }
+
+    // Listener autoscaling
+    public void gaugeListenerScaling(String listener, Supplier<Number> concurrency, Supplier<Number> desired,
+                                     Supplier<Number> backlog) {
+        Gauge.builder("kafka.listener.concurrency", concurrency)
+            .description("Consumer threads currently running for the listener")
+            .tag("listener", listener)
+            .register(registry);
+        Gauge.builder("kafka.listener.concurrency.desired", desired)
+            .description("Consumer threads the autoscaler last asked for, before hysteresis")
+            .tag("listener", listener)
+            .register(registry);
+        Gauge.builder("kafka.listener.backlog", backlog)
+            .description("Records behind the end of the listener's partitions")
+            .tag("listener", listener)
+            .register(registry);
+    }
+
+    public void recordListenerScaled(String listener, boolean up) {
+        Counter.builder("kafka.listener.scaling")
+            .description("Concurrency changes made by the listener autoscaler")
+            .tags("listener", listener, "direction", up ? "up" : "down")
+            .register(registry)
+            .increment();
+    }
+
+    // Streaming aggregation of order-analytics
+    public void gaugeAnalyticsStream(Supplier<Number> openWindows, Supplier<Number> watermarkLagSeconds) {
+        Gauge.builder("analytics.stream.windows.open", openWindows)
+            .description("Window and dimension cells held in memory until their window closes")
+            .register(registry);
+        Gauge.builder("analytics.stream.watermark.lag", watermarkLagSeconds)
+            .description("Seconds the oldest partition watermark trails the wall clock")
+            .baseUnit("seconds")
+            .register(registry);
+    }
+
+    public void recordAnalyticsLateEvent(String window) {
+        Counter.builder("analytics.stream.late")
+            .description("Events dropped from a window that had already closed")
+            .tag("window", window)
+            .register(registry)
+            .increment();
+    }
+
+    public void recordAnalyticsFlush(int rows, long nanos, boolean success) {
+        Timer.builder("analytics.stream.flush")
+            .description("Writing closed windows and checkpoints in one transaction")
+            .tag("outcome", success ? "success" : "failure")
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            Counter.builder("analytics.stream.rollup.rows")
+                .description("Rollup rows written for closed windows")
+                .register(registry)
+                .increment(rows);
+        }
+    }
+
+    // Read model rebuilds from order-events
+    public void recordReplayBatch(int events, int skipped, long nanos) {
+        Timer.builder("replay.batch")
+            .description("Applying one polled batch of replayed records to the read models")
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder("replay.events")
+            .description("Events applied to read models by replays")
+            .register(registry)
+            .increment(events);
+        if (skipped > 0) {
+            Counter.builder("replay.skipped")
+                .description("Replayed records that could not be read as order events")
+                .register(registry)
+                .increment(skipped);
+        }
+    }
+
+    public void recordReplaySnapshot(long nanos) {
+        Timer.builder("replay.snapshot")
+            .description("Saving a partition's read model snapshots and committing its position")
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private ListenerMeters listener(String listener) {
+        ListenerMeters meters = listenerMeters.get(listener);
+        return meters != null ? meters : listenerMeters.computeIfAbsent(listener, key -> new ListenerMeters(registry, key));
+    }
+
+    private static final class PublishMeters {
+        private final Timer latency;
+        private final Counter failures;
+
+        private PublishMeters(MeterRegistry registry, String topic) {
+            this.latency = Timer.builder("kafka.publish.latency")
+                .description("Time from send to broker acknowledgement")
+                .tag("topic", topic)
+                .register(registry);
+            this.failures = Counter.builder("kafka.publish.failures")
+                .description("Sends that completed exceptionally")
+                .tag("topic", topic)
+                .register(registry);
+        }
+    }
+
+    private static final class PipelineMeters {
+        private final Timer queueDelay;
+        private final Timer blocked;
+        private final Counter dropped;
+        private final Counter spilled;
+
+        private PipelineMeters(MeterRegistry registry, String profile) {
+            this.queueDelay = Timer.builder("kafka.publish.queue.delay")
+                .description("Time an event waits in the queue before it is handed to the producer")
+                .tag("profile", profile)
+                .register(registry);
+            this.blocked = Timer.builder("kafka.publish.blocked")
+                .description("Time a caller waited for room in a full queue")
+                .tag("profile", profile)
+                .register(registry);
+            this.dropped = Counter.builder("kafka.publish.overflow")
+                .description("Events not queued in memory because the queue was full or had spilled")
+                .tags("profile", profile, "action", "dropped")
+                .register(registry);
+            this.spilled = Counter.builder("kafka.publish.overflow")
+                .description("Events not queued in memory because the queue was full or had spilled")
+                .tags("profile", profile, "action", "spilled")
+                .register(registry);
+        }
+    }
+
+    private static final class ListenerMeters {
+        private final Timer processing;
+        private final Timer lag;
+
+        private ListenerMeters(MeterRegistry registry, String listener) {
+            this.processing = Timer.builder("kafka.listener.processing")
+                .description("Time spent handling one record")
+                .tag("listener", listener)
+                .register(registry);
+            this.lag = Timer.builder("kafka.listener.lag")
+                .description("Age of a record when its processing starts")
+                .tag("listener", listener)
+                .register(registry);
+        }
+    }
+
+    private static final class AdmissionMeters {
+        private final Counter limited;
+        private final Counter yielded;
+
+        private AdmissionMeters(MeterRegistry registry, String endpointClass) {
+            this.limited = Counter.builder("http.admission.rejected")
+                .description("Requests shed with 503 before reaching a handler")
+                .tags("class", endpointClass, "reason", "limit")
+                .register(registry);
+            this.yielded = Counter.builder("http.admission.rejected")
+                .description("Requests shed with 503 before reaching a handler")
+                .tags("class", endpointClass, "reason", "priority")
+                .register(registry);
+        }
+    }
+
+    private static final class LookupFilterMeters {
+        private final Counter absent;
+        private final Counter passed;
+        private final Counter falsePositives;
+
+        private LookupFilterMeters(MeterRegistry registry, String filter) {
+            this.absent = Counter.builder("lookup.filter.checks")
+                .description("Lookups checked against the filter, by whether it ruled the key out")
+                .tags("filter", filter, "result", "absent")
+                .register(registry);
+            this.passed = Counter.builder("lookup.filter.checks")
+                .description("Lookups checked against the filter, by whether it ruled the key out")
+                .tags("filter", filter, "result", "passed")
+                .register(registry);
+            this.falsePositives = Counter.builder("lookup.filter.false.positives")
+                .description("Keys the filter passed that the database did not have")
+                .tag("filter", filter)
+                .register(registry);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.orderapp.publish;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orderapp.metrics.OrderMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves Kafka sends off the caller's thread. Each {@link PublishProfile} gets a bounded
+ * queue drained by one sender thread, so a slow broker or a metadata stall blocks that
+ * thread instead of the request, and events sharing a key are sent in order. When a queue
+ * is full the profile's {@link OverflowPolicy} decides between waiting, dropping and
+ * spilling to disk. On a SPILL profile a send the broker rejects is spilled too, and a
+ * spilled segment is only deleted once the broker has acknowledged all of it. Such an
+ * event is sent again behind the events queued after it, so order holds except across
+ * failed sends.
+ */
+@Component
+public class EventPublishPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventPublishPipeline.class);
+
+    private static final int DRAIN_BATCH = 256;
+
+    // Longer than the producer's delivery.timeout.ms (120 s by default), by when every send has completed
+    private static final long REPLAY_ACK_TIMEOUT_SECONDS = 180;
+    private static final long REPLAY_BACKOFF_MILLIS = 5_000;
+
+    private final Map<String, Lane> lanes = new LinkedHashMap<>();
+    private final OrderMetrics orderMetrics;
+    private final long shutdownTimeoutSeconds;
+
+    private ExecutorService senders;
+    private volatile boolean running;
+
+    @Autowired
+    public EventPublishPipeline(List<PublishProfile> profiles, OrderMetrics orderMetrics,
+                                @Qualifier("kafkaObjectMapper") ObjectMapper objectMapper,
+                                @Value("${app.kafka-publish.spill-directory:data/kafka-spill}") String spillDirectory,
+                                @Value("${app.kafka-publish.shutdown-timeout-seconds:10}") long shutdownTimeoutSeconds) {
+        this.orderMetrics = orderMetrics;
+        this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+        for (PublishProfile profile : profiles) {
+            SpillLog spill = profile.getOverflowPolicy() == OverflowPolicy.SPILL
+                ? new SpillLog(Paths.get(spillDirectory), profile.getName(), objectMapper)
+                : null;
+            lanes.put(profile.getName(), new Lane(profile, spill));
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        for (Lane lane : lanes.values()) {
+            if (lane.spill != null) {
+                lane.spill.open();
+            }
+            orderMetrics.gaugePublishQueue(lane.profile.getName(), lane.queue::size,
+                () -> lane.spill != null ? lane.spill.getPending() : 0);
+        }
+
+        senders = Executors.newFixedThreadPool(lanes.size(), runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (Lane lane : lanes.values()) {
+            senders.execute(() -> {
+                Thread.currentThread().setName("kafka-publish-" + lane.profile.getName());
+                drain(lane);
+            });
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Senders finish what is already queued; spilled events wait for the next start
+        running = false;
+        senders.shutdown();
+        if (!senders.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            senders.shutdownNow();
+            senders.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        for (Lane lane : lanes.values()) {
+            List<PendingEvent> left = new ArrayList<>();
+            lane.queue.drainTo(left);
+            if (lane.spill == null) {
+                if (!left.isEmpty()) {
+                    logger.warn("Dropped {} unsent events of profile {} on shutdown", left.size(), lane.profile.getName());
+                }
+                continue;
+            }
+            try {
+                lane.spill.closeWithQueued(left);
+            } catch (IOException e) {
+                logger.error("Could not spill unsent events of profile {} on shutdown", lane.profile.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Queue an event for the profile's sender thread. Returns false when the event was
+     * dropped under the profile's overflow policy.
+     */
+    public boolean publish(String profile, String topic, String key, Object value) {
+        Lane lane = lanes.get(profile);
+        if (lane == null) {
+            throw new IllegalArgumentException("Unknown publish profile: " + profile);
+        }
+        PendingEvent event = new PendingEvent(topic, key, value, System.nanoTime());
+        try {
+            if (lane.spill != null && lane.spill.isActive() && lane.spill.appendIfActive(event)) {
+                orderMetrics.recordPublishSpilled(profile);
+                return true;
+            }
+            if (running && lane.queue.offer(event)) {
+                return true;
+            }
+            return overflow(lane, event);
+        } catch (IOException e) {
+            logger.error("Could not spill event for topic {}: {}", topic, value, e);
+            orderMetrics.recordPublishDropped(profile);
+            return false;
+        }
+    }
+
+    public int queuedCount(String profile) {
+        Lane lane = lanes.get(profile);
+        return lane != null ? lane.queue.size() : 0;
+    }
+
+    private boolean overflow(Lane lane, PendingEvent event) throws IOException {
+        String profile = lane.profile.getName();
+        switch (lane.profile.getOverflowPolicy()) {
+            case SPILL:
+                lane.spill.append(event);
+                orderMetrics.recordPublishSpilled(profile);
+                return true;
+            case BLOCK:
+                if (running && lane.profile.getBlockTimeoutMillis() > 0) {
+                    long startNanos = System.nanoTime();
+                    try {
+                        boolean queued = lane.queue.offer(event, lane.profile.getBlockTimeoutMillis(), TimeUnit.MILLISECONDS);
+                        orderMetrics.recordPublishBlocked(profile, System.nanoTime() - startNanos);
+                        if (queued) {
+                            return true;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        orderMetrics.recordPublishDropped(profile);
+        logger.debug("Dropped event for topic {} with profile {} queue full", event.getTopic(), profile);
+        return false;
+    }
+
+    private void drain(Lane lane) {
+        List<PendingEvent> batch = new ArrayList<>(DRAIN_BATCH);
+        while (running || !lane.queue.isEmpty()) {
+            try {
+                boolean spilled = lane.spill != null && lane.spill.isActive();
+                PendingEvent first = spilled ? lane.queue.poll() : lane.queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // The queue is empty, so spilled events are the oldest left
+                    if (spilled && running) {
+                        replaySpilled(lane);
+                    }
+                    continue;
+                }
+                batch.add(first);
+                lane.queue.drainTo(batch, DRAIN_BATCH - 1);
+                long now = System.nanoTime();
+                for (PendingEvent event : batch) {
+                    orderMetrics.recordPublishQueueDelay(lane.profile.getName(), now - event.getEnqueuedNanos());
+                    send(lane, event, true);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Kafka sender for profile {} failed on a batch of {}", lane.profile.getName(), batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void replaySpilled(Lane lane) throws InterruptedException {
+        try {
+            Path segment = lane.spill.nextSegment();
+            if (segment == null) {
+                return;
+            }
+            // Replayed events stay in their segment until acknowledged, so they are not spilled again on failure
+            if (!lane.spill.replay(segment, event -> send(lane, event, false), REPLAY_ACK_TIMEOUT_SECONDS)) {
+                logger.warn("Kafka did not acknowledge every spilled event of profile {}; retrying {} in {} ms",
+                    lane.profile.getName(), segment.getFileName(), REPLAY_BACKOFF_MILLIS);
+                Thread.sleep(REPLAY_BACKOFF_MILLIS);
+            }
+        } catch (IOException e) {
+            logger.error("Could not replay spilled events of profile {}", lane.profile.getName(), e);
+        }
+    }
+
+    /**
+     * Hand an event to the producer. On a SPILL profile a send that fails is spilled
+     * again, unless {@code spillOnFailure} is false because the caller keeps it; the
+     * returned future completes with the broker's acknowledgement.
+     */
+    private CompletableFuture<Void> send(Lane lane, PendingEvent event, boolean spillOnFailure) {
+        String topic = event.getTopic();
+        long startNanos = System.nanoTime();
+        CompletableFuture<Void> acked = new CompletableFuture<>();
+        try {
+            lane.profile.getTemplate().send(topic, event.getKey(), event.getValue()).addCallback(
+                result -> {
+                    orderMetrics.recordPublishSuccess(topic, System.nanoTime() - startNanos);
+                    logger.debug("Published to topic {}, partition {}, offset {}", topic,
+                        result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+                    acked.complete(null);
+                },
+                ex -> {
+                    failed(lane, event, spillOnFailure, ex);
+                    acked.completeExceptionally(ex);
+                });
+        } catch (RuntimeException e) {
+            // send itself throws when the producer gave up waiting for metadata or buffer space
+            failed(lane, event, spillOnFailure, e);
+            acked.completeExceptionally(e);
+        }
+        return acked;
+    }
+
+    private void failed(Lane lane, PendingEvent event, boolean spillOnFailure, Throwable cause) {
+        String topic = event.getTopic();
+        orderMetrics.recordPublishFailure(topic);
+        if (lane.spill != null && spillOnFailure) {
+            try {
+                lane.spill.append(event);
+                orderMetrics.recordPublishSpilled(lane.profile.getName());
+                logger.warn("Spilled event for topic {} after a failed send: {}", topic, cause.getMessage());
+                return;
+            } catch (IOException e) {
+                logger.error("Could not spill event for topic {} after a failed send", topic, e);
+            }
+        }
+        if (spillOnFailure) {
+            logger.error("Failed to publish event to topic {}: {}", topic, event.getValue(), cause);
+        }
+    }
+
+    private static final class Lane {
+        private final PublishProfile profile;
+        private final BlockingQueue<PendingEvent> queue;
+        private final SpillLog spill;
+
+        private Lane(PublishProfile profile, SpillLog spill) {
+            this.profile = profile;
+            // Separate put and take locks, and a full queue refuses offers without locking,
+            // so callers shedding under pressure do not hold up the sender
+            this.queue = new LinkedBlockingQueue<>(profile.getQueueCapacity());
+            this.spill = spill;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.orderapp.publish;
+
+/**
+ * What a publish does when its profile's queue is full
+ */
+public enum OverflowPolicy {
+
+    /** Wait up to the profile's block timeout for room, then drop the event */
+    BLOCK,
+
+    /** Drop the event at once */
+    SHED,
+
+    /** Append the event to a local spill file, sent in order once the queue drains */
+    SPILL
+}
@@ -0,0 +1,24 @@
+package com.orderapp.publish;
+
+/**
+ * An event waiting in a profile's queue for its sender thread
+ */
+final class PendingEvent {
+
+    private final String topic;
+    private final String key;
+    private final Object value;
+    private final long enqueuedNanos;
+
+    PendingEvent(String topic, String key, Object value, long enqueuedNanos) {
+        this.topic = topic;
+        this.key = key;
+        this.value = value;
+        this.enqueuedNanos = enqueuedNanos;
+    }
+
+    String getTopic() { return topic; }
+    String getKey() { return key; }
+    Object getValue() { return value; }
+    long getEnqueuedNanos() { return enqueuedNanos; }
+}
@@ -0,0 +1,53 @@
+package com.orderapp.publish;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Publishing settings shared by a group of topics: the in-memory queue in front of the
+ * producer, what to do when it is full, and the template whose producer is tuned for
+ * the group (batching, linger, compression).
+ */
+public final class PublishProfile {
+
+    /** order-events and custom topics: every event matters, latency over throughput */
+    public static final String EVENTS = "events";
+
+    /** order-analytics: high volume, batched harder, may shed under pressure */
+    public static final String ANALYTICS = "analytics";
+
+    private final String name;
+    private final KafkaTemplate<String, Object> template;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutMillis;
+
+    public PublishProfile(String name, KafkaTemplate<String, Object> template, int queueCapacity,
+                          OverflowPolicy overflowPolicy, long blockTimeoutMillis) {
+        this.name = name;
+        this.template = template;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+    }
+
+    /**
+     * Producer settings that differ between profiles, applied over the shared producer factory
+     */
+    public static Map<String, Object> producerOverrides(int lingerMs, int batchSize, String compressionType) {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        overrides.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        overrides.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        return overrides;
+    }
+
+    public String getName() { return name; }
+    public KafkaTemplate<String, Object> getTemplate() { return template; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public long getBlockTimeoutMillis() { return blockTimeoutMillis; }
+}
@@ -0,0 +1,255 @@
+package com.orderapp.publish;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Overflow of one SPILL profile on local disk, as JSON lines in numbered segment files
+ * ({@code <profile>-<n>.spill}). While anything is spilled, new events are appended too
+ * rather than queued, so they cannot overtake the spilled ones; the sender replays
+ * segments oldest first, deleting each once Kafka has acknowledged all of it, and the log
+ * goes inactive once the last one is handed back.
+ * Segments left by a previous run are replayed first.
+ */
+final class SpillLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillLog.class);
+
+    private static final String SUFFIX = ".spill";
+    private static final int SEGMENT_EVENTS = 10_000;
+
+    private final Path directory;
+    private final String profile;
+    private final ObjectMapper objectMapper;
+
+    private final Deque<Path> closedSegments = new ArrayDeque<>();
+    private final AtomicLong pending = new AtomicLong();
+    private volatile boolean active;
+
+    private Path currentSegment;
+    private BufferedWriter writer;
+    private int currentEvents;
+    private long nextSegmentNumber;
+
+    SpillLog(Path directory, String profile, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.profile = profile;
+        this.objectMapper = objectMapper;
+    }
+
+    synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> leftovers;
+        try (Stream<Path> files = Files.list(directory)) {
+            leftovers = files.filter(file -> segmentNumber(file) != null)
+                .sorted(Comparator.comparingLong(this::segmentNumber))
+                .collect(Collectors.toList());
+        }
+        for (Path segment : leftovers) {
+            closedSegments.add(segment);
+            try (Stream<String> lines = Files.lines(segment, StandardCharsets.UTF_8)) {
+                pending.addAndGet(lines.count());
+            }
+            nextSegmentNumber = segmentNumber(segment) + 1;
+        }
+        active = !closedSegments.isEmpty();
+        if (active) {
+            logger.info("Replaying {} events spilled by a previous run for profile {}", pending.get(), profile);
+        }
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    long getPending() {
+        return pending.get();
+    }
+
+    /**
+     * Append only while earlier events are still spilled
+     */
+    synchronized boolean appendIfActive(PendingEvent event) throws IOException {
+        if (!active) {
+            return false;
+        }
+        append(event);
+        return true;
+    }
+
+    synchronized void append(PendingEvent event) throws IOException {
+        String line = toLine(event);
+        if (writer == null) {
+            currentSegment = directory.resolve(profile + "-" + nextSegmentNumber++ + SUFFIX);
+            writer = Files.newBufferedWriter(currentSegment, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            currentEvents = 0;
+        }
+        writer.write(line);
+        writer.newLine();
+        writer.flush();
+        pending.incrementAndGet();
+        active = true;
+
+        if (++currentEvents >= SEGMENT_EVENTS) {
+            closedSegments.add(closeCurrent());
+        }
+    }
+
+    /**
+     * The oldest segment to replay, or null (and the log goes inactive) once everything
+     * spilled has been handed out
+     */
+    synchronized Path nextSegment() throws IOException {
+        Path next = closedSegments.poll();
+        if (next != null) {
+            return next;
+        }
+        if (writer != null) {
+            return closeCurrent();
+        }
+        active = false;
+        return null;
+    }
+
+    /**
+     * Read a segment back and send every event, then delete it once every send has been
+     * acknowledged. If any failed, or not all were acknowledged in time, the segment is
+     * put back to be replayed first next time, and false returned; events that did get
+     * through are then sent again.
+     */
+    boolean replay(Path segment, Function<PendingEvent, CompletableFuture<Void>> sender, long ackTimeoutSeconds)
+            throws IOException, InterruptedException {
+        List<CompletableFuture<Void>> acks = new ArrayList<>();
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                pending.decrementAndGet();
+                PendingEvent event = parse(line);
+                if (event != null) {
+                    acks.add(sender.apply(event));
+                }
+            }
+        }
+        try {
+            CompletableFuture.allOf(acks.toArray(new CompletableFuture[0])).get(ackTimeoutSeconds, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException | InterruptedException e) {
+            putBack(segment, lines);
+            if (e instanceof InterruptedException) {
+                throw (InterruptedException) e;
+            }
+            return false;
+        }
+        Files.deleteIfExists(segment);
+        return true;
+    }
+
+    private synchronized void putBack(Path segment, int lines) {
+        closedSegments.addFirst(segment);
+        pending.addAndGet(lines);
+        active = true;
+    }
+
+    /**
+     * On shutdown, write events still queued in memory ahead of everything spilled, since
+     * they are older
+     */
+    synchronized void closeWithQueued(List<PendingEvent> queued) throws IOException {
+        if (writer != null) {
+            closedSegments.add(closeCurrent());
+        }
+        if (queued.isEmpty()) {
+            return;
+        }
+        long first = nextSegmentNumber;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Long number = segmentNumber(file);
+                if (number != null) {
+                    first = Math.min(first, number);
+                }
+            }
+        }
+        currentSegment = directory.resolve(profile + "-" + (first - 1) + SUFFIX);
+        writer = Files.newBufferedWriter(currentSegment, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        for (PendingEvent event : queued) {
+            writer.write(toLine(event));
+            writer.newLine();
+        }
+        closeCurrent();
+    }
+
+    private Path closeCurrent() throws IOException {
+        writer.close();
+        writer = null;
+        Path closed = currentSegment;
+        currentSegment = null;
+        return closed;
+    }
+
+    private String toLine(PendingEvent event) throws IOException {
+        ObjectNode line = objectMapper.createObjectNode();
+        line.put("topic", event.getTopic());
+        line.put("key", event.getKey());
+        line.put("type", event.getValue().getClass().getName());
+        line.set("value", objectMapper.valueToTree(event.getValue()));
+        return objectMapper.writeValueAsString(line);
+    }
+
+    private PendingEvent parse(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            Class<?> type = Class.forName(node.get("type").asText());
+            Object value = objectMapper.readerFor(type)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue(node.get("value"));
+            return new PendingEvent(node.get("topic").asText(), node.path("key").asText(null), value, System.nanoTime());
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            // A line cut short by a crash mid-write, typically
+            logger.warn("Skipping unreadable spilled event for profile {}: {}", profile, e.getMessage());
+            return null;
+        }
+    }
+
+    // Numbers may go negative: segments written on shutdown sort before the older ones
+    private Long segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        String prefix = profile + "-";
+        if (!name.startsWith(prefix) || !name.endsWith(SUFFIX)) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.orderapp.replay;
+
+import com.orderapp.dto.ReplayRequest;
+import com.orderapp.dto.ReplayStatus;
+import com.orderapp.event.OrderEvent;
+import com.orderapp.exception.ReplayInProgressException;
+import com.orderapp.metrics.OrderMetrics;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Rebuilds the registered {@link ReadModel}s by replaying order-events. Each replay reads
+ * with a dedicated consumer group, one consumer per partition on a bounded pool, from the
+ * requested timestamp or offset, or from each read model's last snapshot, up to the end
+ * offsets found when it started. Records are fetched in large batches and applied in
+ * memory; nothing is acknowledged per record. Every snapshot interval a partition saves
+ * the snapshots of all its read models in one transaction and commits its position to
+ * the replay group, so an interrupted or later replay resumes from there. Once a partition
+ * is caught up its read models publish what they rebuilt. One replay runs at a time.
+ */
+@Service
+public class EventReplayService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventReplayService.class);
+
+    private static final String FROM_SNAPSHOT = "snapshot";
+
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final ReplaySnapshotStore snapshotStore;
+    private final OrderMetrics orderMetrics;
+    private final Map<String, ReadModel> readModels = new LinkedHashMap<>();
+
+    private volatile Run current;
+
+    @Value("${app.replay.topic:order-events}")
+    private String topic;
+
+    @Value("${app.replay.consumer-group:order-replay-group}")
+    private String consumerGroup;
+
+    @Value("${app.replay.parallelism:8}")
+    private int parallelism;
+
+    @Value("${app.replay.max-poll-records:5000}")
+    private int maxPollRecords;
+
+    @Value("${app.replay.fetch-min-bytes:1048576}")
+    private int fetchMinBytes;
+
+    @Value("${app.replay.snapshot-every:500000}")
+    private long snapshotEvery;
+
+    @Value("${app.replay.poll-timeout-ms:1000}")
+    private long pollTimeoutMs;
+
+    @Autowired
+    public EventReplayService(ConsumerFactory<String, Object> consumerFactory, ReplaySnapshotStore snapshotStore,
+                              OrderMetrics orderMetrics, List<ReadModel> readModels) {
+        this.consumerFactory = consumerFactory;
+        this.snapshotStore = snapshotStore;
+        this.orderMetrics = orderMetrics;
+        for (ReadModel readModel : readModels) {
+            this.readModels.put(readModel.getName(), readModel);
+        }
+    }
+
+    /**
+     * Start rebuilding the requested read models in the background
+     */
+    public synchronized ReplayStatus start(ReplayRequest request) {
+        if (current != null && !current.status.isDone()) {
+            throw new ReplayInProgressException("A replay of " + current.status.getReadModels() + " is still running");
+        }
+        if (request.getFromTime() != null && request.getFromOffset() != null) {
+            throw new IllegalArgumentException("Give either fromTime or fromOffset, not both");
+        }
+        List<ReadModel> selected = select(request.getReadModels());
+
+        List<Integer> partitions;
+        try (Consumer<String, Object> consumer = createConsumer("-metadata")) {
+            List<PartitionInfo> found = consumer.partitionsFor(topic);
+            if (found == null || found.isEmpty()) {
+                throw new IllegalArgumentException("Topic " + topic + " has no partitions");
+            }
+            partitions = found.stream()
+                .map(PartitionInfo::partition)
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        String startingPoint = request.getFromTime() != null ? "time " + request.getFromTime()
+            : request.getFromOffset() != null ? "offset " + request.getFromOffset()
+            : FROM_SNAPSHOT;
+        ReplayStatus status = new ReplayStatus(topic, startingPoint,
+            selected.stream().map(ReadModel::getName).collect(Collectors.toList()),
+            partitions.stream().map(ReplayStatus.PartitionProgress::new).collect(Collectors.toList()));
+
+        Run run = new Run(status, selected, request, Math.max(1, Math.min(parallelism, partitions.size())));
+        current = run;
+        run.start();
+        logger.info("Replaying {} partitions of {} from {} into {}", partitions.size(), topic, startingPoint,
+            status.getReadModels());
+        return status;
+    }
+
+    /**
+     * The running or last finished replay, or null if there has been none
+     */
+    public ReplayStatus status() {
+        Run run = current;
+        return run != null ? run.status : null;
+    }
+
+    /**
+     * Stop the running replay; every partition saves a snapshot where it stopped
+     */
+    public ReplayStatus cancel() {
+        Run run = current;
+        if (run == null) {
+            return null;
+        }
+        run.cancelled = true;
+        return run.status;
+    }
+
+    public List<String> getReadModelNames() {
+        return new ArrayList<>(readModels.keySet());
+    }
+
+    @PreDestroy
+    public void close() {
+        Run run = current;
+        if (run != null && !run.status.isDone()) {
+            run.cancelled = true;
+            run.workers.shutdown();
+            try {
+                run.workers.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private List<ReadModel> select(List<String> names) {
+        if (names == null || names.isEmpty()) {
+            if (readModels.isEmpty()) {
+                throw new IllegalArgumentException("No read models are registered");
+            }
+            return new ArrayList<>(readModels.values());
+        }
+        List<ReadModel> selected = new ArrayList<>();
+        for (String name : names) {
+            ReadModel readModel = readModels.get(name);
+            if (readModel == null) {
+                throw new IllegalArgumentException("Unknown read model: " + name + "; known: " + readModels.keySet());
+            }
+            selected.add(readModel);
+        }
+        return selected;
+    }
+
+    private Consumer<String, Object> createConsumer(String clientIdSuffix) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        properties.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, fetchMinBytes);
+        properties.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 100);
+        properties.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, 8 * 1024 * 1024);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        // A record that is not a readable event is counted and skipped rather than failing the partition
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        properties.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        return consumerFactory.createConsumer(consumerGroup, "replay", clientIdSuffix, properties);
+    }
+
+    /**
+     * One replay: its status, its read models and its partition workers
+     */
+    private final class Run {
+        private final ReplayStatus status;
+        private final List<ReadModel> readModels;
+        private final ReplayRequest request;
+        private final ExecutorService workers;
+        private volatile boolean cancelled;
+
+        private Run(ReplayStatus status, List<ReadModel> readModels, ReplayRequest request, int threads) {
+            this.status = status;
+            this.readModels = readModels;
+            this.request = request;
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "event-replay-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        private void start() {
+            List<Future<?>> partitions = new ArrayList<>();
+            for (ReplayStatus.PartitionProgress progress : status.getPartitions()) {
+                partitions.add(workers.submit(() -> replayPartition(progress)));
+            }
+            workers.shutdown();
+            // Waits on its own thread so that start() returns at once
+            Thread supervisor = new Thread(() -> {
+                for (Future<?> partition : partitions) {
+                    try {
+                        partition.get();
+                    } catch (Exception e) {
+                        logger.debug("Replay worker ended abnormally", e);
+                    }
+                }
+                finish();
+            }, "event-replay-supervisor");
+            supervisor.setDaemon(true);
+            supervisor.start();
+        }
+
+        private void finish() {
+            long failed = status.getPartitions().stream().filter(progress -> progress.getError() != null).count();
+            if (failed > 0) {
+                status.finish(ReplayStatus.State.FAILED, failed + " of " + status.getPartitions().size()
+                    + " partitions failed; they resume from their last snapshot on the next replay");
+            } else if (cancelled) {
+                status.finish(ReplayStatus.State.CANCELLED, "Stopped; the next replay resumes from the snapshots taken");
+            } else {
+                status.finish(ReplayStatus.State.COMPLETED, null);
+            }
+            logger.info("Replay of {} {}: {} events at {}/s", status.getReadModels(), status.getState(),
+                status.getEventsReplayed(), status.getEventsPerSecond());
+        }
+
+        private void replayPartition(ReplayStatus.PartitionProgress progress) {
+            int partition = progress.getPartition();
+            TopicPartition topicPartition = new TopicPartition(topic, partition);
+            try (Consumer<String, Object> consumer = createConsumer("-" + partition)) {
+                consumer.assign(Collections.singletonList(topicPartition));
+                long beginning = consumer.beginningOffsets(Collections.singletonList(topicPartition)).get(topicPartition);
+                long end = consumer.endOffsets(Collections.singletonList(topicPartition)).get(topicPartition);
+
+                // Where each read model starts: its snapshot, or the requested point with empty state
+                List<ReadModel.PartitionState> states = new ArrayList<>();
+                long[] fromOffsets = new long[readModels.size()];
+                Map<String, ReplaySnapshotStore.Snapshot> snapshots = isFromSnapshot()
+                    ? snapshotStore.load(topic, partition, status.getReadModels())
+                    : Collections.emptyMap();
+                long requested = requestedOffset(consumer, topicPartition, beginning, end);
+                for (int i = 0; i < readModels.size(); i++) {
+                    ReplaySnapshotStore.Snapshot snapshot = snapshots.get(readModels.get(i).getName());
+                    boolean usable = snapshot != null && snapshot.getNextOffset() >= beginning;
+                    states.add(readModels.get(i).open(partition, usable ? snapshot.getState() : null));
+                    fromOffsets[i] = usable ? snapshot.getNextOffset() : requested;
+                }
+                long start = Math.min(end, min(fromOffsets));
+                consumer.seek(topicPartition, start);
+                progress.started(start, end);
+
+                long position = start;
+                long sinceSnapshot = 0;
+                while (position < end && !cancelled) {
+                    List<ConsumerRecord<String, Object>> records =
+                        consumer.poll(Duration.ofMillis(pollTimeoutMs)).records(topicPartition);
+                    long batchStart = System.nanoTime();
+                    int events = 0;
+                    int skipped = 0;
+                    for (ConsumerRecord<String, Object> record : records) {
+                        if (record.offset() >= end) {
+                            break;
+                        }
+                        if (!(record.value() instanceof OrderEvent)) {
+                            skipped++;
+                            continue;
+                        }
+                        OrderEvent event = (OrderEvent) record.value();
+                        for (int i = 0; i < states.size(); i++) {
+                            if (record.offset() >= fromOffsets[i]) {
+                                states.get(i).apply(event, record.timestamp());
+                            }
+                        }
+                        events++;
+                    }
+                    position = Math.min(end, consumer.position(topicPartition));
+                    progress.advanced(position, events, skipped);
+                    if (!records.isEmpty()) {
+                        orderMetrics.recordReplayBatch(events, skipped, System.nanoTime() - batchStart);
+                    }
+                    sinceSnapshot += events;
+                    if (sinceSnapshot >= snapshotEvery) {
+                        snapshot(consumer, topicPartition, states, fromOffsets, position, progress);
+                        sinceSnapshot = 0;
+                    }
+                }
+
+                if (!cancelled) {
+                    for (ReadModel.PartitionState state : states) {
+                        state.complete();
+                    }
+                }
+                if (position > start || !cancelled) {
+                    snapshot(consumer, topicPartition, states, fromOffsets, position, progress);
+                }
+                progress.finished(null);
+            } catch (Exception e) {
+                logger.error("Replay of partition {} of {} failed", partition, topic, e);
+                progress.finished(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        }
+
+        private boolean isFromSnapshot() {
+            return request.getFromTime() == null && request.getFromOffset() == null;
+        }
+
+        // The requested starting offset, or the beginning of the partition when resuming from snapshots
+        private long requestedOffset(Consumer<String, Object> consumer, TopicPartition topicPartition,
+                                     long beginning, long end) {
+            if (request.getFromOffset() != null) {
+                return Math.max(beginning, Math.min(end, request.getFromOffset()));
+            }
+            if (request.getFromTime() != null) {
+                OffsetAndTimestamp found = consumer.offsetsForTimes(
+                    Collections.singletonMap(topicPartition, request.getFromTime().toEpochMilli())).get(topicPartition);
+                return found != null ? found.offset() : end;
+            }
+            return beginning;
+        }
+
+        // Snapshots of every read model at the position, saved together, then the position for the group.
+        // A model restored from a snapshot ahead of the position has not applied anything since.
+        private void snapshot(Consumer<String, Object> consumer, TopicPartition topicPartition,
+                              List<ReadModel.PartitionState> states, long[] fromOffsets, long position,
+                              ReplayStatus.PartitionProgress progress) {
+            long startNanos = System.nanoTime();
+            List<ReplaySnapshotStore.Snapshot> snapshots = new ArrayList<>();
+            for (int i = 0; i < states.size(); i++) {
+                snapshots.add(new ReplaySnapshotStore.Snapshot(readModels.get(i).getName(),
+                    Math.max(position, fromOffsets[i]), states.get(i).snapshot()));
+            }
+            snapshotStore.save(topic, topicPartition.partition(), snapshots);
+            consumer.commitSync(Collections.singletonMap(topicPartition, new OffsetAndMetadata(position)));
+            progress.snapshotTaken();
+            orderMetrics.recordReplaySnapshot(System.nanoTime() - startNanos);
+        }
+    }
+
+    private static long min(long[] values) {
+        long min = Long.MAX_VALUE;
+        for (long value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,48 @@
+package com.orderapp.replay;
+
+import com.orderapp.event.OrderEvent;
+
+/**
+ * State derived from order-events that {@link EventReplayService} can rebuild. Every
+ * partition is rebuilt on its own thread into its own {@link PartitionState}, so states
+ * need no locking. Register an implementation as a bean to take part in replays.
+ */
+public interface ReadModel {
+
+    /**
+     * Stable name, used to select the model in a replay request and to key its snapshots
+     */
+    String getName();
+
+    /**
+     * Empty state of one partition, or the state saved by {@link PartitionState#snapshot()}
+     * when the snapshot is not null
+     */
+    PartitionState open(int partition, byte[] snapshot);
+
+    /**
+     * State of one partition while it is replayed
+     */
+    interface PartitionState {
+
+        /**
+         * Apply the next event of the partition. Keep this in memory; write in {@link #complete()},
+         * or in large batches here when a state would grow too large and writing the same
+         * result twice is harmless, since a resumed replay applies again what followed the
+         * last snapshot.
+         */
+        void apply(OrderEvent event, long recordTimestamp);
+
+        /**
+         * Everything needed to resume after the last applied event
+         */
+        byte[] snapshot();
+
+        /**
+         * Publish the rebuilt state once the partition is caught up. A later replay that
+         * resumes from the final snapshot publishes the same state again, so this must
+         * replace or merge idempotently.
+         */
+        void complete();
+    }
+}
@@ -0,0 +1,98 @@
+package com.orderapp.replay;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read model snapshots of the replay service (see V6 migration). The snapshots a
+ * partition takes at one offset are saved together, so its read models never resume from
+ * different points after a crash.
+ */
+@Component
+public class ReplaySnapshotStore {
+
+    private static final String UPSERT_SNAPSHOT =
+        "INSERT INTO read_model_snapshots (read_model, topic, partition_id, next_offset, state, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP) " +
+        "ON CONFLICT (read_model, topic, partition_id) DO UPDATE SET " +
+        "next_offset = EXCLUDED.next_offset, state = EXCLUDED.state, created_at = CURRENT_TIMESTAMP";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public ReplaySnapshotStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Save the snapshots of one partition's read models, all or nothing
+     */
+    void save(String topic, int partition, List<Snapshot> snapshots) {
+        transactionTemplate.executeWithoutResult(status ->
+            jdbcTemplate.batchUpdate(UPSERT_SNAPSHOT, snapshots, snapshots.size(), (ps, snapshot) -> {
+                ps.setString(1, snapshot.readModel);
+                ps.setString(2, topic);
+                ps.setInt(3, partition);
+                ps.setLong(4, snapshot.nextOffset);
+                ps.setBytes(5, snapshot.state);
+            }));
+    }
+
+    /**
+     * Latest snapshots of the given read models in one partition, by read model name
+     */
+    Map<String, Snapshot> load(String topic, int partition, Collection<String> readModels) {
+        Map<String, Snapshot> snapshots = new HashMap<>();
+        if (readModels.isEmpty()) {
+            return snapshots;
+        }
+        List<Object> args = new ArrayList<>();
+        args.add(topic);
+        args.add(partition);
+        args.addAll(readModels);
+        jdbcTemplate.query(
+            "SELECT read_model, next_offset, state FROM read_model_snapshots WHERE topic = ? AND partition_id = ? " +
+            "AND read_model IN (" + String.join(",", Collections.nCopies(readModels.size(), "?")) + ")",
+            rs -> {
+                String readModel = rs.getString("read_model");
+                snapshots.put(readModel, new Snapshot(readModel, rs.getLong("next_offset"), rs.getBytes("state")));
+            },
+            args.toArray());
+        return snapshots;
+    }
+
+    /**
+     * A read model's state after applying every event before nextOffset
+     */
+    static final class Snapshot {
+        private final String readModel;
+        private final long nextOffset;
+        private final byte[] state;
+
+        Snapshot(String readModel, long nextOffset, byte[] state) {
+            this.readModel = readModel;
+            this.nextOffset = nextOffset;
+            this.state = state;
+        }
+
+        long getNextOffset() {
+            return nextOffset;
+        }
+
+        byte[] getState() {
+            return state;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.orderapp.repository;
+
+import com.orderapp.entity.CustomerSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CustomerSketchRepository extends JpaRepository<CustomerSketch, LocalDate> {
+
+    List<CustomerSketch> findByBucketDateBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Lock a day's sketch for a read-merge-write by one instance at a time
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CustomerSketch s WHERE s.bucketDate = :bucketDate")
+    Optional<CustomerSketch> findForUpdate(@Param("bucketDate") LocalDate bucketDate);
+}
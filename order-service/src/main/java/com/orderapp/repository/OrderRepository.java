@@ -1,19 +1,26 @@
 package com.orderapp.repository;
 
+import com.orderapp.entity.Money;
 import com.orderapp.entity.Order;
 import com.orderapp.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, UUID> {
@@ -22,6 +29,13 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
 
     boolean existsByOrderNumber(String orderNumber);
 
+    /**
+     * Order numbers of orders created after a time, streamed; call within a transaction
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT o.orderNumber FROM Order o WHERE o.createdAt > :since")
+    Stream<String> streamOrderNumbersCreatedAfter(@Param("since") LocalDateTime since);
+
     List<Order> findByUser(User user);
 
     List<Order> findByUserId(UUID userId);
@@ -42,8 +56,8 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
                                      @Param("status") Order.OrderStatus status,
                                      @Param("startDate") LocalDateTime startDate,
                                      @Param("endDate") LocalDateTime endDate,
-                                     @Param("minAmount") BigDecimal minAmount,
-                                     @Param("maxAmount") BigDecimal maxAmount,
+                                     @Param("minAmount") Money minAmount,
+                                     @Param("maxAmount") Money maxAmount,
                                      Pageable pageable);
 
     @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :startDate AND :endDate")
@@ -69,4 +83,26 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
 
     @Query("SELECT o FROM Order o JOIN FETCH o.orderItems oi JOIN FETCH oi.product WHERE o.id = :orderId")
     Optional<Order> findByIdWithItems(@Param("orderId") UUID orderId);
+
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.createdAt < :before ORDER BY o.createdAt ASC")
+    List<UUID> findIdsByStatusCreatedBefore(@Param("status") Order.OrderStatus status,
+                                           @Param("before") LocalDateTime before,
+                                           Pageable pageable);
+
+    @Query("SELECT DISTINCT o FROM Order o JOIN FETCH o.user LEFT JOIN FETCH o.orderItems oi LEFT JOIN FETCH oi.product WHERE o.id IN :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Postgres advisory lock held until the current transaction ends; false if another
+     * session holds it
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryAdvisoryXactLock(@Param("key") long key);
+
+    /**
+     * Lock orders against concurrent writes, e.g. while their read model is rebuilt
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids")
+    List<Order> lockAllByIdIn(@Param("ids") Collection<UUID> ids);
 }
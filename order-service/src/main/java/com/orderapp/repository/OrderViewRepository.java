@@ -0,0 +1,23 @@
+package com.orderapp.repository;
+
+import com.orderapp.entity.OrderView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface OrderViewRepository extends JpaRepository<OrderView, UUID> {
+
+    Optional<OrderView> findByOrderNumber(String orderNumber);
+
+    /**
+     * Orders that have no view yet, i.e. were created before order_views existed
+     */
+    @Query("SELECT o.id FROM Order o WHERE NOT EXISTS (SELECT v.orderId FROM OrderView v WHERE v.orderId = o.id)")
+    List<UUID> findOrderIdsWithoutView(Pageable pageable);
+}
@@ -5,13 +5,17 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, UUID> {
@@ -20,6 +24,19 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
 
     boolean existsBySku(String sku);
 
+    /**
+     * SKUs of products changed after a time, streamed; call within a transaction
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT p.sku FROM Product p WHERE p.updatedAt > :since")
+    Stream<String> streamSkusUpdatedAfter(@Param("since") LocalDateTime since);
+
+    /**
+     * Products changed after a time, for the catalog snapshot to pick up changes made by
+     * other instances
+     */
+    List<Product> findByUpdatedAtAfter(LocalDateTime since);
+
     List<Product> findByStatus(Product.ProductStatus status);
 
     List<Product> findByCategory(String category);
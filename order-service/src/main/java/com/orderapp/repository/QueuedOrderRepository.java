@@ -0,0 +1,60 @@
+package com.orderapp.repository;
+
+import com.orderapp.dto.OrderSubmission;
+import com.orderapp.entity.QueuedOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface QueuedOrderRepository extends JpaRepository<QueuedOrder, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE QueuedOrder q SET q.status = :status, q.updatedAt = :now WHERE q.orderNumber IN :orderNumbers")
+    int markProcessing(@Param("orderNumbers") Collection<String> orderNumbers,
+                       @Param("status") OrderSubmission.Status status,
+                       @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE QueuedOrder q SET q.status = :status, q.orderId = :orderId, q.message = :message, " +
+           "q.updatedAt = :now, q.completedAt = :now WHERE q.orderNumber = :orderNumber")
+    int finish(@Param("orderNumber") String orderNumber,
+               @Param("status") OrderSubmission.Status status,
+               @Param("orderId") UUID orderId,
+               @Param("message") String message,
+               @Param("now") LocalDateTime now);
+
+    /**
+     * Unfinished orders nobody has taken up since a time, oldest first
+     */
+    @Query("SELECT q.orderNumber FROM QueuedOrder q WHERE q.completedAt IS NULL AND q.updatedAt < :before " +
+           "ORDER BY q.submittedAt ASC")
+    List<String> findStale(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * Take up a stale order; 0 if another instance took it first
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE QueuedOrder q SET q.updatedAt = :now " +
+           "WHERE q.orderNumber = :orderNumber AND q.completedAt IS NULL AND q.updatedAt < :before")
+    int claim(@Param("orderNumber") String orderNumber,
+              @Param("before") LocalDateTime before,
+              @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM QueuedOrder q WHERE q.completedAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -5,12 +5,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
@@ -19,6 +23,20 @@ public interface UserRepository extends JpaRepository<User, UUID> {
 
     boolean existsByEmail(String email);
 
+    /**
+     * Ids of users changed after a time, streamed; call within a transaction
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT u.id FROM User u WHERE u.updatedAt > :since")
+    Stream<UUID> streamIdsUpdatedAfter(@Param("since") LocalDateTime since);
+
+    /**
+     * Emails of users changed after a time, streamed; call within a transaction
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT u.email FROM User u WHERE u.updatedAt > :since")
+    Stream<String> streamEmailsUpdatedAfter(@Param("since") LocalDateTime since);
+
     List<User> findByStatus(User.UserStatus status);
 
     @Query("SELECT u FROM User u WHERE u.firstName LIKE %:name% OR u.lastName LIKE %:name%")
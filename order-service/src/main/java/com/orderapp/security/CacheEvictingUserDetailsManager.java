@@ -0,0 +1,72 @@
+package com.orderapp.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.provisioning.UserDetailsManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A {@link UserDetailsManager} that tells listeners, such as the
+ * {@link CachingAuthenticationProvider}, which user changed after each write, so verified
+ * credentials are never served for a user whose password or account was just changed.
+ */
+public class CacheEvictingUserDetailsManager implements UserDetailsManager {
+
+    private final UserDetailsManager delegate;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    public CacheEvictingUserDetailsManager(UserDetailsManager delegate) {
+        this.delegate = delegate;
+    }
+
+    public void onChange(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return delegate.loadUserByUsername(username);
+    }
+
+    @Override
+    public void createUser(UserDetails user) {
+        delegate.createUser(user);
+        changed(user.getUsername());
+    }
+
+    @Override
+    public void updateUser(UserDetails user) {
+        delegate.updateUser(user);
+        changed(user.getUsername());
+    }
+
+    @Override
+    public void deleteUser(String username) {
+        delegate.deleteUser(username);
+        changed(username);
+    }
+
+    @Override
+    public void changePassword(String oldPassword, String newPassword) {
+        // Changes the password of the current user
+        Authentication current = SecurityContextHolder.getContext().getAuthentication();
+        delegate.changePassword(oldPassword, newPassword);
+        if (current != null) {
+            changed(current.getName());
+        }
+    }
+
+    @Override
+    public boolean userExists(String username) {
+        return delegate.userExists(username);
+    }
+
+    private void changed(String username) {
+        listeners.forEach(listener -> listener.accept(username));
+    }
+}
@@ -0,0 +1,119 @@
+package com.orderapp.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers successful username/password authentications for a short while, so that
+ * HTTP Basic clients do not pay for a password hash and a user lookup on every request.
+ * Entries are keyed by the user name and an HMAC of the password under a key that
+ * never leaves this instance, so the cache holds no password or reusable hash. Failed
+ * attempts are not cached. A user's entries are dropped by {@link #evict} whenever the
+ * user is changed through {@link CacheEvictingUserDetailsManager}; the TTL bounds how long
+ * a change made anywhere else goes unnoticed.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, int maxEntries, long ttlSeconds) {
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.key = new SecretKeySpec(keyBytes, "HmacSHA256");
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        Object credentials = authentication.getCredentials();
+        if (credentials == null) {
+            return delegate.authenticate(authentication);
+        }
+        String cacheKey = authentication.getName() + ':' + fingerprint(credentials.toString());
+        Entry entry = entries.get(cacheKey);
+        if (entry != null && entry.expiresAtNanos - System.nanoTime() > 0) {
+            return entry.authentication;
+        }
+
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.isAuthenticated()) {
+            if (entries.size() >= maxEntries) {
+                evictOne();
+            }
+            entries.put(cacheKey, new Entry(result, System.nanoTime() + ttlNanos));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication)
+            && delegate.supports(authentication);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Forget a user's verified credentials, so a changed password or a disabled account
+     * takes effect on the next request
+     */
+    public void evict(String username) {
+        String prefix = username + ':';
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private String fingerprint(String password) {
+        byte[] digest = macs.get().doFinal(password.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    // Hash order makes this an arbitrary, roughly random victim
+    private void evictOne() {
+        Iterator<String> iterator = entries.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static final class Entry {
+        private final Authentication authentication;
+        private final long expiresAtNanos;
+
+        private Entry(Authentication authentication, long expiresAtNanos) {
+            this.authentication = authentication;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.orderapp.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Issues and verifies stateless bearer tokens: {@code payload.signature}, where the payload
+ * carries the user name, authorities and expiry and the signature is an HMAC-SHA256 of it.
+ * Verifying a token is one HMAC and no lookup. {@code app.auth.token-secret} must be at
+ * least 32 bytes and shared by every instance; startup fails without it, except under the
+ * profiles of {@code app.auth.random-secret-profiles}, where a random key is generated and
+ * tokens are only accepted by the instance that issued them until it restarts.
+ */
+@Component
+public class TokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String HMAC = "HmacSHA256";
+    private static final String VERSION = "1";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    // The HMAC-SHA256 output size; a shorter key is easier to brute-force than the signature
+    static final int MIN_SECRET_BYTES = 32;
+
+    private final SecretKeySpec key;
+    // Mac instances are not thread-safe, and looking one up costs more than the HMAC itself
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+    private final long ttlSeconds;
+    private final Clock clock;
+
+    @Autowired
+    public TokenService(@Value("${app.auth.token-secret:}") String secret,
+                        @Value("${app.auth.token-ttl-seconds:900}") long ttlSeconds,
+                        @Value("${app.auth.random-secret-profiles:dev,test,loadtest}") String[] randomSecretProfiles,
+                        Environment environment) {
+        this(secret, ttlSeconds, Clock.systemUTC(), acceptsAny(environment, randomSecretProfiles));
+    }
+
+    public TokenService(String secret, long ttlSeconds) {
+        this(secret, ttlSeconds, Clock.systemUTC(), false);
+    }
+
+    TokenService(String secret, long ttlSeconds, Clock clock, boolean randomSecretAllowed) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            if (!randomSecretAllowed) {
+                throw new IllegalStateException("app.auth.token-secret (AUTH_TOKEN_SECRET) is not set; it must be "
+                    + "at least " + MIN_SECRET_BYTES + " random bytes shared by every instance");
+            }
+            logger.warn("app.auth.token-secret is not set; using a random key, tokens will not survive a restart");
+            keyBytes = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            if (keyBytes.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("app.auth.token-secret must be at least " + MIN_SECRET_BYTES
+                    + " bytes, got " + keyBytes.length);
+            }
+        }
+        this.key = new SecretKeySpec(keyBytes, HMAC);
+        this.ttlSeconds = ttlSeconds;
+        this.clock = clock;
+    }
+
+    private static boolean acceptsAny(Environment environment, String[] profiles) {
+        String[] named = Arrays.stream(profiles).map(String::trim).filter(p -> !p.isEmpty()).toArray(String[]::new);
+        return named.length > 0 && environment.acceptsProfiles(Profiles.of(named));
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public String issue(Authentication authentication) {
+        long expiresAt = clock.instant().getEpochSecond() + ttlSeconds;
+        String authorities = authentication.getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .collect(Collectors.joining(","));
+        String payload = VERSION + ":" + expiresAt + ":" + encode(authentication.getName()) + ":" + encode(authorities);
+        String encodedPayload = encode(payload);
+        return encodedPayload + "." + ENCODER.encodeToString(sign(encodedPayload));
+    }
+
+    /**
+     * The token's user, or null when the token is malformed, forged or expired
+     */
+    public TokenUser verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        String encodedPayload = token.substring(0, dot);
+        try {
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(encodedPayload))) {
+                return null;
+            }
+            String[] fields = decode(encodedPayload).split(":", -1);
+            if (fields.length != 4 || !VERSION.equals(fields[0])) {
+                return null;
+            }
+            long expiresAt = Long.parseLong(fields[1]);
+            if (clock.instant().getEpochSecond() >= expiresAt) {
+                return null;
+            }
+            String authorities = decode(fields[3]);
+            return new TokenUser(decode(fields[2]), authorities.isEmpty()
+                ? List.of() : AuthorityUtils.commaSeparatedStringToAuthorityList(authorities));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String encodedPayload) {
+        return macs.get().doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static String encode(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+
+    public static final class TokenUser {
+        private final String username;
+        private final List<GrantedAuthority> authorities;
+
+        private TokenUser(String username, List<GrantedAuthority> authorities) {
+            this.username = username;
+            this.authorities = authorities;
+        }
+
+        public String getUsername() { return username; }
+        public List<GrantedAuthority> getAuthorities() { return authorities; }
+    }
+}
@@ -0,0 +1,341 @@
+package com.orderapp.service;
+
+import com.orderapp.entity.Money;
+import com.orderapp.entity.Product;
+
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Immutable view of the whole product catalog. Categories and brands are interned to
+ * dense int ids, so the per-category and per-brand indexes are plain arrays indexed by
+ * id; price ranges are answered by binary search over prices sorted once per build.
+ * Lists handed out are read-only views over the snapshot's arrays, and the products in
+ * it must be treated as read-only too.
+ */
+final class CatalogSnapshot {
+
+    static final CatalogSnapshot EMPTY = build(0, new Product[0]);
+
+    private static final Comparator<Product> BY_NAME =
+        Comparator.comparing(Product::getName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Product::getSku, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final long version;
+    private final Product[] products;
+    private final Map<UUID, Integer> positions;
+
+    private final List<String> categories;
+    private final Map<String, Integer> categoryIds;
+    private final int[] categoryOf;
+    private final int[][] productsByCategory;
+
+    private final List<String> brands;
+    private final Map<String, Integer> brandIds;
+    private final int[] brandOf;
+    private final int[][] productsByBrand;
+
+    private final long[] sortedPriceCents;
+    private final int[] productsByPrice;
+    private final long[] priceCentsOf;
+
+    private final int[] available;
+    private final LocalDateTime lastModified;
+    private final long estimatedBytes;
+
+    private CatalogSnapshot(long version, Product[] products, Map<UUID, Integer> positions,
+                            List<String> categories, Map<String, Integer> categoryIds, int[] categoryOf, int[][] productsByCategory,
+                            List<String> brands, Map<String, Integer> brandIds, int[] brandOf, int[][] productsByBrand,
+                            long[] sortedPriceCents, int[] productsByPrice, long[] priceCentsOf, int[] available) {
+        this.version = version;
+        this.products = products;
+        this.positions = positions;
+        this.categories = categories;
+        this.categoryIds = categoryIds;
+        this.categoryOf = categoryOf;
+        this.productsByCategory = productsByCategory;
+        this.brands = brands;
+        this.brandIds = brandIds;
+        this.brandOf = brandOf;
+        this.productsByBrand = productsByBrand;
+        this.sortedPriceCents = sortedPriceCents;
+        this.productsByPrice = productsByPrice;
+        this.priceCentsOf = priceCentsOf;
+        this.available = available;
+        this.lastModified = lastModifiedOf(products);
+        this.estimatedBytes = estimateBytes();
+    }
+
+    /**
+     * Build every index from scratch; products are ordered by name
+     */
+    static CatalogSnapshot build(long version, Product[] products) {
+        Product[] sorted = products.clone();
+        Arrays.sort(sorted, BY_NAME);
+        int n = sorted.length;
+
+        Map<UUID, Integer> positions = new HashMap<>(Math.max(16, n * 4 / 3 + 1));
+        for (int i = 0; i < n; i++) {
+            positions.put(sorted[i].getId(), i);
+        }
+
+        TreeSet<String> categoryNames = new TreeSet<>();
+        TreeSet<String> brandNames = new TreeSet<>();
+        for (Product product : sorted) {
+            if (product.getCategory() != null) {
+                categoryNames.add(product.getCategory());
+            }
+            if (product.getBrand() != null) {
+                brandNames.add(product.getBrand());
+            }
+        }
+        List<String> categories = List.copyOf(categoryNames);
+        List<String> brands = List.copyOf(brandNames);
+        Map<String, Integer> categoryIds = intern(categories);
+        Map<String, Integer> brandIds = intern(brands);
+
+        int[] categoryOf = new int[n];
+        int[] brandOf = new int[n];
+        long[] priceCentsOf = new long[n];
+        for (int i = 0; i < n; i++) {
+            categoryOf[i] = idOf(categoryIds, sorted[i].getCategory());
+            brandOf[i] = idOf(brandIds, sorted[i].getBrand());
+            priceCentsOf[i] = Money.of(sorted[i].getPrice()).getMinorUnits();
+        }
+
+        // Stable sort of positions by price; positions are already in name order
+        Integer[] boxed = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            boxed[i] = i;
+        }
+        Arrays.sort(boxed, Comparator.comparingLong(i -> priceCentsOf[i]));
+        int[] productsByPrice = new int[n];
+        long[] sortedPriceCents = new long[n];
+        for (int i = 0; i < n; i++) {
+            productsByPrice[i] = boxed[i];
+            sortedPriceCents[i] = priceCentsOf[boxed[i]];
+        }
+
+        return new CatalogSnapshot(version, sorted, positions,
+            categories, categoryIds, categoryOf, group(categoryOf, categories.size()),
+            brands, brandIds, brandOf, group(brandOf, brands.size()),
+            sortedPriceCents, productsByPrice, priceCentsOf, availableOf(sorted));
+    }
+
+    /**
+     * Copy-on-write update with changed and removed products. When no product was added
+     * or removed and none changed category, brand or price (a stock update, typically),
+     * the indexes are shared with this snapshot and only availability is recomputed.
+     */
+    CatalogSnapshot withChanges(long newVersion, List<Product> changed, List<UUID> removed) {
+        boolean indexesValid = removed.stream().noneMatch(positions::containsKey);
+        Product[] updated = products.clone();
+        for (Product product : changed) {
+            Integer position = positions.get(product.getId());
+            if (position == null
+                    || categoryOf[position] != idOf(categoryIds, product.getCategory())
+                    || brandOf[position] != idOf(brandIds, product.getBrand())
+                    || priceCentsOf[position] != Money.of(product.getPrice()).getMinorUnits()
+                    || !Objects.equals(products[position].getName(), product.getName())
+                    || !Objects.equals(products[position].getSku(), product.getSku())) {
+                indexesValid = false;
+            }
+            if (position != null) {
+                updated[position] = product;
+            }
+        }
+        if (!indexesValid) {
+            Map<UUID, Product> merged = new LinkedHashMap<>(positions.size() + changed.size());
+            for (Product product : products) {
+                merged.put(product.getId(), product);
+            }
+            removed.forEach(merged::remove);
+            for (Product product : changed) {
+                merged.put(product.getId(), product);
+            }
+            return build(newVersion, merged.values().toArray(new Product[0]));
+        }
+        return new CatalogSnapshot(newVersion, updated, positions,
+            categories, categoryIds, categoryOf, productsByCategory,
+            brands, brandIds, brandOf, productsByBrand,
+            sortedPriceCents, productsByPrice, priceCentsOf, availableOf(updated));
+    }
+
+    /**
+     * Modification time of the product as this snapshot holds it, or null if it is not in it
+     */
+    LocalDateTime updatedAt(UUID productId) {
+        Integer position = positions.get(productId);
+        return position != null ? products[position].getUpdatedAt() : null;
+    }
+
+    long getVersion() { return version; }
+    int size() { return products.length; }
+    LocalDateTime getLastModified() { return lastModified; }
+    long getEstimatedBytes() { return estimatedBytes; }
+
+    List<String> categories() { return categories; }
+    List<String> brands() { return brands; }
+    List<Product> available() { return view(available, 0, available.length); }
+
+    List<Product> byCategory(String category) {
+        Integer id = category != null ? categoryIds.get(category) : null;
+        return id != null ? view(productsByCategory[id], 0, productsByCategory[id].length) : List.of();
+    }
+
+    List<Product> byBrand(String brand) {
+        Integer id = brand != null ? brandIds.get(brand) : null;
+        return id != null ? view(productsByBrand[id], 0, productsByBrand[id].length) : List.of();
+    }
+
+    /**
+     * Products priced within [minCents, maxCents], cheapest first
+     */
+    List<Product> byPriceRange(long minCents, long maxCents, int limit) {
+        int from = lowerBound(sortedPriceCents, minCents);
+        int to = lowerBound(sortedPriceCents, maxCents == Long.MAX_VALUE ? maxCents : maxCents + 1);
+        if (to <= from) {
+            return List.of();
+        }
+        // Same floor as the database query; long sum so a huge limit cannot wrap
+        return view(productsByPrice, from, (int) Math.min(to, (long) from + Math.max(1, limit)));
+    }
+
+    private List<Product> view(int[] positions, int from, int to) {
+        return Collections.unmodifiableList(new ProductView(products, positions, from, to));
+    }
+
+    private static int lowerBound(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static Map<String, Integer> intern(List<String> names) {
+        Map<String, Integer> ids = new HashMap<>(names.size() * 4 / 3 + 1);
+        for (int i = 0; i < names.size(); i++) {
+            ids.put(names.get(i), i);
+        }
+        return ids;
+    }
+
+    private static int idOf(Map<String, Integer> ids, String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer id = ids.get(name);
+        return id != null ? id : -2;
+    }
+
+    private static int[][] group(int[] idOf, int ids) {
+        int[] counts = new int[ids];
+        for (int id : idOf) {
+            if (id >= 0) {
+                counts[id]++;
+            }
+        }
+        int[][] groups = new int[ids][];
+        for (int id = 0; id < ids; id++) {
+            groups[id] = new int[counts[id]];
+        }
+        int[] fill = new int[ids];
+        for (int position = 0; position < idOf.length; position++) {
+            int id = idOf[position];
+            if (id >= 0) {
+                groups[id][fill[id]++] = position;
+            }
+        }
+        return groups;
+    }
+
+    private static int[] availableOf(Product[] products) {
+        int[] positions = new int[products.length];
+        int count = 0;
+        for (int i = 0; i < products.length; i++) {
+            if (products[i].isAvailable()) {
+                positions[count++] = i;
+            }
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    // Rough: object headers and fields per product plus its strings, and the index arrays
+    private static LocalDateTime lastModifiedOf(Product[] products) {
+        LocalDateTime latest = null;
+        for (Product product : products) {
+            LocalDateTime updatedAt = product.getUpdatedAt();
+            if (updatedAt != null && (latest == null || updatedAt.isAfter(latest))) {
+                latest = updatedAt;
+            }
+        }
+        return latest;
+    }
+
+    private long estimateBytes() {
+        long bytes = 0;
+        for (Product product : products) {
+            bytes += 256 + chars(product.getName()) + chars(product.getDescription()) + chars(product.getSku())
+                + chars(product.getDimensions());
+        }
+        for (String name : categories) {
+            bytes += 64 + chars(name);
+        }
+        for (String name : brands) {
+            bytes += 64 + chars(name);
+        }
+        bytes += products.length * (4L + 4 + 4 + 8 + 8 + 4 + 4 + 4); // reference, ids, prices, index slots
+        bytes += positions.size() * 80L; // HashMap node, boxed position and UUID key
+        bytes += available.length * 4L;
+        return bytes;
+    }
+
+    private static long chars(String value) {
+        return value != null ? 40 + value.length() : 0;
+    }
+
+    private static final class ProductView extends AbstractList<Product> implements RandomAccess {
+        private final Product[] products;
+        private final int[] positions;
+        private final int from;
+        private final int size;
+
+        private ProductView(Product[] products, int[] positions, int from, int to) {
+            this.products = products;
+            this.positions = positions;
+            this.from = from;
+            this.size = to - from;
+        }
+
+        @Override
+        public Product get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+            }
+            return products[positions[from + index]];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.orderapp.service;
+
+import com.orderapp.metrics.OrderMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resizes the consumer threads of each Kafka listener to its load. Every interval it
+ * reads the listener's backlog from the Kafka client metrics, and its throughput and
+ * mean processing time per record from its processing timer, and works out how many
+ * consumers would keep up with arrivals and clear the backlog within the target drain
+ * time at the target utilization, bounded by min/max concurrency and the topic's
+ * partition count.
+ * Scaling up waits for a few consecutive evaluations to agree and jumps straight to the
+ * desired size; scaling down waits longer and steps one consumer at a time; after any
+ * change the listener is left alone for the cooldown while its group rebalances. A
+ * listener that does not start again at the new size is started at its previous one, and
+ * failing that is retried every interval until it runs.
+ */
+@Service
+@ConditionalOnProperty(name = "app.kafka-autoscale.enabled", havingValue = "true", matchIfMissing = true)
+public class ListenerAutoscaler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ListenerAutoscaler.class);
+
+    private static final String FETCH_METRICS = "consumer-fetch-manager-metrics";
+    private static final int PARTITION_REFRESH_EVALUATIONS = 20;
+
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final OrderMetrics orderMetrics;
+
+    private final Map<String, ListenerState> states = new ConcurrentHashMap<>();
+
+    @Value("${app.kafka-autoscale.min-concurrency:1}")
+    private int minConcurrency;
+
+    @Value("${app.kafka-autoscale.max-concurrency:12}")
+    private int maxConcurrency;
+
+    @Value("${app.kafka-autoscale.target-drain-seconds:60}")
+    private double targetDrainSeconds;
+
+    @Value("${app.kafka-autoscale.target-utilization:0.75}")
+    private double targetUtilization;
+
+    @Value("${app.kafka-autoscale.scale-up-after:2}")
+    private int scaleUpAfter;
+
+    @Value("${app.kafka-autoscale.scale-down-after:10}")
+    private int scaleDownAfter;
+
+    @Value("${app.kafka-autoscale.cooldown-seconds:120}")
+    private long cooldownSeconds;
+
+    @Autowired
+    public ListenerAutoscaler(KafkaListenerEndpointRegistry listenerRegistry,
+                              ConsumerFactory<String, Object> consumerFactory, OrderMetrics orderMetrics) {
+        this.listenerRegistry = listenerRegistry;
+        this.consumerFactory = consumerFactory;
+        this.orderMetrics = orderMetrics;
+    }
+
+    @Scheduled(fixedDelayString = "${app.kafka-autoscale.interval-ms:30000}",
+               initialDelayString = "${app.kafka-autoscale.interval-ms:30000}")
+    public void evaluate() {
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            if (!(container instanceof ConcurrentMessageListenerContainer)) {
+                continue;
+            }
+            ConcurrentMessageListenerContainer<?, ?> concurrent = (ConcurrentMessageListenerContainer<?, ?>) container;
+            ListenerState state = states.get(container.getListenerId());
+            if (container.isRunning()) {
+                try {
+                    evaluate(concurrent);
+                } catch (RuntimeException e) {
+                    logger.warn("Could not evaluate concurrency of listener {}", container.getListenerId(), e);
+                }
+            } else if (state != null && state.stopped && !state.resizing) {
+                // Stopped by a resize that could not start it again; listeners stopped elsewhere are left alone
+                int concurrency = concurrent.getConcurrency();
+                start(concurrent, container.getListenerId(), state, concurrency, concurrency);
+            }
+        }
+    }
+
+    private void evaluate(ConcurrentMessageListenerContainer<?, ?> container) {
+        String listener = container.getListenerId();
+        ListenerState state = states.computeIfAbsent(listener, id -> {
+            ListenerState created = new ListenerState();
+            orderMetrics.gaugeListenerScaling(id, container::getConcurrency, () -> created.desired,
+                () -> created.backlog);
+            return created;
+        });
+        if (state.resizing) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (state.partitions == 0 || state.evaluations % PARTITION_REFRESH_EVALUATIONS == 0) {
+            state.partitions = partitionCount(container.getContainerProperties().getTopics());
+        }
+        state.evaluations++;
+
+        // Per-partition lag of every consumer thread; the client-wide rate metrics average
+        // over too long a window to follow a ramp, so throughput comes from the timer
+        double backlog = 0;
+        for (Map<MetricName, ? extends Metric> clientMetrics : container.metrics().values()) {
+            for (Map.Entry<MetricName, ? extends Metric> metric : clientMetrics.entrySet()) {
+                MetricName name = metric.getKey();
+                if (FETCH_METRICS.equals(name.group()) && "records-lag".equals(name.name())
+                        && name.tags().containsKey("partition")) {
+                    backlog += finite(metric.getValue().metricValue());
+                }
+            }
+        }
+
+        Timer processing = orderMetrics.getListenerProcessing(listener);
+        long processed = processing.count();
+        double processingNanos = processing.totalTime(TimeUnit.NANOSECONDS);
+        double elapsedSeconds = state.evaluatedAt != 0 ? (now - state.evaluatedAt) / 1e9 : 0;
+        double nanosPerRecord = state.nanosPerRecord;
+        double consumedPerSecond = 0;
+        double backlogGrowth = 0;
+        if (elapsedSeconds > 0) {
+            if (processed > state.processed) {
+                nanosPerRecord = (processingNanos - state.processingNanos) / (processed - state.processed);
+            }
+            consumedPerSecond = (processed - state.processed) / elapsedSeconds;
+            backlogGrowth = (backlog - state.backlog) / elapsedSeconds;
+        }
+
+        int current = container.getConcurrency();
+        int cap = Math.max(minConcurrency, Math.min(maxConcurrency, state.partitions > 0 ? state.partitions : maxConcurrency));
+        int desired = desiredConcurrency(current, cap, backlog, consumedPerSecond + backlogGrowth, nanosPerRecord);
+
+        state.evaluatedAt = now;
+        state.backlog = backlog;
+        state.processed = processed;
+        state.processingNanos = processingNanos;
+        state.nanosPerRecord = nanosPerRecord;
+        state.desired = desired;
+
+        int target = state.vote(current, desired, now);
+        if (target != current) {
+            resize(container, listener, state, current, target, backlog);
+        }
+    }
+
+    /**
+     * Consumers needed to keep up with arrivals and drain the backlog in the target time,
+     * each kept at the target utilization
+     */
+    private int desiredConcurrency(int current, int cap, double backlog, double arrivalsPerSecond, double nanosPerRecord) {
+        if (nanosPerRecord <= 0) {
+            // Nothing processed yet: with no backlog the minimum will do, otherwise wait for data
+            return backlog > 0 ? current : minConcurrency;
+        }
+        double perConsumerPerSecond = targetUtilization * TimeUnit.SECONDS.toNanos(1) / nanosPerRecord;
+        double needed = (Math.max(0, arrivalsPerSecond) + backlog / targetDrainSeconds) / perConsumerPerSecond;
+        return (int) Math.max(minConcurrency, Math.min(cap, Math.ceil(needed)));
+    }
+
+    private void resize(ConcurrentMessageListenerContainer<?, ?> container, String listener, ListenerState state,
+                        int current, int target, double backlog) {
+        logger.info("Scaling listener {} from {} to {} consumers (backlog {}, {} partitions)",
+            listener, current, target, (long) backlog, state.partitions);
+        orderMetrics.recordListenerScaled(listener, target > current);
+        state.resizing = true;
+        // Concurrency only takes effect on start; stopping commits acknowledged offsets first
+        container.stop(() -> {
+            try {
+                start(container, listener, state, target, current);
+            } finally {
+                state.resizing = false;
+            }
+        });
+    }
+
+    /**
+     * Start a listener this class stopped at the target size, or at the previous size
+     * when that fails; a listener neither starts with stays marked as stopped for the
+     * next evaluation to try again
+     */
+    private void start(ConcurrentMessageListenerContainer<?, ?> container, String listener, ListenerState state,
+                       int target, int previous) {
+        state.stopped = true;
+        try {
+            container.setConcurrency(target);
+            container.start();
+            state.stopped = false;
+            return;
+        } catch (RuntimeException e) {
+            logger.warn("Could not start listener {} with {} consumers", listener, target, e);
+        }
+        if (previous == target) {
+            return;
+        }
+        try {
+            container.setConcurrency(previous);
+            container.start();
+            state.stopped = false;
+            logger.info("Started listener {} with its previous {} consumers", listener, previous);
+        } catch (RuntimeException e) {
+            logger.error("Could not start listener {} with {} consumers either; retrying next interval",
+                listener, previous, e);
+        }
+    }
+
+    private int partitionCount(String[] topics) {
+        if (topics == null) {
+            return 0;
+        }
+        int partitions = 0;
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer()) {
+            for (String topic : topics) {
+                List<PartitionInfo> info = consumer.partitionsFor(topic, Duration.ofSeconds(5));
+                partitions += info != null ? info.size() : 0;
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Could not read partition count of {}: {}", String.join(",", topics), e.getMessage());
+        }
+        return partitions;
+    }
+
+    private static double finite(Object value) {
+        if (value instanceof Number) {
+            double number = ((Number) value).doubleValue();
+            return Double.isFinite(number) ? number : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * What the autoscaler remembers about one listener between evaluations
+     */
+    private final class ListenerState {
+        private volatile boolean resizing;
+        private volatile boolean stopped;
+        private volatile int desired;
+        private volatile double backlog;
+
+        private int partitions;
+        private long evaluations;
+        private long evaluatedAt;
+        private long processed;
+        private double processingNanos;
+        private double nanosPerRecord;
+
+        private int upVotes;
+        private int downVotes;
+        private long changedAt;
+
+        /**
+         * Apply hysteresis to the desired size and return the size to run with now
+         */
+        private int vote(int current, int desired, long now) {
+            if (desired > current) {
+                upVotes++;
+                downVotes = 0;
+            } else if (desired < current) {
+                downVotes++;
+                upVotes = 0;
+            } else {
+                upVotes = 0;
+                downVotes = 0;
+            }
+            boolean coolingDown = changedAt != 0 && now - changedAt < TimeUnit.SECONDS.toNanos(cooldownSeconds);
+            if (coolingDown) {
+                return current;
+            }
+            int target = current;
+            if (upVotes >= scaleUpAfter) {
+                target = desired;
+            } else if (downVotes >= scaleDownAfter) {
+                target = current - 1;
+            }
+            if (target != current) {
+                upVotes = 0;
+                downVotes = 0;
+                changedAt = now;
+            }
+            return target;
+        }
+    }
+}
@@ -1,76 +1,144 @@
 package com.orderapp.service;
 
+import com.orderapp.analytics.StreamingAggregationEngine;
+import com.orderapp.analytics.TopProductsTracker;
+import com.orderapp.analytics.UniqueCustomerTracker;
 import com.orderapp.event.OrderCancelledEvent;
 import com.orderapp.event.OrderCreatedEvent;
 import com.orderapp.event.OrderEvent;
 import com.orderapp.event.OrderStatusChangedEvent;
+import com.orderapp.metrics.OrderMetrics;
+import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
- * Service for consuming order events from Kafka for analytics processing
+ * Service for consuming order events from Kafka for analytics processing. Analytics
+ * events feed the {@link StreamingAggregationEngine} and the {@link TopProductsTracker}
+ * when they are enabled, whose checkpoints decide where their partitions resume on
+ * assignment.
  */
 @Service
-public class OrderEventConsumer {
+public class OrderEventConsumer implements ConsumerSeekAware {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderEventConsumer.class);
 
+    static final String ORDER_EVENTS_LISTENER = "orderEvents";
+    static final String ORDER_ANALYTICS_LISTENER = "orderAnalytics";
+
+    private final OrderMetrics orderMetrics;
+    private final StreamingAggregationEngine aggregationEngine;
+    private final TopProductsTracker topProductsTracker;
+    private final UniqueCustomerTracker uniqueCustomerTracker;
+
+    @Autowired
+    public OrderEventConsumer(OrderMetrics orderMetrics, ObjectProvider<StreamingAggregationEngine> aggregationEngine,
+                              ObjectProvider<TopProductsTracker> topProductsTracker,
+                              UniqueCustomerTracker uniqueCustomerTracker) {
+        this.orderMetrics = orderMetrics;
+        this.aggregationEngine = aggregationEngine.getIfAvailable();
+        this.topProductsTracker = topProductsTracker.getIfAvailable();
+        this.uniqueCustomerTracker = uniqueCustomerTracker;
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        // Both skip events their checkpoints already cover, so read from the earlier of the two
+        Map<Integer, Long> resume = new HashMap<>();
+        if (topProductsTracker != null) {
+            resume.putAll(topProductsTracker.onPartitionsAssigned(assignments.keySet()));
+        }
+        if (aggregationEngine != null) {
+            aggregationEngine.onPartitionsAssigned(assignments.keySet()).forEach(
+                (partition, offset) -> resume.merge(partition, offset, Math::min));
+        }
+        resume.forEach((partition, offset) -> callback.seek(StreamingAggregationEngine.TOPIC, partition, offset));
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        if (aggregationEngine != null) {
+            aggregationEngine.onPartitionsRevoked(partitions);
+        }
+        if (topProductsTracker != null) {
+            topProductsTracker.onPartitionsRevoked(partitions);
+        }
+    }
+
     /**
      * Consume order events for general processing
      */
-    @KafkaListener(topics = "order-events", groupId = "order-service-group")
+    @KafkaListener(id = ORDER_EVENTS_LISTENER, topics = "order-events", groupId = "order-service-group")
     public void consumeOrderEvent(@Payload OrderEvent event,
                                   @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
                                   @Header(KafkaHeaders.RECEIVED_PARTITION_ID) int partition,
                                   @Header(KafkaHeaders.OFFSET) long offset,
+                                  @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timestamp,
                                   Acknowledgment acknowledgment) {
+        orderMetrics.recordListenerLag(ORDER_EVENTS_LISTENER, timestamp);
+        long startNanos = System.nanoTime();
         try {
-            logger.info("Received order event: {} from topic: {}, partition: {}, offset: {}",
+            logger.debug("Received order event: {} from topic: {}, partition: {}, offset: {}",
                     event.getEventType(), topic, partition, offset);
 
             processOrderEvent(event);
 
             // Acknowledge the message
             acknowledgment.acknowledge();
-            logger.debug("Successfully processed and acknowledged order event: {}", event.getEventId());
+            logger.debug("Successfully processed and acknowledged order event: {} for {}", event.getEventType(), event.getOrderNumber());
 
         } catch (Exception e) {
-            logger.error("Error processing order event: {}", event.getEventId(), e);
+            logger.error("Error processing order event: {} for {}", event.getEventType(), event.getOrderNumber(), e);
             // In a production environment, you might want to send to a dead letter queue
             // For now, we'll acknowledge to prevent infinite retries
             acknowledgment.acknowledge();
+        } finally {
+            orderMetrics.recordListenerProcessing(ORDER_EVENTS_LISTENER, System.nanoTime() - startNanos);
         }
     }
 
     /**
      * Consume order events specifically for analytics processing
      */
-    @KafkaListener(topics = "order-analytics", groupId = "analytics-service-group")
+    @KafkaListener(id = ORDER_ANALYTICS_LISTENER, topics = StreamingAggregationEngine.TOPIC,
+                   groupId = StreamingAggregationEngine.CONSUMER_GROUP)
     public void consumeOrderAnalyticsEvent(@Payload OrderEvent event,
                                            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
                                            @Header(KafkaHeaders.RECEIVED_PARTITION_ID) int partition,
                                            @Header(KafkaHeaders.OFFSET) long offset,
+                                           @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long timestamp,
                                            Acknowledgment acknowledgment) {
+        orderMetrics.recordListenerLag(ORDER_ANALYTICS_LISTENER, timestamp);
+        long startNanos = System.nanoTime();
         try {
-            logger.info("Received analytics event: {} from topic: {}, partition: {}, offset: {}",
+            logger.debug("Received analytics event: {} from topic: {}, partition: {}, offset: {}",
                     event.getEventType(), topic, partition, offset);
 
-            processAnalyticsEvent(event);
+            processAnalyticsEvent(event, partition, offset, timestamp);
 
             // Acknowledge the message
             acknowledgment.acknowledge();
-            logger.debug("Successfully processed and acknowledged analytics event: {}", event.getEventId());
+            logger.debug("Successfully processed and acknowledged analytics event: {} for {}", event.getEventType(), event.getOrderNumber());
 
         } catch (Exception e) {
-            logger.error("Error processing analytics event: {}", event.getEventId(), e);
+            logger.error("Error processing analytics event: {} for {}", event.getEventType(), event.getOrderNumber(), e);
             // In a production environment, you might want to send to a dead letter queue
             acknowledgment.acknowledge();
+        } finally {
+            orderMetrics.recordListenerProcessing(ORDER_ANALYTICS_LISTENER, System.nanoTime() - startNanos);
         }
     }
 
@@ -96,16 +164,16 @@ public class OrderEventConsumer {
     /**
      * Process analytics-specific events
      */
-    private void processAnalyticsEvent(OrderEvent event) {
+    private void processAnalyticsEvent(OrderEvent event, int partition, long offset, long timestamp) {
         switch (event.getEventType()) {
             case "ORDER_CREATED":
-                processOrderCreatedAnalytics((OrderCreatedEvent) event);
+                processOrderCreatedAnalytics((OrderCreatedEvent) event, partition, offset, timestamp);
                 break;
             case "ORDER_STATUS_CHANGED":
-                processOrderStatusChangedAnalytics((OrderStatusChangedEvent) event);
+                processOrderStatusChangedAnalytics((OrderStatusChangedEvent) event, partition, offset, timestamp);
                 break;
             case "ORDER_CANCELLED":
-                processOrderCancelledAnalytics((OrderCancelledEvent) event);
+                processOrderCancelledAnalytics((OrderCancelledEvent) event, partition, offset, timestamp);
                 break;
             default:
                 logger.warn("Unknown analytics event type: {}", event.getEventType());
@@ -116,7 +184,7 @@ public class OrderEventConsumer {
      * Handle order created events
      */
     private void handleOrderCreated(OrderCreatedEvent event) {
-        logger.info("Processing order created event for order: {} with total: {}",
+        logger.debug("Processing order created event for order: {} with total: {}",
                 event.getOrderNumber(), event.getTotalAmount());
         
         // TODO: Implement order created processing logic
@@ -131,7 +199,7 @@ public class OrderEventConsumer {
      * Handle order status changed events
      */
     private void handleOrderStatusChanged(OrderStatusChangedEvent event) {
-        logger.info("Processing order status changed event for order: {} from {} to {}",
+        logger.debug("Processing order status changed event for order: {} from {} to {}",
                 event.getOrderNumber(), event.getPreviousStatus(), event.getNewStatus());
         
         // TODO: Implement status change processing logic
@@ -146,7 +214,7 @@ public class OrderEventConsumer {
      * Handle order cancelled events
      */
     private void handleOrderCancelled(OrderCancelledEvent event) {
-        logger.info("Processing order cancelled event for order: {} with reason: {}",
+        logger.debug("Processing order cancelled event for order: {} with reason: {}",
                 event.getOrderNumber(), event.getCancellationReason());
         
         // TODO: Implement cancellation processing logic
@@ -160,45 +228,44 @@ public class OrderEventConsumer {
     /**
      * Process order created analytics
      */
-    private void processOrderCreatedAnalytics(OrderCreatedEvent event) {
-        logger.info("Processing analytics for order created: {} with value: {}",
+    private void processOrderCreatedAnalytics(OrderCreatedEvent event, int partition, long offset, long timestamp) {
+        logger.debug("Processing analytics for order created: {} with value: {}",
                 event.getOrderNumber(), event.getTotalAmount());
-        
-        // TODO: Implement analytics processing
-        // Examples:
-        // - Update real-time revenue metrics
-        // - Track customer acquisition
-        // - Update product popularity metrics
-        // - Calculate conversion rates
+
+        // Order count, revenue and product sales per minute/hour/day window
+        if (aggregationEngine != null) {
+            aggregationEngine.onOrderCreated(partition, offset, timestamp, event);
+        }
+        if (topProductsTracker != null) {
+            topProductsTracker.record(partition, offset, event, timestamp);
+        }
+        uniqueCustomerTracker.record(event, timestamp);
     }
 
     /**
      * Process order status changed analytics
      */
-    private void processOrderStatusChangedAnalytics(OrderStatusChangedEvent event) {
-        logger.info("Processing analytics for order status change: {} to {}",
+    private void processOrderStatusChangedAnalytics(OrderStatusChangedEvent event, int partition, long offset,
+                                                    long timestamp) {
+        logger.debug("Processing analytics for order status change: {} to {}",
                 event.getOrderNumber(), event.getNewStatus());
-        
-        // TODO: Implement analytics processing
-        // Examples:
-        // - Update order fulfillment metrics
-        // - Track processing times
-        // - Calculate status transition rates
-        // - Update operational dashboards
+
+        // Orders entering each status per window
+        if (aggregationEngine != null) {
+            aggregationEngine.onOrderStatusChanged(partition, offset, timestamp, event);
+        }
     }
 
     /**
      * Process order cancelled analytics
      */
-    private void processOrderCancelledAnalytics(OrderCancelledEvent event) {
-        logger.info("Processing analytics for order cancellation: {} with reason: {}",
+    private void processOrderCancelledAnalytics(OrderCancelledEvent event, int partition, long offset, long timestamp) {
+        logger.debug("Processing analytics for order cancellation: {} with reason: {}",
                 event.getOrderNumber(), event.getCancellationReason());
-        
-        // TODO: Implement analytics processing
-        // Examples:
-        // - Track cancellation rates
-        // - Analyze cancellation reasons
-        // - Update refund metrics
-        // - Monitor customer satisfaction impact
+
+        // Cancellations and refunded value per window
+        if (aggregationEngine != null) {
+            aggregationEngine.onOrderCancelled(partition, offset, timestamp, event);
+        }
     }
 }
@@ -5,18 +5,17 @@ import com.orderapp.event.OrderCancelledEvent;
 import com.orderapp.event.OrderCreatedEvent;
 import com.orderapp.event.OrderEvent;
 import com.orderapp.event.OrderStatusChangedEvent;
+import com.orderapp.publish.EventPublishPipeline;
+import com.orderapp.publish.PublishProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
-import org.springframework.util.concurrent.ListenableFuture;
-import org.springframework.util.concurrent.ListenableFutureCallback;
 
 /**
- * Service for publishing order events to Kafka
+ * Service for publishing order events to Kafka. Events are handed to the
+ * {@link EventPublishPipeline}, so the caller never waits on the broker.
  */
 @Service
 public class OrderEventPublisher {
@@ -24,7 +23,7 @@ public class OrderEventPublisher {
     private static final Logger logger = LoggerFactory.getLogger(OrderEventPublisher.class);
     
     @Autowired
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private EventPublishPipeline publishPipeline;
     
     @Value("${app.kafka.topics.order-events:order-events}")
     private String orderEventsTopic;
@@ -63,10 +62,10 @@ public class OrderEventPublisher {
     private void publishEvent(OrderEvent event, String logMessage) {
         try {
             // Publish to main order events topic
-            publishToTopic(orderEventsTopic, event, logMessage);
+            publishToTopic(PublishProfile.EVENTS, orderEventsTopic, event, logMessage);
             
             // Also publish to analytics topic for real-time processing
-            publishToTopic(orderAnalyticsTopic, event, "Analytics event: " + logMessage);
+            publishToTopic(PublishProfile.ANALYTICS, orderAnalyticsTopic, event, "Analytics event: " + logMessage);
             
         } catch (Exception e) {
             logger.error("Failed to publish event: {}", event, e);
@@ -74,28 +73,13 @@ public class OrderEventPublisher {
     }
     
     /**
-     * Publish event to specific topic
+     * Queue event for a specific topic
      */
-    private void publishToTopic(String topic, OrderEvent event, String logMessage) {
+    private void publishToTopic(String profile, String topic, OrderEvent event, String logMessage) {
         String key = event.getOrderId().toString();
-        
-        ListenableFuture<SendResult<String, Object>> future = kafkaTemplate.send(topic, key, event);
-        
-        future.addCallback(new ListenableFutureCallback<SendResult<String, Object>>() {
-            @Override
-            public void onSuccess(SendResult<String, Object> result) {
-                logger.info("{} - Topic: {}, Partition: {}, Offset: {}", 
-                        logMessage, 
-                        topic,
-                        result.getRecordMetadata().partition(),
-                        result.getRecordMetadata().offset());
-            }
-            
-            @Override
-            public void onFailure(Throwable ex) {
-                logger.error("Failed to publish event to topic {}: {}", topic, event, ex);
-            }
-        });
+        if (publishPipeline.publish(profile, topic, key, event)) {
+            logger.debug("{} - queued for topic {}", logMessage, topic);
+        }
     }
     
     /**
@@ -103,7 +87,7 @@ public class OrderEventPublisher {
      */
     public void publishCustomEvent(String topic, OrderEvent event) {
         try {
-            publishToTopic(topic, event, "Custom event published");
+            publishToTopic(PublishProfile.EVENTS, topic, event, "Custom event published");
         } catch (Exception e) {
             logger.error("Failed to publish custom event to topic {}: {}", topic, event, e);
         }
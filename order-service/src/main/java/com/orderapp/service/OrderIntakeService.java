@@ -0,0 +1,319 @@
+package com.orderapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orderapp.dto.CreateOrderRequest;
+import com.orderapp.dto.OrderSubmission;
+import com.orderapp.entity.Order;
+import com.orderapp.entity.QueuedOrder;
+import com.orderapp.exception.OrderIntakeFullException;
+import com.orderapp.exception.ResourceNotFoundException;
+import com.orderapp.metrics.OrderMetrics;
+import com.orderapp.repository.OrderRepository;
+import com.orderapp.repository.QueuedOrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Intake for POST /orders/async. Submissions are queued on bounded queues sharded by
+ * user id, so one user's orders are applied in submission order, and a worker per shard
+ * applies them in micro-batches. When a shard is full the submission is rejected rather
+ * than queued, which the API surfaces as 429.
+ * <p>
+ * Each accepted submission is first stored in queued_orders, and its outcome is written
+ * there in the transaction that applies it, so status reads work on any instance. One
+ * left unfinished by a crash or an unfinished drain is queued again by whichever instance
+ * next finds it stale; its order number is unique, so an order applied twice is caught
+ * and reported as the existing order.
+ */
+@Service
+public class OrderIntakeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderIntakeService.class);
+
+    private final OrderService orderService;
+    private final OrderMetrics orderMetrics;
+    private final QueuedOrderRepository queuedOrderRepository;
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.order-intake.shards:4}")
+    private int shardCount;
+
+    @Value("${app.order-intake.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.order-intake.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.order-intake.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Value("${app.order-intake.status-ttl-minutes:10}")
+    private long statusTtlMinutes;
+
+    @Value("${app.order-intake.stale-after-seconds:300}")
+    private long staleAfterSeconds;
+
+    private BlockingQueue<OrderSubmission>[] shards;
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    @Autowired
+    public OrderIntakeService(OrderService orderService, OrderMetrics orderMetrics,
+                              QueuedOrderRepository queuedOrderRepository, OrderRepository orderRepository,
+                              ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.orderService = orderService;
+        this.orderMetrics = orderMetrics;
+        this.queuedOrderRepository = queuedOrderRepository;
+        this.orderRepository = orderRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void start() {
+        shards = new BlockingQueue[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new ArrayBlockingQueue<>(queueCapacity);
+        }
+        orderMetrics.gaugeIntakeDepth(this::queuedCount);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(shardCount, runnable -> {
+            Thread thread = new Thread(runnable, "order-intake-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        running = true;
+        for (BlockingQueue<OrderSubmission> shard : shards) {
+            workers.execute(() -> drain(shard));
+        }
+        logger.info("Order intake started with {} shards of {} slots", shardCount, queueCapacity);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        // Workers finish what is already queued before exiting
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            // Still stored in queued_orders; another instance picks them up once they go stale
+            logger.warn("Order intake stopped with {} orders still queued", queuedCount());
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Assign an order number, store the order and queue it, or throw if its shard is full
+     */
+    public OrderSubmission submit(CreateOrderRequest request) {
+        if (!running) {
+            throw new OrderIntakeFullException("Order intake is shutting down", retryAfterSeconds);
+        }
+        OrderSubmission submission = new OrderSubmission(orderService.nextOrderNumber(), request);
+        BlockingQueue<OrderSubmission> shard = shardFor(submission);
+        // Spare the insert when the shard is plainly full
+        if (shard.remainingCapacity() == 0) {
+            throw rejected();
+        }
+        queuedOrderRepository.save(new QueuedOrder(submission.getOrderNumber(), submission.getUserId(),
+            serialize(request), submission.getSubmittedAt()));
+        if (!shard.offer(submission)) {
+            queuedOrderRepository.deleteById(submission.getOrderNumber());
+            throw rejected();
+        }
+        return submission;
+    }
+
+    private OrderIntakeFullException rejected() {
+        orderMetrics.recordIntakeRejected();
+        return new OrderIntakeFullException("Order intake queue is full, retry later", retryAfterSeconds);
+    }
+
+    public OrderSubmission getSubmission(String orderNumber) {
+        return queuedOrderRepository.findById(orderNumber)
+            .map(queued -> new OrderSubmission(queued, null))
+            .orElseThrow(() -> new ResourceNotFoundException("No queued order with order number: " + orderNumber));
+    }
+
+    public int queuedCount() {
+        int queued = 0;
+        for (BlockingQueue<OrderSubmission> shard : shards) {
+            queued += shard.size();
+        }
+        return queued;
+    }
+
+    /**
+     * Forget finished submissions once their status has been available for the TTL
+     */
+    @Scheduled(fixedDelayString = "${app.order-intake.status-purge-ms:60000}")
+    public void purgeFinished() {
+        queuedOrderRepository.deleteFinishedBefore(LocalDateTime.now().minusMinutes(statusTtlMinutes));
+    }
+
+    /**
+     * Queue again submissions that no instance has taken up for stale-after-seconds:
+     * their instance stopped before applying them
+     */
+    @Scheduled(fixedDelayString = "${app.order-intake.recovery-ms:60000}")
+    public void recoverStale() {
+        if (!running) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minusSeconds(staleAfterSeconds);
+        int recovered = 0;
+        for (String orderNumber : queuedOrderRepository.findStale(before, PageRequest.of(0, queueCapacity))) {
+            if (queuedOrderRepository.claim(orderNumber, before, LocalDateTime.now()) == 0) {
+                continue;
+            }
+            QueuedOrder queued = queuedOrderRepository.findById(orderNumber).orElse(null);
+            if (queued == null) {
+                continue;
+            }
+            OrderSubmission submission = new OrderSubmission(queued, deserialize(queued.getRequest()));
+            // If the shard is full the claim lapses and the submission is retried later
+            if (shardFor(submission).offer(submission)) {
+                recovered++;
+            }
+        }
+        if (recovered > 0) {
+            logger.info("Queued {} order(s) again that were left unfinished by a stopped instance", recovered);
+        }
+    }
+
+    private BlockingQueue<OrderSubmission> shardFor(OrderSubmission submission) {
+        return shards[Math.floorMod(submission.getUserId().hashCode(), shards.length)];
+    }
+
+    private void drain(BlockingQueue<OrderSubmission> shard) {
+        List<OrderSubmission> batch = new ArrayList<>(batchSize);
+        while (running || !shard.isEmpty()) {
+            try {
+                OrderSubmission first = shard.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                shard.drainTo(batch, batchSize - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Order intake worker failed on a batch of {}", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void apply(List<OrderSubmission> batch) {
+        long now = System.nanoTime();
+        List<String> orderNumbers = new ArrayList<>(batch.size());
+        for (OrderSubmission submission : batch) {
+            orderMetrics.recordIntakeQueueDelay(now - submission.getEnqueuedNanos());
+            submission.processing();
+            orderNumbers.add(submission.getOrderNumber());
+        }
+        queuedOrderRepository.markProcessing(orderNumbers, OrderSubmission.Status.PROCESSING, LocalDateTime.now());
+
+        try {
+            // Outcomes are stored in the transaction that creates the orders
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Order> created = orderService.createOrders(batch);
+                Map<String, OrderSubmission> byNumber = new HashMap<>();
+                for (OrderSubmission submission : batch) {
+                    byNumber.put(submission.getOrderNumber(), submission);
+                }
+                for (Order order : created) {
+                    byNumber.get(order.getOrderNumber()).complete(order.getId());
+                }
+                batch.forEach(this::store);
+            });
+            return;
+        } catch (RuntimeException e) {
+            logger.warn("Batch of {} queued orders failed, applying them one by one", batch.size(), e);
+        }
+
+        for (OrderSubmission submission : batch) {
+            // Outcomes decided within the failed batch were rolled back with it, except validation failures
+            if (submission.getStatus() == OrderSubmission.Status.COMPLETED) {
+                submission.processing();
+            }
+            if (submission.getStatus() != OrderSubmission.Status.PROCESSING) {
+                store(submission);
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    submission.complete(orderService.createOrder(submission.getRequest(), submission.getOrderNumber()).getId());
+                    store(submission);
+                });
+            } catch (RuntimeException e) {
+                // Applied before, by an instance that stopped before storing the outcome
+                Optional<UUID> existing = orderRepository.findByOrderNumber(submission.getOrderNumber()).map(Order::getId);
+                if (existing.isPresent()) {
+                    submission.complete(existing.get());
+                } else {
+                    submission.fail(e.getMessage());
+                }
+                store(submission);
+            }
+        }
+    }
+
+    private void store(OrderSubmission submission) {
+        if (submission.isDone()) {
+            queuedOrderRepository.finish(submission.getOrderNumber(), submission.getStatus(), submission.getOrderId(),
+                truncate(submission.getMessage()), submission.getCompletedAt());
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    private byte[] serialize(CreateOrderRequest request) {
+        try {
+            return objectMapper.writeValueAsBytes(request);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize queued order", e);
+        }
+    }
+
+    private CreateOrderRequest deserialize(byte[] request) {
+        try {
+            return objectMapper.readValue(request, CreateOrderRequest.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read queued order", e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.orderapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Maintains the monthly partitions of orders and order_items (see V3 migration):
+ * creates future partitions ahead of time and, when app.partitioning.retention-months
+ * is set, detaches expired ones into the archive schema. Detached orders are no longer
+ * served by the API, so a partition is only detached once every order in it, and in
+ * every older partition, is delivered, cancelled or refunded.
+ */
+@Service
+@ConditionalOnProperty(name = "app.partitioning.enabled", havingValue = "true", matchIfMissing = true)
+public class OrderPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderPartitionService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${app.partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    @Autowired
+    public OrderPartitionService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        createFuturePartitions();
+    }
+
+    /**
+     * Create monthly partitions from the current month through months-ahead
+     */
+    @Scheduled(cron = "${app.partitioning.cron:0 0 3 * * *}")
+    public void maintainPartitions() {
+        createFuturePartitions();
+        archiveExpiredPartitions();
+    }
+
+    public int createFuturePartitions() {
+        try {
+            Integer created = jdbcTemplate.queryForObject(
+                "SELECT ensure_order_partitions(?)", Integer.class, monthsAhead);
+            if (created != null && created > 0) {
+                logger.info("Created {} order partition(s) for the next {} months", created, monthsAhead);
+            }
+            return created != null ? created : 0;
+        } catch (Exception e) {
+            logger.error("Failed to create order partitions", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Detach partitions older than retention-months and move them to the archive schema;
+     * 0 keeps every partition
+     */
+    public int archiveExpiredPartitions() {
+        if (retentionMonths <= 0) {
+            return 0;
+        }
+        LocalDate cutoff = LocalDate.now().withDayOfMonth(1).minusMonths(retentionMonths);
+        try {
+            Long open = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM orders WHERE created_at < ? AND status NOT IN ('DELIVERED', 'CANCELLED', 'REFUNDED')",
+                Long.class, cutoff);
+            if (open != null && open > 0) {
+                logger.warn("Not archiving order partitions before {}: {} order(s) there are still open", cutoff, open);
+                return 0;
+            }
+            Integer archived = jdbcTemplate.queryForObject(
+                "SELECT archive_order_partitions(?)", Integer.class, cutoff);
+            if (archived != null && archived > 0) {
+                logger.info("Archived {} order partition(s) ending on or before {}", archived, cutoff);
+            }
+            return archived != null ? archived : 0;
+        } catch (Exception e) {
+            logger.error("Failed to archive order partitions before {}", cutoff, e);
+            return 0;
+        }
+    }
+}
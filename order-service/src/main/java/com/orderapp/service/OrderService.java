@@ -1,23 +1,30 @@
 package com.orderapp.service;
 
+import com.orderapp.archive.ColdOrderArchive;
 import com.orderapp.dto.CreateOrderRequest;
 import com.orderapp.dto.OrderResponse;
+import com.orderapp.dto.OrderSubmission;
+import com.orderapp.entity.Money;
 import com.orderapp.entity.Order;
 import com.orderapp.entity.OrderItem;
 import com.orderapp.entity.Product;
 import com.orderapp.entity.User;
 import com.orderapp.exception.InsufficientStockException;
 import com.orderapp.exception.ResourceNotFoundException;
+import com.orderapp.lookup.LookupFilters;
+import com.orderapp.metrics.OrderMetrics;
 import com.orderapp.repository.OrderRepository;
 import com.orderapp.repository.ProductRepository;
 import com.orderapp.repository.UserRepository;
+import com.orderapp.web.ResponseCache;
 import com.orderapp.service.OrderEventPublisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,8 +32,17 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -35,38 +51,75 @@ public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    private static final DateTimeFormatter ORDER_NUMBER_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
     private final OrderEventPublisher eventPublisher;
+    private final ColdOrderArchive coldOrderArchive;
+    private final OrderMetrics orderMetrics;
+    private final ResponseCache responseCache;
+    private final ProductCatalog productCatalog;
+    private final OrderViewStore orderViewStore;
+    private final RecentOrdersIndex recentOrders;
+    private final LookupFilters lookupFilters;
+
+    // Random start so instances restarted within the same second do not replay the same suffixes
+    private final AtomicInteger orderSequence = new AtomicInteger(ThreadLocalRandom.current().nextInt(1_000_000));
 
     @Autowired
     public OrderService(OrderRepository orderRepository, 
                        UserRepository userRepository,
                        ProductRepository productRepository,
-                       OrderEventPublisher eventPublisher) {
+                       OrderEventPublisher eventPublisher,
+                       ColdOrderArchive coldOrderArchive,
+                       OrderMetrics orderMetrics,
+                       ResponseCache responseCache,
+                       ProductCatalog productCatalog,
+                       OrderViewStore orderViewStore,
+                       ObjectProvider<RecentOrdersIndex> recentOrders,
+                       ObjectProvider<LookupFilters> lookupFilters) {
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
         this.eventPublisher = eventPublisher;
+        this.coldOrderArchive = coldOrderArchive;
+        this.orderMetrics = orderMetrics;
+        this.responseCache = responseCache;
+        this.productCatalog = productCatalog;
+        this.orderViewStore = orderViewStore;
+        this.recentOrders = recentOrders.getIfAvailable();
+        this.lookupFilters = lookupFilters.getIfAvailable();
     }
 
     @Transactional
-    @CacheEvict(value = {"orders", "userOrders"}, allEntries = true)
     public OrderResponse createOrder(CreateOrderRequest request) {
-        logger.info("Creating order for user: {}", request.getUserId());
+        return createOrder(request, nextOrderNumber());
+    }
+
+    /**
+     * Create an order under an order number assigned up front, as done by the async intake
+     */
+    @Transactional
+    public OrderResponse createOrder(CreateOrderRequest request, String orderNumber) {
+        logger.debug("Creating order for user: {}", request.getUserId());
+        long startNanos = System.nanoTime();
 
         // Validate user exists
         User user = userRepository.findById(request.getUserId())
             .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + request.getUserId()));
 
         // Create order
-        Order order = new Order(user, generateOrderNumber());
-        order.setTaxAmount(request.getTaxAmount());
-        order.setShippingAmount(request.getShippingAmount());
+        Order order = new Order(user, orderNumber);
+        order.setTaxAmount(Money.of(request.getTaxAmount()));
+        order.setShippingAmount(Money.of(request.getShippingAmount()));
         order.setShippingAddress(request.getShippingAddress());
         order.setNotes(request.getNotes());
 
+        long validatedNanos = System.nanoTime();
+        orderMetrics.recordValidation(validatedNanos - startNanos);
+
         // Process order items
         for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
             Product product = productRepository.findById(itemRequest.getProductId())
@@ -74,58 +127,200 @@ public class OrderService {
 
             // Check stock availability
             if (product.getStockQuantity() < itemRequest.getQuantity()) {
+                orderMetrics.recordStockContention(product.getSku());
                 throw new InsufficientStockException(
                     String.format("Insufficient stock for product %s. Available: %d, Requested: %d",
                         product.getName(), product.getStockQuantity(), itemRequest.getQuantity()));
             }
 
             // Create order item
-            OrderItem orderItem = new OrderItem(product, itemRequest.getQuantity(), product.getPrice());
+            OrderItem orderItem = new OrderItem(product, itemRequest.getQuantity(), Money.of(product.getPrice()));
             order.addOrderItem(orderItem);
 
             // Update product stock
             product.decreaseStock(itemRequest.getQuantity());
             productRepository.save(product);
+            productsChanged(List.of(product));
         }
 
         // Calculate total amount
         order.calculateTotalAmount();
 
-        // Save order
-        Order savedOrder = orderRepository.save(order);
-        logger.info("Order created successfully with order number: {}", savedOrder.getOrderNumber());
+        long stockedNanos = System.nanoTime();
+        orderMetrics.recordStock(stockedNanos - validatedNanos);
+
+        // Save order; flushed so the inserts, and the stock updates before them, fall within the persist phase
+        Order savedOrder = orderRepository.saveAndFlush(order);
+        logger.debug("Order created successfully with order number: {}", savedOrder.getOrderNumber());
+
+        OrderResponse response = new OrderResponse(savedOrder);
+        written(response, true);
+
+        long persistedNanos = System.nanoTime();
+        orderMetrics.recordPersist(persistedNanos - stockedNanos);
 
         // Publish order created event
         eventPublisher.publishOrderCreated(savedOrder);
 
-        return new OrderResponse(savedOrder);
+        orderMetrics.recordCreateOrder(System.nanoTime() - startNanos);
+        return response;
+    }
+
+    /**
+     * Apply a micro-batch of queued orders in one transaction. Users and products are loaded
+     * once for the whole batch; a submission that fails validation or the stock check is
+     * marked FAILED and skipped without affecting the others. Returns the saved orders;
+     * callers mark them completed once this method has committed.
+     */
+    @Transactional
+    public List<Order> createOrders(List<OrderSubmission> submissions) {
+        long startNanos = System.nanoTime();
+
+        Set<UUID> userIds = new HashSet<>();
+        Set<UUID> productIds = new HashSet<>();
+        for (OrderSubmission submission : submissions) {
+            userIds.add(submission.getUserId());
+            for (CreateOrderRequest.OrderItemRequest item : submission.getRequest().getItems()) {
+                productIds.add(item.getProductId());
+            }
+        }
+        Map<UUID, User> users = userRepository.findAllById(userIds).stream()
+            .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<UUID, Product> products = productRepository.findAllById(productIds).stream()
+            .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        long validatedNanos = System.nanoTime();
+        orderMetrics.recordValidation(validatedNanos - startNanos);
+
+        List<Order> orders = new ArrayList<>(submissions.size());
+        Set<Product> touched = new HashSet<>();
+        for (OrderSubmission submission : submissions) {
+            CreateOrderRequest request = submission.getRequest();
+            User user = users.get(request.getUserId());
+            if (user == null) {
+                submission.fail("User not found with id: " + request.getUserId());
+                continue;
+            }
+
+            // Check every line before touching stock so a rejected order leaves no partial decrement
+            Map<Product, Integer> quantities = new LinkedHashMap<>();
+            String rejection = null;
+            for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
+                Product product = products.get(itemRequest.getProductId());
+                if (product == null) {
+                    rejection = "Product not found with id: " + itemRequest.getProductId();
+                    break;
+                }
+                int requested = quantities.merge(product, itemRequest.getQuantity(), Integer::sum);
+                if (product.getStockQuantity() < requested) {
+                    orderMetrics.recordStockContention(product.getSku());
+                    rejection = String.format("Insufficient stock for product %s. Available: %d, Requested: %d",
+                        product.getName(), product.getStockQuantity(), requested);
+                    break;
+                }
+            }
+            if (rejection != null) {
+                submission.fail(rejection);
+                continue;
+            }
+
+            Order order = new Order(user, submission.getOrderNumber());
+            order.setTaxAmount(Money.of(request.getTaxAmount()));
+            order.setShippingAmount(Money.of(request.getShippingAmount()));
+            order.setShippingAddress(request.getShippingAddress());
+            order.setNotes(request.getNotes());
+            for (CreateOrderRequest.OrderItemRequest itemRequest : request.getItems()) {
+                Product product = products.get(itemRequest.getProductId());
+                order.addOrderItem(new OrderItem(product, itemRequest.getQuantity(), Money.of(product.getPrice())));
+            }
+            order.calculateTotalAmount();
+            quantities.forEach(Product::decreaseStock);
+            touched.addAll(quantities.keySet());
+            orders.add(order);
+        }
+
+        long stockedNanos = System.nanoTime();
+        orderMetrics.recordStock(stockedNanos - validatedNanos);
+
+        productRepository.saveAll(touched);
+        productsChanged(touched);
+        List<Order> savedOrders = orderRepository.saveAll(orders);
+        for (Order savedOrder : savedOrders) {
+            written(new OrderResponse(savedOrder), true);
+        }
+        orderRepository.flush();
+        orderMetrics.recordPersist(System.nanoTime() - stockedNanos);
+        logger.info("Created {} of {} queued orders", savedOrders.size(), submissions.size());
+
+        for (Order savedOrder : savedOrders) {
+            eventPublisher.publishOrderCreated(savedOrder);
+        }
+        return savedOrders;
     }
 
     @Transactional(readOnly = true)
-    // @Cacheable(value = "orders", key = "#orderId") // Temporarily disabled for testing
     public OrderResponse getOrderById(UUID orderId) {
-        Order order = orderRepository.findByIdWithItems(orderId)
+        return orderViewStore.findById(orderId)
+            .or(() -> orderRepository.findByIdWithItems(orderId).map(OrderResponse::new))
+            .or(() -> coldOrderArchive.findById(orderId))
             .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
-        return new OrderResponse(order);
     }
 
     @Transactional(readOnly = true)
     public OrderResponse getOrderByOrderNumber(String orderNumber) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
+        return orderViewStore.findByOrderNumber(orderNumber)
+            .or(() -> orderRepository.findByOrderNumber(orderNumber).map(OrderResponse::new))
             .orElseThrow(() -> new ResourceNotFoundException("Order not found with order number: " + orderNumber));
-        return new OrderResponse(order);
     }
 
+    /**
+     * A user's orders, newest first. Pages within the recent-orders capacity are read as
+     * one capacity-sized page that then rebuilds the user's index; callers try the index first.
+     */
     @Transactional(readOnly = true)
-    @Cacheable(value = "userOrders", key = "#userId + '_' + #pageable.pageNumber + '_' + #pageable.pageSize")
     public Page<OrderResponse> getOrdersByUserId(UUID userId, Pageable pageable) {
-        // Verify user exists
-        if (!userRepository.existsById(userId)) {
+        if (recentOrders == null || pageable.getOffset() + pageable.getPageSize() > recentOrders.getCapacity()) {
+            return requireUser(userId, loadOrdersByUserId(userId, pageable));
+        }
+        String lease = recentOrders.lease(userId);
+        Page<OrderResponse> newest = requireUser(userId, loadOrdersByUserId(userId,
+            PageRequest.of(0, recentOrders.getCapacity(), pageable.getSort())));
+        recentOrders.install(userId, lease, newest.getContent(), newest.getTotalElements());
+
+        List<OrderResponse> content = newest.getContent();
+        int from = (int) Math.min(pageable.getOffset(), content.size());
+        int to = Math.min(from + pageable.getPageSize(), content.size());
+        return new PageImpl<>(content.subList(from, to), pageable, newest.getTotalElements());
+    }
+
+    // A user with orders exists, so only a user without any needs the extra lookup
+    private Page<OrderResponse> requireUser(UUID userId, Page<OrderResponse> orders) {
+        if (orders.getTotalElements() == 0 && !userRepository.existsById(userId)) {
             throw new ResourceNotFoundException("User not found with id: " + userId);
         }
+        return orders;
+    }
 
-        Page<Order> orders = orderRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
-        return orders.map(OrderResponse::new);
+    private Page<OrderResponse> loadOrdersByUserId(UUID userId, Pageable pageable) {
+        Page<OrderResponse> orders = orderRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable)
+            .map(OrderResponse::new);
+        if (coldOrderArchive.isEmpty()) {
+            return orders;
+        }
+
+        // Archived orders are older than anything still hot, so they continue after the last hot page
+        List<OrderResponse> archived = coldOrderArchive.findByUserId(userId);
+        if (archived.isEmpty()) {
+            return orders;
+        }
+        List<OrderResponse> content = new ArrayList<>(orders.getContent());
+        long hotTotal = orders.getTotalElements();
+        int archiveOffset = (int) Math.max(0, pageable.getOffset() + content.size() - hotTotal);
+        int archiveEnd = Math.min(archived.size(), archiveOffset + pageable.getPageSize() - content.size());
+        if (archiveOffset < archiveEnd) {
+            content.addAll(archived.subList(archiveOffset, archiveEnd));
+        }
+        return new PageImpl<>(content, pageable, hotTotal + archived.size());
     }
 
     @Transactional(readOnly = true)
@@ -143,7 +338,6 @@ public class OrderService {
     }
 
     @Transactional
-    @CacheEvict(value = {"orders", "userOrders"}, allEntries = true)
     public OrderResponse updateOrderStatus(UUID orderId, Order.OrderStatus newStatus) {
         logger.info("Updating order {} status to {}", orderId, newStatus);
 
@@ -193,6 +387,11 @@ public class OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        // Flushed first so the view carries the new updatedAt
+        orderRepository.flush();
+        OrderResponse response = new OrderResponse(savedOrder);
+        written(response, false);
+        responseCache.invalidate(ResponseCache.orderTag(orderId));
         logger.info("Order {} status updated from {} to {}", orderId, oldStatus, newStatus);
 
         // Publish order status changed event
@@ -202,11 +401,10 @@ public class OrderService {
             eventPublisher.publishOrderStatusChanged(savedOrder, oldStatus, null);
         }
 
-        return new OrderResponse(savedOrder);
+        return response;
     }
 
     @Transactional
-    @CacheEvict(value = {"orders", "userOrders"}, allEntries = true)
     public void cancelOrder(UUID orderId) {
         updateOrderStatus(orderId, Order.OrderStatus.CANCELLED);
     }
@@ -220,7 +418,8 @@ public class OrderService {
             Order.OrderStatus.CONFIRMED
         );
         BigDecimal revenue = orderRepository.getTotalRevenueByStatuses(completedStatuses);
-        return revenue != null ? revenue : BigDecimal.ZERO;
+        BigDecimal archivedRevenue = coldOrderArchive.sumRevenue(completedStatuses, null, null);
+        return (revenue != null ? revenue : BigDecimal.ZERO).add(archivedRevenue);
     }
 
     @Transactional(readOnly = true)
@@ -232,7 +431,8 @@ public class OrderService {
             Order.OrderStatus.CONFIRMED
         );
         BigDecimal revenue = orderRepository.getTotalRevenueBetweenDatesAndStatuses(startDate, endDate, completedStatuses);
-        return revenue != null ? revenue : BigDecimal.ZERO;
+        BigDecimal archivedRevenue = coldOrderArchive.sumRevenue(completedStatuses, startDate, endDate);
+        return (revenue != null ? revenue : BigDecimal.ZERO).add(archivedRevenue);
     }
 
     @Transactional(readOnly = true)
@@ -240,10 +440,14 @@ public class OrderService {
         return orderRepository.countByStatus(status);
     }
 
-    private String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String randomSuffix = String.valueOf((int) (Math.random() * 1000));
-        return "ORD-" + timestamp + "-" + randomSuffix;
+    /**
+     * Order number from the current second and a sequence; a random 0-999 suffix collided
+     * on the unique order_number constraint once a few dozen orders were created per second
+     */
+    public String nextOrderNumber() {
+        String timestamp = LocalDateTime.now().format(ORDER_NUMBER_TIMESTAMP);
+        int sequence = Math.floorMod(orderSequence.getAndIncrement(), 1_000_000);
+        return "ORD-" + timestamp + "-" + String.format("%06d", sequence);
     }
 
     private void restoreStock(Order order) {
@@ -252,6 +456,29 @@ public class OrderService {
             Product product = item.getProduct();
             product.increaseStock(item.getQuantity());
             productRepository.save(product);
+            productsChanged(List.of(product));
+        }
+    }
+
+    // Stock changed: drop cached product responses and queue the products for the catalog snapshot
+    private void productsChanged(Collection<Product> products) {
+        List<UUID> productIds = new ArrayList<>(products.size());
+        for (Product product : products) {
+            responseCache.invalidate(ResponseCache.productTag(product.getId()));
+            productIds.add(product.getId());
+        }
+        productCatalog.markChanged(productIds);
+    }
+
+    // Every order write goes to the read model now and to the recent-orders index on commit;
+    // new order numbers also go to the lookup filter
+    private void written(OrderResponse order, boolean created) {
+        orderViewStore.write(order);
+        if (created && lookupFilters != null) {
+            lookupFilters.add(LookupFilters.Key.ORDER_NUMBER, order.getOrderNumber());
+        }
+        if (recentOrders != null) {
+            recentOrders.recordAfterCommit(order, created);
         }
     }
 }
@@ -0,0 +1,87 @@
+package com.orderapp.service;
+
+import com.orderapp.event.OrderEvent;
+import com.orderapp.replay.ReadModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Rebuilds the order_views rows of the orders a replay's events refer to. Events do not
+ * carry whole orders, so views are rewritten from the order tables, as the backfill does,
+ * in batches as the replay goes; the state is only the orders waiting for the next batch.
+ * Rewriting a view again is harmless, so a resumed replay may repeat some.
+ */
+@Component
+public class OrderViewReadModel implements ReadModel {
+
+    private final OrderViewStore orderViewStore;
+    private final int batchSize;
+
+    @Autowired
+    public OrderViewReadModel(OrderViewStore orderViewStore,
+                              @Value("${app.order-views.backfill-batch-size:500}") int batchSize) {
+        this.orderViewStore = orderViewStore;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @Override
+    public String getName() {
+        return "order-views";
+    }
+
+    @Override
+    public PartitionState open(int partition, byte[] snapshot) {
+        Set<UUID> pending = new LinkedHashSet<>();
+        if (snapshot != null) {
+            // Order ids, 16 bytes each
+            ByteBuffer in = ByteBuffer.wrap(snapshot);
+            while (in.hasRemaining()) {
+                pending.add(new UUID(in.getLong(), in.getLong()));
+            }
+        }
+        return new PendingViews(pending);
+    }
+
+    private final class PendingViews implements PartitionState {
+        private final Set<UUID> pending;
+
+        private PendingViews(Set<UUID> pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public void apply(OrderEvent event, long recordTimestamp) {
+            if (event.getOrderId() != null && pending.add(event.getOrderId()) && pending.size() >= batchSize) {
+                rewrite();
+            }
+        }
+
+        @Override
+        public byte[] snapshot() {
+            ByteBuffer out = ByteBuffer.allocate(pending.size() * 2 * Long.BYTES);
+            for (UUID orderId : pending) {
+                out.putLong(orderId.getMostSignificantBits()).putLong(orderId.getLeastSignificantBits());
+            }
+            return out.array();
+        }
+
+        @Override
+        public void complete() {
+            if (!pending.isEmpty()) {
+                rewrite();
+            }
+        }
+
+        private void rewrite() {
+            orderViewStore.rewrite(new ArrayList<>(pending));
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.orderapp.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orderapp.dto.OrderResponse;
+import com.orderapp.entity.Order;
+import com.orderapp.entity.OrderView;
+import com.orderapp.metrics.OrderMetrics;
+import com.orderapp.repository.OrderRepository;
+import com.orderapp.repository.OrderViewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * The order_views read model: each order's OrderResponse as one serialized document, so
+ * the detail API reads a single row instead of joining order_items, products and users.
+ * Writers call {@link #write} inside the transaction that changes the order, after the
+ * order is flushed; the view's version goes up with every rewrite. Item names and the
+ * customer's name and email are as of the order's last write.
+ * <p>
+ * Orders from before the table existed have no view and are read from the hot tables
+ * until the backfill reaches them. The backfill locks the orders it converts, so it
+ * cannot overwrite a status change made meanwhile.
+ */
+@Component
+public class OrderViewStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderViewStore.class);
+
+    private final OrderViewRepository orderViewRepository;
+    private final OrderRepository orderRepository;
+    private final OrderMetrics orderMetrics;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Set once a backfill run finds no order without a view; new orders always get one. Orders
+    // written meanwhile by instances without this code are picked up by instances started later.
+    private volatile boolean backfilled;
+
+    @Value("${app.order-views.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    @Autowired
+    public OrderViewStore(OrderViewRepository orderViewRepository, OrderRepository orderRepository,
+                          OrderMetrics orderMetrics, PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper) {
+        this.orderViewRepository = orderViewRepository;
+        this.orderRepository = orderRepository;
+        this.orderMetrics = orderMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Documents written by older versions may carry fields this one no longer has
+        this.objectMapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * Insert or rewrite the view of an order; call within the transaction that changed it
+     */
+    public void write(OrderResponse order) {
+        byte[] document = serialize(order);
+        OrderView view = orderViewRepository.findById(order.getId()).orElse(null);
+        if (view == null) {
+            orderViewRepository.save(new OrderView(order.getId(), order.getOrderNumber(), document));
+        } else {
+            view.setDocument(document);
+        }
+    }
+
+    public Optional<OrderResponse> findById(UUID orderId) {
+        return read(orderViewRepository.findById(orderId));
+    }
+
+    public Optional<OrderResponse> findByOrderNumber(String orderNumber) {
+        return read(orderViewRepository.findByOrderNumber(orderNumber));
+    }
+
+    /**
+     * Drop the views of orders leaving the hot tables; call within the deleting transaction
+     */
+    public void deleteAll(Collection<UUID> orderIds) {
+        orderViewRepository.deleteAllByIdInBatch(orderIds);
+    }
+
+    /**
+     * Rewrite the views of the given orders from the order tables in one transaction; orders
+     * no longer in the hot tables are skipped. Returns how many views were written.
+     */
+    public int rewrite(Collection<UUID> orderIds) {
+        Integer written = transactionTemplate.execute(status -> writeLocked(orderIds));
+        return written != null ? written : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.order-views.backfill-interval-ms:60000}")
+    public void backfill() {
+        if (backfilled) {
+            return;
+        }
+        int written = 0;
+        Integer batch;
+        do {
+            batch = transactionTemplate.execute(status -> {
+                List<UUID> ids = orderViewRepository.findOrderIdsWithoutView(PageRequest.of(0, backfillBatchSize));
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                writeLocked(ids);
+                return ids.size();
+            });
+            written += batch != null ? batch : 0;
+        } while (batch != null && batch == backfillBatchSize);
+
+        if (written > 0) {
+            logger.info("Backfilled order views of {} orders", written);
+        } else {
+            backfilled = true;
+        }
+    }
+
+    // Locks the orders first, so a status change made meanwhile cannot be overwritten
+    private int writeLocked(Collection<UUID> orderIds) {
+        orderRepository.lockAllByIdIn(orderIds);
+        List<Order> orders = orderRepository.findAllWithItemsByIdIn(orderIds);
+        for (Order order : orders) {
+            write(new OrderResponse(order));
+        }
+        return orders.size();
+    }
+
+    private Optional<OrderResponse> read(Optional<OrderView> view) {
+        if (view.isEmpty()) {
+            orderMetrics.recordOrderViewRead(false);
+            return Optional.empty();
+        }
+        try {
+            OrderResponse order = objectMapper.readValue(view.get().getDocument(), OrderResponse.class);
+            orderMetrics.recordOrderViewRead(true);
+            return Optional.of(order);
+        } catch (IOException e) {
+            logger.warn("Unreadable view of order {}; reading the order tables", view.get().getOrderId(), e);
+            orderMetrics.recordOrderViewRead(false);
+            return Optional.empty();
+        }
+    }
+
+    private byte[] serialize(OrderResponse order) {
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.orderapp.service;
+
+import com.orderapp.entity.Money;
+import com.orderapp.entity.Product;
+import com.orderapp.metrics.OrderMetrics;
+import com.orderapp.repository.ProductRepository;
+import com.orderapp.web.ETags;
+import com.orderapp.web.ResponseCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read side of the product catalog, served from an immutable {@link CatalogSnapshot}.
+ * The snapshot is loaded once the application is ready and then refreshed with the
+ * products changed since: those this instance changed, queued as they commit, and those
+ * with an updated_at past the last poll, which brings in changes made by other
+ * instances. Each refresh builds a new snapshot and swaps it in, so readers never wait
+ * on a refresh. Until the first snapshot is loaded reads go to the database.
+ */
+@Service
+public class ProductCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalog.class);
+
+    private final ProductRepository productRepository;
+    private final ResponseCache responseCache;
+    private final OrderMetrics orderMetrics;
+
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>();
+    private final Set<UUID> changedIds = ConcurrentHashMap.newKeySet();
+
+    // updated_at up to which changes are known to be in the snapshot; guarded by this
+    private LocalDateTime polledUntil;
+
+    @Value("${app.catalog.write-lag-seconds:30}")
+    private long writeLagSeconds;
+
+    @Autowired
+    public ProductCatalog(ProductRepository productRepository, ResponseCache responseCache, OrderMetrics orderMetrics) {
+        this.productRepository = productRepository;
+        this.responseCache = responseCache;
+        this.orderMetrics = orderMetrics;
+        orderMetrics.gaugeCatalog(() -> current().size(), () -> current().getEstimatedBytes(),
+            () -> current().getVersion());
+    }
+
+    public List<Product> getAvailableProducts() {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current.available() : productRepository.findAvailableProducts();
+    }
+
+    public List<String> getCategories() {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current.categories() : productRepository.findAllCategories();
+    }
+
+    public List<String> getBrands() {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current.brands() : productRepository.findAllBrands();
+    }
+
+    public List<Product> getProductsByCategory(String category) {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current.byCategory(category) : productRepository.findByCategory(category);
+    }
+
+    public List<Product> getProductsByBrand(String brand) {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current.byBrand(brand) : productRepository.findByBrand(brand);
+    }
+
+    /**
+     * Entity tag of the lists above, from the snapshot's size and latest updated_at, so
+     * every instance holding the same products gives the same one; null until the first
+     * snapshot is loaded. Take it before the list, so that a refresh in between leaves the
+     * older tag on the newer list rather than the other way round.
+     */
+    public String getETag() {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? ETags.ofCollection(current.size(), current.getLastModified()) : null;
+    }
+
+    /**
+     * Products priced within the inclusive range, cheapest first
+     */
+    public List<Product> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+        long minCents = minPrice != null ? Money.of(minPrice).getMinorUnits() : Long.MIN_VALUE;
+        long maxCents = maxPrice != null ? Money.of(maxPrice).getMinorUnits() : Long.MAX_VALUE;
+        CatalogSnapshot current = snapshot.get();
+        if (current == null) {
+            return productRepository.findProductsWithFilters(null, null, null, null, minPrice, maxPrice,
+                PageRequest.of(0, Math.max(1, limit), Sort.by("price", "name"))).getContent();
+        }
+        return current.byPriceRange(minCents, maxCents, limit);
+    }
+
+    /**
+     * Queue products for the next refresh. Inside a transaction they are queued once it
+     * commits, so the refresh does not read the rows before the change is visible.
+     */
+    public void markChanged(Collection<UUID> productIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<UUID> ids = List.copyOf(productIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changedIds.addAll(ids);
+                }
+            });
+        } else {
+            changedIds.addAll(productIds);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${app.catalog.refresh-ms:1000}")
+    public synchronized void refreshChanged() {
+        CatalogSnapshot current = snapshot.get();
+        if (current == null) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        // Rows stamped up to write-lag ago may not have committed yet, so that window is read again next time
+        LocalDateTime until = LocalDateTime.now().minusSeconds(writeLagSeconds);
+        List<Product> changed = new ArrayList<>();
+        Set<UUID> found = new HashSet<>();
+        for (Product product : productRepository.findByUpdatedAtAfter(polledUntil)) {
+            found.add(product.getId());
+            if (!Objects.equals(product.getUpdatedAt(), current.updatedAt(product.getId()))) {
+                changed.add(product);
+            }
+        }
+        polledUntil = until;
+
+        List<UUID> ids = new ArrayList<>(changedIds);
+        changedIds.removeAll(ids);
+        ids.removeAll(found);
+        List<UUID> removed = new ArrayList<>();
+        if (!ids.isEmpty()) {
+            List<Product> queued = productRepository.findAllById(ids);
+            queued.forEach(product -> found.add(product.getId()));
+            changed.addAll(queued);
+            for (UUID id : ids) {
+                if (!found.contains(id)) {
+                    removed.add(id);
+                }
+            }
+        }
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        swap(current.withChanges(current.getVersion() + 1, changed, removed));
+        orderMetrics.recordCatalogRefresh(false, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Full rebuild, as a safety net for changes the updated_at poll cannot see, such as
+     * products deleted outside this service
+     */
+    @Scheduled(fixedDelayString = "${app.catalog.full-refresh-ms:1800000}",
+               initialDelayString = "${app.catalog.full-refresh-ms:1800000}")
+    public synchronized void reload() {
+        long startNanos = System.nanoTime();
+        CatalogSnapshot current = snapshot.get();
+        changedIds.clear();
+        LocalDateTime until = LocalDateTime.now().minusSeconds(writeLagSeconds);
+        List<Product> products = productRepository.findAll();
+        polledUntil = until;
+        long version = current != null ? current.getVersion() + 1 : 1;
+        swap(CatalogSnapshot.build(version, products.toArray(new Product[0])));
+        orderMetrics.recordCatalogRefresh(true, System.nanoTime() - startNanos);
+        logger.info("Loaded catalog snapshot v{}: {} products, ~{} KB", version, products.size(),
+            current().getEstimatedBytes() / 1024);
+    }
+
+    // Every instance refreshes its own snapshot, so only its own responses are dropped
+    private void swap(CatalogSnapshot next) {
+        snapshot.set(next);
+        responseCache.invalidateNow(ResponseCache.CATALOG_TAG);
+    }
+
+    private CatalogSnapshot current() {
+        CatalogSnapshot current = snapshot.get();
+        return current != null ? current : CatalogSnapshot.EMPTY;
+    }
+}
@@ -0,0 +1,292 @@
+package com.orderapp.service;
+
+import com.orderapp.cache.CompactRedisSerializer;
+import com.orderapp.dto.OrderResponse;
+import com.orderapp.metrics.OrderMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Each user's most recent orders in Redis, so the first pages of GET /orders/user/{id}
+ * are one script call with no Postgres query. Per user, all in one hash slot:
+ * <ul>
+ *   <li>{@code recent-orders:{user}}: sorted set of order ids scored by createdAt, at most capacity</li>
+ *   <li>{@code recent-orders:{user}:docs}: hash of order id to OrderResponse, written by the
+ *       {@link CompactRedisSerializer} in the format of {@code app.cache.value-format}</li>
+ *   <li>{@code recent-orders:{user}:meta}: the user's total order count; the index exists while this does</li>
+ *   <li>{@code recent-orders:{user}:lease}: token of a rebuild in progress</li>
+ * </ul>
+ * An index is built from the database on the first read that misses it. Creates and
+ * status changes then update it once their transaction commits, and only if it exists.
+ * A rebuild takes a lease before reading the database and installs only if no write
+ * dropped the lease meanwhile, so it cannot overwrite a newer write with an older read.
+ * Pages beyond the capacity, and any read while Redis is unavailable, go to the database,
+ * as does a page with a document this release cannot read; its index is then rebuilt.
+ */
+@Component
+@ConditionalOnProperty(name = "app.recent-orders.enabled", havingValue = "true", matchIfMissing = true)
+public class RecentOrdersIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecentOrdersIndex.class);
+
+    // KEYS: ids, docs, meta; ARGV: first rank, last rank. Returns total, held, then the documents.
+    private static final RedisScript<List> READ = RedisScript.of(
+        "local total = redis.call('HGET', KEYS[3], 'total')\n" +
+        "if not total then return {} end\n" +
+        "local result = {total, tostring(redis.call('ZCARD', KEYS[1]))}\n" +
+        "local ids = redis.call('ZREVRANGE', KEYS[1], ARGV[1], ARGV[2])\n" +
+        "if #ids > 0 then\n" +
+        "  local docs = redis.call('HMGET', KEYS[2], unpack(ids))\n" +
+        "  for i = 1, #ids do result[i + 2] = docs[i] or '' end\n" +
+        "end\n" +
+        "return result", List.class);
+
+    // KEYS: ids, docs, meta, lease; ARGV: order id, score, document, created (1/0), capacity, ttl
+    private static final RedisScript<Long> APPLY = RedisScript.of(
+        "redis.call('DEL', KEYS[4])\n" +
+        "if redis.call('EXISTS', KEYS[3]) == 0 then return 0 end\n" +
+        "if ARGV[4] == '1' then redis.call('HINCRBY', KEYS[3], 'total', 1) end\n" +
+        "redis.call('ZADD', KEYS[1], ARGV[2], ARGV[1])\n" +
+        "local excess = redis.call('ZCARD', KEYS[1]) - tonumber(ARGV[5])\n" +
+        "if excess > 0 then\n" +
+        "  local evicted = redis.call('ZRANGE', KEYS[1], 0, excess - 1)\n" +
+        "  redis.call('ZREMRANGEBYRANK', KEYS[1], 0, excess - 1)\n" +
+        "  redis.call('HDEL', KEYS[2], unpack(evicted))\n" +
+        "end\n" +
+        "if redis.call('ZSCORE', KEYS[1], ARGV[1]) then redis.call('HSET', KEYS[2], ARGV[1], ARGV[3]) end\n" +
+        "for i = 1, 3 do redis.call('EXPIRE', KEYS[i], ARGV[6]) end\n" +
+        "return 1", Long.class);
+
+    // KEYS: ids, docs, meta, lease; ARGV: lease token, ttl, total, then order id, score, document per order
+    private static final RedisScript<Long> INSTALL = RedisScript.of(
+        "if redis.call('GET', KEYS[4]) ~= ARGV[1] then return 0 end\n" +
+        "redis.call('DEL', KEYS[1], KEYS[2], KEYS[3], KEYS[4])\n" +
+        "for i = 4, #ARGV, 3 do\n" +
+        "  redis.call('ZADD', KEYS[1], ARGV[i + 1], ARGV[i])\n" +
+        "  redis.call('HSET', KEYS[2], ARGV[i], ARGV[i + 2])\n" +
+        "end\n" +
+        "redis.call('HSET', KEYS[3], 'total', ARGV[3])\n" +
+        "for i = 1, 3 do redis.call('EXPIRE', KEYS[i], ARGV[2]) end\n" +
+        "return 1", Long.class);
+
+    // Script arguments are passed as bytes, and replies are left as the bytes Redis returned
+    private static final RedisSerializer<byte[]> BYTES = RedisSerializer.byteArray();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final RedisSerializer<List> RAW_REPLIES = (RedisSerializer) BYTES;
+    private static final RedisSerializer<Long> COUNT = new GenericToStringSerializer<>(Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final OrderMetrics orderMetrics;
+    private final CompactRedisSerializer documentSerializer;
+
+    @Value("${app.recent-orders.capacity:100}")
+    private int capacity;
+
+    @Value("${app.recent-orders.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Value("${app.recent-orders.lease-seconds:30}")
+    private long leaseSeconds;
+
+    @Autowired
+    public RecentOrdersIndex(StringRedisTemplate redisTemplate, OrderMetrics orderMetrics,
+                             CompactRedisSerializer redisValueSerializer) {
+        this.redisTemplate = redisTemplate;
+        this.orderMetrics = orderMetrics;
+        this.documentSerializer = redisValueSerializer;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * The page if the user's index exists and holds all of it
+     */
+    public Optional<Page<OrderResponse>> find(UUID userId, Pageable pageable) {
+        long first = pageable.getOffset();
+        if (first + pageable.getPageSize() > capacity) {
+            return Optional.empty();
+        }
+        List<?> result;
+        try {
+            result = redisTemplate.execute(READ, BYTES, RAW_REPLIES, keys(userId, false),
+                bytes(first), bytes(first + pageable.getPageSize() - 1));
+        } catch (RuntimeException e) {
+            logger.debug("Recent orders of user {} unavailable: {}", userId, e.getMessage());
+            result = null;
+        }
+        if (result == null || result.isEmpty()) {
+            orderMetrics.recordRecentOrdersRead(false);
+            return Optional.empty();
+        }
+
+        long total = Long.parseLong(text(result.get(0)));
+        long held = Long.parseLong(text(result.get(1)));
+        // Short of the page's end only if the index holds every order the user has
+        if (first + pageable.getPageSize() > held && held < total) {
+            orderMetrics.recordRecentOrdersRead(false);
+            return Optional.empty();
+        }
+        List<OrderResponse> orders = new ArrayList<>(result.size() - 2);
+        for (Object document : result.subList(2, result.size())) {
+            if (((byte[]) document).length == 0) {
+                orderMetrics.recordRecentOrdersRead(false);
+                return Optional.empty();
+            }
+            OrderResponse order = deserialize((byte[]) document);
+            if (order == null) {
+                // Written in a format this release does not read; rebuild the index in its own
+                logger.debug("Unreadable recent orders document of user {}; rebuilding", userId);
+                drop(userId);
+                orderMetrics.recordRecentOrdersRead(false);
+                return Optional.empty();
+            }
+            orders.add(order);
+        }
+        orderMetrics.recordRecentOrdersRead(true);
+        return Optional.of(new PageImpl<>(orders, pageable, total));
+    }
+
+    /**
+     * Whether the user's index is present; false, not an error, when Redis is unreachable
+     */
+    public boolean exists(UUID userId) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(key(userId) + ":meta"));
+        } catch (RuntimeException e) {
+            logger.debug("Recent orders of user {} unavailable: {}", userId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Take the rebuild lease of a user's index; call before reading the orders to install
+     */
+    public String lease(UUID userId) {
+        String token = UUID.randomUUID().toString();
+        try {
+            redisTemplate.opsForValue().set(key(userId) + ":lease", token, Duration.ofSeconds(leaseSeconds));
+        } catch (RuntimeException e) {
+            logger.debug("Could not lease recent orders of user {}: {}", userId, e.getMessage());
+        }
+        return token;
+    }
+
+    /**
+     * Replace a user's index with their newest orders, newest first, unless a write
+     * since {@link #lease} made them stale
+     */
+    public void install(UUID userId, String lease, List<OrderResponse> newest, long total) {
+        List<byte[]> args = new ArrayList<>(3 + newest.size() * 3);
+        args.add(bytes(lease));
+        args.add(bytes(ttlSeconds));
+        args.add(bytes(total));
+        for (OrderResponse order : newest.subList(0, Math.min(capacity, newest.size()))) {
+            args.add(bytes(order.getId()));
+            args.add(bytes(score(order)));
+            args.add(documentSerializer.serialize(order));
+        }
+        try {
+            redisTemplate.execute(INSTALL, BYTES, COUNT, keys(userId, true), args.toArray());
+        } catch (RuntimeException e) {
+            logger.debug("Could not install recent orders of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * Add or update an order in its user's index once the surrounding transaction commits
+     */
+    public void recordAfterCommit(OrderResponse order, boolean created) {
+        byte[] document = documentSerializer.serialize(order);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(order, document, created);
+                }
+            });
+        } else {
+            apply(order, document, created);
+        }
+    }
+
+    private void apply(OrderResponse order, byte[] document, boolean created) {
+        try {
+            redisTemplate.execute(APPLY, BYTES, COUNT, keys(order.getUserId(), true), bytes(order.getId()),
+                bytes(score(order)), document, bytes(created ? 1 : 0), bytes(capacity), bytes(ttlSeconds));
+        } catch (RuntimeException e) {
+            // The index may now miss this change; drop it so the next read rebuilds it
+            logger.warn("Could not update recent orders of user {}: {}", order.getUserId(), e.getMessage());
+            drop(order.getUserId());
+        }
+    }
+
+    private void drop(UUID userId) {
+        try {
+            redisTemplate.delete(keys(userId, true));
+        } catch (RuntimeException ignored) {
+            // Redis is down; the TTL bounds how long the index can stay stale
+        }
+    }
+
+    // The braces make Redis Cluster hash every key of a user to the same slot, as scripts require
+    private static String key(UUID userId) {
+        return "recent-orders:{" + userId + "}";
+    }
+
+    private static List<String> keys(UUID userId, boolean withLease) {
+        String key = key(userId);
+        return withLease
+            ? Arrays.asList(key, key + ":docs", key + ":meta", key + ":lease")
+            : Arrays.asList(key, key + ":docs", key + ":meta");
+    }
+
+    // Creation time as UTC epoch millis, like the analytics event times
+    private static long score(OrderResponse order) {
+        LocalDateTime createdAt = order.getCreatedAt();
+        return createdAt != null ? createdAt.toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+    }
+
+    // Null for documents of another format, such as the untyped JSON of earlier releases
+    private OrderResponse deserialize(byte[] document) {
+        try {
+            Object value = documentSerializer.deserialize(document);
+            return value instanceof OrderResponse ? (OrderResponse) value : null;
+        } catch (SerializationException e) {
+            return null;
+        }
+    }
+
+    private static byte[] bytes(Object value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(Object reply) {
+        return new String((byte[]) reply, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,312 @@
+package com.orderapp.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orderapp.dto.OrderResponse;
+import com.orderapp.entity.Product;
+import com.orderapp.exception.ResourceNotFoundException;
+import com.orderapp.metrics.OrderMetrics;
+import com.orderapp.repository.ProductRepository;
+import com.orderapp.service.OrderService;
+import com.orderapp.service.RecentOrdersIndex;
+import com.orderapp.warmup.HotKeyRecorder.Kind;
+import com.orderapp.web.ETags;
+import com.orderapp.web.ResponseCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preloads what the previous instances read most, as recorded by {@link HotKeyRecorder},
+ * once the application has started: single orders and products are rendered into the
+ * {@link ResponseCache} exactly as their GETs would be, and users without a recent-orders
+ * index get one. Loads run on a few threads under a shared rate limit so a deploy does
+ * not move the thundering herd onto Postgres, and stop at a deadline. Until the run ends
+ * {@link WarmupHealthIndicator} keeps the instance from reporting ready.
+ */
+@Component
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    public enum State { PENDING, RUNNING, DONE }
+
+    private final HotKeyRecorder hotKeys;
+    private final OrderService orderService;
+    private final ProductRepository productRepository;
+    private final RecentOrdersIndex recentOrders;
+    private final ResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+    private final OrderMetrics orderMetrics;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<Kind, Progress> progress = new EnumMap<>(Kind.class);
+
+    private volatile State state = State.PENDING;
+
+    @Value("${app.warmup.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.warmup.rate-per-second:200}")
+    private int ratePerSecond;
+
+    @Value("${app.warmup.max-duration-seconds:120}")
+    private long maxDurationSeconds;
+
+    @Value("${app.warmup.orders:2000}")
+    private int orderLimit;
+
+    @Value("${app.warmup.users:500}")
+    private int userLimit;
+
+    @Value("${app.warmup.products:500}")
+    private int productLimit;
+
+    @Value("${app.response-cache.enabled:true}")
+    private boolean responseCacheEnabled;
+
+    @Autowired
+    public CacheWarmer(HotKeyRecorder hotKeys, OrderService orderService, ProductRepository productRepository,
+                       ObjectProvider<RecentOrdersIndex> recentOrders, ResponseCache responseCache,
+                       ObjectMapper objectMapper, OrderMetrics orderMetrics,
+                       PlatformTransactionManager transactionManager) {
+        this.hotKeys = hotKeys;
+        this.orderService = orderService;
+        this.productRepository = productRepository;
+        this.recentOrders = recentOrders.getIfAvailable();
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+        this.orderMetrics = orderMetrics;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        for (Kind kind : Kind.values()) {
+            Progress kindProgress = new Progress();
+            progress.put(kind, kindProgress);
+            orderMetrics.gaugeWarmupCoverage(kind.getTag(), kindProgress::coverage);
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Map<Kind, Progress> getProgress() {
+        return progress;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmOnStartup() {
+        Thread thread = new Thread(this::warm, "cache-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void warm() {
+        state = State.RUNNING;
+        long startNanos = System.nanoTime();
+        try {
+            List<Load> loads = plan();
+            if (!loads.isEmpty()) {
+                run(loads, startNanos + TimeUnit.SECONDS.toNanos(maxDurationSeconds));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Cache warm-up failed; starting cold: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            long nanos = System.nanoTime() - startNanos;
+            orderMetrics.recordWarmup(nanos);
+            progress.forEach((kind, p) -> orderMetrics.recordWarmupKeys(kind.getTag(), p.loaded.get(),
+                p.missing.get(), p.failed.get(), p.planned.get() - p.done()));
+            logger.info("Cache warm-up finished in {} ms: {}", TimeUnit.NANOSECONDS.toMillis(nanos), progress);
+            state = State.DONE;
+        }
+    }
+
+    // Kinds interleaved, hottest first, so each gets its share before the deadline
+    private List<Load> plan() {
+        Map<Kind, List<String>> ids = new EnumMap<>(Kind.class);
+        if (responseCacheEnabled) {
+            ids.put(Kind.ORDER, hotKeys.hottest(Kind.ORDER, orderLimit));
+            ids.put(Kind.PRODUCT, hotKeys.hottest(Kind.PRODUCT, productLimit));
+        }
+        if (recentOrders != null) {
+            ids.put(Kind.USER, hotKeys.hottest(Kind.USER, userLimit));
+        }
+        int longest = 0;
+        for (Map.Entry<Kind, List<String>> entry : ids.entrySet()) {
+            progress.get(entry.getKey()).planned.set(entry.getValue().size());
+            longest = Math.max(longest, entry.getValue().size());
+        }
+        List<Load> loads = new ArrayList<>();
+        for (int i = 0; i < longest; i++) {
+            for (Map.Entry<Kind, List<String>> entry : ids.entrySet()) {
+                if (i < entry.getValue().size()) {
+                    loads.add(new Load(entry.getKey(), entry.getValue().get(i)));
+                }
+            }
+        }
+        return loads;
+    }
+
+    private void run(List<Load> loads, long deadlineNanos) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(1, ratePerSecond);
+        AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (Load load : loads) {
+                pool.execute(() -> {
+                    long slot = nextSlot.getAndAdd(intervalNanos);
+                    if (slot >= deadlineNanos) {
+                        return;
+                    }
+                    for (long wait = slot - System.nanoTime(); wait > 0; wait = slot - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    load(load);
+                });
+            }
+            pool.shutdown();
+            if (!pool.awaitTermination(Math.max(0, deadlineNanos - System.nanoTime()) + TimeUnit.SECONDS.toNanos(5),
+                    TimeUnit.NANOSECONDS)) {
+                logger.warn("Cache warm-up did not finish within {} s", maxDurationSeconds);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void load(Load load) {
+        Progress kindProgress = progress.get(load.kind);
+        try {
+            UUID id = UUID.fromString(load.id);
+            boolean found;
+            switch (load.kind) {
+                case ORDER:
+                    found = warmOrder(id);
+                    break;
+                case PRODUCT:
+                    found = Boolean.TRUE.equals(readOnlyTransaction.execute(status -> warmProduct(id)));
+                    break;
+                default:
+                    found = warmUser(id);
+            }
+            (found ? kindProgress.loaded : kindProgress.missing).incrementAndGet();
+        } catch (ResourceNotFoundException | IllegalArgumentException e) {
+            kindProgress.missing.incrementAndGet();
+        } catch (RuntimeException e) {
+            kindProgress.failed.incrementAndGet();
+            logger.debug("Could not warm {} {}: {}", load.kind.getTag(), load.id, e.getMessage());
+        }
+    }
+
+    private boolean warmOrder(UUID orderId) {
+        String tag = ResponseCache.orderTag(orderId);
+        long generation = responseCache.generation(tag);
+        OrderResponse order = orderService.getOrderById(orderId);
+        cacheResponse("/orders/" + orderId, order, ETags.of(order.getId(), order.getUpdatedAt()), generation, tag);
+        return true;
+    }
+
+    private boolean warmProduct(UUID productId) {
+        String tag = ResponseCache.productTag(productId);
+        long generation = responseCache.generation(tag);
+        Product product = productRepository.findById(productId).orElse(null);
+        if (product == null) {
+            return false;
+        }
+        cacheResponse("/products/" + productId, product, ETags.of(product.getId(), product.getUpdatedAt()),
+            generation, tag);
+        return true;
+    }
+
+    // The first page the controller would ask for, which builds the index when it is missing
+    private boolean warmUser(UUID userId) {
+        if (!recentOrders.exists(userId)) {
+            orderService.getOrdersByUserId(userId, PageRequest.of(0, 10, Sort.by("createdAt").descending()));
+        }
+        return true;
+    }
+
+    // Same bytes and ETag as ResponseCacheFilter stores for the controller's response
+    private void cacheResponse(String path, Object body, String etag, long generation, String tag) {
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        responseCache.put(path, MediaType.APPLICATION_JSON_VALUE,
+            etag != null ? etag : responseCache.versionETag(generation), bytes, generation, tag);
+    }
+
+    private static final class Load {
+        private final Kind kind;
+        private final String id;
+
+        private Load(Kind kind, String id) {
+            this.kind = kind;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Keys of one kind to warm and what became of them so far
+     */
+    public static final class Progress {
+        private final AtomicInteger planned = new AtomicInteger();
+        private final AtomicInteger loaded = new AtomicInteger();
+        private final AtomicInteger missing = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        public int getPlanned() { return planned.get(); }
+        public int getLoaded() { return loaded.get(); }
+        public int getMissing() { return missing.get(); }
+        public int getFailed() { return failed.get(); }
+
+        int done() {
+            return loaded.get() + missing.get() + failed.get();
+        }
+
+        // Share of the planned keys now warm; 1 when there was nothing to warm
+        double coverage() {
+            int plannedKeys = planned.get();
+            return plannedKeys == 0 ? 1.0 : (double) loaded.get() / plannedKeys;
+        }
+
+        @Override
+        public String toString() {
+            return loaded.get() + "/" + planned.get() + " loaded, " + missing.get() + " missing, "
+                + failed.get() + " failed";
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.orderapp.warmup;
+
+import com.orderapp.analytics.SpaceSaving;
+import com.orderapp.metrics.OrderMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Which orders, users and products are read most, kept in Redis so a freshly started
+ * instance knows what to warm. Requests only add the id to a bounded queue (ids are
+ * dropped when it is full); a scheduled flush, and a last one on shutdown, drains it
+ * into a {@link SpaceSaving} summary and adds the heaviest ids to the current hour's
+ * sorted set, shared by all instances. {@link #hottest} reads the current and previous
+ * hour, so keys that cooled off age out within two hours.
+ */
+@Component
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class HotKeyRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotKeyRecorder.class);
+
+    /** Ids are grouped by what they identify; each kind is warmed differently */
+    public enum Kind {
+        ORDER("orders"),
+        USER("users"),
+        PRODUCT("products");
+
+        private final String tag;
+
+        Kind(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    // KEYS: the hour's set; ARGV: sets kept, ttl, then id and count pairs
+    private static final RedisScript<Long> ADD = RedisScript.of(
+        "for i = 3, #ARGV, 2 do redis.call('ZINCRBY', KEYS[1], ARGV[i + 1], ARGV[i]) end\n" +
+        "redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -tonumber(ARGV[1]) - 1)\n" +
+        "redis.call('EXPIRE', KEYS[1], ARGV[2])\n" +
+        "return redis.call('ZCARD', KEYS[1])", Long.class);
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final StringRedisTemplate redisTemplate;
+    private final OrderMetrics orderMetrics;
+    private final Clock clock;
+    private final Map<Kind, BlockingQueue<String>> pending = new EnumMap<>(Kind.class);
+
+    @Value("${app.warmup.tracked-keys:2000}")
+    private int trackedKeys;
+
+    @Autowired
+    public HotKeyRecorder(StringRedisTemplate redisTemplate, OrderMetrics orderMetrics,
+                          @Value("${app.warmup.record-queue-size:65536}") int queueSize) {
+        this.redisTemplate = redisTemplate;
+        this.orderMetrics = orderMetrics;
+        this.clock = Clock.systemUTC();
+        for (Kind kind : Kind.values()) {
+            pending.put(kind, new ArrayBlockingQueue<>(queueSize));
+        }
+    }
+
+    /**
+     * Note one read of an id; never blocks
+     */
+    public void record(Kind kind, String id) {
+        if (!pending.get(kind).offer(id)) {
+            orderMetrics.recordHotKeyDropped(kind.getTag());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.warmup.flush-interval-ms:60000}")
+    public void flush() {
+        String hour = String.valueOf(clock.millis() / HOUR_MILLIS);
+        for (Kind kind : Kind.values()) {
+            List<String> ids = new ArrayList<>();
+            pending.get(kind).drainTo(ids);
+            if (ids.isEmpty()) {
+                continue;
+            }
+            SpaceSaving summary = new SpaceSaving(trackedKeys);
+            for (String id : ids) {
+                summary.offer(id, 1);
+            }
+            List<String> args = new ArrayList<>();
+            args.add(String.valueOf(trackedKeys));
+            args.add(String.valueOf(TimeUnit.HOURS.toSeconds(3)));
+            for (SpaceSaving.Counter counter : summary.top(trackedKeys)) {
+                args.add(counter.getItem());
+                args.add(String.valueOf(counter.getCount()));
+            }
+            try {
+                redisTemplate.execute(ADD, List.of(key(kind, hour)), args.toArray());
+            } catch (RuntimeException e) {
+                logger.debug("Could not store hot {}: {}", kind.getTag(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        // The keys read just before a deploy are the ones the next instance should warm
+        flush();
+    }
+
+    /**
+     * The most-read ids of a kind over the current and previous hour, hottest first
+     */
+    public List<String> hottest(Kind kind, int limit) {
+        long hour = clock.millis() / HOUR_MILLIS;
+        Map<String, Double> scores = new HashMap<>();
+        for (long h = hour - 1; h <= hour; h++) {
+            Set<ZSetOperations.TypedTuple<String>> tuples =
+                redisTemplate.opsForZSet().reverseRangeWithScores(key(kind, String.valueOf(h)), 0, trackedKeys - 1);
+            if (tuples == null) {
+                continue;
+            }
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                if (tuple.getValue() != null && tuple.getScore() != null) {
+                    scores.merge(tuple.getValue(), tuple.getScore(), Double::sum);
+                }
+            }
+        }
+        List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+        List<String> ids = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < limit; i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return ids;
+    }
+
+    private static String key(Kind kind, String hour) {
+        return "warmup:hot:" + kind.getTag() + ":" + hour;
+    }
+}
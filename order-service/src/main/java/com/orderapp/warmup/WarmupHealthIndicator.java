@@ -0,0 +1,38 @@
+package com.orderapp.warmup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports {@link #WARMING_UP} while {@link CacheWarmer} runs. The readiness group ranks that
+ * status above UP and maps it to 503, so traffic is kept away until the hot keys are loaded
+ * or the warm-up deadline passes; /actuator/health ranks it below UP and stays UP.
+ * Contributes as "warmup".
+ */
+@Component("warmupHealthIndicator")
+@ConditionalOnProperty(name = "app.warmup.enabled", havingValue = "true", matchIfMissing = true)
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    public static final Status WARMING_UP = new Status("WARMING_UP", "Cache warm-up in progress");
+
+    private final CacheWarmer cacheWarmer;
+
+    @Autowired
+    public WarmupHealthIndicator(CacheWarmer cacheWarmer) {
+        this.cacheWarmer = cacheWarmer;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = cacheWarmer.getState() == CacheWarmer.State.DONE
+            ? Health.up()
+            : Health.status(WARMING_UP);
+        builder.withDetail("state", cacheWarmer.getState());
+        cacheWarmer.getProgress().forEach((kind, progress) -> builder.withDetail(kind.getTag(), progress.toString()));
+        return builder.build();
+    }
+}
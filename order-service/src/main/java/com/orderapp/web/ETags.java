@@ -0,0 +1,62 @@
+package com.orderapp.web;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Strong entity tags. Entities are tagged by id and last modification time, so the tag
+ * survives restarts and is the same on every instance. Collections are tagged by their
+ * size and latest modification time, which is as stable; responses with neither are
+ * tagged by an in-memory version that starts from the boot time.
+ */
+public final class ETags {
+
+    private ETags() {}
+
+    public static String of(UUID id, LocalDateTime updatedAt) {
+        if (id == null || updatedAt == null) {
+            return null;
+        }
+        return "\"" + id + "-" + Long.toString(micros(updatedAt), 36) + "\"";
+    }
+
+    public static String ofCollection(int size, LocalDateTime lastModified) {
+        if (lastModified == null) {
+            return null;
+        }
+        return "\"c" + Integer.toString(size, 36) + "-" + Long.toString(micros(lastModified), 36) + "\"";
+    }
+
+    public static String ofVersion(long epoch, long version) {
+        return "\"v" + Long.toString(epoch, 36) + "-" + Long.toString(version, 36) + "\"";
+    }
+
+    private static long micros(LocalDateTime time) {
+        return Math.addExact(Math.multiplyExact(time.toEpochSecond(ZoneOffset.UTC), 1_000_000L),
+            time.getNano() / 1_000);
+    }
+
+    /**
+     * Whether an If-None-Match header lists the tag. Uses the weak comparison the header
+     * calls for, so a W/ prefix added by a proxy still matches.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*")) {
+                return true;
+            }
+            if (trimmed.startsWith("W/")) {
+                trimmed = trimmed.substring(2);
+            }
+            if (trimmed.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
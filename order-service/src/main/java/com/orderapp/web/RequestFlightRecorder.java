@@ -0,0 +1,64 @@
+package com.orderapp.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The last N requests in full, whether or not they were sampled for the log. Writers
+ * claim a slot with one atomic increment and publish the record into it; nothing locks,
+ * and a slow reader never holds up a request. A dump taken under load may miss a record
+ * being overwritten at that moment.
+ */
+@Component
+public class RequestFlightRecorder {
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicReferenceArray<RequestRecord> slots;
+    private final int mask;
+
+    @Autowired
+    public RequestFlightRecorder(@Value("${app.request-log.buffer-size:1024}") int bufferSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    public RequestRecord record(long timestampMillis, String method, String path, String query, String route,
+                                int status, long durationMicros, String remoteAddress, String cache, String error) {
+        long seq = sequence.getAndIncrement();
+        RequestRecord record = new RequestRecord(seq, timestampMillis, method, path, query, route, status,
+            durationMicros, remoteAddress, Thread.currentThread().getName(), cache, error);
+        slots.lazySet((int) (seq & mask), record);
+        return record;
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    public long getRecorded() {
+        return sequence.get();
+    }
+
+    /**
+     * Records currently held, newest first
+     */
+    public List<RequestRecord> dump() {
+        List<RequestRecord> records = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            RequestRecord record = slots.get(i);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        records.sort(Comparator.comparingLong(RequestRecord::getSequence).reversed());
+        return records;
+    }
+}
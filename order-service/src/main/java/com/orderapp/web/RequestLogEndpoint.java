@@ -0,0 +1,58 @@
+package com.orderapp.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/requestlog}: GET dumps the flight recorder, newest first; POST
+ * {@code {"route": "GET /orders/{orderId}", "rate": 0.5}} changes a sampling rate
+ * ({@code "default"} for unlisted routes); DELETE with a route drops its override, and
+ * without one restores the configured rates.
+ */
+@Component
+@Endpoint(id = "requestlog")
+public class RequestLogEndpoint {
+
+    private final RequestFlightRecorder recorder;
+    private final RequestSampling sampling;
+
+    @Autowired
+    public RequestLogEndpoint(RequestFlightRecorder recorder, RequestSampling sampling) {
+        this.recorder = recorder;
+        this.sampling = sampling;
+    }
+
+    @ReadOperation
+    public Map<String, Object> dump() {
+        Map<String, Object> dump = new LinkedHashMap<>();
+        dump.put("capacity", recorder.getCapacity());
+        dump.put("recorded", recorder.getRecorded());
+        dump.put("sampleRates", sampling.getRates());
+        dump.put("requests", recorder.dump());
+        return dump;
+    }
+
+    @WriteOperation
+    public Map<String, Double> setSampleRate(String route, double rate) {
+        sampling.setRate(route, rate);
+        return sampling.getRates();
+    }
+
+    @DeleteOperation
+    public Map<String, Double> resetSampleRate(@Nullable String route) {
+        if (route == null) {
+            sampling.reset();
+        } else {
+            sampling.removeRate(route);
+        }
+        return sampling.getRates();
+    }
+}
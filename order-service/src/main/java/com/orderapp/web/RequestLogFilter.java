@@ -0,0 +1,72 @@
+package com.orderapp.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records every request in the {@link RequestFlightRecorder} and writes a sampled subset
+ * to the {@code com.orderapp.request} log. Runs ahead of Spring Security so rejected
+ * requests are recorded too.
+ */
+public class RequestLogFilter extends OncePerRequestFilter {
+
+    private static final Logger requestLogger = LoggerFactory.getLogger("com.orderapp.request");
+
+    private final RequestFlightRecorder recorder;
+    private final RequestSampling sampling;
+
+    public RequestLogFilter(RequestFlightRecorder recorder, RequestSampling sampling) {
+        this.recorder = recorder;
+        this.sampling = sampling;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long startMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        Throwable failure = null;
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            long micros = (System.nanoTime() - startNanos) / 1_000;
+            int status = failure != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            String path = request.getRequestURI();
+            String route = route(request, path);
+            String cache = response.getHeader("X-Cache");
+            String error = failure != null ? failure.getClass().getName() : null;
+            recorder.record(startMillis, request.getMethod(), path, request.getQueryString(), route, status,
+                micros, request.getRemoteAddr(), cache, error);
+            if (sampling.shouldLog(route, status) && requestLogger.isInfoEnabled()) {
+                requestLogger.info("{} {} {} {}us{}", request.getMethod(), path, status, micros,
+                    cache != null ? " cache=" + cache : "");
+            }
+        }
+    }
+
+    /**
+     * The handler's mapping pattern, such as {@code GET /orders/{orderId}}. Requests that
+     * never reached a handler (cache hits, rejected requests) fall back to their first
+     * path segment, such as {@code GET /orders/**}.
+     */
+    private static String route(HttpServletRequest request, String path) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return request.getMethod() + " " + pattern;
+        }
+        int start = request.getContextPath().length();
+        int next = path.indexOf('/', start + 1);
+        return request.getMethod() + " " + (next < 0 ? path.substring(start) : path.substring(start, next) + "/**");
+    }
+}
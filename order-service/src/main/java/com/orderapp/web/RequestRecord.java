@@ -0,0 +1,51 @@
+package com.orderapp.web;
+
+import java.time.Instant;
+
+/**
+ * One completed request as kept by {@link RequestFlightRecorder}
+ */
+public final class RequestRecord {
+
+    private final long sequence;
+    private final long timestampMillis;
+    private final String method;
+    private final String path;
+    private final String query;
+    private final String route;
+    private final int status;
+    private final long durationMicros;
+    private final String remoteAddress;
+    private final String thread;
+    private final String cache;
+    private final String error;
+
+    RequestRecord(long sequence, long timestampMillis, String method, String path, String query, String route,
+                  int status, long durationMicros, String remoteAddress, String thread, String cache, String error) {
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.method = method;
+        this.path = path;
+        this.query = query;
+        this.route = route;
+        this.status = status;
+        this.durationMicros = durationMicros;
+        this.remoteAddress = remoteAddress;
+        this.thread = thread;
+        this.cache = cache;
+        this.error = error;
+    }
+
+    public long getSequence() { return sequence; }
+    public Instant getTimestamp() { return Instant.ofEpochMilli(timestampMillis); }
+    public String getMethod() { return method; }
+    public String getPath() { return path; }
+    public String getQuery() { return query; }
+    public String getRoute() { return route; }
+    public int getStatus() { return status; }
+    public long getDurationMicros() { return durationMicros; }
+    public String getRemoteAddress() { return remoteAddress; }
+    public String getThread() { return thread; }
+    public String getCache() { return cache; }
+    public String getError() { return error; }
+}
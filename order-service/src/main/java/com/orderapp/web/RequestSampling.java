@@ -0,0 +1,78 @@
+package com.orderapp.web;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Per-route sampling rates for the request log, keyed like {@code GET /orders/{orderId}}.
+ * Rates start from {@code app.request-log.sample-rates} and can be changed at runtime
+ * through the requestlog actuator endpoint. Server errors are always logged.
+ */
+@Component
+public class RequestSampling {
+
+    public static final String DEFAULT_ROUTE = "default";
+
+    private final Map<String, Double> rates = new ConcurrentHashMap<>();
+    private final double configuredDefaultRate;
+    private final String configuredRates;
+    private volatile double defaultRate;
+
+    @Autowired
+    public RequestSampling(@Value("${app.request-log.default-sample-rate:0.01}") double defaultRate,
+                           @Value("${app.request-log.sample-rates:}") String sampleRates) {
+        this.configuredDefaultRate = defaultRate;
+        this.configuredRates = sampleRates;
+        reset();
+    }
+
+    public boolean shouldLog(String route, int status) {
+        if (status >= 500) {
+            return true;
+        }
+        double rate = rates.getOrDefault(route, defaultRate);
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public void setRate(String route, double rate) {
+        if (rate < 0.0 || rate > 1.0) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1: " + rate);
+        }
+        if (DEFAULT_ROUTE.equals(route)) {
+            defaultRate = rate;
+        } else {
+            rates.put(route, rate);
+        }
+    }
+
+    public void removeRate(String route) {
+        rates.remove(route);
+    }
+
+    /**
+     * Back to the configured rates
+     */
+    public void reset() {
+        rates.clear();
+        defaultRate = configuredDefaultRate;
+        // "GET /orders/{orderId}=0.1, POST /orders=1"
+        for (String entry : configuredRates.split(",")) {
+            int equals = entry.lastIndexOf('=');
+            if (equals > 0) {
+                setRate(entry.substring(0, equals).trim(), Double.parseDouble(entry.substring(equals + 1).trim()));
+            }
+        }
+    }
+
+    public Map<String, Double> getRates() {
+        Map<String, Double> current = new TreeMap<>(rates);
+        current.put(DEFAULT_ROUTE, defaultRate);
+        return current;
+    }
+}
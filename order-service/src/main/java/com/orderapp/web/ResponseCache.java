@@ -0,0 +1,269 @@
+package com.orderapp.web;
+
+import com.orderapp.metrics.OrderMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded response bodies of cacheable GETs, keyed by request path and tagged by the
+ * entities they render. Writers invalidate tags rather than keys, so they need not know
+ * which URLs show an entity.
+ *
+ * <p>A response that was being rendered while one of its tags was invalidated is not
+ * stored: each invalidated tag gets a generation from a local clock, which the filter
+ * reads before rendering and {@link #put} checks again before storing. Tags never
+ * invalidated share the generation of the last reset, which also bounds how many tags
+ * are tracked.
+ *
+ * <p>Invalidations are sent to the other instances through {@link ResponseCacheBroadcaster}
+ * once the writing transaction completes. Beyond max-entries the least recently read
+ * entry is evicted.
+ */
+@Component
+public class ResponseCache {
+
+    /** Tag of responses listing products, such as categories, brands and available products */
+    public static final String CATALOG_TAG = "catalog";
+
+    // Only for responses that carry no ETag of their own; see versionETag
+    private final long epoch = System.currentTimeMillis();
+
+    // Access order, eldest first; both maps are guarded by entries
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private final Map<String, Set<String>> keysByTag = new HashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private volatile long baseGeneration;
+    private final OrderMetrics orderMetrics;
+    private final ObjectProvider<ResponseCacheBroadcaster> broadcaster;
+    private final int maxEntries;
+    private final long ttlSeconds;
+    private final int gzipMinBytes;
+
+    @Autowired
+    public ResponseCache(OrderMetrics orderMetrics, ObjectProvider<ResponseCacheBroadcaster> broadcaster,
+                         @Value("${app.response-cache.max-entries:10000}") int maxEntries,
+                         @Value("${app.response-cache.ttl-seconds:300}") long ttlSeconds,
+                         @Value("${app.response-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.orderMetrics = orderMetrics;
+        this.broadcaster = broadcaster;
+        this.maxEntries = maxEntries;
+        this.ttlSeconds = ttlSeconds;
+        this.gzipMinBytes = gzipMinBytes;
+        orderMetrics.gaugeResponseCacheSize(this::size);
+    }
+
+    public static String orderTag(UUID orderId) {
+        return "order:" + orderId;
+    }
+
+    public static String productTag(UUID productId) {
+        return "product:" + productId;
+    }
+
+    public Entry get(String key) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAtNanos - System.nanoTime() < 0) {
+                remove(key, entry);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            orderMetrics.recordResponseCacheHit();
+        } else {
+            orderMetrics.recordResponseCacheMiss();
+        }
+        return entry;
+    }
+
+    /**
+     * Current generation of a set of tags, to be passed back to {@link #put}. Every
+     * invalidation takes a newer clock value, so the latest of the tags' generations
+     * changes whenever one of them is invalidated.
+     */
+    public long generation(String... tags) {
+        long base = baseGeneration;
+        long generation = base;
+        for (String tag : tags) {
+            generation = Math.max(generation, generations.getOrDefault(tag, base));
+        }
+        return generation;
+    }
+
+    /**
+     * Entity tag for a response that carries none, such as the catalog before its first
+     * snapshot. It holds on this instance until it restarts only, so controllers tag what
+     * they can from the data itself.
+     */
+    public String versionETag(long generation) {
+        return ETags.ofVersion(epoch, generation);
+    }
+
+    /**
+     * Store a rendered body unless one of its tags was invalidated since {@code generation}
+     */
+    public void put(String key, String contentType, String etag, byte[] body, long generation, String... tags) {
+        Entry entry = new Entry(contentType, etag, body, body.length >= gzipMinBytes ? gzip(body) : null,
+            tags, System.nanoTime() + ttlSeconds * 1_000_000_000L);
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                untag(key, previous);
+            }
+            for (String tag : tags) {
+                keysByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(key);
+            }
+            if (generation(tags) != generation) {
+                remove(key, entry);
+            }
+            evictEldest();
+        }
+    }
+
+    /**
+     * Drop every entry carrying one of the tags, now and again once the surrounding
+     * transaction commits, so that a read of the not yet committed data is not kept.
+     * Other instances drop theirs once the transaction has completed.
+     */
+    public void invalidate(String... tags) {
+        invalidateNow(tags);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateNow(tags);
+                    broadcast(tags);
+                }
+            });
+        } else {
+            broadcast(tags);
+        }
+    }
+
+    public void clear() {
+        resetGenerations();
+        synchronized (entries) {
+            entries.clear();
+            keysByTag.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Drop every entry carrying one of the tags on this instance only, for changes that
+     * each instance makes to its own state, such as swapping in a catalog snapshot
+     */
+    public void invalidateNow(String... tags) {
+        if (generations.size() >= maxEntries) {
+            resetGenerations();
+        }
+        for (String tag : tags) {
+            generations.merge(tag, clock.incrementAndGet(), Math::max);
+            synchronized (entries) {
+                Set<String> keys = keysByTag.remove(tag);
+                if (keys != null) {
+                    for (String key : keys) {
+                        Entry entry = entries.remove(key);
+                        if (entry != null) {
+                            untag(key, entry);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void broadcast(String... tags) {
+        ResponseCacheBroadcaster target = broadcaster.getIfAvailable();
+        if (target != null) {
+            target.publish(tags);
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            untag(key, entry);
+        }
+    }
+
+    private void untag(String key, Entry entry) {
+        for (String tag : entry.tags) {
+            keysByTag.computeIfPresent(tag, (t, keys) -> keys.remove(key) && keys.isEmpty() ? null : keys);
+        }
+    }
+
+    private void evictEldest() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            Map.Entry<String, Entry> victim = iterator.next();
+            iterator.remove();
+            untag(victim.getKey(), victim.getValue());
+        }
+    }
+
+    // Moves every tag past any generation handed out so far, so the per-tag ones can go
+    private void resetGenerations() {
+        baseGeneration = clock.incrementAndGet();
+        generations.clear();
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] compressed = buffer.toByteArray();
+        return compressed.length < body.length ? compressed : null;
+    }
+
+    public static final class Entry {
+        private final String contentType;
+        private final String etag;
+        private final byte[] body;
+        private final byte[] gzippedBody;
+        private final String[] tags;
+        private final long expiresAtNanos;
+
+        private Entry(String contentType, String etag, byte[] body, byte[] gzippedBody, String[] tags,
+                      long expiresAtNanos) {
+            this.contentType = contentType;
+            this.etag = etag;
+            this.body = body;
+            this.gzippedBody = gzippedBody;
+            this.tags = tags;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getETag() { return etag; }
+        public byte[] getBody() { return body; }
+        public byte[] getGzippedBody() { return gzippedBody; }
+    }
+}
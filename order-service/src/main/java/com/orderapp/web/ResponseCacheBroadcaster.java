@@ -0,0 +1,77 @@
+package com.orderapp.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Carries {@link ResponseCache} invalidations between instances over a Redis pub/sub
+ * channel, so a write on one instance drops the cached responses of every other. A
+ * message holds the sending instance's id on its first line, which the sender uses to
+ * skip its own, and one tag per line after it.
+ *
+ * <p>Pub/sub does not keep messages for a subscriber that is disconnected, so an
+ * invalidation sent during a Redis outage is missed; ttl-seconds bounds how long such an
+ * entry is served. Disable only when running a single instance.
+ */
+@Component
+@ConditionalOnProperty(name = "app.response-cache.broadcast.enabled", havingValue = "true", matchIfMissing = true)
+public class ResponseCacheBroadcaster implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCacheBroadcaster.class);
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ResponseCache responseCache;
+    private final StringRedisTemplate redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.response-cache.broadcast.channel:response-cache:invalidations}")
+    private String channel;
+
+    @Autowired
+    public ResponseCacheBroadcaster(ResponseCache responseCache, StringRedisTemplate redisTemplate,
+                                    RedisMessageListenerContainer responseCacheListenerContainer) {
+        this.responseCache = responseCache;
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = responseCacheListenerContainer;
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    /**
+     * Tell the other instances to drop entries carrying the tags
+     */
+    public void publish(String... tags) {
+        try {
+            redisTemplate.convertAndSend(channel, instanceId + "\n" + String.join("\n", tags));
+        } catch (RuntimeException e) {
+            // The write has committed; other instances serve the old body until it expires
+            logger.warn("Failed to publish response cache invalidation of {}", Arrays.toString(tags), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] lines = new String(message.getBody(), StandardCharsets.UTF_8).split("\n");
+        if (lines.length < 2 || lines[0].equals(instanceId)) {
+            return;
+        }
+        responseCache.invalidateNow(Arrays.copyOfRange(lines, 1, lines.length));
+    }
+}
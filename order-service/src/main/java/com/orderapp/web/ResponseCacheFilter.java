@@ -0,0 +1,180 @@
+package com.orderapp.web;
+
+import com.orderapp.warmup.HotKeyRecorder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves GET /orders/{id}, GET /products/{id} and the product catalog lists from
+ * {@link ResponseCache}. A hit is copied straight from the cached bytes (gzipped when the
+ * client accepts it) without reaching the controller, or answered 304 when If-None-Match
+ * lists the cached ETag; a miss is rendered as usual and its body stored on the way out.
+ * Registered after the security filter chain, so every request is still authenticated.
+ * Order and product reads, hits or not, are noted in the {@link HotKeyRecorder} when
+ * warm-up is enabled.
+ */
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final String UUID_GROUP = "([0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12})";
+    private static final Pattern ORDER_PATH = Pattern.compile("/orders/" + UUID_GROUP);
+    private static final Pattern PRODUCT_PATH = Pattern.compile("/products/" + UUID_GROUP);
+    private static final String ORDER_TAG_PREFIX = "order:";
+    private static final String PRODUCT_TAG_PREFIX = "product:";
+    private static final Set<String> CATALOG_PATHS = Set.of(
+        "/products/categories", "/products/brands", "/products/available");
+
+    private final ResponseCache responseCache;
+    private final HotKeyRecorder hotKeys;
+
+    public ResponseCacheFilter(ResponseCache responseCache, HotKeyRecorder hotKeys) {
+        this.responseCache = responseCache;
+        this.hotKeys = hotKeys;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod())
+            || request.getQueryString() != null
+            || tagFor(path(request)) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = path(request);
+        String tag = tagFor(key);
+        if (hotKeys != null) {
+            recordRead(tag);
+        }
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+
+        ResponseCache.Entry entry = responseCache.get(key);
+        if (entry != null) {
+            writeHit(request, response, entry, ETags.matches(ifNoneMatch, entry.getETag()));
+            return;
+        }
+
+        long generation = responseCache.generation(tag);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        wrapper.setHeader("X-Cache", "MISS");
+        wrapper.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        try {
+            // Render the full body even for a conditional request, so that it can be cached
+            chain.doFilter(new UnconditionalRequest(request), wrapper);
+            if (wrapper.getStatus() == HttpStatus.OK.value() && wrapper.getContentType() != null
+                    && wrapper.getHeader(HttpHeaders.CONTENT_ENCODING) == null) {
+                String etag = wrapper.getHeader(HttpHeaders.ETAG);
+                if (etag == null) {
+                    etag = responseCache.versionETag(generation);
+                    wrapper.setHeader(HttpHeaders.ETAG, etag);
+                }
+                responseCache.put(key, wrapper.getContentType(), etag, wrapper.getContentAsByteArray(), generation, tag);
+                if (ETags.matches(ifNoneMatch, etag)) {
+                    wrapper.resetBuffer();
+                    wrapper.setStatus(HttpStatus.NOT_MODIFIED.value());
+                }
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void writeHit(HttpServletRequest request, HttpServletResponse response, ResponseCache.Entry entry,
+                          boolean notModified) throws IOException {
+        response.setHeader("X-Cache", "HIT");
+        response.setHeader(HttpHeaders.ETAG, entry.getETag());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (notModified) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        byte[] body = entry.getBody();
+        if (entry.getGzippedBody() != null && acceptsGzip(request)) {
+            body = entry.getGzippedBody();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(entry.getContentType());
+        response.setContentLength(body.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body);
+        out.flush();
+    }
+
+    private void recordRead(String tag) {
+        if (tag.startsWith(ORDER_TAG_PREFIX)) {
+            hotKeys.record(HotKeyRecorder.Kind.ORDER, tag.substring(ORDER_TAG_PREFIX.length()));
+        } else if (tag.startsWith(PRODUCT_TAG_PREFIX)) {
+            hotKeys.record(HotKeyRecorder.Kind.PRODUCT, tag.substring(PRODUCT_TAG_PREFIX.length()));
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static String tagFor(String path) {
+        Matcher order = ORDER_PATH.matcher(path);
+        if (order.matches()) {
+            return ResponseCache.orderTag(UUID.fromString(order.group(1)));
+        }
+        Matcher product = PRODUCT_PATH.matcher(path);
+        if (product.matches()) {
+            return ResponseCache.productTag(UUID.fromString(product.group(1)));
+        }
+        return CATALOG_PATHS.contains(path) ? ResponseCache.CATALOG_TAG : null;
+    }
+
+    /**
+     * Hides the conditional headers from Spring MVC, which would otherwise answer 304
+     * itself and leave nothing to cache
+     */
+    private static final class UnconditionalRequest extends HttpServletRequestWrapper {
+
+        private UnconditionalRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isConditional(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isConditional(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            return isConditional(name) ? -1 : super.getDateHeader(name);
+        }
+
+        private static boolean isConditional(String name) {
+            return HttpHeaders.IF_NONE_MATCH.equalsIgnoreCase(name)
+                || HttpHeaders.IF_MODIFIED_SINCE.equalsIgnoreCase(name);
+        }
+    }
+}
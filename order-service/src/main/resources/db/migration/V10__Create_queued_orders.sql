@@ -0,0 +1,18 @@
+-- Orders accepted by POST /orders/async, written before the 202 goes out so an accepted
+-- order survives its instance, and read by the status endpoint on any instance. Rows
+-- still unfinished with an old updated_at were lost with their instance and are queued
+-- again; finished rows are purged after the status TTL.
+CREATE TABLE queued_orders (
+    order_number VARCHAR(50) PRIMARY KEY,
+    user_id UUID NOT NULL,
+    request BYTEA NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    order_id UUID,
+    message VARCHAR(500),
+    submitted_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX idx_queued_orders_unfinished ON queued_orders(updated_at) WHERE completed_at IS NULL;
+CREATE INDEX idx_queued_orders_completed_at ON queued_orders(completed_at);
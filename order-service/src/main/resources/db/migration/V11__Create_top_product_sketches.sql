@@ -0,0 +1,21 @@
+-- Top-products sketches of the order service's analytics consumer, one per order-analytics
+-- partition and bucket: a minute for the last hour, an hour for the last day. A partition's
+-- changed buckets are saved in the same transaction as its next offset, so whichever
+-- instance is assigned the partition next resumes from exactly what they count. Queries
+-- merge the buckets of every partition.
+CREATE TABLE top_product_sketches (
+    partition_id INTEGER NOT NULL,
+    bucket_millis BIGINT NOT NULL,
+    bucket_start TIMESTAMP NOT NULL,
+    sketch BYTEA NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (partition_id, bucket_millis, bucket_start)
+);
+
+CREATE INDEX idx_top_product_sketches_bucket ON top_product_sketches(bucket_millis, bucket_start);
+
+CREATE TABLE top_product_checkpoints (
+    partition_id INTEGER PRIMARY KEY,
+    next_offset BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,29 @@
+-- Window totals of each order-events partition as rebuilt by a replay (RollupReadModel).
+--
+-- A replayed partition replaces its own rows here, then each window it touched gets its
+-- rollup row replaced by the sum over the partitions replayed. Publishing the same
+-- replay again therefore leaves the rollups as they are, unlike the additive flushes of
+-- the streaming aggregation engine.
+
+CREATE TABLE order_metrics_replayed (
+    window_name VARCHAR(30) NOT NULL,
+    window_start TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    partition_id INTEGER NOT NULL,
+    window_end TIMESTAMP NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    total_revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (window_name, window_start, status, partition_id)
+);
+
+CREATE TABLE product_sales_replayed (
+    window_name VARCHAR(30) NOT NULL,
+    window_start TIMESTAMP NOT NULL,
+    product_id UUID NOT NULL,
+    partition_id INTEGER NOT NULL,
+    window_end TIMESTAMP NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    quantity_sold BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (window_name, window_start, product_id, partition_id)
+);
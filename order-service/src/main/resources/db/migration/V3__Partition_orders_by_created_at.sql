@@ -0,0 +1,172 @@
+-- Convert orders and order_items to declarative monthly range partitions on created_at.
+--
+-- Unique constraints on a partitioned table must include the partition key, so the
+-- primary keys become (id, created_at) and order_number is unique per created_at.
+-- order_items carries its order's created_at (order_created_at) so both tables are
+-- co-partitioned and a month can be detached from both at once.
+
+CREATE SCHEMA IF NOT EXISTS archive;
+
+-- Move the existing heap tables out of the way
+ALTER TABLE order_items RENAME TO order_items_heap;
+ALTER TABLE order_items_heap RENAME CONSTRAINT order_items_pkey TO order_items_heap_pkey;
+ALTER TABLE orders RENAME TO orders_heap;
+ALTER TABLE orders_heap RENAME CONSTRAINT orders_pkey TO orders_heap_pkey;
+ALTER TABLE orders_heap RENAME CONSTRAINT orders_order_number_key TO orders_heap_order_number_key;
+
+-- Create partitioned orders table
+CREATE TABLE orders (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    order_number VARCHAR(50) NOT NULL,
+    user_id UUID NOT NULL REFERENCES users(id),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    total_amount DECIMAL(10,2) NOT NULL CHECK (total_amount >= 0),
+    tax_amount DECIMAL(10,2) DEFAULT 0 CHECK (tax_amount >= 0),
+    shipping_amount DECIMAL(10,2) DEFAULT 0 CHECK (shipping_amount >= 0),
+    shipping_street_address VARCHAR(100),
+    shipping_city VARCHAR(50),
+    shipping_state VARCHAR(50),
+    shipping_postal_code VARCHAR(10),
+    shipping_country VARCHAR(50),
+    notes TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    shipped_at TIMESTAMP,
+    delivered_at TIMESTAMP,
+    PRIMARY KEY (id, created_at),
+    UNIQUE (order_number, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Create partitioned order_items table
+CREATE TABLE order_items (
+    id UUID NOT NULL DEFAULT gen_random_uuid(),
+    order_id UUID NOT NULL,
+    order_created_at TIMESTAMP NOT NULL,
+    product_id UUID NOT NULL REFERENCES products(id),
+    quantity INTEGER NOT NULL CHECK (quantity > 0),
+    unit_price DECIMAL(10,2) NOT NULL CHECK (unit_price > 0),
+    total_price DECIMAL(10,2) NOT NULL CHECK (total_price >= 0),
+    PRIMARY KEY (id, order_created_at),
+    FOREIGN KEY (order_id, order_created_at) REFERENCES orders(id, created_at) ON DELETE CASCADE
+) PARTITION BY RANGE (order_created_at);
+
+-- Rows outside every monthly partition land here instead of failing the insert
+CREATE TABLE orders_default PARTITION OF orders DEFAULT;
+CREATE TABLE order_items_default PARTITION OF order_items DEFAULT;
+
+-- Create the monthly partition pair starting at month_start, if missing
+CREATE OR REPLACE FUNCTION create_order_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    suffix TEXT := to_char(month_start, '"y"YYYY"m"MM');
+    month_end DATE := (month_start + INTERVAL '1 month')::DATE;
+BEGIN
+    IF to_regclass('public.orders_' || suffix) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('CREATE TABLE public.%I PARTITION OF orders FOR VALUES FROM (%L) TO (%L)',
+                   'orders_' || suffix, month_start, month_end);
+    EXECUTE format('CREATE TABLE public.%I PARTITION OF order_items FOR VALUES FROM (%L) TO (%L)',
+                   'order_items_' || suffix, month_start, month_end);
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Make sure partitions exist from the current month through months_ahead months
+CREATE OR REPLACE FUNCTION ensure_order_partitions(months_ahead INTEGER) RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE := date_trunc('month', CURRENT_DATE)::DATE;
+    created INTEGER := 0;
+BEGIN
+    FOR i IN 0..months_ahead LOOP
+        IF create_order_partition((month_start + make_interval(months => i))::DATE) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Detach every monthly partition pair that ends on or before cutoff and move it to
+-- the archive schema. order_items is detached first because its foreign key pins
+-- the matching orders partition.
+CREATE OR REPLACE FUNCTION archive_order_partitions(cutoff DATE) RETURNS INTEGER AS $$
+DECLARE
+    part RECORD;
+    fk RECORD;
+    archived INTEGER := 0;
+BEGIN
+    FOR part IN
+        SELECT c.relname AS orders_partition,
+               'order_items_' || substr(c.relname, 8) AS items_partition
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'public.orders'::regclass
+          AND c.relname ~ '^orders_y[0-9]{4}m[0-9]{2}$'
+          AND (to_date(substr(c.relname, 9), 'YYYY"m"MM') + INTERVAL '1 month')::DATE <= cutoff
+        ORDER BY c.relname
+    LOOP
+        IF to_regclass('public.' || part.items_partition) IS NOT NULL THEN
+            EXECUTE format('ALTER TABLE order_items DETACH PARTITION public.%I', part.items_partition);
+
+            FOR fk IN
+                SELECT conname FROM pg_constraint
+                WHERE conrelid = ('public.' || part.items_partition)::regclass
+                  AND contype = 'f'
+                  AND confrelid = 'public.orders'::regclass
+            LOOP
+                EXECUTE format('ALTER TABLE public.%I DROP CONSTRAINT %I', part.items_partition, fk.conname);
+            END LOOP;
+
+            EXECUTE format('ALTER TABLE public.%I SET SCHEMA archive', part.items_partition);
+        END IF;
+
+        EXECUTE format('ALTER TABLE orders DETACH PARTITION public.%I', part.orders_partition);
+        EXECUTE format('ALTER TABLE public.%I SET SCHEMA archive', part.orders_partition);
+        archived := archived + 1;
+    END LOOP;
+    RETURN archived;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Create partitions covering existing history plus a few months ahead
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(created_at)), date_trunc('month', CURRENT_DATE))::DATE
+    INTO month_start
+    FROM orders_heap;
+
+    WHILE month_start < date_trunc('month', CURRENT_DATE)::DATE LOOP
+        PERFORM create_order_partition(month_start);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+
+    PERFORM ensure_order_partitions(3);
+END;
+$$;
+
+-- Copy existing data
+INSERT INTO orders (id, order_number, user_id, status, total_amount, tax_amount, shipping_amount,
+                    shipping_street_address, shipping_city, shipping_state, shipping_postal_code,
+                    shipping_country, notes, created_at, updated_at, shipped_at, delivered_at)
+SELECT id, order_number, user_id, status, total_amount, tax_amount, shipping_amount,
+       shipping_street_address, shipping_city, shipping_state, shipping_postal_code,
+       shipping_country, notes, created_at, updated_at, shipped_at, delivered_at
+FROM orders_heap;
+
+INSERT INTO order_items (id, order_id, order_created_at, product_id, quantity, unit_price, total_price)
+SELECT oi.id, oi.order_id, o.created_at, oi.product_id, oi.quantity, oi.unit_price, oi.total_price
+FROM order_items_heap oi
+JOIN orders_heap o ON o.id = oi.order_id;
+
+DROP TABLE order_items_heap;
+DROP TABLE orders_heap;
+
+-- Recreate indexes on the partitioned parents (propagated to every partition)
+CREATE INDEX idx_orders_user_id ON orders(user_id, created_at DESC);
+CREATE INDEX idx_orders_status ON orders(status);
+CREATE INDEX idx_orders_created_at ON orders(created_at);
+CREATE INDEX idx_order_items_order_id ON order_items(order_id);
+CREATE INDEX idx_order_items_product_id ON order_items(product_id);
@@ -0,0 +1,47 @@
+-- Rollups written by the streaming aggregation engine behind the order-analytics
+-- listener, plus its checkpoints.
+--
+-- Every window (minute, hour, day, and any hopping windows configured) is flushed once
+-- it closes. Each consumer partition contributes its own totals, so rows are merged by
+-- adding to them rather than replaced; avg_order_value is kept in step with the sums.
+
+-- Orders that entered each status during the window; status 'ALL' counts orders created
+CREATE TABLE order_metrics_rollup (
+    window_name VARCHAR(30) NOT NULL,
+    window_start TIMESTAMP NOT NULL,
+    window_end TIMESTAMP NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    total_revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    avg_order_value DECIMAL(12,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (window_name, window_start, status)
+);
+
+-- Units and revenue per product from the orders created during the window
+CREATE TABLE product_sales_rollup (
+    window_name VARCHAR(30) NOT NULL,
+    window_start TIMESTAMP NOT NULL,
+    window_end TIMESTAMP NOT NULL,
+    product_id UUID NOT NULL,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    quantity_sold BIGINT NOT NULL DEFAULT 0,
+    revenue DECIMAL(14,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (window_name, window_start, product_id)
+);
+
+CREATE INDEX idx_product_sales_rollup_product ON product_sales_rollup(product_id, window_name, window_start);
+
+-- Per partition: the next offset to read and the open windows as of that offset,
+-- written in the same transaction as the rollups they precede
+CREATE TABLE analytics_checkpoints (
+    consumer_group VARCHAR(100) NOT NULL,
+    topic VARCHAR(100) NOT NULL,
+    partition_id INTEGER NOT NULL,
+    next_offset BIGINT NOT NULL,
+    watermark TIMESTAMP,
+    state TEXT NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (consumer_group, topic, partition_id)
+);
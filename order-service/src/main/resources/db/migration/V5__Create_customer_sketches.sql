@@ -0,0 +1,8 @@
+-- One HyperLogLog of the customers who ordered per day, written by the order service's
+-- analytics consumer. Distinct customers over any range of days come from merging the
+-- days' sketches, instead of COUNT(DISTINCT user_id) over orders.
+CREATE TABLE customer_sketches (
+    bucket_date DATE PRIMARY KEY,
+    sketch BYTEA NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,14 @@
+-- Snapshots of read models rebuilt by replaying order-events (see EventReplayService).
+--
+-- One row per read model and partition: the model's state after applying every event
+-- before next_offset. A replay that is not given a starting point restores these and
+-- resumes from next_offset instead of the beginning of the topic.
+CREATE TABLE read_model_snapshots (
+    read_model VARCHAR(100) NOT NULL,
+    topic VARCHAR(100) NOT NULL,
+    partition_id INTEGER NOT NULL,
+    next_offset BIGINT NOT NULL,
+    state BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (read_model, topic, partition_id)
+);
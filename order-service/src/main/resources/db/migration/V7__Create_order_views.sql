@@ -0,0 +1,13 @@
+-- Read model of the order detail API: one row per order holding its complete
+-- OrderResponse document, written in the same transaction as the order. GET by id or
+-- order number is then one index lookup with no joins to order_items, products or users.
+--
+-- version starts at 0 and increases with every rewrite of the document. Orders created
+-- before this table existed are filled in by the order service's backfill.
+CREATE TABLE order_views (
+    order_id UUID PRIMARY KEY,
+    order_number VARCHAR(50) NOT NULL UNIQUE,
+    version BIGINT NOT NULL,
+    document BYTEA NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
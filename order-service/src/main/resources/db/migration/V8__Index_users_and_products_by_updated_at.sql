@@ -0,0 +1,5 @@
+-- The negative-lookup filters pick up new and changed users and products every few
+-- seconds by updated_at; without these indexes each refresh is a full scan of both tables.
+-- Orders are read by created_at, which is already indexed.
+CREATE INDEX idx_users_updated_at ON users(updated_at);
+CREATE INDEX idx_products_updated_at ON products(updated_at);
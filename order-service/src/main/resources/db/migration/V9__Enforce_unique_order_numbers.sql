@@ -0,0 +1,54 @@
+-- V3 could only make order_number unique per created_at, because unique constraints on
+-- a partitioned table must include the partition key. This plain table restores global
+-- uniqueness: triggers on orders keep one row per order number in step, so inserting an
+-- order under a number already taken fails with a unique violation. It also maps an
+-- order number to the order's id and created_at.
+--
+-- Rows of partitions detached into the archive schema stay here, so their numbers stay taken.
+CREATE TABLE order_numbers (
+    order_number VARCHAR(50) PRIMARY KEY,
+    order_id UUID NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO order_numbers (order_number, order_id, created_at)
+SELECT order_number, id, created_at FROM orders;
+
+CREATE OR REPLACE FUNCTION order_numbers_insert() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO order_numbers (order_number, order_id, created_at)
+    VALUES (NEW.order_number, NEW.id, NEW.created_at);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION order_numbers_delete() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM order_numbers WHERE order_number = OLD.order_number AND order_id = OLD.id;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION order_numbers_update() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM order_numbers WHERE order_number = OLD.order_number AND order_id = OLD.id;
+    INSERT INTO order_numbers (order_number, order_id, created_at)
+    VALUES (NEW.order_number, NEW.id, NEW.created_at);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER orders_order_number_insert
+    AFTER INSERT ON orders
+    FOR EACH ROW EXECUTE FUNCTION order_numbers_insert();
+
+CREATE TRIGGER orders_order_number_delete
+    AFTER DELETE ON orders
+    FOR EACH ROW EXECUTE FUNCTION order_numbers_delete();
+
+-- Hibernate writes every column on update; only a changed number or created_at needs work
+CREATE TRIGGER orders_order_number_update
+    AFTER UPDATE ON orders
+    FOR EACH ROW
+    WHEN (OLD.order_number IS DISTINCT FROM NEW.order_number OR OLD.created_at IS DISTINCT FROM NEW.created_at)
+    EXECUTE FUNCTION order_numbers_update();
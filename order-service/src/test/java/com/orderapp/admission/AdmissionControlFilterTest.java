@@ -0,0 +1,25 @@
+package com.orderapp.admission;
+
+import com.orderapp.admission.AdmissionControl.EndpointClass;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdmissionControlFilterTest {
+
+    @Test
+    void orderChangesAreWrites() {
+        assertEquals(EndpointClass.WRITE, AdmissionControlFilter.classify("POST", "/orders"));
+        assertEquals(EndpointClass.WRITE, AdmissionControlFilter.classify("POST", "/orders/async"));
+        assertEquals(EndpointClass.WRITE, AdmissionControlFilter.classify("PUT", "/orders/42/status"));
+        assertEquals(EndpointClass.WRITE, AdmissionControlFilter.classify("PUT", "/orders/42/cancel"));
+    }
+
+    @Test
+    void otherRoutesAreReadsOrAnalytics() {
+        assertEquals(EndpointClass.READ, AdmissionControlFilter.classify("GET", "/orders/42"));
+        assertEquals(EndpointClass.READ, AdmissionControlFilter.classify("GET", "/orders/async/ORD-1"));
+        assertEquals(EndpointClass.READ, AdmissionControlFilter.classify("POST", "/products"));
+        assertEquals(EndpointClass.ANALYTICS, AdmissionControlFilter.classify("GET", "/orders/analytics/revenue"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.orderapp.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradientLimiterTest {
+
+    private static final long WINDOW = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long SERVICE = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private long now = 0;
+
+    @Test
+    void growsWhileLatencyHoldsAndTheLimitIsUsed() {
+        GradientLimiter limiter = limiter(20);
+        run(limiter, 1_000, 300, Double.MAX_VALUE);
+        assertEquals(200, limiter.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhileMostOfTheLimitIsIdle() {
+        GradientLimiter limiter = limiter(20);
+        run(limiter, 5, 300, Double.MAX_VALUE);
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void settlesNearCapacityWhenDemandFarExceedsIt() {
+        // 20 connections behind the limiter: beyond 20 in flight, requests queue for one
+        GradientLimiter limiter = limiter(20);
+        run(limiter, 1_000, 300, 20);
+
+        double latency = run(limiter, 1_000, 300, 20);
+        int limit = limiter.getLimit();
+        assertTrue(limit >= 20 && limit <= 60, "limit " + limit);
+        assertTrue(latency < 3.0 * SERVICE, "latency " + latency / SERVICE + "x the service time");
+    }
+
+    @Test
+    void recoversWhenTheServiceItselfBecomesSlower() {
+        GradientLimiter limiter = limiter(20);
+        run(limiter, 1_000, 300, 20);
+
+        // Every request now takes three times as long, however few are in flight
+        run(limiter, 1_000, 2_000, 20, 3 * SERVICE);
+        int limit = limiter.getLimit();
+        assertTrue(limit >= 20, "limit " + limit);
+    }
+
+    @Test
+    void busyWhenNearTheLimitOrAfterARejection() {
+        GradientLimiter limiter = limiter(10);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(limiter.tryAcquire(now));
+        }
+        assertFalse(limiter.isBusy(0.8, now));
+        assertTrue(limiter.tryAcquire(now));
+        assertTrue(limiter.isBusy(0.8, now));
+
+        assertTrue(limiter.tryAcquire(now));
+        assertFalse(limiter.tryAcquire(now));
+        for (int i = 0; i < 10; i++) {
+            limiter.release(SERVICE, now);
+        }
+        assertTrue(limiter.isBusy(0.8, now), "rejected within the window");
+        assertFalse(limiter.isBusy(0.8, now + WINDOW));
+    }
+
+    private static GradientLimiter limiter(int initialLimit) {
+        return new GradientLimiter(initialLimit, 1, 200, 1.5, 0.2, 600, WINDOW, 10);
+    }
+
+    /**
+     * Closed loop of {@code clients}, each sending its next request as soon as the last
+     * completes, against a resource serving {@code capacity} at a time; the mean latency
+     */
+    private double run(GradientLimiter limiter, int clients, int windows, double capacity) {
+        return run(limiter, clients, windows, capacity, SERVICE);
+    }
+
+    private double run(GradientLimiter limiter, int clients, int windows, double capacity, long service) {
+        long end = now + windows * WINDOW;
+        long latencySum = 0;
+        long completed = 0;
+        while (now < end) {
+            int admitted = 0;
+            while (admitted < clients && limiter.tryAcquire(now)) {
+                admitted++;
+            }
+            long latency = (long) (service * Math.max(1.0, admitted / capacity));
+            now += latency;
+            for (int i = 0; i < admitted; i++) {
+                limiter.release(latency, now);
+            }
+            latencySum += latency * admitted;
+            completed += admitted;
+        }
+        return (double) latencySum / completed;
+    }
+}
@@ -0,0 +1,104 @@
+package com.orderapp.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    void estimatesStayWithinThreeStandardErrorsOfExactCounts() {
+        for (int cardinality : new int[] {10, 100, 1_000, 10_000, 50_000, 200_000, 1_000_000}) {
+            HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+            Set<UUID> exact = new HashSet<>();
+            for (UUID id : customers(cardinality)) {
+                // Every customer orders a few times
+                for (int order = 0; order < 3; order++) {
+                    sketch.add(id);
+                }
+                exact.add(id);
+            }
+            assertWithin(sketch, exact.size());
+        }
+    }
+
+    @Test
+    void mergedDaysMatchTheExactUnion() {
+        // A week of days sharing a pool of returning customers
+        List<UUID> returning = customers(20_000);
+        HyperLogLog week = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        Set<UUID> exact = new HashSet<>();
+        for (int day = 0; day < 7; day++) {
+            HyperLogLog daySketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+            Set<UUID> dayExact = new HashSet<>();
+            for (UUID id : customers(5_000)) {
+                daySketch.add(id);
+                dayExact.add(id);
+            }
+            for (int i = 0; i < 8_000; i++) {
+                UUID id = returning.get(random.nextInt(returning.size()));
+                daySketch.add(id);
+                dayExact.add(id);
+            }
+            assertWithin(daySketch, dayExact.size());
+
+            // Days go through storage before they are merged
+            week.merge(HyperLogLog.fromBytes(daySketch.toBytes()));
+            exact.addAll(dayExact);
+        }
+        assertWithin(week, exact.size());
+    }
+
+    @Test
+    void mergingTheSameDayTwiceChangesNothing() {
+        HyperLogLog day = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        customers(5_000).forEach(day::add);
+        HyperLogLog once = day.copy();
+
+        day.merge(once);
+        day.merge(HyperLogLog.fromBytes(once.toBytes()));
+
+        assertEquals(once, day);
+    }
+
+    @Test
+    void serializationIsCompactAndLossless() {
+        HyperLogLog small = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        customers(200).forEach(small::add);
+        byte[] sparse = small.toBytes();
+        assertTrue(sparse.length < 1_000, "sparse encoding took " + sparse.length + " bytes");
+        assertEquals(small, HyperLogLog.fromBytes(sparse));
+
+        HyperLogLog large = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+        customers(500_000).forEach(large::add);
+        byte[] dense = large.toBytes();
+        // Six bits per register instead of a byte
+        assertEquals(3 + (1 << HyperLogLog.DEFAULT_PRECISION) * 6 / 8, dense.length);
+        assertEquals(large, HyperLogLog.fromBytes(dense));
+    }
+
+    private static void assertWithin(HyperLogLog sketch, int exact) {
+        double error = Math.abs(sketch.estimate() - exact) / (double) exact;
+        double allowed = Math.max(3 * sketch.relativeStandardError(), exact < 100 ? 0.1 : 0);
+        assertTrue(error <= allowed,
+            "estimate " + sketch.estimate() + " of " + exact + " is off by " + String.format("%.2f%%", error * 100));
+    }
+
+    private List<UUID> customers(int count) {
+        List<UUID> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        return ids;
+    }
+}
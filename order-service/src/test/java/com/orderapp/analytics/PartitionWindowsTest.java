@@ -0,0 +1,110 @@
+package com.orderapp.analytics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionWindowsTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long LATENESS = 30_000;
+    private static final List<WindowSpec> WINDOWS = List.of(new WindowSpec("minute", MINUTE, MINUTE));
+
+    private static final StreamingAggregationEngine.WindowUpdate ONE_ORDER =
+        (state, window, start, end) -> state.addByStatus(new WindowKey(window, start, end, "ALL"), 1, 100);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void eventsBehindTheWatermarkAreDroppedAsLate() {
+        PartitionWindows windows = new PartitionWindows(0);
+        List<String> late = new ArrayList<>();
+        long base = 1_000 * MINUTE;
+
+        add(windows, base + 10_000, late);
+        // The watermark trails the latest event time by the allowed lateness
+        add(windows, base + MINUTE + 40_000, late);
+        assertEquals(base + MINUTE + 10_000, windows.getWatermark());
+        // Its first minute has closed, so an event for it is late; the second is still open
+        add(windows, base + 20_000, late);
+        add(windows, base + MINUTE + 5_000, late);
+        assertEquals(List.of("minute"), late);
+
+        Map<WindowKey, WindowTotals> byStatus = new HashMap<>();
+        assertTrue(windows.takeClosed(byStatus, new HashMap<>()));
+        WindowTotals first = byStatus.get(new WindowKey("minute", base, base + MINUTE, "ALL"));
+        assertEquals(1, first.getOrders());
+        assertEquals(100, first.getRevenueMinor());
+        assertEquals(1, windows.openWindows());
+    }
+
+    @Test
+    void idlePartitionsAdvanceByTheWallClockAfterTheTimeout() {
+        PartitionWindows windows = new PartitionWindows(0);
+        long base = 1_000 * MINUTE;
+        long now = base + 10_000;
+        long watermark = windows.advance(base + 10_000, 0, LATENESS, now);
+        StreamingAggregationEngine.addToWindows(windows, WINDOWS, base + 10_000, watermark, ONE_ORDER, late -> { });
+
+        windows.advanceIdle(now + 4 * MINUTE, LATENESS, 5 * MINUTE);
+        assertEquals(base + 10_000 - LATENESS, windows.getWatermark());
+        assertFalse(windows.takeClosed(new HashMap<>(), new HashMap<>()));
+
+        windows.advanceIdle(now + 5 * MINUTE, LATENESS, 5 * MINUTE);
+        assertEquals(now + 5 * MINUTE - LATENESS, windows.getWatermark());
+        assertTrue(windows.takeClosed(new HashMap<>(), new HashMap<>()));
+        assertEquals(0, windows.openWindows());
+    }
+
+    @Test
+    void aRestoredPartitionWaitsAFullTimeoutBeforeAdvancing() throws Exception {
+        PartitionWindows windows = PartitionWindows.fromJson(0, new PartitionWindows(0).toJson(objectMapper), objectMapper);
+        long now = 1_000 * MINUTE;
+
+        windows.advanceIdle(now, LATENESS, 5 * MINUTE);
+        assertEquals(Long.MIN_VALUE, windows.getWatermark());
+        windows.advanceIdle(now + 5 * MINUTE, LATENESS, 5 * MINUTE);
+        assertEquals(now + 5 * MINUTE - LATENESS, windows.getWatermark());
+    }
+
+    @Test
+    void checkpointsRestoreOffsetsWatermarkAndOpenWindows() throws Exception {
+        PartitionWindows windows = new PartitionWindows(3);
+        long base = 1_000 * MINUTE;
+        long watermark = windows.advance(base + 45_000, 41, LATENESS, base);
+        StreamingAggregationEngine.addToWindows(windows, WINDOWS, base + 45_000, watermark, ONE_ORDER, late -> { });
+        windows.addByProduct(new WindowKey("minute", base, base + MINUTE, "product-1"), 3, 2_500);
+
+        PartitionWindows restored = PartitionWindows.fromJson(3, windows.toJson(objectMapper), objectMapper);
+
+        assertEquals(3, restored.getPartition());
+        assertEquals(42, restored.getNextOffset());
+        assertEquals(base + 15_000, restored.getWatermark());
+        assertEquals(2, restored.openWindows());
+        // The latest event time came back too, so an older event does not move the watermark back
+        assertEquals(base + 15_000, restored.advance(base + 20_000, LATENESS));
+
+        restored.advance(base + MINUTE + LATENESS, LATENESS);
+        Map<WindowKey, WindowTotals> byStatus = new HashMap<>();
+        Map<WindowKey, WindowTotals> byProduct = new HashMap<>();
+        assertTrue(restored.takeClosed(byStatus, byProduct));
+        assertEquals(1, byStatus.get(new WindowKey("minute", base, base + MINUTE, "ALL")).getOrders());
+        WindowTotals product = byProduct.get(new WindowKey("minute", base, base + MINUTE, "product-1"));
+        assertEquals(1, product.getOrders());
+        assertEquals(3, product.getQuantity());
+        assertEquals(2_500, product.getRevenueMinor());
+    }
+
+    private static void add(PartitionWindows windows, long eventTime, List<String> late) {
+        long watermark = windows.advance(eventTime, LATENESS);
+        StreamingAggregationEngine.addToWindows(windows, WINDOWS, eventTime, watermark, ONE_ORDER, late::add);
+    }
+}
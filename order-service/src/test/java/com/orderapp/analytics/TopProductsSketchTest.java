@@ -0,0 +1,145 @@
+package com.orderapp.analytics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopProductsSketchTest {
+
+    private static final int PRODUCTS = 20_000;
+    private static final int ORDER_LINES = 300_000;
+    private static final double ZIPF_EXPONENT = 1.1;
+
+    private static final int COUNTERS = 256;
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 1024;
+
+    private List<String> lineProducts;
+    private List<Integer> lineUnits;
+    private Map<String, Long> exact;
+
+    @BeforeEach
+    void setUp() {
+        // Product popularity follows Zipf: the i-th most popular sells ~ 1 / i^s as often
+        double[] cumulative = new double[PRODUCTS];
+        double sum = 0;
+        for (int i = 0; i < PRODUCTS; i++) {
+            sum += 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(42);
+        lineProducts = new ArrayList<>(ORDER_LINES);
+        lineUnits = new ArrayList<>(ORDER_LINES);
+        exact = new HashMap<>();
+        for (int i = 0; i < ORDER_LINES; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            String product = "product-" + (rank >= 0 ? rank : -rank - 1);
+            int units = 1 + random.nextInt(3);
+            lineProducts.add(product);
+            lineUnits.add(units);
+            exact.merge(product, (long) units, Long::sum);
+        }
+    }
+
+    @Test
+    void estimatesStayWithinStatedBoundsOnZipfWorkload() {
+        TopProductsSketch sketch = feed(0, 1);
+
+        assertBounded(sketch);
+        assertEquals(exactTop(10), reportedTop(sketch, 10));
+    }
+
+    @Test
+    void everyProductAboveTheThresholdIsReported() {
+        TopProductsSketch sketch = feed(0, 1);
+        long threshold = sketch.getTotalUnits() / COUNTERS;
+
+        Set<String> reported = sketch.top(COUNTERS).stream()
+            .map(TopProductsSketch.Estimate::getProductId)
+            .collect(Collectors.toSet());
+        exact.forEach((product, units) -> {
+            if (units > threshold) {
+                assertTrue(reported.contains(product), product + " sold " + units + " > " + threshold);
+            }
+        });
+    }
+
+    @Test
+    void sketchesMergedAcrossInstancesKeepTheBounds() {
+        // Four instances each see a quarter of the stream and exchange serialized sketches
+        TopProductsSketch merged = new TopProductsSketch(COUNTERS, DEPTH, WIDTH);
+        for (int instance = 0; instance < 4; instance++) {
+            merged.merge(TopProductsSketch.fromBytes(feed(instance, 4).toBytes()));
+        }
+
+        assertEquals(exactTotal(), merged.getTotalUnits());
+        assertBounded(merged);
+        assertEquals(exactTop(10), reportedTop(merged, 10));
+    }
+
+    @Test
+    void guaranteedProductsAreRankedCorrectly() {
+        TopProductsSketch sketch = feed(0, 1);
+        List<String> exactRanking = exactTop(COUNTERS);
+
+        List<TopProductsSketch.Estimate> top = sketch.top(20);
+        for (int i = 0; i < top.size(); i++) {
+            if (top.get(i).isGuaranteed()) {
+                assertTrue(exactRanking.indexOf(top.get(i).getProductId()) <= i,
+                    top.get(i).getProductId() + " is guaranteed at rank " + i);
+            }
+        }
+        assertTrue(top.get(0).isGuaranteed());
+    }
+
+    private TopProductsSketch feed(int shard, int shards) {
+        TopProductsSketch sketch = new TopProductsSketch(COUNTERS, DEPTH, WIDTH);
+        for (int i = shard; i < ORDER_LINES; i += shards) {
+            sketch.offer(lineProducts.get(i), lineUnits.get(i));
+        }
+        return sketch;
+    }
+
+    private void assertBounded(TopProductsSketch sketch) {
+        long maxError = sketch.maxError();
+        assertTrue(maxError <= exactTotal() / COUNTERS);
+        for (TopProductsSketch.Estimate estimate : sketch.top(COUNTERS)) {
+            long actual = exact.getOrDefault(estimate.getProductId(), 0L);
+            assertTrue(estimate.getLowerBound() <= actual && actual <= estimate.getEstimate(),
+                estimate.getProductId() + ": " + actual + " outside [" + estimate.getLowerBound()
+                    + ", " + estimate.getEstimate() + "]");
+            assertTrue(estimate.getEstimate() - actual <= maxError,
+                estimate.getProductId() + " overcounted by " + (estimate.getEstimate() - actual));
+        }
+    }
+
+    private long exactTotal() {
+        return exact.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    private List<String> exactTop(int limit) {
+        return exact.entrySet().stream()
+            .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+            .limit(limit)
+            .map(Map.Entry::getKey)
+            .collect(Collectors.toList());
+    }
+
+    private static List<String> reportedTop(TopProductsSketch sketch, int limit) {
+        return sketch.top(limit).stream()
+            .map(TopProductsSketch.Estimate::getProductId)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,65 @@
+package com.orderapp.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WindowSpecTest {
+
+    private static final long MINUTE = 60_000;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    void tumblingWindowsGiveEachEventOneEpochAlignedStart() {
+        WindowSpec hour = new WindowSpec("hour", HOUR, HOUR);
+        long base = 1_000 * HOUR;
+
+        assertEquals(List.of(base), starts(hour, base));
+        assertEquals(List.of(base), starts(hour, base + 59 * MINUTE));
+        // The end is exclusive
+        assertEquals(List.of(base + HOUR), starts(hour, base + HOUR));
+        // Before the epoch the start still rounds down
+        assertEquals(List.of(-HOUR), starts(hour, -1));
+    }
+
+    @Test
+    void hoppingWindowsGiveEveryOverlappingStartLatestFirst() {
+        WindowSpec hopping = new WindowSpec("hour-hopping", HOUR, 15 * MINUTE);
+        long base = 1_000 * HOUR;
+
+        long event = base + 20 * MINUTE;
+        assertEquals(List.of(base + 15 * MINUTE, base, base - 15 * MINUTE, base - 30 * MINUTE), starts(hopping, event));
+        for (long start : starts(hopping, event)) {
+            assertTrue(start <= event && event < start + HOUR);
+        }
+        // On a slide boundary the window ending there is left out
+        assertEquals(List.of(base, base - 15 * MINUTE, base - 30 * MINUTE, base - 45 * MINUTE), starts(hopping, base));
+    }
+
+    @Test
+    void parsesNamedShapes() {
+        List<WindowSpec> windows = WindowSpec.parseAll("minute=1m, hour=1h,,hour-hopping=1h/15m");
+
+        assertEquals(3, windows.size());
+        assertEquals("minute", windows.get(0).getName());
+        assertEquals(MINUTE, windows.get(0).getSizeMillis());
+        assertTrue(windows.get(1).isTumbling());
+        assertFalse(windows.get(2).isTumbling());
+        assertEquals(15 * MINUTE, windows.get(2).getSlideMillis());
+
+        assertThrows(IllegalArgumentException.class, () -> WindowSpec.parseAll("hour"));
+        assertThrows(IllegalArgumentException.class, () -> WindowSpec.parseAll("odd=15m/1h"));
+    }
+
+    private static List<Long> starts(WindowSpec window, long eventTime) {
+        List<Long> starts = new ArrayList<>();
+        window.forEachStart(eventTime, starts::add);
+        return starts;
+    }
+}
@@ -0,0 +1,122 @@
+package com.orderapp.archive;
+
+import com.orderapp.archive.ArchiveSegment.Column;
+import com.orderapp.entity.Money;
+import com.orderapp.entity.Order;
+import com.orderapp.entity.OrderItem;
+import com.orderapp.entity.Product;
+import com.orderapp.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchiveSegmentTest {
+
+    // Directory entry of the first column: after the fixed header, (offset, compressed length, raw length)
+    private static final int FIRST_COMPRESSED_LENGTH = 68 + 8;
+
+    @TempDir
+    Path directory;
+
+    private List<Order> orders;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User("Test", "Buyer", "buyer@example.com");
+        user.setId(UUID.randomUUID());
+        Product product = new Product("Widget", "WID-1", new BigDecimal("1.25"));
+        product.setId(UUID.randomUUID());
+
+        orders = new ArrayList<>();
+        LocalDateTime createdAt = LocalDateTime.of(2025, 1, 1, 12, 0);
+        for (int i = 0; i < 200; i++) {
+            Order order = new Order(user, String.format("ORD-20250101120000-%06d", i));
+            order.setId(UUID.randomUUID());
+            order.setStatus(Order.OrderStatus.DELIVERED);
+            order.setCreatedAt(createdAt.plusMinutes(i));
+            OrderItem item = new OrderItem(product, 1 + i % 3, Money.ofMinor(125));
+            item.setId(UUID.randomUUID());
+            order.addOrderItem(item);
+            orders.add(order);
+        }
+    }
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        Path file = directory.resolve("orders.seg");
+        ArchiveSegmentWriter.write(file, orders);
+
+        ArchiveSegment segment = ArchiveSegment.open(file);
+        assertEquals(orders.size(), segment.getOrderCount());
+        String[] numbers = segment.strings(Column.ORDER_NUMBER);
+        for (Order order : orders) {
+            int row = segment.findRow(order.getId());
+            assertTrue(row >= 0, order.getOrderNumber());
+            assertEquals(order.getOrderNumber(), numbers[row]);
+        }
+    }
+
+    @Test
+    void verificationRejectsASegmentThatDoesNotMatchTheOrders() throws IOException {
+        Path file = directory.resolve("orders.seg");
+        ArchiveSegmentWriter.write(file, orders);
+        ArchiveSegment segment = ArchiveSegment.open(file);
+        ColdOrderArchiver.verify(segment, orders);
+
+        orders.get(17).setTotalAmount(Money.ofMinor(1));
+        assertThrows(IllegalStateException.class, () -> ColdOrderArchiver.verify(segment, orders));
+        assertThrows(IllegalStateException.class, () -> ColdOrderArchiver.verify(segment, orders.subList(0, 10)));
+    }
+
+    @Test
+    void truncatedFileIsRejectedWhenOpened() throws IOException {
+        Path file = directory.resolve("orders.seg");
+        ArchiveSegmentWriter.write(file, orders);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path truncated = directory.resolve("truncated.seg");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IllegalStateException.class, () -> ArchiveSegment.open(truncated));
+
+        Files.write(truncated, Arrays.copyOf(bytes, 20));
+        assertThrows(IllegalStateException.class, () -> ArchiveSegment.open(truncated));
+    }
+
+    @Test
+    void shortColumnFailsInsteadOfSpinning() throws IOException {
+        Path file = directory.resolve("orders.seg");
+        ArchiveSegmentWriter.write(file, orders);
+        byte[] bytes = Files.readAllBytes(file);
+        // Claim only the first few compressed bytes of the column
+        ByteBuffer.wrap(bytes).putInt(FIRST_COMPRESSED_LENGTH, 4);
+        Path corrupt = directory.resolve("corrupt.seg");
+        Files.write(corrupt, bytes);
+
+        ArchiveSegment segment = ArchiveSegment.open(corrupt);
+        IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(5),
+            () -> assertThrows(IllegalStateException.class, () -> segment.strings(Column.ORDER_NUMBER)));
+        assertTrue(e.getMessage().startsWith("Corrupt column ORDER_NUMBER"), e.getMessage());
+
+        // Other columns are intact
+        for (byte status : segment.bytes(Column.STATUS)) {
+            assertEquals(Order.OrderStatus.DELIVERED.ordinal(), status);
+        }
+    }
+}
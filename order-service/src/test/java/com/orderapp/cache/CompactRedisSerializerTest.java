@@ -0,0 +1,180 @@
+package com.orderapp.cache;
+
+import com.orderapp.config.CacheConfig;
+import com.orderapp.dto.OrderItemResponse;
+import com.orderapp.dto.OrderResponse;
+import com.orderapp.entity.Address;
+import com.orderapp.entity.Money;
+import com.orderapp.entity.Order;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactRedisSerializerTest {
+
+    private final CompactRedisSerializer serializer =
+        new CompactRedisSerializer(CacheConfig.jsonValueSerializer(), true, 1024);
+
+    @Test
+    void ordersRoundTripWithEveryField() {
+        OrderResponse order = order(3);
+        order.setShippedAt(LocalDateTime.of(2026, 3, 1, 12, 0, 0, 123_456_789));
+        order.setTaxAmount(Money.ofMinor(-250, Currency.getInstance("EUR")));
+        order.setNotes(null);
+
+        OrderResponse read = (OrderResponse) serializer.deserialize(serializer.serialize(order));
+
+        assertSameOrder(order, read);
+        assertEquals(Currency.getInstance("EUR"), read.getTaxAmount().getCurrency());
+        assertNull(read.getNotes());
+        assertNull(read.getDeliveredAt());
+    }
+
+    @Test
+    void pagesRoundTripAndLargeOnesAreCompressedSmallerThanJson() {
+        List<OrderResponse> orders = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            orders.add(order(3));
+        }
+        Page<OrderResponse> page = new PageImpl<>(orders,
+            PageRequest.of(2, 20, Sort.by("createdAt").descending()), 137);
+
+        byte[] bytes = serializer.serialize(page);
+        @SuppressWarnings("unchecked")
+        Page<OrderResponse> read = (Page<OrderResponse>) serializer.deserialize(bytes);
+
+        assertEquals(page.getPageable(), read.getPageable());
+        assertEquals(137, read.getTotalElements());
+        for (int i = 0; i < orders.size(); i++) {
+            assertSameOrder(orders.get(i), read.getContent().get(i));
+        }
+        assertEquals(1, bytes[1], "a 20-order page is above the threshold and compresses");
+        int json = CacheConfig.jsonValueSerializer().serialize(orders).length;
+        assertTrue(bytes.length * 3 < json, bytes.length + " bytes against " + json + " as JSON");
+    }
+
+    @Test
+    void builtInValuesAndUnregisteredTypesRoundTrip() {
+        UUID id = UUID.randomUUID();
+        assertEquals("status", serializer.deserialize(serializer.serialize("status")));
+        assertEquals(-42L, serializer.deserialize(serializer.serialize(-42L)));
+        assertEquals(7, serializer.deserialize(serializer.serialize(7)));
+        assertEquals(id, serializer.deserialize(serializer.serialize(id)));
+        assertSame(NullValue.INSTANCE, serializer.deserialize(serializer.serialize(NullValue.INSTANCE)));
+        assertEquals(List.of("a", 1L), serializer.deserialize(serializer.serialize(List.of("a", 1L))));
+        assertEquals(Map.of("k", "v"), serializer.deserialize(serializer.serialize(new HashMap<>(Map.of("k", "v")))));
+        assertNull(serializer.deserialize(serializer.serialize(null)));
+    }
+
+    @Test
+    void readsJsonWrittenByTheJsonFormat() {
+        OrderResponse order = order(2);
+        byte[] json = CacheConfig.jsonValueSerializer().serialize(order);
+        assertSameOrder(order, (OrderResponse) serializer.deserialize(json));
+
+        CompactRedisSerializer jsonWriter = new CompactRedisSerializer(CacheConfig.jsonValueSerializer(), false, 1024);
+        assertEquals(new String(json), new String(jsonWriter.serialize(order)));
+    }
+
+    @Test
+    void valuesFromNewerReleasesReadAsMisses() {
+        byte[] bytes = serializer.serialize(order(1));
+
+        byte[] newerFormat = bytes.clone();
+        newerFormat[0] = CompactRedisSerializer.FORMAT_VERSION + 1;
+        assertNull(serializer.deserialize(newerFormat));
+
+        // Tag, then the OrderResponse schema version
+        byte[] newerSchema = bytes.clone();
+        newerSchema[3] = OrderResponseCodec.SCHEMA_VERSION + 1;
+        assertNull(serializer.deserialize(newerSchema));
+
+        byte[] unknownTag = bytes.clone();
+        unknownTag[2] = (byte) 200;
+        assertNull(serializer.deserialize(unknownTag));
+    }
+
+    private static OrderResponse order(int lines) {
+        OrderResponse order = new OrderResponse();
+        order.setId(UUID.randomUUID());
+        order.setOrderNumber("ORD-20260301120000-000042");
+        order.setUserId(UUID.randomUUID());
+        order.setUserFullName("Ada Lovelace");
+        order.setUserEmail("ada.lovelace@example.com");
+        order.setStatus(Order.OrderStatus.SHIPPED);
+        order.setShippingAddress(new Address("221B Baker Street", "London", "Greater London", "NW1 6XE", "UK"));
+        order.setNotes("Leave with the concierge");
+        order.setCreatedAt(LocalDateTime.of(2026, 3, 1, 11, 59, 58, 500_000_000));
+        order.setUpdatedAt(LocalDateTime.of(2026, 3, 1, 12, 0));
+        List<OrderItemResponse> items = new ArrayList<>();
+        Money subtotal = Money.ZERO;
+        for (int i = 0; i < lines; i++) {
+            OrderItemResponse item = new OrderItemResponse();
+            item.setId(UUID.randomUUID());
+            item.setProductId(UUID.randomUUID());
+            item.setProductName("Product " + i);
+            item.setProductSku("SKU-" + i);
+            item.setQuantity(i + 1);
+            item.setUnitPrice(Money.ofMinor(1999));
+            item.setTotalPrice(Money.ofMinor(1999L * (i + 1)));
+            subtotal = subtotal.plus(item.getTotalPrice());
+            items.add(item);
+        }
+        order.setItems(items);
+        order.setSubtotal(subtotal);
+        order.setShippingAmount(Money.ofMinor(499));
+        order.setTaxAmount(Money.ZERO);
+        order.setTotalAmount(subtotal.plus(Money.ofMinor(499)));
+        order.setTotalItems(lines);
+        return order;
+    }
+
+    private static void assertSameOrder(OrderResponse expected, OrderResponse actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getOrderNumber(), actual.getOrderNumber());
+        assertEquals(expected.getUserId(), actual.getUserId());
+        assertEquals(expected.getUserFullName(), actual.getUserFullName());
+        assertEquals(expected.getUserEmail(), actual.getUserEmail());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getTotalAmount(), actual.getTotalAmount());
+        assertEquals(expected.getTaxAmount(), actual.getTaxAmount());
+        assertEquals(expected.getShippingAmount(), actual.getShippingAmount());
+        assertEquals(expected.getSubtotal(), actual.getSubtotal());
+        assertEquals(expected.getShippingAddress().getStreetAddress(), actual.getShippingAddress().getStreetAddress());
+        assertEquals(expected.getShippingAddress().getCountry(), actual.getShippingAddress().getCountry());
+        assertEquals(expected.getNotes(), actual.getNotes());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        assertEquals(expected.getShippedAt(), actual.getShippedAt());
+        assertEquals(expected.getDeliveredAt(), actual.getDeliveredAt());
+        assertEquals(expected.getTotalItems(), actual.getTotalItems());
+        assertEquals(expected.getItems().size(), actual.getItems().size());
+        for (int i = 0; i < expected.getItems().size(); i++) {
+            OrderItemResponse want = expected.getItems().get(i);
+            OrderItemResponse got = actual.getItems().get(i);
+            assertEquals(want.getId(), got.getId());
+            assertEquals(want.getProductId(), got.getProductId());
+            assertEquals(want.getProductName(), got.getProductName());
+            assertEquals(want.getProductSku(), got.getProductSku());
+            assertEquals(want.getQuantity(), got.getQuantity());
+            assertEquals(want.getUnitPrice(), got.getUnitPrice());
+            assertEquals(want.getTotalPrice(), got.getTotalPrice());
+        }
+    }
+}
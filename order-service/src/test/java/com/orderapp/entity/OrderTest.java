@@ -0,0 +1,134 @@
+package com.orderapp.entity;
+
+import com.orderapp.dto.OrderResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderTest {
+
+    private static final int LINES = 10_000;
+
+    private User user;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        user = new User("Test", "Buyer", "buyer@example.com");
+        user.setId(UUID.randomUUID());
+        product = new Product("Widget", "WID-1", new BigDecimal("1.25"));
+        product.setId(UUID.randomUUID());
+    }
+
+    @Test
+    void buildingLargeOrderReadsEachLineOnce() {
+        Order order = new Order(user, "ORD-TEST");
+        order.setTaxAmount(Money.ofMinor(100));
+        order.setShippingAmount(Money.ofMinor(499));
+
+        for (int i = 0; i < LINES; i++) {
+            order.addOrderItem(new CountingOrderItem(product, 2, Money.ofMinor(125)));
+        }
+
+        // A rescan per add would read the line totals ~LINES^2 / 2 times
+        assertEquals(LINES, CountingOrderItem.reads(order));
+        assertEquals(Money.ofMinor(LINES * 250L), order.getSubtotal());
+        assertEquals(Money.ofMinor(LINES * 250L + 599), order.getTotalAmount());
+        assertEquals(LINES * 2, order.getTotalItems());
+        assertEquals(LINES, CountingOrderItem.reads(order));
+    }
+
+    @Test
+    void orderResponseDoesNotRecomputeSums() {
+        Order order = new Order(user, "ORD-TEST");
+        for (int i = 0; i < LINES; i++) {
+            order.addOrderItem(new CountingOrderItem(product, 1, Money.ofMinor(125)));
+        }
+        CountingOrderItem.reset(order);
+
+        OrderResponse response = new OrderResponse(order);
+
+        // Only the per-item mapping reads line totals
+        assertEquals(LINES, CountingOrderItem.reads(order));
+        assertEquals(Money.ofMinor(LINES * 125L), response.getSubtotal());
+        assertEquals(LINES, response.getTotalItems());
+    }
+
+    @Test
+    void aggregatesFollowItemChangesAndRemoval() {
+        Order order = new Order(user, "ORD-TEST");
+        OrderItem first = new OrderItem(product, 1, Money.ofMinor(1000));
+        OrderItem second = new OrderItem(product, 3, Money.ofMinor(250));
+        order.addOrderItem(first);
+        order.addOrderItem(second);
+
+        first.setQuantity(4);
+        second.setUnitPrice(Money.ofMinor(300));
+        assertEquals(Money.ofMinor(4900), order.getSubtotal());
+        assertEquals(7, order.getTotalItems());
+        assertEquals(Money.ofMinor(4900), order.getTotalAmount());
+
+        order.removeOrderItem(first);
+        assertEquals(Money.ofMinor(900), order.getSubtotal());
+        assertEquals(3, order.getTotalItems());
+        assertEquals(Money.ofMinor(900), order.getTotalAmount());
+    }
+
+    @Test
+    void aggregatesAreRebuiltAfterLoad() {
+        // Mimics Hibernate: no-arg constructor, collection injected, then @PostLoad
+        Order order = new Order();
+        order.setUser(user);
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            OrderItem item = new OrderItem(product, 2, Money.ofMinor(125));
+            item.setOrder(order);
+            items.add(item);
+        }
+        order.setOrderItems(items);
+        order.markAggregatesStale();
+
+        assertEquals(Money.ofMinor(750), order.getSubtotal());
+        assertEquals(6, order.getTotalItems());
+
+        order.addOrderItem(new OrderItem(product, 1, Money.ofMinor(50)));
+        assertEquals(Money.ofMinor(800), order.getSubtotal());
+        assertEquals(7, order.getTotalItems());
+    }
+
+    private static class CountingOrderItem extends OrderItem {
+
+        private int reads;
+
+        CountingOrderItem(Product product, int quantity, Money unitPrice) {
+            super(product, quantity, unitPrice);
+            reads = 0;
+        }
+
+        @Override
+        public Money getTotalPrice() {
+            reads++;
+            return super.getTotalPrice();
+        }
+
+        static long reads(Order order) {
+            long total = 0;
+            for (OrderItem item : order.getOrderItems()) {
+                total += ((CountingOrderItem) item).reads;
+            }
+            return total;
+        }
+
+        static void reset(Order order) {
+            for (OrderItem item : order.getOrderItems()) {
+                ((CountingOrderItem) item).reads = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.orderapp.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Open-model load generator: requests are issued on a fixed schedule at a constant arrival
+ * rate, regardless of how many are still in flight. Latency is measured from each request's
+ * intended start time rather than the moment it was actually sent, so a stalled server or
+ * a generator that falls behind shows up in the percentiles instead of being hidden
+ * (coordinated omission).
+ */
+final class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final HttpClient client;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private int totalWeight;
+
+    LoadGenerator(HttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Add an endpoint to the traffic mix; weight is its share of the arrivals
+     */
+    LoadGenerator endpoint(String name, int weight, int expectedStatus,
+                           Supplier<HttpRequest> requests, Consumer<HttpResponse<String>> onSuccess) {
+        if (weight > 0) {
+            endpoints.add(new Endpoint(name, weight, expectedStatus, requests, onSuccess));
+            totalWeight += weight;
+        }
+        return this;
+    }
+
+    List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Drive the mix at ratePerSecond for warmup + duration. Only requests whose intended
+     * start falls after the warm-up are recorded; sends are asynchronous so a slow response
+     * never delays the next arrival.
+     */
+    void run(double ratePerSecond, Duration warmup, Duration duration, Duration drainTimeout) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("No endpoints in the traffic mix");
+        }
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+            send(pick(), intended, intended >= measureFrom);
+        }
+
+        // Wait for measured requests still in flight; whatever is left counts as an error
+        long drainDeadline = System.nanoTime() + drainTimeout.toNanos();
+        while (inFlight() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        for (Endpoint endpoint : endpoints) {
+            endpoint.timedOut = endpoint.inFlight.get();
+            endpoint.measuredSeconds = duration.toNanos() / 1e9;
+        }
+    }
+
+    private long inFlight() {
+        long total = 0;
+        for (Endpoint endpoint : endpoints) {
+            total += endpoint.inFlight.get();
+        }
+        return total;
+    }
+
+    private void send(Endpoint endpoint, long intended, boolean measured) {
+        if (measured) {
+            endpoint.inFlight.incrementAndGet();
+        }
+        HttpRequest request;
+        try {
+            request = endpoint.requests.get();
+        } catch (RuntimeException e) {
+            endpoint.record(intended, measured, false);
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .handle((response, error) -> {
+                boolean ok = error == null && response.statusCode() == endpoint.expectedStatus;
+                endpoint.record(intended, measured, ok);
+                if (ok) {
+                    endpoint.onSuccess.accept(response);
+                }
+                return null;
+            });
+    }
+
+    private Endpoint pick() {
+        int ticket = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Endpoint endpoint : endpoints) {
+            ticket -= endpoint.weight;
+            if (ticket < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    void printReport(PrintStream out) {
+        out.printf("%-14s %9s %7s %10s %10s %10s %10s %10s %10s%n",
+            "endpoint", "ok", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Endpoint endpoint : endpoints) {
+            Histogram h = endpoint.latency;
+            out.printf("%-14s %9d %7d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                endpoint.name,
+                h.getTotalCount(),
+                endpoint.getErrors(),
+                endpoint.throughput(),
+                millis(h.getValueAtPercentile(50)),
+                millis(h.getValueAtPercentile(90)),
+                millis(h.getValueAtPercentile(99)),
+                millis(h.getValueAtPercentile(99.9)),
+                millis(h.getMaxValue()));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    static final class Endpoint {
+        private final String name;
+        private final int weight;
+        private final int expectedStatus;
+        private final Supplier<HttpRequest> requests;
+        private final Consumer<HttpResponse<String>> onSuccess;
+        private final Histogram latency = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3);
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLong inFlight = new AtomicLong();
+        private volatile long timedOut;
+        private double measuredSeconds;
+
+        private Endpoint(String name, int weight, int expectedStatus,
+                         Supplier<HttpRequest> requests, Consumer<HttpResponse<String>> onSuccess) {
+            this.name = name;
+            this.weight = weight;
+            this.expectedStatus = expectedStatus;
+            this.requests = requests;
+            this.onSuccess = onSuccess;
+        }
+
+        private void record(long intended, boolean measured, boolean ok) {
+            if (!measured) {
+                return;
+            }
+            inFlight.decrementAndGet();
+            if (ok) {
+                latency.recordValue(Math.min(System.nanoTime() - intended, HIGHEST_TRACKABLE_NANOS));
+            } else {
+                errors.increment();
+            }
+        }
+
+        String getName() { return name; }
+        Histogram getLatency() { return latency; }
+        long getErrors() { return errors.sum() + timedOut; }
+
+        double throughput() {
+            return measuredSeconds > 0 ? latency.getTotalCount() / measuredSeconds : 0.0;
+        }
+    }
+}
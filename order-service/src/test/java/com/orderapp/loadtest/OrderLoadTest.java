@@ -0,0 +1,279 @@
+package com.orderapp.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.orderapp.dto.CreateOrderRequest;
+import com.orderapp.entity.Address;
+import com.orderapp.entity.Order;
+import com.orderapp.entity.Product;
+import com.orderapp.entity.User;
+import com.orderapp.repository.ProductRepository;
+import com.orderapp.repository.UserRepository;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test of POST /orders, POST /orders/async, GET /orders/{id} and
+ * PUT /orders/{id}/status through the real controller and service, with H2 (PostgreSQL mode),
+ * an embedded Kafka broker and an in-memory cache standing in for Postgres, Kafka and Redis.
+ *
+ * Skipped unless -Dloadtest=true. Example:
+ * <pre>
+ *   mvn test -Dtest=OrderLoadTest -Dloadtest=true -Dloadtest.rate=500 -Dloadtest.duration=60 \
+ *       -Dloadtest.mix=create=20,get=70,status=10,async=0
+ * </pre>
+ * Percentile distributions are written to target/loadtest/*.hgrm.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@EmbeddedKafka(partitions = 3, topics = {"order-events", "order-analytics"},
+    bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class OrderLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderLoadTest.class);
+
+    private static final Order.OrderStatus[] UPDATE_STATUSES = {
+        Order.OrderStatus.CONFIRMED, Order.OrderStatus.PROCESSING, Order.OrderStatus.SHIPPED
+    };
+
+    @TestConfiguration
+    static class InMemoryCacheConfig {
+
+        // Replaces the Redis cache manager so no Redis server is needed
+        @Bean
+        @Primary
+        public CacheManager loadTestCacheManager() {
+            return new ConcurrentMapCacheManager("orders", "userOrders");
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${server.servlet.context-path:}")
+    private String contextPath;
+
+    @Value("${spring.security.user.name}")
+    private String username;
+
+    @Value("${spring.security.user.password}")
+    private String password;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final OrderIdPool orderIds = new OrderIdPool(1 << 16);
+
+    private List<UUID> userIds;
+    private List<UUID> productIds;
+    private String baseUrl;
+    private String authorization;
+
+    @Test
+    void loadTest() throws Exception {
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "200"));
+        Duration warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup", 15));
+        Duration duration = Duration.ofSeconds(Long.getLong("loadtest.duration", 60));
+        Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix", "create=20,get=70,status=10"));
+
+        baseUrl = "http://localhost:" + port + contextPath;
+        authorization = "Basic " + Base64.getEncoder()
+            .encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        seed(Integer.getInteger("loadtest.users", 100), Integer.getInteger("loadtest.products", 200));
+
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+        // Prime the pool so get and status updates have targets from the first arrival
+        for (int i = 0; i < Integer.getInteger("loadtest.seed-orders", 200); i++) {
+            HttpResponse<String> response = client.send(createOrder(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 201) {
+                throw new IllegalStateException("Seed order failed: " + response.statusCode() + " " + response.body());
+            }
+            rememberOrder(response);
+        }
+
+        LoadGenerator generator = new LoadGenerator(client)
+            .endpoint("POST /orders", mix.getOrDefault("create", 0), 201, this::createOrder, this::rememberOrder)
+            .endpoint("POST async", mix.getOrDefault("async", 0), 202, this::submitOrder, response -> {})
+            .endpoint("GET /orders/id", mix.getOrDefault("get", 0), 200, this::getOrder, response -> {})
+            .endpoint("PUT status", mix.getOrDefault("status", 0), 200, this::updateStatus, response -> {});
+
+        logger.info("Running {} req/s for {} after {} warm-up, mix {}", rate, duration, warmup, mix);
+        generator.run(rate, warmup, duration, Duration.ofSeconds(30));
+
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        generator.printReport(new PrintStream(report, true, StandardCharsets.UTF_8));
+        logger.info("Load test results at {} req/s (latency from intended start):{}{}",
+            rate, System.lineSeparator(), report.toString(StandardCharsets.UTF_8));
+        writeHistograms(generator);
+
+        for (LoadGenerator.Endpoint endpoint : generator.getEndpoints()) {
+            assertTrue(endpoint.getLatency().getTotalCount() > 0, "No successful requests for " + endpoint.getName());
+        }
+    }
+
+    private void seed(int users, int products) {
+        userIds = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = new User("Load", "Tester" + i, "load.tester" + i + "@example.com");
+            userIds.add(userRepository.save(user).getId());
+        }
+        productIds = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Product product = new Product("Load product " + i, "LOAD-" + i, BigDecimal.valueOf(199 + i * 37L, 2));
+            product.setStockQuantity(Integer.MAX_VALUE / 2);
+            productIds.add(productRepository.save(product).getId());
+        }
+    }
+
+    private HttpRequest createOrder() {
+        return postOrder("/orders");
+    }
+
+    private HttpRequest submitOrder() {
+        return postOrder("/orders/async");
+    }
+
+    private HttpRequest postOrder(String path) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int lines = 1 + random.nextInt(5);
+        List<CreateOrderRequest.OrderItemRequest> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(new CreateOrderRequest.OrderItemRequest(
+                productIds.get(random.nextInt(productIds.size())), 1 + random.nextInt(3)));
+        }
+        CreateOrderRequest request = new CreateOrderRequest(userIds.get(random.nextInt(userIds.size())), items);
+        request.setShippingAddress(new Address("1 Load Street", "Springfield", "IL", "62701", "US"));
+        request.setShippingAmount(new BigDecimal("4.99"));
+        try {
+            return request(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(request)))
+                .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private HttpRequest getOrder() {
+        return request("/orders/" + orderIds.random()).GET().build();
+    }
+
+    private HttpRequest updateStatus() {
+        Order.OrderStatus status = UPDATE_STATUSES[ThreadLocalRandom.current().nextInt(UPDATE_STATUSES.length)];
+        return request("/orders/" + orderIds.random() + "/status?status=" + status)
+            .PUT(HttpRequest.BodyPublishers.noBody())
+            .build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofSeconds(30))
+            .header("Authorization", authorization)
+            .header("Accept", "application/json");
+    }
+
+    private void rememberOrder(HttpResponse<String> response) {
+        try {
+            JsonNode order = objectMapper.readTree(response.body());
+            orderIds.add(UUID.fromString(order.get("id").asText()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unreadable order response", e);
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split("=");
+            weights.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    private static void writeHistograms(LoadGenerator generator) throws IOException {
+        Path dir = Paths.get("target", "loadtest");
+        Files.createDirectories(dir);
+        for (LoadGenerator.Endpoint endpoint : generator.getEndpoints()) {
+            Histogram latency = endpoint.getLatency();
+            Path file = dir.resolve(endpoint.getName().replaceAll("[^A-Za-z0-9]+", "_") + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, StandardCharsets.UTF_8)) {
+                // Values are nanoseconds; scale the output to milliseconds
+                latency.outputPercentileDistribution(out, 1e6);
+            }
+        }
+    }
+
+    /**
+     * Fixed-size ring of recently created order ids that request suppliers pick from at random
+     */
+    private static final class OrderIdPool {
+        private final AtomicReferenceArray<UUID> ids;
+        private final AtomicLong added = new AtomicLong();
+
+        private OrderIdPool(int capacity) {
+            this.ids = new AtomicReferenceArray<>(capacity);
+        }
+
+        void add(UUID id) {
+            ids.set((int) (added.getAndIncrement() % ids.length()), id);
+        }
+
+        UUID random() {
+            long size = Math.min(added.get(), ids.length());
+            UUID id = size > 0 ? ids.get(ThreadLocalRandom.current().nextInt((int) size)) : null;
+            if (id == null) {
+                throw new IllegalStateException("No orders created yet");
+            }
+            return id;
+        }
+    }
+}
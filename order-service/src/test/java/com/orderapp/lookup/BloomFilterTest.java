@@ -0,0 +1,92 @@
+package com.orderapp.lookup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void addedKeysAreNeverRuledOut() {
+        BloomFilter filter = BloomFilter.withBudget(64 * 1024, 50_000);
+        List<String> keys = orderNumbers(50_000, 0);
+        keys.forEach(filter::add);
+        for (String key : keys) {
+            assertTrue(filter.mightContain(key), key);
+        }
+    }
+
+    @Test
+    void falsePositivesMatchTheEstimateAndTheBudget() {
+        // 10 bits per key: about 1% in theory
+        BloomFilter filter = BloomFilter.withBudget(125_000, 100_000);
+        orderNumbers(100_000, 0).forEach(filter::add);
+
+        int falsePositives = 0;
+        List<String> absent = orderNumbers(100_000, 1_000_000);
+        for (String key : absent) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+        double observed = (double) falsePositives / absent.size();
+        double estimated = filter.expectedFalsePositiveRate();
+        assertEquals(7, filter.getHashes());
+        assertEquals(125_000, filter.getMemoryBytes());
+        assertTrue(estimated > 0.005 && estimated < 0.015, "estimated " + estimated);
+        assertEquals(estimated, observed, estimated * 0.25, "observed " + observed);
+    }
+
+    @Test
+    void concurrentAddsLoseNoBits() throws Exception {
+        BloomFilter filter = BloomFilter.withBudget(256 * 1024, 200_000);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> adds = new ArrayList<>();
+        List<List<String>> batches = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            List<String> batch = new ArrayList<>();
+            for (int i = 0; i < 50_000; i++) {
+                batch.add(UUID.randomUUID().toString());
+            }
+            batches.add(batch);
+            adds.add(pool.submit(() -> batch.forEach(filter::add)));
+        }
+        for (Future<?> add : adds) {
+            add.get();
+        }
+        pool.shutdown();
+
+        BloomFilter sequential = new BloomFilter(filter.getBits(), filter.getHashes());
+        batches.forEach(batch -> batch.forEach(sequential::add));
+        assertEquals(sequential.getBitsSet(), filter.getBitsSet());
+        for (List<String> batch : batches) {
+            for (String key : batch) {
+                assertTrue(filter.mightContain(key));
+            }
+        }
+    }
+
+    @Test
+    void emptyFilterRulesEverythingOut() {
+        BloomFilter filter = BloomFilter.withBudget(1024, 100);
+        assertFalse(filter.mightContain("ORD-20260301120000-000042"));
+        assertEquals(0.0, filter.expectedFalsePositiveRate());
+    }
+
+    private static List<String> orderNumbers(int count, int firstSequence) {
+        List<String> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            numbers.add(String.format("ORD-20260301%06d-%06d", i % 1_000_000 / 1000, firstSequence + i));
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,74 @@
+package com.orderapp.publish;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void segmentIsKeptUntilEveryEventIsAcknowledged() throws Exception {
+        SpillLog spill = new SpillLog(directory, "events", new ObjectMapper());
+        spill.open();
+        for (int i = 0; i < 3; i++) {
+            spill.append(new PendingEvent("order-events", "key-" + i, "event-" + i, System.nanoTime()));
+        }
+
+        Path segment = spill.nextSegment();
+        List<Object> sent = new ArrayList<>();
+        boolean replayed = spill.replay(segment, event -> {
+            sent.add(event.getValue());
+            return sent.size() == 2
+                ? CompletableFuture.failedFuture(new IllegalStateException("broker unavailable"))
+                : CompletableFuture.completedFuture(null);
+        }, 1);
+        assertFalse(replayed);
+        assertEquals(List.of("event-0", "event-1", "event-2"), sent);
+        assertTrue(Files.exists(segment));
+        assertEquals(3, spill.getPending());
+        assertTrue(spill.isActive());
+
+        // Put back ahead of anything spilled since
+        spill.append(new PendingEvent("order-events", "key-3", "event-3", System.nanoTime()));
+        assertEquals(segment, spill.nextSegment());
+        sent.clear();
+        assertTrue(spill.replay(segment, event -> {
+            sent.add(event.getValue());
+            return CompletableFuture.completedFuture(null);
+        }, 1));
+        assertEquals(List.of("event-0", "event-1", "event-2"), sent);
+        assertFalse(Files.exists(segment));
+
+        Path next = spill.nextSegment();
+        assertTrue(spill.replay(next, event -> CompletableFuture.completedFuture(null), 1));
+        assertNull(spill.nextSegment());
+        assertFalse(spill.isActive());
+        assertEquals(0, spill.getPending());
+    }
+
+    @Test
+    void unacknowledgedSendsKeepTheSegment() throws Exception {
+        SpillLog spill = new SpillLog(directory, "events", new ObjectMapper());
+        spill.open();
+        spill.append(new PendingEvent("order-events", "key", "event", System.nanoTime()));
+
+        Path segment = spill.nextSegment();
+        assertFalse(spill.replay(segment, event -> new CompletableFuture<>(), 0));
+        assertTrue(Files.exists(segment));
+        assertEquals(1, spill.getPending());
+    }
+}
@@ -0,0 +1,42 @@
+package com.orderapp.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.Clock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final Authentication user = UsernamePasswordAuthenticationToken.authenticated(
+        "alice", null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+    @Test
+    void missingSecretFailsUnlessAllowed() {
+        assertThrows(IllegalStateException.class, () -> new TokenService("", 900, Clock.systemUTC(), false));
+        assertThrows(IllegalStateException.class, () -> new TokenService(null, 900));
+
+        TokenService random = new TokenService("", 900, Clock.systemUTC(), true);
+        assertEquals("alice", random.verify(random.issue(user)).getUsername());
+    }
+
+    @Test
+    void shortSecretIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new TokenService(SECRET.substring(1), 900));
+    }
+
+    @Test
+    void tokensVerifyOnlyUnderTheSameSecret() {
+        TokenService issuer = new TokenService(SECRET, 900);
+        String token = issuer.issue(user);
+        assertEquals("alice", new TokenService(SECRET, 900).verify(token).getUsername());
+        assertNull(new TokenService(SECRET.toUpperCase(), 900).verify(token));
+    }
+}
@@ -0,0 +1,59 @@
+package com.orderapp.service;
+
+import com.orderapp.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CatalogSnapshotTest {
+
+    private CatalogSnapshot snapshot;
+    private Product[] products;
+
+    @BeforeEach
+    void setUp() {
+        products = new Product[10];
+        for (int i = 0; i < products.length; i++) {
+            Product product = new Product("Product " + i, "SKU-" + i, BigDecimal.valueOf(10 + i));
+            product.setId(UUID.randomUUID());
+            product.setStockQuantity(5);
+            product.setUpdatedAt(LocalDateTime.of(2025, 1, 1, 12, i));
+            products[i] = product;
+        }
+        snapshot = CatalogSnapshot.build(1, products);
+    }
+
+    @Test
+    void priceRangeIsCheapestFirstAndLimited() {
+        List<Product> range = snapshot.byPriceRange(1200, 1600, 3);
+        assertEquals(List.of("SKU-2", "SKU-3", "SKU-4"), skus(range));
+    }
+
+    @Test
+    void hugeLimitDoesNotOverflow() {
+        assertEquals(8, snapshot.byPriceRange(1200, Long.MAX_VALUE, Integer.MAX_VALUE).size());
+    }
+
+    @Test
+    void limitBelowOneReturnsOneLikeTheDatabaseQuery() {
+        assertEquals(List.of("SKU-0"), skus(snapshot.byPriceRange(Long.MIN_VALUE, Long.MAX_VALUE, 0)));
+    }
+
+    @Test
+    void updatedAtIsThatOfTheHeldProduct() {
+        assertEquals(products[3].getUpdatedAt(), snapshot.updatedAt(products[3].getId()));
+        assertNull(snapshot.updatedAt(UUID.randomUUID()));
+    }
+
+    private static List<String> skus(List<Product> products) {
+        return products.stream().map(Product::getSku).collect(Collectors.toList());
+    }
+}
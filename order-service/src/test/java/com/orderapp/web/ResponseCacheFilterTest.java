@@ -0,0 +1,123 @@
+package com.orderapp.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheFilterTest {
+
+    private static final String CATEGORIES = "/products/categories";
+    private static final String ETAG = "\"c1-abc\"";
+
+    private final ResponseCache responseCache = ResponseCacheTest.newCache(100, 300);
+    private final ResponseCacheFilter filter = new ResponseCacheFilter(responseCache, null);
+    private final AtomicInteger rendered = new AtomicInteger();
+    private String body = "[\"books\",\"games\"]";
+
+    // Stands in for the controller, which tags the list itself
+    private final HttpServlet controller = new HttpServlet() {
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            rendered.incrementAndGet();
+            response.setContentType("application/json");
+            response.setHeader(HttpHeaders.ETAG, ETAG);
+            response.getWriter().write(body);
+        }
+    };
+
+    @Test
+    void aMissIsRenderedOnceAndThenServedFromTheCache() throws Exception {
+        MockHttpServletResponse miss = get(CATEGORIES, null, null);
+        MockHttpServletResponse hit = get(CATEGORIES, null, null);
+
+        assertEquals("MISS", miss.getHeader("X-Cache"));
+        assertEquals("HIT", hit.getHeader("X-Cache"));
+        assertEquals(1, rendered.get());
+        assertEquals(200, hit.getStatus());
+        assertEquals(ETAG, hit.getHeader(HttpHeaders.ETAG));
+        assertEquals(body, hit.getContentAsString());
+    }
+
+    @Test
+    void aMatchingIfNoneMatchIsAnsweredWithoutABody() throws Exception {
+        MockHttpServletResponse miss = get(CATEGORIES, ETAG, null);
+        MockHttpServletResponse hit = get(CATEGORIES, "W/" + ETAG, null);
+
+        assertEquals(304, miss.getStatus());
+        assertEquals(0, miss.getContentAsByteArray().length);
+        assertEquals(304, hit.getStatus());
+        assertEquals(0, hit.getContentAsByteArray().length);
+        assertEquals(ETAG, hit.getHeader(HttpHeaders.ETAG));
+        // The miss was still rendered in full and cached
+        assertEquals(200, get(CATEGORIES, "\"other\"", null).getStatus());
+        assertEquals(1, rendered.get());
+    }
+
+    @Test
+    void anInvalidatedTagIsRenderedAgain() throws Exception {
+        get(CATEGORIES, null, null);
+        responseCache.invalidate(ResponseCache.CATALOG_TAG);
+        body = "[\"books\"]";
+
+        MockHttpServletResponse response = get(CATEGORIES, null, null);
+        assertEquals("MISS", response.getHeader("X-Cache"));
+        assertEquals(body, response.getContentAsString());
+        assertEquals(2, rendered.get());
+    }
+
+    @Test
+    void largeHitsAreGzippedForClientsThatAcceptIt() throws Exception {
+        body = "[" + "\"category\",".repeat(200) + "\"last\"]";
+        get(CATEGORIES, null, null);
+
+        MockHttpServletResponse gzipped = get(CATEGORIES, null, "gzip, deflate");
+        assertEquals("gzip", gzipped.getHeader(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            assertEquals(body, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        MockHttpServletResponse plain = get(CATEGORIES, null, null);
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(body, plain.getContentAsString());
+    }
+
+    @Test
+    void requestsWithAQueryPassThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", CATEGORIES);
+        request.setQueryString("page=1");
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(controller));
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(controller));
+
+        assertEquals(2, rendered.get());
+        assertEquals(0, responseCache.size());
+    }
+
+    private MockHttpServletResponse get(String path, String ifNoneMatch, String acceptEncoding)
+            throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        if (ifNoneMatch != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if (acceptEncoding != null) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(controller));
+        return response;
+    }
+}
@@ -0,0 +1,119 @@
+package com.orderapp.web;
+
+import com.orderapp.metrics.OrderMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheTest {
+
+    private static final String JSON = "application/json";
+
+    static ResponseCache newCache(int maxEntries, long ttlSeconds) {
+        return new ResponseCache(new OrderMetrics(new SimpleMeterRegistry(), 100),
+            new DefaultListableBeanFactory().getBeanProvider(ResponseCacheBroadcaster.class),
+            maxEntries, ttlSeconds, 1024);
+    }
+
+    @Test
+    void aBodyRenderedAcrossAnInvalidationIsNotStored() {
+        ResponseCache cache = newCache(100, 300);
+        String tag = ResponseCache.orderTag(UUID.randomUUID());
+
+        long generation = cache.generation(tag);
+        cache.invalidate(tag);
+        cache.put("/orders/1", JSON, "\"a\"", body("stale"), generation, tag);
+        assertNull(cache.get("/orders/1"));
+
+        cache.put("/orders/1", JSON, "\"b\"", body("fresh"), cache.generation(tag), tag);
+        assertEquals("\"b\"", cache.get("/orders/1").getETag());
+    }
+
+    @Test
+    void invalidatingATagDropsOnlyTheEntriesCarryingIt() {
+        ResponseCache cache = newCache(100, 300);
+        String first = ResponseCache.productTag(UUID.randomUUID());
+        String second = ResponseCache.productTag(UUID.randomUUID());
+        cache.put("/products/1", JSON, null, body("1"), cache.generation(first), first);
+        cache.put("/products/categories", JSON, null, body("[]"), cache.generation(first, ResponseCache.CATALOG_TAG),
+            first, ResponseCache.CATALOG_TAG);
+        cache.put("/products/2", JSON, null, body("2"), cache.generation(second), second);
+
+        long secondGeneration = cache.generation(second);
+        cache.invalidate(first);
+
+        assertNull(cache.get("/products/1"));
+        assertNull(cache.get("/products/categories"));
+        assertNotNull(cache.get("/products/2"));
+        // Tags have generations of their own
+        assertEquals(secondGeneration, cache.generation(second));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void generationsChangeAfterTheTrackedTagsAreReset() {
+        ResponseCache cache = newCache(4, 300);
+        String tag = ResponseCache.orderTag(UUID.randomUUID());
+        cache.invalidate(tag);
+        long generation = cache.generation(tag);
+
+        for (int i = 0; i < 10; i++) {
+            cache.invalidate(ResponseCache.orderTag(UUID.randomUUID()));
+        }
+        assertNotEquals(generation, cache.generation(tag));
+    }
+
+    @Test
+    void theLeastRecentlyReadEntryIsEvictedBeyondMaxEntries() {
+        ResponseCache cache = newCache(2, 300);
+        cache.put("/orders/1", JSON, null, body("1"), cache.generation("order:1"), "order:1");
+        cache.put("/orders/2", JSON, null, body("2"), cache.generation("order:2"), "order:2");
+        cache.get("/orders/1");
+        cache.put("/orders/3", JSON, null, body("3"), cache.generation("order:3"), "order:3");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("/orders/2"));
+        assertNotNull(cache.get("/orders/1"));
+        assertNotNull(cache.get("/orders/3"));
+    }
+
+    @Test
+    void expiredEntriesAreNotServed() throws InterruptedException {
+        ResponseCache cache = newCache(100, 0);
+        cache.put("/orders/1", JSON, null, body("1"), cache.generation("order:1"), "order:1");
+        Thread.sleep(1);
+
+        assertNull(cache.get("/orders/1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void onlyLargeBodiesAreKeptGzipped() throws IOException {
+        ResponseCache cache = newCache(100, 300);
+        byte[] large = body("{\"name\":\"product\"},".repeat(200));
+        cache.put("/products/available", JSON, null, large, cache.generation("catalog"), "catalog");
+        cache.put("/products/1", JSON, null, body("{}"), cache.generation("product:1"), "product:1");
+
+        byte[] gzipped = cache.get("/products/available").getGzippedBody();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            assertArrayEquals(large, in.readAllBytes());
+        }
+        assertNull(cache.get("/products/1").getGzippedBody());
+    }
+
+    private static byte[] body(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -15,9 +15,15 @@ fi
 # Navigate to order service directory
 cd order-service
 
-# Build and run the Spring Boot application
+# Build and run the Spring Boot application. Without AUTH_TOKEN_SECRET the dev profile
+# signs bearer tokens with a random key, which changes on every restart.
 echo "Building and starting Order Service..."
-./mvnw clean spring-boot:run
+if [ -n "$AUTH_TOKEN_SECRET" ]; then
+    ./mvnw clean spring-boot:run
+else
+    echo "AUTH_TOKEN_SECRET is not set; starting with the dev profile"
+    ./mvnw clean spring-boot:run -Dspring-boot.run.profiles=dev
+fi
 
 echo "Order Service started successfully!"
 echo "API available at: http://localhost:8090/api"